@@ -28,4 +28,20 @@ public @interface EmbeddedParameter {
      * @return The appropriate class "wrapper" (sometimes pseudo) object.
      */
     Class<? extends Comparable<?>> wrapper() default UnknownParameterWrapper.class;
+
+    /**
+     * Other names under which the annotated field may appear in data serialized by older or newer versions of the
+     * event class, for e.g. its previous field names. Used during deserialization of events whose serialVersionUID
+     * differs from the local one, when the field itself is missing in the serialized data.
+     * @return Array with the alternative names. Empty by default.
+     */
+    String[] aliases() default {};
+
+    /**
+     * JSON representation of the value assigned to the annotated field when data serialized by older or newer version
+     * of the event class does not contain it, for e.g. "0", "true" or "\"text\"". If empty the value set during the
+     * instantiation of the event is kept.
+     * @return The JSON representation of the default value. Empty by default.
+     */
+    String defaultValue() default "";
 }
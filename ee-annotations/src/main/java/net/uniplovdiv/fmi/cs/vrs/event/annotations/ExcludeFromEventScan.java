@@ -0,0 +1,14 @@
+package net.uniplovdiv.fmi.cs.vrs.event.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks that the particular class implementing IEvent is not an event type on its own, for e.g. a view or a wrapper
+ * of other events, so it must not be indexed at compile time or found by the event classes scanning. Such class never
+ * gets registered as an event subtype by the serializers. Not inherited by the subclasses.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ExcludeFromEventScan {
+}
@@ -0,0 +1,142 @@
+package net.uniplovdiv.fmi.cs.vrs.event.annotations.processors;
+
+import net.uniplovdiv.fmi.cs.vrs.event.annotations.ExcludeFromEventScan;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Processor for compilation time that builds an index of all classes implementing IEvent, except the ones annotated
+ * with {@link ExcludeFromEventScan}. The index is stored
+ * as {@link #INDEX_RESOURCE} resource - one binary class name per line - and allows the run-time to discover the event
+ * classes without scanning the class path.
+ * <p>
+ * The processor declares support for all annotation types ("*"), so it gets invoked for every compilation having
+ * ee-annotations on its processor path, even for sources without any annotations. It never claims annotations, thus the
+ * other processors are not affected. Each jar or directory whose event classes should be found without a run-time scan
+ * must be compiled with it - the ones without an index are scanned by ClassesIEventScanner when its run-time scanning
+ * is enabled. The processor can be turned off with the -proc:none compiler option or by listing the wanted processors
+ * explicitly with -processor.
+ */
+public class IEventIndexProcessor extends AbstractProcessor {
+
+    /**
+     * The location of the generated event classes index resource.
+     */
+    public static final String INDEX_RESOURCE = "META-INF/net.uniplovdiv.fmi.cs.vrs.event.IEvent.index";
+
+    private static final String IEVENT_INTERFACE_NAME = "net.uniplovdiv.fmi.cs.vrs.event.IEvent";
+
+    private Types typeUtils;
+    private Elements elementUtils;
+    private Filer filer;
+    private Messager messager;
+
+    private final Set<String> indexedClasses = new TreeSet<>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment env) {
+        super.init(env);
+        typeUtils = processingEnv.getTypeUtils();
+        elementUtils = processingEnv.getElementUtils();
+        filer = processingEnv.getFiler();
+        messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement ieventElement = elementUtils.getTypeElement(IEVENT_INTERFACE_NAME);
+        if (ieventElement == null) {
+            return false; // IEvent is not visible during this compilation so there is nothing to index
+        }
+        TypeMirror ieventType = typeUtils.erasure(ieventElement.asType());
+
+        if (roundEnv.processingOver()) {
+            if (!indexedClasses.isEmpty()) {
+                writeIndex();
+            }
+        } else {
+            for (Element element : roundEnv.getRootElements()) {
+                collect(element, ieventType);
+            }
+        }
+        return false; // do not claim any annotations, thus the other processors will still get them
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * Recursively collects the element and its nested types if they are classes implementing IEvent.
+     * @param element The element to be checked.
+     * @param ieventType The erased type of IEvent.
+     */
+    private void collect(Element element, TypeMirror ieventType) {
+        if (!element.getKind().isClass() && !element.getKind().isInterface()) {
+            return;
+        }
+        TypeElement typeElement = (TypeElement) element;
+        if (typeElement.getKind() == ElementKind.CLASS
+                && typeElement.getAnnotation(ExcludeFromEventScan.class) == null
+                && typeUtils.isAssignable(typeUtils.erasure(typeElement.asType()), ieventType)) {
+            indexedClasses.add(elementUtils.getBinaryName(typeElement).toString());
+        }
+        for (Element enclosed : typeElement.getEnclosedElements()) {
+            collect(enclosed, ieventType);
+        }
+    }
+
+    /**
+     * Writes the collected class names into the index resource merging them with any entries left from previous
+     * (incremental) compilations whose classes still exist.
+     */
+    private void writeIndex() {
+        Set<String> result = new TreeSet<>(indexedClasses);
+        try {
+            FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+            try (BufferedReader br = new BufferedReader(
+                    new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")
+                            && elementUtils.getTypeElement(line.replace('$', '.')) != null) {
+                        result.add(line);
+                    }
+                }
+            }
+        } catch (Exception ignored) {
+            // no previous index
+        }
+
+        try {
+            FileObject fo = filer.createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+            try (Writer w = new BufferedWriter(new OutputStreamWriter(fo.openOutputStream(), StandardCharsets.UTF_8))) {
+                for (String className : result) {
+                    w.write(className);
+                    w.write('\n');
+                }
+            }
+        } catch (IOException ex) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "Unable to write " + INDEX_RESOURCE + ": "
+                    + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base of the duplicate filters counting the results of the duplicate checks.
+ */
+public abstract class AbstractDuplicateFilter implements IDuplicateFilter {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Checks whether a data packet has already been seen without counting the result.
+     * @param packet The data packet to be checked. Cannot be null.
+     * @return True if the packet is considered a duplicate, otherwise false.
+     */
+    protected abstract boolean lookup(DataPacket packet);
+
+    @Override
+    public final boolean isDuplicate(DataPacket packet) {
+        boolean result = lookup(packet);
+        (result ? hits : misses).increment();
+        return result;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public void resetCounters() {
+        hits.reset();
+        misses.reset();
+    }
+}
@@ -4,13 +4,29 @@ import java.util.*;
 
 /**
  * CircularFifoSet is a first in first out set with a fixed size that replaces its oldest element if full.
- * Null elements are not permitted. The structure is not thread-safe.
+ * Null elements are not permitted. The elements are kept in a hash map of nodes of a doubly linked list, so the
+ * addition, including the moving of an existing element to the front, the removal and the lookup take constant time.
+ * The structure is not thread-safe. For a concurrent alternative see {@link ConcurrentLongFifoSet}.
  */
 public class CircularFifoSet<E> implements Collection<E> {
     private int capacity;
 
-    private HashSet<E> contents;
-    private LinkedList<E> orderedContents;
+    private HashMap<E, Node<E>> contents;
+    private Node<E> newest;
+    private Node<E> oldest;
+
+    /**
+     * Node of the list keeping the order of the elements.
+     */
+    private static final class Node<E> {
+        final E value;
+        Node<E> newer;
+        Node<E> older;
+
+        Node(E value) {
+            this.value = value;
+        }
+    }
 
     /**
      * Constructor.
@@ -22,8 +38,7 @@ public class CircularFifoSet<E> implements Collection<E> {
             throw new IllegalArgumentException("Illegal initial capacity: " + capacity);
         }
         this.capacity = capacity;
-        this.contents = new HashSet<>(capacity, 2.0F);
-        this.orderedContents = new LinkedList<>();
+        this.contents = new HashMap<>(Math.min(capacity, 1 << 16), 2.0F);
     }
 
     /**
@@ -42,45 +57,38 @@ public class CircularFifoSet<E> implements Collection<E> {
      */
     @Override
     public boolean add(E e) {
+        Node<E> node = contents.get(e);
+        if (node != null) {
+            // the element already exists so move it to in first place
+            unlink(node);
+            linkFirst(node);
+            return false;
+        }
 
-        //synchronized (this) {
-            if (!contents.isEmpty() && contents.contains(e)) {
-                // the element already exists so move it to in first place
-                orderedContents.removeFirstOccurrence(e);
-                orderedContents.addFirst(e);
-                return false;
-            } else {
-                // brand new element
-                if (contents.size() == this.capacity) {
-                    contents.remove(orderedContents.getLast());
-                    orderedContents.removeLast();
-                }
-
-                contents.add(e);
-                orderedContents.addFirst(e);
-            }
-        //}
-
+        // brand new element
+        if (contents.size() == this.capacity) {
+            contents.remove(oldest.value);
+            unlink(oldest);
+        }
+        node = new Node<>(e);
+        contents.put(e, node);
+        linkFirst(node);
         return true;
     }
 
     @Override
     public boolean remove(Object e) {
-
-        //synchronized (this) {
-            if (!contents.isEmpty() && contents.contains(e)) {
-                orderedContents.removeLastOccurrence(e);
-                contents.remove(e);
-                return true;
-            }
-        //}
-
+        Node<E> node = (e != null ? contents.remove(e) : null);
+        if (node != null) {
+            unlink(node);
+            return true;
+        }
         return false;
     }
 
     @Override
     public boolean contains(Object e) {
-        return (e != null && !contents.isEmpty() && contents.contains(e));
+        return (e != null && !contents.isEmpty() && contents.containsKey(e));
     }
 
     @Override
@@ -93,53 +101,96 @@ public class CircularFifoSet<E> implements Collection<E> {
         return contents.isEmpty();
     }
 
-    private class CircularFifoSetIterator<V> implements Iterator<V> {
-        private CircularFifoSet<V> inst;
-        private Iterator<V> orderedContentsIterator;
-        private V lastNext;
+    private void linkFirst(Node<E> node) {
+        node.older = newest;
+        node.newer = null;
+        if (newest != null) {
+            newest.newer = node;
+        } else {
+            oldest = node;
+        }
+        newest = node;
+    }
 
-        public CircularFifoSetIterator(CircularFifoSet<V> inst) {
-            this.inst = inst;
-            this.orderedContentsIterator = inst.orderedContents.iterator();
+    private void unlink(Node<E> node) {
+        if (node.newer != null) {
+            node.newer.older = node.older;
+        } else {
+            newest = node.older;
+        }
+        if (node.older != null) {
+            node.older.newer = node.newer;
+        } else {
+            oldest = node.newer;
+        }
+        node.newer = null;
+        node.older = null;
+    }
+
+    private class CircularFifoSetIterator implements Iterator<E> {
+        private Node<E> next;
+        private Node<E> lastNext;
+
+        public CircularFifoSetIterator() {
+            this.next = newest;
         }
 
         @Override
         public boolean hasNext() {
-            return this.orderedContentsIterator.hasNext();
+            return this.next != null;
         }
 
         @Override
-        public V next() {
-            return this.lastNext = this.orderedContentsIterator.next();
+        public E next() {
+            if (this.next == null) throw new NoSuchElementException();
+            this.lastNext = this.next;
+            this.next = this.next.older;
+            return this.lastNext.value;
         }
 
         @Override
         public void remove() {
             if (this.lastNext != null) {
-                orderedContentsIterator.remove();
-                inst.contents.remove(this.lastNext);
+                CircularFifoSet.this.remove(this.lastNext.value);
+                this.lastNext = null;
             }
         }
     }
 
     @Override
     public Iterator<E> iterator() {
-        return this.new CircularFifoSetIterator<>(this);
+        return this.new CircularFifoSetIterator();
     }
 
     @Override
     public Object[] toArray() {
-        return orderedContents.toArray();
+        Object[] result = new Object[contents.size()];
+        int i = 0;
+        for (Node<E> n = newest; n != null; n = n.older) {
+            result[i++] = n.value;
+        }
+        return result;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T[] toArray(T[] a) {
-        return orderedContents.toArray(a);
+        int size = contents.size();
+        T[] result = (a.length >= size ? a
+                : (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size));
+        int i = 0;
+        for (Node<E> n = newest; n != null; n = n.older) {
+            result[i++] = (T) n.value;
+        }
+        if (result.length > size) {
+            result[size] = null;
+        }
+        return result;
     }
 
     @Override
     public boolean containsAll(Collection<?> c) {
-        return contents.containsAll(c);
+        return contents.keySet().containsAll(c);
     }
 
     @Override
@@ -162,14 +213,20 @@ public class CircularFifoSet<E> implements Collection<E> {
 
     @Override
     public boolean retainAll(Collection<?> c) {
-        boolean result = contents.retainAll(c);
-        orderedContents.retainAll(c);
+        boolean result = false;
+        for (Iterator<E> it = this.iterator(); it.hasNext(); ) {
+            if (!c.contains(it.next())) {
+                it.remove();
+                result = true;
+            }
+        }
         return result;
     }
 
     @Override
     public void clear() {
         this.contents.clear();
-        this.orderedContents.clear();
+        this.newest = null;
+        this.oldest = null;
     }
 }
@@ -0,0 +1,248 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent first in first out set of primitive long values with a fixed capacity that evicts its oldest element if
+ * full. It is a lock-free alternative of {@link CircularFifoSet} meant for remembering fingerprints of data, where all
+ * of the operations take constant time and do not allocate memory regardless of the capacity, which can be millions.
+ * <p>
+ * The insertion order is kept in a ring buffer, while the lookups are done in a set-associative open-addressing table
+ * consisting of buckets of {@value #BUCKET_SIZE} slots, which is twice as large as the capacity, thus no tombstones
+ * or rehashing are ever needed. Optionally re-adding an existing element moves it to the front, so it is kept for
+ * longer - the same semantics as the ones of {@link CircularFifoSet}, except that each refresh also occupies a
+ * position in the ring buffer.
+ * <p>
+ * The structure is best-effort under contention: concurrent additions of the same value may both report it as new,
+ * and in the rare case of a full bucket or racing eviction an element can be forgotten earlier. Value 0 is stored as
+ * 1, so they are indistinguishable. The structure is thread-safe.
+ */
+public class ConcurrentLongFifoSet {
+    /**
+     * The number of slots in a bucket of the lookup table.
+     */
+    public static final int BUCKET_SIZE = 8;
+
+    /**
+     * The maximum supported capacity.
+     */
+    public static final int MAX_CAPACITY = 1 << 24;
+
+    private static final long EMPTY = 0;
+
+    private final int capacity;
+    private final boolean refreshOnAdd;
+    private final AtomicLongArray ring;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLongArray keys;
+    private final AtomicLongArray sequences;
+    private final int bucketMask;
+
+    /**
+     * Constructor.
+     * @param capacity The capacity of the set.
+     * @param refreshOnAdd If true re-adding an existing element moves it to the front, otherwise the element keeps its
+     *                     position and gets evicted in a strict FIFO order.
+     * @throws IllegalArgumentException If the capacity is 0 or a negative number or is greater than
+     *                                  {@link #MAX_CAPACITY}.
+     */
+    public ConcurrentLongFifoSet(int capacity, boolean refreshOnAdd) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        this.refreshOnAdd = refreshOnAdd;
+        this.ring = new AtomicLongArray(capacity);
+
+        int buckets = Integer.highestOneBit(Math.max(1, (capacity * 2 - 1) / BUCKET_SIZE)) << 1;
+        this.bucketMask = buckets - 1;
+        this.keys = new AtomicLongArray(buckets * BUCKET_SIZE);
+        this.sequences = new AtomicLongArray(buckets * BUCKET_SIZE);
+    }
+
+    /**
+     * Constructor creating set that moves the re-added elements to the front.
+     * @param capacity The capacity of the set.
+     * @throws IllegalArgumentException If the capacity is 0 or a negative number or is greater than
+     *                                  {@link #MAX_CAPACITY}.
+     */
+    public ConcurrentLongFifoSet(int capacity) {
+        this(capacity, true);
+    }
+
+    /**
+     * Returns the capacity of the set.
+     * @return An integer greater than 0.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns whether re-adding an existing element moves it to the front.
+     * @return True if the elements get refreshed, otherwise false.
+     */
+    public boolean isRefreshOnAdd() {
+        return refreshOnAdd;
+    }
+
+    /**
+     * Adds an element to the set evicting the oldest one if the set is full.
+     * @param value The element to be added.
+     * @return True if the element is unknown to the set, otherwise false.
+     */
+    public boolean add(long value) {
+        return addToSlot(value) >= 0;
+    }
+
+    /**
+     * Adds an element to the set evicting the oldest one if the set is full.
+     * @param value The element to be added.
+     * @return The slot of the lookup table containing the element if it is unknown to the set, otherwise -(slot + 1).
+     */
+    int addToSlot(long value) {
+        final long key = (value == EMPTY ? 1 : value);
+        final int bucket = bucketOf(key);
+
+        int slot = find(bucket, key);
+        if (slot >= 0) {
+            if (refreshOnAdd) {
+                sequences.set(slot, advance(key));
+            }
+            return -(slot + 1);
+        }
+
+        final long seq = advance(key);
+        int victim = -1;
+        long victimSeq = Long.MAX_VALUE;
+        for (int i = bucket, end = bucket + BUCKET_SIZE; i < end; ++i) {
+            if (keys.get(i) == EMPTY && keys.compareAndSet(i, EMPTY, key)) {
+                sequences.set(i, seq);
+                return i;
+            }
+            long s = sequences.get(i);
+            if (s < victimSeq) {
+                victimSeq = s;
+                victim = i;
+            }
+        }
+        // the bucket is full, so its oldest element gets evicted earlier
+        keys.set(victim, key);
+        sequences.set(victim, seq);
+        evicted(victim);
+        return victim;
+    }
+
+    /**
+     * Checks whether an element is contained in the set.
+     * @param value The element to be checked.
+     * @return True if the element is contained, otherwise false.
+     */
+    public boolean contains(long value) {
+        final long key = (value == EMPTY ? 1 : value);
+        return find(bucketOf(key), key) >= 0;
+    }
+
+    /**
+     * Returns the slot of the lookup table containing an element.
+     * @param value The element to be found.
+     * @return The slot or -1 if the element is not contained.
+     */
+    int slotOf(long value) {
+        final long key = (value == EMPTY ? 1 : value);
+        return find(bucketOf(key), key);
+    }
+
+    /**
+     * Returns the number of slots of the lookup table.
+     * @return An integer greater than the capacity.
+     */
+    int slots() {
+        return keys.length();
+    }
+
+    /**
+     * Called when the element in a slot of the lookup table gets evicted, which either empties the slot or replaces
+     * the element with the one being added. Allows keeping data associated with the elements in arrays indexed by
+     * slot. Does nothing by default.
+     * @param slot The slot.
+     */
+    void evicted(int slot) {
+    }
+
+    /**
+     * Removes all of the elements. Must not be called concurrently with other modifications.
+     */
+    public void clear() {
+        for (int i = 0; i < ring.length(); ++i) ring.set(i, EMPTY);
+        for (int i = 0; i < keys.length(); ++i) {
+            keys.set(i, EMPTY);
+            sequences.set(i, 0);
+        }
+        head.set(0);
+    }
+
+    /**
+     * Returns the elements of the set in order from the newest to the oldest one. The result is consistent only when
+     * no concurrent modifications are made.
+     * @return Array of the elements.
+     */
+    public long[] toArray() {
+        long h = head.get();
+        int n = (int) Math.min(h, capacity);
+        long[] buffer = new long[n];
+        int count = 0;
+        for (long seq = h - 1; seq >= h - n; --seq) {
+            long key = ring.get((int) (seq % capacity));
+            int slot = find(bucketOf(key), key);
+            if (slot >= 0 && sequences.get(slot) == seq) {
+                buffer[count++] = key;
+            }
+        }
+        long[] result = new long[count];
+        System.arraycopy(buffer, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Returns the number of elements in the set. The result is consistent only when no concurrent modifications are
+     * made.
+     * @return The number of elements.
+     */
+    public int size() {
+        return toArray().length;
+    }
+
+    /**
+     * Reserves the next position of the ring buffer for a key and evicts the element it previously contained.
+     * @param key The key to be stored.
+     * @return The sequence number of the position.
+     */
+    private long advance(long key) {
+        final long seq = head.getAndIncrement();
+        final long evicted = ring.getAndSet((int) (seq % capacity), key);
+        // re-adding the oldest element of a full set takes its own position, so it is refreshed and not evicted
+        if (evicted != EMPTY && evicted != key) {
+            final long evictedSeq = seq - capacity;
+            int slot = find(bucketOf(evicted), evicted);
+            // refreshed elements have newer sequence numbers and remain
+            if (slot >= 0 && sequences.get(slot) <= evictedSeq && keys.compareAndSet(slot, evicted, EMPTY)) {
+                evicted(slot);
+            }
+        }
+        return seq;
+    }
+
+    private int find(int bucket, long key) {
+        for (int i = bucket, end = bucket + BUCKET_SIZE; i < end; ++i) {
+            if (keys.get(i) == key) return i;
+        }
+        return -1;
+    }
+
+    private int bucketOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return ((int) (h ^ (h >>> 32)) & bucketMask) * BUCKET_SIZE;
+    }
+}
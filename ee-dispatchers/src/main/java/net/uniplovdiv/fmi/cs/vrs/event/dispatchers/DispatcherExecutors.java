@@ -0,0 +1,96 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executors running the blocking broker operations of the dispatchers, like the asynchronous sending of events. See
+ * {@link net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.AbstractBrokerConfigFactory#setExecutor(Executor)}.
+ * None of them uses the common fork-join pool, which is meant for non-blocking computations only. The executors are
+ * shared, created on first use and must not be shut down.
+ */
+public final class DispatcherExecutors {
+
+    private DispatcherExecutors() {
+    }
+
+    private static final class BlockingIoPool {
+        static final ThreadPoolExecutor INSTANCE;
+        static {
+            int threads = Math.max(8, 4 * Runtime.getRuntime().availableProcessors());
+            INSTANCE = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new BasicThreadFactory.Builder()
+                            .namingPattern("event-dispatcher-io-%d")
+                            .daemon(true)
+                            .build());
+            INSTANCE.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    private static final class VirtualThreads {
+        static final ExecutorService INSTANCE;
+        static {
+            ExecutorService es = null;
+            try {
+                // Java 21+ API accessed reflectively, so the library still runs on Java 8
+                Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                es = (ExecutorService) m.invoke(null);
+            } catch (Throwable t) {
+                // not supported by the running Java version
+            }
+            INSTANCE = es;
+        }
+    }
+
+    /**
+     * Returns the default executor - a pool of daemon platform threads sized for blocking I/O, 4 per available
+     * processor but at least 8. The idle threads are terminated after a minute.
+     * @return The shared executor.
+     */
+    public static Executor blockingIoPool() {
+        return BlockingIoPool.INSTANCE;
+    }
+
+    /**
+     * Returns whether virtual threads are supported by the running Java version, which is the case since Java 21.
+     * @return True if supported otherwise false.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VirtualThreads.INSTANCE != null;
+    }
+
+    /**
+     * Returns executor starting a new virtual thread for each task, so thousands of concurrently blocked operations
+     * are cheap. If virtual threads are not supported {@link #blockingIoPool()} is returned instead.
+     * @return The shared executor.
+     */
+    public static Executor virtualThreadPerTask() {
+        ExecutorService es = VirtualThreads.INSTANCE;
+        return (es != null ? es : blockingIoPool());
+    }
+
+    /**
+     * Returns executor running each task in the thread that submits it, so the asynchronous operations of the
+     * dispatchers become synchronous.
+     * @return The shared executor.
+     */
+    public static Executor callerRuns() {
+        return CallerRuns.INSTANCE;
+    }
+
+    private enum CallerRuns implements Executor {
+        INSTANCE;
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+import java.time.Duration;
+import java.util.function.IntFunction;
+
+/**
+ * Factories of the duplicate filter strategies, accepted by
+ * {@link net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.AbstractBrokerConfigFactory#setDuplicateFilterFactory}.
+ * The factories are called with the latestEventsRememberCapacity of the dispatchers.
+ */
+public final class DuplicateFilters {
+
+    private DuplicateFilters() {
+    }
+
+    /**
+     * Count-based window remembering the fingerprints of latestEventsRememberCapacity latest packets and verifying
+     * each fingerprint match against the remembered packet, so fingerprint collisions never drop events. This is the
+     * default strategy. See {@link FingerprintDuplicateFilter}.
+     * @return Nonnull factory.
+     */
+    public static IntFunction<IDuplicateFilter> fingerprint() {
+        return capacity -> new FingerprintDuplicateFilter(capacity, true, true);
+    }
+
+    /**
+     * Count-based window remembering only the fingerprints of latestEventsRememberCapacity latest packets, suitable
+     * for capacities of millions. A collision of two fingerprints makes the later event a false duplicate, which gets
+     * dropped. See {@link FingerprintDuplicateFilter}.
+     * @return Nonnull factory.
+     */
+    public static IntFunction<IDuplicateFilter> fingerprintOnly() {
+        return capacity -> new FingerprintDuplicateFilter(capacity, true, false);
+    }
+
+    /**
+     * Count-based window remembering latestEventsRememberCapacity latest packets and comparing them exactly. See
+     * {@link ExactDuplicateFilter}.
+     * @return Nonnull factory.
+     */
+    public static IntFunction<IDuplicateFilter> exact() {
+        return ExactDuplicateFilter::new;
+    }
+
+    /**
+     * Time-based window remembering all of the packets within a duration, ignoring latestEventsRememberCapacity.
+     * See {@link TimeWindowDuplicateFilter}.
+     * @param window The duration of the time window.
+     * @return Nonnull factory.
+     * @throws NullPointerException If window is null.
+     * @throws IllegalArgumentException If window is not positive.
+     */
+    public static IntFunction<IDuplicateFilter> timeWindow(Duration window) {
+        if (window == null) throw new NullPointerException("Null window specified");
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("The time window must be positive");
+        }
+        return capacity -> new TimeWindowDuplicateFilter(window);
+    }
+
+    /**
+     * Probabilistic window with bounded memory for millions of packets, ignoring latestEventsRememberCapacity.
+     * See {@link RotatingBloomDuplicateFilter}.
+     * @param expectedInsertions The number of packets recorded in a generation of the filter.
+     * @param falsePositiveProbability The false positive probability of a generation, in the range (0, 1).
+     * @return Nonnull factory.
+     * @throws IllegalArgumentException If any of the parameters is out of its range.
+     */
+    public static IntFunction<IDuplicateFilter> rotatingBloom(int expectedInsertions,
+                                                               double falsePositiveProbability) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Illegal expected insertions: " + expectedInsertions);
+        }
+        if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+            throw new IllegalArgumentException("Illegal false positive probability: " + falsePositiveProbability);
+        }
+        return capacity -> new RotatingBloomDuplicateFilter(expectedInsertions, falsePositiveProbability);
+    }
+}
@@ -0,0 +1,79 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+/**
+ * Interfaces for establishing flow-controlled components in which publishers produce items consumed by one or more
+ * subscribers, each managed by a subscription. They have the same methods and semantics as the ones of
+ * java.util.concurrent.Flow and Reactive Streams, which are not available on Java 8, so adapting them to any of those
+ * requires only delegation. On Java 9 and later
+ * {@code net.uniplovdiv.fmi.cs.vrs.event.dispatchers.flow.FlowAdapters} converts them to the ones of
+ * java.util.concurrent.Flow. See {@link IEventDispatcher#toPublisher(EventPipelineSettings)} and
+ * {@link EventFlowSubscriber}.
+ */
+public final class EventFlow {
+
+    private EventFlow() {
+    }
+
+    /**
+     * A producer of items received by subscribers. Each subscriber receives the items in the same order, unless
+     * dropped or errors are encountered.
+     * @param <T> The published item type.
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+        /**
+         * Adds a subscriber. Its {@link Subscriber#onSubscribe(Subscription)} method is called before any other. If
+         * the subscription is refused its {@link Subscriber#onError(Throwable)} method is called afterwards.
+         * @param subscriber The subscriber. Cannot be null.
+         * @throws NullPointerException If subscriber is null.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items. The methods of each subscription are called in strict sequential order.
+     * @param <T> The subscribed item type.
+     */
+    public interface Subscriber<T> {
+        /**
+         * Called before any other method for a subscription. No items are received until
+         * {@link Subscription#request(long)} is called.
+         * @param subscription The new subscription.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with the next item of the subscription.
+         * @param item The item.
+         */
+        void onNext(T item);
+
+        /**
+         * Called upon unrecoverable error, after which no other methods of the subscription are called.
+         * @param throwable The error.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called when no more items of the subscription will be received.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Link between a publisher and a subscriber.
+     */
+    public interface Subscription {
+        /**
+         * Adds n to the number of items the subscriber is ready to receive. If n is not positive, the subscriber
+         * receives {@link Subscriber#onError(Throwable)} with an IllegalArgumentException.
+         * @param n The increment of the demand. Long.MAX_VALUE makes it unbounded.
+         */
+        void request(long n);
+
+        /**
+         * Causes the subscriber to eventually stop receiving items.
+         */
+        void cancel();
+    }
+}
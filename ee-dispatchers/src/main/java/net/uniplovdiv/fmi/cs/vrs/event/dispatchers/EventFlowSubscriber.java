@@ -0,0 +1,112 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Subscriber sending the events it receives through a dispatcher. The events are sent asynchronously using
+ * {@link IEventDispatcher#send(IEvent, java.util.function.BiConsumer)} and a new event is requested from the publisher
+ * only after the sending of a previous one completes, so the upstream gets non-blocking backpressure, while the number
+ * of events being sent never exceeds the configured window. A subscriber instance can be subscribed only once.
+ */
+public class EventFlowSubscriber implements EventFlow.Subscriber<IEvent> {
+
+    private final IEventDispatcher dispatcher;
+    private final int window;
+
+    private volatile EventFlow.Subscription subscription;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Constructor.
+     * @param dispatcher The dispatcher used to send the events. Cannot be null.
+     * @param window The maximum number of events being sent at the same time.
+     * @throws NullPointerException If dispatcher is null.
+     * @throws IllegalArgumentException If window is 0 or a negative number.
+     */
+    public EventFlowSubscriber(IEventDispatcher dispatcher, int window) {
+        if (dispatcher == null) {
+            throw new NullPointerException("Null dispatcher specified");
+        }
+        if (window <= 0) {
+            throw new IllegalArgumentException("Illegal window: " + window);
+        }
+        this.dispatcher = dispatcher;
+        this.window = window;
+    }
+
+    @Override
+    public void onSubscribe(EventFlow.Subscription subscription) {
+        if (subscription == null) {
+            throw new NullPointerException("Null subscription specified");
+        }
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(window);
+    }
+
+    @Override
+    public void onNext(IEvent item) {
+        if (item == null) {
+            throw new NullPointerException("Null event specified");
+        }
+        dispatcher.send(item, (success, event) -> {
+            if (success) {
+                sent.increment();
+            } else {
+                failed.increment();
+            }
+            subscription.request(1);
+        });
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        throwable.printStackTrace(System.err);
+        dispatcher.flush();
+    }
+
+    @Override
+    public void onComplete() {
+        dispatcher.flush();
+    }
+
+    /**
+     * Cancels the subscription if any, so no more events are received.
+     */
+    public void cancel() {
+        EventFlow.Subscription s = this.subscription;
+        if (s != null) {
+            s.cancel();
+        }
+    }
+
+    /**
+     * Returns the maximum number of events being sent at the same time.
+     * @return Positive number.
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Returns the number of events sent successfully.
+     * @return Non-negative number.
+     */
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    /**
+     * Returns the number of events whose sending failed.
+     * @return Non-negative number.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+}
@@ -0,0 +1,104 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+/**
+ * Settings of the push-based pipeline delivering the received events to a subscriber. See
+ * {@link IEventDispatcher#subscribe(java.util.function.Consumer, EventPipelineSettings)}. The pipeline consists of a
+ * thread polling the broker, a pool of threads decoding the received data in parallel and the delivery of the decoded
+ * events to the subscriber. The instances are immutable.
+ */
+public final class EventPipelineSettings {
+
+    /**
+     * The default maximum number of received events that are being decoded or awaiting delivery.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * The default time in milliseconds to wait for data during a single poll of the broker.
+     */
+    public static final long DEFAULT_POLL_TIMEOUT_MS = 500;
+
+    private final int parallelism;
+    private final int queueCapacity;
+    private final boolean ordered;
+    private final long pollTimeoutMs;
+
+    /**
+     * Constructor.
+     * @param parallelism The number of threads decoding the received data.
+     * @param queueCapacity The maximum number of received events that are being decoded or awaiting delivery. When it
+     *                      is reached the broker is not polled until the subscriber catches up, so the backpressure
+     *                      reaches the broker. The broker is polled for at most the free capacity, so a single
+     *                      poll can exceed it only if the dispatcher cannot limit the amount of data it brings.
+     * @param ordered If true the events are delivered from a single thread in the order in which
+     *                {@link IEventDispatcher#receive(long)} would return them, otherwise each event is delivered from
+     *                the thread that decoded it as soon as it is decoded, so the subscriber must be thread-safe.
+     * @param pollTimeoutMs The time in milliseconds to wait for data during a single poll of the broker.
+     * @throws IllegalArgumentException If any of the numeric parameters is 0 or a negative number.
+     */
+    public EventPipelineSettings(int parallelism, int queueCapacity, boolean ordered, long pollTimeoutMs) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Illegal parallelism: " + parallelism);
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Illegal queue capacity: " + queueCapacity);
+        }
+        if (pollTimeoutMs <= 0) {
+            throw new IllegalArgumentException("Illegal poll timeout: " + pollTimeoutMs);
+        }
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+        this.ordered = ordered;
+        this.pollTimeoutMs = pollTimeoutMs;
+    }
+
+    /**
+     * Constructor using {@link #DEFAULT_QUEUE_CAPACITY} and {@link #DEFAULT_POLL_TIMEOUT_MS}.
+     * @param parallelism The number of threads decoding the received data.
+     * @param ordered If true the events are delivered in the order in which {@link IEventDispatcher#receive(long)}
+     *                would return them from a single thread, otherwise as soon as they are decoded.
+     * @throws IllegalArgumentException If parallelism is 0 or a negative number.
+     */
+    public EventPipelineSettings(int parallelism, boolean ordered) {
+        this(parallelism, DEFAULT_QUEUE_CAPACITY, ordered, DEFAULT_POLL_TIMEOUT_MS);
+    }
+
+    /**
+     * Constructor creating ordered delivery with a decoding thread per available processor.
+     */
+    public EventPipelineSettings() {
+        this(Runtime.getRuntime().availableProcessors(), true);
+    }
+
+    /**
+     * Returns the number of threads decoding the received data.
+     * @return Positive number.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the maximum number of received events that are being decoded or awaiting delivery.
+     * @return Positive number.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Returns whether the events are delivered in order from a single thread.
+     * @return True if the delivery is ordered otherwise false.
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * Returns the time in milliseconds to wait for data during a single poll of the broker.
+     * @return Positive number.
+     */
+    public long getPollTimeoutMs() {
+        return pollTimeoutMs;
+    }
+}
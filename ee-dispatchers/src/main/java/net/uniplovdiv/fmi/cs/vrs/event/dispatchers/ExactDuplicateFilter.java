@@ -0,0 +1,63 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+
+/**
+ * Duplicate filter remembering a fixed amount of the latest data packets themselves in a {@link CircularFifoSet}.
+ * The lookups rely on the cached fingerprints of the packets and fall back to full comparison only on a match, so a
+ * hash collision can never cause a false duplicate. The price is keeping the packets in memory and a lock shared by
+ * all operations, thus it is suitable for small capacities. For large ones see {@link FingerprintDuplicateFilter}.
+ */
+public class ExactDuplicateFilter extends AbstractDuplicateFilter {
+    private final CircularFifoSet<DataPacket> packets;
+
+    /**
+     * Constructor.
+     * @param capacity The number of remembered packets.
+     * @throws IllegalArgumentException If the capacity is 0 or a negative number.
+     */
+    public ExactDuplicateFilter(int capacity) {
+        this.packets = new CircularFifoSet<>(capacity);
+    }
+
+    /**
+     * Returns the number of remembered packets.
+     * @return An integer greater than 0.
+     */
+    public int getCapacity() {
+        return packets.getCapacity();
+    }
+
+    @Override
+    protected boolean lookup(DataPacket packet) {
+        synchronized (packets) {
+            return packets.contains(packet);
+        }
+    }
+
+    @Override
+    public void record(DataPacket packet) {
+        synchronized (packets) {
+            packets.add(packet);
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (packets) {
+            packets.clear();
+        }
+    }
+
+    @Override
+    public IDuplicateFilter copy() {
+        ExactDuplicateFilter result = new ExactDuplicateFilter(packets.getCapacity());
+        synchronized (packets) {
+            Object[] remembered = packets.toArray();
+            for (int i = remembered.length - 1; i >= 0; --i) {
+                result.packets.add((DataPacket) remembered[i]);
+            }
+        }
+        return result;
+    }
+}
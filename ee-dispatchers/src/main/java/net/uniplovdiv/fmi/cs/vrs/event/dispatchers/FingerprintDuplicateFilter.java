@@ -0,0 +1,132 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free duplicate filter remembering the {@link DataPacket#getFingerprint() fingerprints} of a fixed amount of the
+ * latest data packets in a {@link ConcurrentLongFifoSet}. All of the operations take constant (amortized) time.
+ * <p>
+ * By default each fingerprint match is verified against the remembered packet with {@link DataPacket#equals(Object)},
+ * so a collision of two 64-bit fingerprints never drops an event - the colliding packet is simply not considered a
+ * duplicate. This keeps references to the remembered packets, each dropped together with its fingerprint. Without the verification only the fingerprints are
+ * kept, which allows capacities of millions of packets with little memory, but the probability of a false duplicate
+ * (a silently dropped event) within n remembered packets is about n<sup>2</sup>/2<sup>65</sup>. For exact matching
+ * with packet order semantics see {@link ExactDuplicateFilter}.
+ */
+public class FingerprintDuplicateFilter extends AbstractDuplicateFilter {
+    private final ConcurrentLongFifoSet fingerprints;
+    private final AtomicReferenceArray<DataPacket> packets; // indexed by the slot of the fingerprint, null if unused
+
+    /**
+     * Constructor.
+     * @param capacity The number of remembered packets.
+     * @param refreshOnRecord If true recording an already remembered packet moves it to the front, so it is kept for
+     *                        longer, otherwise the packets are forgotten in a strict FIFO order.
+     * @param verifyOnHit If true the fingerprint matches are verified against the remembered packets, otherwise only
+     *                    the fingerprints are remembered.
+     * @throws IllegalArgumentException If the capacity is 0, negative number or greater than
+     *                                  {@link ConcurrentLongFifoSet#MAX_CAPACITY}.
+     */
+    public FingerprintDuplicateFilter(int capacity, boolean refreshOnRecord, boolean verifyOnHit) {
+        if (verifyOnHit) {
+            this.fingerprints = new ConcurrentLongFifoSet(capacity, refreshOnRecord) {
+                @Override
+                void evicted(int slot) {
+                    packets.set(slot, null);
+                }
+            };
+            this.packets = new AtomicReferenceArray<>(this.fingerprints.slots());
+        } else {
+            this.fingerprints = new ConcurrentLongFifoSet(capacity, refreshOnRecord);
+            this.packets = null;
+        }
+    }
+
+    /**
+     * Constructor creating filter that verifies the fingerprint matches.
+     * @param capacity The number of remembered packets.
+     * @param refreshOnRecord If true recording an already remembered packet moves it to the front, so it is kept for
+     *                        longer, otherwise the packets are forgotten in a strict FIFO order.
+     * @throws IllegalArgumentException If the capacity is 0, negative number or greater than
+     *                                  {@link ConcurrentLongFifoSet#MAX_CAPACITY}.
+     */
+    public FingerprintDuplicateFilter(int capacity, boolean refreshOnRecord) {
+        this(capacity, refreshOnRecord, true);
+    }
+
+    /**
+     * Constructor creating filter that moves the recorded again packets to the front and verifies the fingerprint
+     * matches.
+     * @param capacity The number of remembered packets.
+     * @throws IllegalArgumentException If the capacity is 0, negative number or greater than
+     *                                  {@link ConcurrentLongFifoSet#MAX_CAPACITY}.
+     */
+    public FingerprintDuplicateFilter(int capacity) {
+        this(capacity, true, true);
+    }
+
+    /**
+     * Returns the number of remembered packets.
+     * @return An integer greater than 0.
+     */
+    public int getCapacity() {
+        return fingerprints.getCapacity();
+    }
+
+    /**
+     * Returns whether the fingerprint matches are verified against the remembered packets.
+     * @return True if verified, otherwise false.
+     */
+    public boolean isVerifyOnHit() {
+        return packets != null;
+    }
+
+    @Override
+    protected boolean lookup(DataPacket packet) {
+        long fingerprint = packet.getFingerprint();
+        if (packets == null) return fingerprints.contains(fingerprint);
+        int slot = fingerprints.slotOf(fingerprint);
+        if (slot < 0) return false;
+        // a packet stored by a racing record of another fingerprint only fails the verification
+        DataPacket remembered = packets.get(slot);
+        return (remembered != null && remembered.equals(packet));
+    }
+
+    @Override
+    public void record(DataPacket packet) {
+        long fingerprint = packet.getFingerprint();
+        if (packets == null) {
+            fingerprints.add(fingerprint);
+            return;
+        }
+        int slot = fingerprints.addToSlot(fingerprint);
+        packets.set(slot >= 0 ? slot : -(slot + 1), packet);
+    }
+
+    @Override
+    public void clear() {
+        fingerprints.clear();
+        if (packets != null) {
+            for (int i = 0; i < packets.length(); ++i) packets.set(i, null);
+        }
+    }
+
+    @Override
+    public IDuplicateFilter copy() {
+        FingerprintDuplicateFilter result = new FingerprintDuplicateFilter(fingerprints.getCapacity(),
+                fingerprints.isRefreshOnAdd(), packets != null);
+        long[] remembered = fingerprints.toArray();
+        for (int i = remembered.length - 1; i >= 0; --i) {
+            if (packets == null) {
+                result.fingerprints.add(remembered[i]);
+                continue;
+            }
+            int slot = fingerprints.slotOf(remembered[i]);
+            DataPacket packet = (slot >= 0 ? packets.get(slot) : null);
+            if (packet != null) result.record(packet);
+        }
+        return result;
+    }
+}
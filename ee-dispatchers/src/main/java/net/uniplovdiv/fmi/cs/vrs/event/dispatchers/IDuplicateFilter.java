@@ -0,0 +1,54 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+
+/**
+ * Filter remembering data packets of the latest sent/received events, used by the dispatchers to suppress duplicates
+ * for e.g. when an event sent to many distribution channels is received more than once. All of the implementations
+ * must be thread-safe.
+ */
+public interface IDuplicateFilter {
+
+    /**
+     * Checks whether a data packet has already been seen.
+     * @param packet The data packet to be checked. Cannot be null.
+     * @return True if the packet is considered a duplicate, otherwise false.
+     */
+    boolean isDuplicate(DataPacket packet);
+
+    /**
+     * Remembers a data packet as seen.
+     * @param packet The data packet to be remembered. Cannot be null.
+     */
+    void record(DataPacket packet);
+
+    /**
+     * Forgets all of the remembered data packets.
+     */
+    void clear();
+
+    /**
+     * Creates independent copy of the filter including its remembered data packets.
+     * @return New filter instance.
+     */
+    IDuplicateFilter copy();
+
+    /**
+     * Returns the number of the duplicate checks that found a duplicate since the creation of the filter or the last
+     * reset of the counters.
+     * @return Non-negative number.
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of the duplicate checks that did not find a duplicate since the creation of the filter or
+     * the last reset of the counters.
+     * @return Non-negative number.
+     */
+    long getMissCount();
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    void resetCounters();
+}
@@ -4,6 +4,7 @@ import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
 
 import java.util.List;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Dispatcher interface for events.
@@ -47,6 +48,69 @@ public interface IEventDispatcher {
      */
     List<IEvent> receive(long timeout);
 
+    /**
+     * Subscribes a consumer to the received events, which are pushed to it by a pipeline polling the broker in the
+     * background and decoding the received data in parallel. While subscribed, {@link #receive(long)} does not return
+     * any events. Only a single subscription can be active at a time.
+     * @param consumer The consumer of the events. Cannot be null.
+     * @param settings The settings of the pipeline. Cannot be null.
+     * @return The active subscription.
+     * @throws NullPointerException If consumer or settings is null.
+     * @throws IllegalStateException If the dispatcher cannot receive events or another subscription is active.
+     * @throws UnsupportedOperationException If the dispatcher does not support subscriptions, which is the default.
+     */
+    default IEventSubscription subscribe(Consumer<IEvent> consumer, EventPipelineSettings settings) {
+        throw new UnsupportedOperationException("Subscriptions are not supported by " + getClass().getName());
+    }
+
+    /**
+     * Subscribes a consumer to the received events using the default {@link EventPipelineSettings}. See
+     * {@link #subscribe(Consumer, EventPipelineSettings)}.
+     * @param consumer The consumer of the events. Cannot be null.
+     * @return The active subscription.
+     * @throws NullPointerException If consumer is null.
+     * @throws IllegalStateException If the dispatcher cannot receive events or another subscription is active.
+     * @throws UnsupportedOperationException If the dispatcher does not support subscriptions.
+     */
+    default IEventSubscription subscribe(Consumer<IEvent> consumer) {
+        return subscribe(consumer, new EventPipelineSettings());
+    }
+
+    /**
+     * Returns publisher of the received events, where the demand of the subscriber drives the polling of the broker,
+     * so there's neither unbounded buffering nor polling without demand. The events are signalled in the order in
+     * which {@link #receive(long)} would return them. Only a single subscription, including the ones made using
+     * {@link #subscribe(Consumer, EventPipelineSettings)}, can be active at a time - the publisher refuses any other
+     * subscriber by calling its onError method with an IllegalStateException. To send events from a publisher use
+     * {@link EventFlowSubscriber}.
+     * @param settings The settings of the polling and decoding. The ordering setting is ignored. Cannot be null.
+     * @return The publisher.
+     * @throws NullPointerException If settings is null.
+     * @throws UnsupportedOperationException If the dispatcher does not support publishing, which is the default.
+     */
+    default EventFlow.Publisher<IEvent> toPublisher(EventPipelineSettings settings) {
+        throw new UnsupportedOperationException("Publishing is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Returns publisher of the received events using the default {@link EventPipelineSettings}. See
+     * {@link #toPublisher(EventPipelineSettings)}.
+     * @return The publisher.
+     * @throws UnsupportedOperationException If the dispatcher does not support publishing.
+     */
+    default EventFlow.Publisher<IEvent> toPublisher() {
+        return toPublisher(new EventPipelineSettings());
+    }
+
+    /**
+     * Blocks until all of the events sent so far, including the ones sent asynchronously and still buffered by the
+     * underlying client for batching, are actually sent and their completion handlers are called. Must not be called
+     * from a completion handler, which would wait for itself. The default implementation does nothing, which is correct
+     * for dispatchers that send synchronously.
+     */
+    default void flush() {
+    }
+
     /**
      * Closes any opened dispatcher connections making it unable to send or receive anymore data. Calling this method is
      * recommended and sometimes even mandatory in order the application to be able to exit.
@@ -0,0 +1,34 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+/**
+ * Subscription of a consumer to the events received by a dispatcher. See
+ * {@link IEventDispatcher#subscribe(java.util.function.Consumer, EventPipelineSettings)}.
+ */
+public interface IEventSubscription extends AutoCloseable {
+
+    /**
+     * Stops the polling of the broker and waits for the current poll to complete, so the dispatcher can be closed
+     * safely afterwards. The events that are already received are still delivered to the consumer.
+     */
+    void cancel();
+
+    /**
+     * Returns whether the subscription has been cancelled, either explicitly or because the dispatcher got closed.
+     * @return True if cancelled otherwise false.
+     */
+    boolean isCancelled();
+
+    /**
+     * Returns the number of events delivered to the consumer so far.
+     * @return Non-negative number.
+     */
+    long getDeliveredCount();
+
+    /**
+     * Same as {@link #cancel()}.
+     */
+    @Override
+    default void close() {
+        cancel();
+    }
+}
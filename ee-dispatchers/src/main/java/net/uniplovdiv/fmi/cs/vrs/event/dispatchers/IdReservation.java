@@ -0,0 +1,26 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+/**
+ * The ways in which the dispatchers assign local identifiers to the received events, in order to prevent collisions
+ * with the identifiers generated by the current application. See
+ * {@link net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.AbstractBrokerConfigFactory#setIdReservation}.
+ */
+public enum IdReservation {
+    /**
+     * The identifiers assigned by the sender are kept. The cheapest way, suitable when the received events are not
+     * mixed with locally created ones.
+     */
+    KEEP,
+
+    /**
+     * Only the received event gets a new identifier, while the ones of its subevents are kept.
+     */
+    ROOT,
+
+    /**
+     * The received event and all of its nested subevents get new identifiers. See
+     * {@link net.uniplovdiv.fmi.cs.vrs.event.Event#reserveNewId(net.uniplovdiv.fmi.cs.vrs.event.IEvent, boolean)}.
+     * This is the default.
+     */
+    RECURSIVE
+}
@@ -0,0 +1,21 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+
+/**
+ * Extracts from the sent events the keys by which the brokers group them. Kafka sends the events with the same key to
+ * the same partition, so they are kept in order and delivered to the same consumer of a group. ActiveMQ does not
+ * support keys and its dispatcher ignores them. See
+ * {@link net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.AbstractBrokerConfigFactory#setPartitionKeyExtractor}
+ * and {@link PartitionKeyExtractors}.
+ */
+@FunctionalInterface
+public interface PartitionKeyExtractor {
+
+    /**
+     * Returns the key of an event. Must be thread-safe.
+     * @param event The sent event. Not null.
+     * @return The key or null if the event has none, in which case the broker distributes it on its own.
+     */
+    String extractKey(IEvent event);
+}
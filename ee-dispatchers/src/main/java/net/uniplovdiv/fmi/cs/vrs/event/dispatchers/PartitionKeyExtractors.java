@@ -0,0 +1,111 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+import net.uniplovdiv.fmi.cs.vrs.event.location.EventLocation;
+
+/**
+ * Factories of the commonly used {@link PartitionKeyExtractor} strategies.
+ */
+public final class PartitionKeyExtractors {
+
+    private static final char[] GEOHASH_ALPHABET = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    /**
+     * The maximum supported precision of the geohashes.
+     */
+    public static final int MAX_GEOHASH_PRECISION = 12;
+
+    private PartitionKeyExtractors() {
+    }
+
+    /**
+     * Keys the events by their identifiers, so the different versions of an event stay in order.
+     * @return Nonnull extractor.
+     */
+    public static PartitionKeyExtractor byEventId() {
+        return event -> Long.toString(event.getId());
+    }
+
+    /**
+     * Keys the events by the value of a dynamic parameter, for e.g. the identifier of their source or of their parent
+     * event. The events without the parameter have no key.
+     * @param name The name of the dynamic parameter.
+     * @return Nonnull extractor.
+     * @throws NullPointerException If name is null.
+     */
+    public static PartitionKeyExtractor byDynamicParameter(String name) {
+        if (name == null) {
+            throw new NullPointerException("Null parameter name specified");
+        }
+        return event -> {
+            Object value = (event.getDynamicParameters() != null ? event.getDynamicParameters().get(name) : null);
+            return (value != null ? value.toString() : null);
+        };
+    }
+
+    /**
+     * Keys the events by the geohash of their location, so the events that occurred near each other are processed
+     * together. The events without longitude and latitude have no key.
+     * @param precision The number of characters of the geohash, between 1 and {@link #MAX_GEOHASH_PRECISION}. Each
+     *                  one reduces the size of the area sharing a key about 32 times, for e.g. 5 characters correspond
+     *                  to about 5 by 5 km.
+     * @return Nonnull extractor.
+     * @throws IllegalArgumentException If precision is out of range.
+     */
+    public static PartitionKeyExtractor byGeohash(int precision) {
+        checkPrecision(precision);
+        return event -> {
+            EventLocation location = event.getEventLocation();
+            if (location == null || location.getLatitudeDegrees() == null || location.getLongitudeDegrees() == null) {
+                return null;
+            }
+            return geohash(location.getLatitudeDegrees(), location.getLongitudeDegrees(), precision);
+        };
+    }
+
+    /**
+     * Encodes coordinates as a geohash.
+     * @param latitudeDegrees The latitude between -90 and 90.
+     * @param longitudeDegrees The longitude between -180 and 180.
+     * @param precision The number of characters of the geohash, between 1 and {@link #MAX_GEOHASH_PRECISION}.
+     * @return Nonnull geohash.
+     * @throws IllegalArgumentException If precision is out of range.
+     */
+    public static String geohash(double latitudeDegrees, double longitudeDegrees, int precision) {
+        checkPrecision(precision);
+        double minLat = -90, maxLat = 90, minLon = -180, maxLon = 180;
+        char[] hash = new char[precision];
+        boolean isLongitude = true; // the bits alternate starting with the longitude
+        for (int i = 0; i < precision; ++i) {
+            int index = 0;
+            for (int bit = 0; bit < 5; ++bit) {
+                index <<= 1;
+                if (isLongitude) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (longitudeDegrees >= mid) {
+                        index |= 1;
+                        minLon = mid;
+                    } else {
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (latitudeDegrees >= mid) {
+                        index |= 1;
+                        minLat = mid;
+                    } else {
+                        maxLat = mid;
+                    }
+                }
+                isLongitude = !isLongitude;
+            }
+            hash[i] = GEOHASH_ALPHABET[index];
+        }
+        return new String(hash);
+    }
+
+    private static void checkPrecision(int precision) {
+        if (precision < 1 || precision > MAX_GEOHASH_PRECISION) {
+            throw new IllegalArgumentException("Illegal geohash precision: " + precision);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+/**
+ * The ways in which the dispatchers order each batch of received events. See
+ * {@link net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.AbstractBrokerConfigFactory#setReceiveOrdering}.
+ */
+public enum ReceiveOrdering {
+    /**
+     * The events are kept in the order of their receiving.
+     */
+    NONE,
+
+    /**
+     * The events are sorted according to their natural ordering, so the ones with the highest priority come first.
+     * This is the default.
+     */
+    SORTED,
+
+    /**
+     * Only the K events with the highest priority are sorted and put first, followed by the rest of them in the order
+     * of their receiving. Found using a heap of size K, which is cheaper than sorting a large batch.
+     */
+    TOP_K
+}
@@ -0,0 +1,169 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.XxHash64;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Probabilistic duplicate filter for windows of millions of data packets with bounded memory. It consists of two
+ * generations of Bloom filters indexed by the {@link DataPacket#getFingerprint() fingerprints} of the packets - the
+ * current one, into which the packets are recorded, and the previous one. When the current generation gets filled
+ * with the expected number of insertions it becomes the previous one and a new empty generation is started, so the
+ * window covers between 1 and 2 times the expected insertions of the latest packets.
+ * <p>
+ * Each generation is sized for the configured false positive probability p at its expected number of insertions,
+ * thus the probability of a new packet being wrongly reported as a duplicate is at most 1 - (1 - p)<sup>2</sup>,
+ * about 2p, see {@link #getFalsePositiveProbability()}. Duplicates within the window are always detected. The
+ * memory used is 2 * {@link #getBitsPerGeneration()} bits. The filter is lock-free and thread-safe.
+ */
+public class RotatingBloomDuplicateFilter extends AbstractDuplicateFilter {
+
+    /**
+     * The maximum number of bits of a generation.
+     */
+    public static final long MAX_BITS_PER_GENERATION = 1L << 33;
+
+    private final int expectedInsertions;
+    private final double falsePositiveProbability;
+    private final int hashFunctions;
+    private final long bits;
+    private final AtomicReference<Generation[]> generations;
+
+    /**
+     * Bloom filter of a single generation.
+     */
+    private static final class Generation {
+        final AtomicLongArray words;
+        final AtomicInteger insertions = new AtomicInteger();
+
+        Generation(long bits) {
+            this.words = new AtomicLongArray((int) (bits >>> 6));
+        }
+
+        Generation(Generation from) {
+            this.words = new AtomicLongArray(from.words.length());
+            for (int i = 0; i < from.words.length(); ++i) {
+                this.words.set(i, from.words.get(i));
+            }
+            this.insertions.set(from.insertions.get());
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param expectedInsertions The number of packets recorded in a generation before its rotation. The filter
+     *                           remembers between 1 and 2 times as many latest packets.
+     * @param falsePositiveProbability The false positive probability of a generation, in the range (0, 1).
+     * @throws IllegalArgumentException If expectedInsertions is 0 or a negative number or if falsePositiveProbability
+     *                                  is not in the range (0, 1) or the required memory is too large.
+     */
+    public RotatingBloomDuplicateFilter(int expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Illegal expected insertions: " + expectedInsertions);
+        }
+        if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+            throw new IllegalArgumentException("Illegal false positive probability: " + falsePositiveProbability);
+        }
+        double ln2 = Math.log(2);
+        double optimalBits = -expectedInsertions * Math.log(falsePositiveProbability) / (ln2 * ln2);
+        if (optimalBits > MAX_BITS_PER_GENERATION) {
+            throw new IllegalArgumentException("Too large filter required for " + expectedInsertions
+                    + " insertions with false positive probability " + falsePositiveProbability);
+        }
+        // rounded to a power of 2 for cheap indexing, which lowers the actual false positive probability
+        this.bits = Math.max(64L, Long.highestOneBit((long) Math.ceil(optimalBits) - 1) << 1);
+        this.hashFunctions = Math.max(1, (int) Math.round(optimalBits / expectedInsertions * ln2));
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.generations = new AtomicReference<>(new Generation[] { new Generation(bits), new Generation(bits) });
+    }
+
+    /**
+     * Returns the number of packets recorded in a generation before its rotation.
+     * @return Positive number.
+     */
+    public int getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * Returns the upper bound of the probability that a packet not seen within the window is reported as a duplicate.
+     * @return The probability 1 - (1 - p)<sup>2</sup>, where p is the configured probability of a generation.
+     */
+    public double getFalsePositiveProbability() {
+        return 1 - (1 - falsePositiveProbability) * (1 - falsePositiveProbability);
+    }
+
+    /**
+     * Returns the number of bits of a generation.
+     * @return Power of 2 number.
+     */
+    public long getBitsPerGeneration() {
+        return bits;
+    }
+
+    /**
+     * Returns the number of hash functions used.
+     * @return Positive number.
+     */
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    @Override
+    protected boolean lookup(DataPacket packet) {
+        long fingerprint = packet.getFingerprint();
+        Generation[] g = generations.get();
+        return contains(g[0], fingerprint) || contains(g[1], fingerprint);
+    }
+
+    @Override
+    public void record(DataPacket packet) {
+        long fingerprint = packet.getFingerprint();
+        Generation[] g = generations.get();
+        Generation current = g[0];
+        if (contains(current, fingerprint)) return;
+
+        long h1 = fingerprint, h2 = XxHash64.avalanche(fingerprint) | 1;
+        long mask = bits - 1;
+        for (int i = 0; i < hashFunctions; ++i) {
+            long index = (h1 + i * h2) & mask;
+            int word = (int) (index >>> 6);
+            long bit = 1L << index;
+            long w;
+            while (((w = current.words.get(word)) & bit) == 0 && !current.words.compareAndSet(word, w, w | bit)) {
+                // retry
+            }
+        }
+        if (current.insertions.incrementAndGet() == expectedInsertions) {
+            generations.compareAndSet(g, new Generation[] { new Generation(bits), current });
+        }
+    }
+
+    private boolean contains(Generation generation, long fingerprint) {
+        long h1 = fingerprint, h2 = XxHash64.avalanche(fingerprint) | 1;
+        long mask = bits - 1;
+        for (int i = 0; i < hashFunctions; ++i) {
+            long index = (h1 + i * h2) & mask;
+            if ((generation.words.get((int) (index >>> 6)) & (1L << index)) == 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        generations.set(new Generation[] { new Generation(bits), new Generation(bits) });
+    }
+
+    @Override
+    public IDuplicateFilter copy() {
+        RotatingBloomDuplicateFilter result = new RotatingBloomDuplicateFilter(expectedInsertions,
+                falsePositiveProbability);
+        Generation[] g = generations.get();
+        result.generations.set(new Generation[] { new Generation(g[0]), new Generation(g[1]) });
+        return result;
+    }
+}
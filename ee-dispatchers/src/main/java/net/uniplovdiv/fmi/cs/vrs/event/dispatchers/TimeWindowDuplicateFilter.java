@@ -0,0 +1,170 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers;
+
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Duplicate filter remembering the {@link DataPacket#getFingerprint() fingerprints} of all of the data packets
+ * recorded within a time window, regardless of their amount, so bursts cannot push out the duplicates. The expired
+ * fingerprints are purged incrementally during the recording, in the order of their recording. To bound the memory
+ * under extreme load a maximum number of remembered packets can be set, after which the oldest ones are forgotten
+ * before their expiration. It relies on the 64-bit fingerprints only, like {@link DuplicateFilters#fingerprintOnly()}.
+ */
+public class TimeWindowDuplicateFilter extends AbstractDuplicateFilter {
+
+    /**
+     * The default maximum number of remembered packets.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 22;
+
+    private final long windowNanos;
+    private final int maxEntries;
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentHashMap<Long, Long> recordedAt = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger orderSize = new AtomicInteger();
+
+    /**
+     * Fingerprint recorded at particular time.
+     */
+    private static final class Entry {
+        final Long fingerprint;
+        final long time;
+
+        Entry(Long fingerprint, long time) {
+            this.fingerprint = fingerprint;
+            this.time = time;
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param window The duration of the time window during which the recorded packets are remembered.
+     * @param maxEntries The maximum number of remembered packets.
+     * @param nanoClock Source of monotonic time in nanoseconds for e.g. System::nanoTime.
+     * @throws NullPointerException If window or nanoClock is null.
+     * @throws IllegalArgumentException If window is not positive or maxEntries is 0 or a negative number.
+     */
+    public TimeWindowDuplicateFilter(Duration window, int maxEntries, LongSupplier nanoClock) {
+        if (window == null || nanoClock == null) {
+            throw new NullPointerException("Null window or clock specified");
+        }
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("The time window must be positive");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Illegal maximum number of entries: " + maxEntries);
+        }
+        this.windowNanos = window.toNanos();
+        this.maxEntries = maxEntries;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Constructor using the system monotonic clock.
+     * @param window The duration of the time window during which the recorded packets are remembered.
+     * @param maxEntries The maximum number of remembered packets.
+     * @throws NullPointerException If window is null.
+     * @throws IllegalArgumentException If window is not positive or maxEntries is 0 or a negative number.
+     */
+    public TimeWindowDuplicateFilter(Duration window, int maxEntries) {
+        this(window, maxEntries, System::nanoTime);
+    }
+
+    /**
+     * Constructor using the system monotonic clock and {@link #DEFAULT_MAX_ENTRIES}.
+     * @param window The duration of the time window during which the recorded packets are remembered.
+     * @throws NullPointerException If window is null.
+     * @throws IllegalArgumentException If window is not positive.
+     */
+    public TimeWindowDuplicateFilter(Duration window) {
+        this(window, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Returns the duration of the time window.
+     * @return Positive duration.
+     */
+    public Duration getWindow() {
+        return Duration.ofNanos(windowNanos);
+    }
+
+    /**
+     * Returns the maximum number of remembered packets.
+     * @return Positive number.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Returns the approximate number of remembered packets including the expired ones not yet purged.
+     * @return Non-negative number.
+     */
+    public int size() {
+        return recordedAt.size();
+    }
+
+    @Override
+    protected boolean lookup(DataPacket packet) {
+        Long time = recordedAt.get(packet.getFingerprint());
+        return (time != null && nanoClock.getAsLong() - time < windowNanos);
+    }
+
+    @Override
+    public void record(DataPacket packet) {
+        long now = nanoClock.getAsLong();
+        Long fingerprint = packet.getFingerprint();
+        recordedAt.put(fingerprint, now);
+        order.add(new Entry(fingerprint, now));
+        int size = orderSize.incrementAndGet();
+        purge(now, size);
+    }
+
+    /**
+     * Forgets the expired entries and the ones exceeding the maximum number of remembered packets.
+     * @param now The current time.
+     * @param size The current size of the order queue.
+     */
+    private void purge(long now, int size) {
+        Entry head;
+        while ((head = order.peek()) != null && (now - head.time >= windowNanos || size > maxEntries)) {
+            if (order.remove(head)) {
+                size = orderSize.decrementAndGet();
+                // re-recorded fingerprints have newer time and remain
+                recordedAt.remove(head.fingerprint, head.time);
+            } else {
+                size = orderSize.get();
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        order.clear();
+        recordedAt.clear();
+        orderSize.set(0);
+    }
+
+    @Override
+    public IDuplicateFilter copy() {
+        TimeWindowDuplicateFilter result = new TimeWindowDuplicateFilter(getWindow(), maxEntries, nanoClock);
+        for (Iterator<Entry> it = order.iterator(); it.hasNext(); ) {
+            Entry e = it.next();
+            result.order.add(e);
+            result.orderSize.incrementAndGet();
+        }
+        for (Map.Entry<Long, Long> e : recordedAt.entrySet()) {
+            result.recordedAt.put(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+}
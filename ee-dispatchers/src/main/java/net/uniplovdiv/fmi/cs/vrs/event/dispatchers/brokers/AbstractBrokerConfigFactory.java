@@ -3,13 +3,24 @@ package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers;
 import net.uniplovdiv.fmi.cs.vrs.event.Event;
 import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.AbstractDispatcherConfigFactory;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.DispatcherExecutors;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.DuplicateFilters;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IDuplicateFilter;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IdReservation;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.PartitionKeyExtractor;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.ReceiveOrdering;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataEncodingMechanism;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.IPayloadCompressor;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.LazyEvent;
 import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.ClassesIEventScanner;
 
 import java.lang.reflect.Constructor;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -26,6 +37,20 @@ public abstract class AbstractBrokerConfigFactory<T, R> extends AbstractDispatch
     protected ConcurrentMap<Class<? extends IEvent>, Set<String>> eventToTopicsMap;
     protected UUID identifier1;
     protected UUID identifier2;
+    protected volatile IPayloadCompressor payloadCompressor;
+    protected volatile int payloadCompressionThreshold;
+    protected volatile IntFunction<IDuplicateFilter> duplicateFilterFactory;
+    protected volatile Executor executor;
+    protected volatile PartitionKeyExtractor partitionKeyExtractor;
+    protected volatile IdReservation idReservation;
+    protected volatile ReceiveOrdering receiveOrdering;
+    protected volatile int receiveOrderingTopK;
+    protected volatile Predicate<? super LazyEvent> receiveFilter;
+
+    /**
+     * The default minimum payload length in bytes that triggers the compression of the sent events.
+     */
+    public static final int DEFAULT_PAYLOAD_COMPRESSION_THRESHOLD = 512;
 
     /**
      * Constructor. Provides the basic configuration parameters.
@@ -50,7 +75,7 @@ public abstract class AbstractBrokerConfigFactory<T, R> extends AbstractDispatch
     public AbstractBrokerConfigFactory(DataEncodingMechanism dataEncodingMechanismType,
                                        DispatchingType dispatchingType, Set<String> topics,
                                        Map<String, Set<Class<? extends IEvent>>> topicToEventsMap) {
-        if (dataEncodingMechanismType == DataEncodingMechanism.BASE32) {
+        if (dataEncodingMechanismType != null && dataEncodingMechanismType.isNestingOnly()) {
             throw new IllegalArgumentException("Not supported event encoding mechanism "
                     + dataEncodingMechanismType.name());
         }
@@ -182,6 +207,12 @@ public abstract class AbstractBrokerConfigFactory<T, R> extends AbstractDispatch
 
         // generate the UUID 2
         this.identifier2 = UUID.randomUUID();
+
+        this.payloadCompressionThreshold = DEFAULT_PAYLOAD_COMPRESSION_THRESHOLD;
+        this.duplicateFilterFactory = DuplicateFilters.fingerprint();
+        this.executor = DispatcherExecutors.blockingIoPool();
+        this.idReservation = IdReservation.RECURSIVE;
+        this.receiveOrdering = ReceiveOrdering.SORTED;
     }
 
     /**
@@ -197,6 +228,15 @@ public abstract class AbstractBrokerConfigFactory<T, R> extends AbstractDispatch
         this.dispatchingType = cfg.dispatchingType;
 
         this.dataEncodingMechanismType = cfg.dataEncodingMechanismType;
+        this.payloadCompressor = cfg.payloadCompressor;
+        this.payloadCompressionThreshold = cfg.payloadCompressionThreshold;
+        this.duplicateFilterFactory = cfg.duplicateFilterFactory;
+        this.executor = cfg.executor;
+        this.partitionKeyExtractor = cfg.partitionKeyExtractor;
+        this.idReservation = cfg.idReservation;
+        this.receiveOrdering = cfg.receiveOrdering;
+        this.receiveOrderingTopK = cfg.receiveOrderingTopK;
+        this.receiveFilter = cfg.receiveFilter;
 
         this.topics = ConcurrentHashMap.newKeySet();
         this.topics.addAll(cfg.topics);
@@ -216,6 +256,183 @@ public abstract class AbstractBrokerConfigFactory<T, R> extends AbstractDispatch
         return this.dataEncodingMechanismType;
     }
 
+    /**
+     * Returns the codec used to compress the payload of the sent events.
+     * @return The codec or null if the compression is turned off.
+     */
+    public IPayloadCompressor getPayloadCompressor() {
+        return this.payloadCompressor;
+    }
+
+    /**
+     * Returns the minimum payload length that triggers the compression of the sent events.
+     * @return Non-negative number of bytes.
+     */
+    public int getPayloadCompressionThreshold() {
+        return this.payloadCompressionThreshold;
+    }
+
+    /**
+     * Sets the compression of the payload of the sent events. The compression is turned off by default, since
+     * consumers using older versions of the library cannot decode compressed events. Received compressed events are
+     * always decompressed, provided that their codec is available. See
+     * {@link net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.PayloadCompressors}.
+     * @param payloadCompressor The codec to be used for instance
+     *                          {@link net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DeflatePayloadCompressor}
+     *                          or null to turn off the compression.
+     * @param threshold The minimum payload length in bytes that triggers the compression. See
+     *                  {@link #DEFAULT_PAYLOAD_COMPRESSION_THRESHOLD}.
+     * @throws IllegalArgumentException If threshold is negative number.
+     */
+    public void setPayloadCompression(IPayloadCompressor payloadCompressor, int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("The compression threshold must be a non-negative number");
+        }
+        this.payloadCompressionThreshold = threshold;
+        this.payloadCompressor = payloadCompressor;
+    }
+
+    /**
+     * Returns the factory of the filters used by the dispatchers to suppress duplicated events.
+     * @return Nonnull factory accepting the latestEventsRememberCapacity of the dispatcher.
+     */
+    public IntFunction<IDuplicateFilter> getDuplicateFilterFactory() {
+        return this.duplicateFilterFactory;
+    }
+
+    /**
+     * Sets the factory of the filters used by the dispatchers to suppress duplicated events. By default lock-free
+     * count-based filters are created. For the available strategies (exact, time window, rotating Bloom filter) see
+     * {@link DuplicateFilters}. The factory is used only by the dispatchers created after its setting.
+     * @param duplicateFilterFactory The factory accepting the latestEventsRememberCapacity of the dispatcher, which is
+     *                               always a positive number.
+     * @throws NullPointerException If duplicateFilterFactory is null.
+     */
+    public void setDuplicateFilterFactory(IntFunction<IDuplicateFilter> duplicateFilterFactory) {
+        this.duplicateFilterFactory = Objects.requireNonNull(duplicateFilterFactory);
+    }
+
+    /**
+     * Returns the executor running the blocking broker operations of the dispatchers, like the asynchronous sending.
+     * @return Nonnull executor.
+     */
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Sets the executor running the blocking broker operations of the dispatchers, like the asynchronous sending. By
+     * default {@link DispatcherExecutors#blockingIoPool()} is used. On Java 21+
+     * {@link DispatcherExecutors#virtualThreadPerTask()} makes thousands of concurrent operations cheap. The executor
+     * is not shut down by the dispatchers.
+     * @param executor The executor.
+     * @throws NullPointerException If executor is null.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Returns the extractor of the keys by which the brokers group the sent events.
+     * @return The extractor or null if the events are sent without keys.
+     */
+    public PartitionKeyExtractor getPartitionKeyExtractor() {
+        return this.partitionKeyExtractor;
+    }
+
+    /**
+     * Sets the extractor of the keys by which the brokers group the sent events. With Kafka the events with the same
+     * key keep their order and are received by the same consumer, so the consumers need no global sorting and keep the
+     * related events local. ActiveMQ does not support keys and ignores them. By default the events are sent without
+     * keys and are spread evenly. See {@link net.uniplovdiv.fmi.cs.vrs.event.dispatchers.PartitionKeyExtractors}.
+     * @param partitionKeyExtractor The extractor or null to send the events without keys.
+     */
+    public void setPartitionKeyExtractor(PartitionKeyExtractor partitionKeyExtractor) {
+        this.partitionKeyExtractor = partitionKeyExtractor;
+    }
+
+    /**
+     * Returns the way in which the dispatchers assign local identifiers to the received events.
+     * @return Nonnull value.
+     */
+    public IdReservation getIdReservation() {
+        return this.idReservation;
+    }
+
+    /**
+     * Sets the way in which the dispatchers assign local identifiers to the received events. By default
+     * {@link IdReservation#RECURSIVE} is used, which walks through all of the nested subevents and synchronizes on the
+     * global identifier generator for each of them.
+     * @param idReservation The way of assigning identifiers.
+     * @throws NullPointerException If idReservation is null.
+     */
+    public void setIdReservation(IdReservation idReservation) {
+        this.idReservation = Objects.requireNonNull(idReservation);
+    }
+
+    /**
+     * Returns the way in which the dispatchers order each batch of received events.
+     * @return Nonnull value.
+     */
+    public ReceiveOrdering getReceiveOrdering() {
+        return this.receiveOrdering;
+    }
+
+    /**
+     * Returns the number of events put first by {@link ReceiveOrdering#TOP_K}.
+     * @return Positive number or 0 if not set.
+     */
+    public int getReceiveOrderingTopK() {
+        return this.receiveOrderingTopK;
+    }
+
+    /**
+     * Sets the way in which the dispatchers order each batch of received events. By default
+     * {@link ReceiveOrdering#SORTED} is used. To use {@link ReceiveOrdering#TOP_K} call
+     * {@link #setTopKReceiveOrdering(int)}.
+     * @param receiveOrdering The ordering.
+     * @throws NullPointerException If receiveOrdering is null.
+     * @throws IllegalArgumentException If receiveOrdering is {@link ReceiveOrdering#TOP_K}.
+     */
+    public void setReceiveOrdering(ReceiveOrdering receiveOrdering) {
+        if (Objects.requireNonNull(receiveOrdering) == ReceiveOrdering.TOP_K) {
+            throw new IllegalArgumentException("The number of the top events must be specified");
+        }
+        this.receiveOrdering = receiveOrdering;
+    }
+
+    /**
+     * Sets the ordering of the received events to {@link ReceiveOrdering#TOP_K}.
+     * @param k The number of the events with the highest priority to be sorted and put first in each batch.
+     * @throws IllegalArgumentException If k is 0 or a negative number.
+     */
+    public void setTopKReceiveOrdering(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("The number of the top events must be a positive number");
+        }
+        this.receiveOrderingTopK = k;
+        this.receiveOrdering = ReceiveOrdering.TOP_K;
+    }
+
+    /**
+     * Returns the filter applied to the received events before their deserialization.
+     * @return The filter or null if not set.
+     */
+    public Predicate<? super LazyEvent> getReceiveFilter() {
+        return this.receiveFilter;
+    }
+
+    /**
+     * Sets filter applied to the received events before their deserialization. The filter gets a {@link LazyEvent}
+     * view of each event, so deciding by its type, id, timestamps, priority or category costs no deserialization of
+     * the rest of it. Only the events accepted by the filter get fully deserialized and returned by the receiving,
+     * the rest are dropped. By default no filter is set.
+     * @param receiveFilter The filter or null to receive all events.
+     */
+    public void setReceiveFilter(Predicate<? super LazyEvent> receiveFilter) {
+        this.receiveFilter = receiveFilter;
+    }
+
     /**
      * Returns the configured operation mode of the dispatcher.
      * @return An enumeration value of the used mode.
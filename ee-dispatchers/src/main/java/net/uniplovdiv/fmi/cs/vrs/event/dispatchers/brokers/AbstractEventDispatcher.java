@@ -2,44 +2,66 @@ package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers;
 
 import net.uniplovdiv.fmi.cs.vrs.event.Event;
 import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
-import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.CircularFifoSet;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventFlow;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventPipelineSettings;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IDuplicateFilter;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IEventDispatcher;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IEventSubscription;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IdReservation;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.PartitionKeyExtractor;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.ReceiveOrdering;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataEncodingMechanism;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.IPayloadCompressor;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.SerializerRegistry;
 import net.uniplovdiv.fmi.cs.vrs.event.parameters.ComparableArrayList;
 import net.uniplovdiv.fmi.cs.vrs.event.serializers.IEventSerializer;
 import net.uniplovdiv.fmi.cs.vrs.event.serializers.JavaEventSerializer;
 import net.uniplovdiv.fmi.cs.vrs.event.serializers.JsonEventSerializer;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.LazyEvent;
 import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.Base32Encoder;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.IBinaryTextEncoder;
 
 import java.io.IOException;
 import java.lang.reflect.Constructor;
-import java.nio.charset.Charset;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 public abstract class AbstractEventDispatcher implements IEventDispatcher {
 
-    // Specialized structures for storing the hashes of the DataPackets of the latest sent/received events in order not
-    // to receive them again in case of CONSUME_PRODUCE operation mode or 1 event sent to many distribution channels
-    // and received by CONSUME or CONSUME_PRODUCE instance
-    protected Collection<Integer> latestEventsSent;
-    protected Collection<Integer> latestEventsReceived;
+    // Specialized structures remembering the DataPackets of the latest sent/received events in order not to receive
+    // them again in case of CONSUME_PRODUCE operation mode or 1 event sent to many distribution channels and received
+    // by CONSUME or CONSUME_PRODUCE instance. Created by the duplicate filter factory of the configuration.
+    protected IDuplicateFilter latestEventsSent;
+    protected IDuplicateFilter latestEventsReceived;
     protected final int latestEventsRememberCapacity;
     protected final boolean doNotReceiveEventsFromSameSource;
 
     protected final static String CLIENT_ID_HEADER_KEY = "event_src";
 
+    /**
+     * Unused and always null. The serializers are shared among all dispatchers through {@link SerializerRegistry}.
+     */
+    @Deprecated
     protected Map<Class<?>, IEventSerializer> serializerHelpers;
     protected Base32Encoder base32EncoderHelper;
 
     protected String[] packagesWithEvents;
 
+    // the active subscription if any, either of a consumer or of a publisher's subscriber
+    private volatile IEventSubscription subscription;
+
+    // the asynchronous sending whose completion handlers have not been called yet
+    private final Set<CompletableFuture<Void>> pendingCompletions = ConcurrentHashMap.newKeySet();
+
     /**
      * Constructor.
      * @param config The configuration settings that also include concrete broker configuration options. Cannot be null.
@@ -67,21 +89,23 @@ public abstract class AbstractEventDispatcher implements IEventDispatcher {
         this.doNotReceiveEventsFromSameSource = doNotReceiveEventsFromSameSource;
 
         DispatchingType dispatchingType = config.getDispatchingType();
+        IntFunction<IDuplicateFilter> filterFactory =
+                ((AbstractBrokerConfigFactory<?, ?>) config).getDuplicateFilterFactory();
         if (dispatchingType.equals(DispatchingType.PRODUCE)) {
             // PRODUCER
-            this.latestEventsSent = (this.latestEventsRememberCapacity > 0 ? Collections.synchronizedCollection(
-                    new CircularFifoSet<Integer>(this.latestEventsRememberCapacity)) : null);
+            this.latestEventsSent = (this.latestEventsRememberCapacity > 0
+                    ? filterFactory.apply(this.latestEventsRememberCapacity) : null);
         } else {
-            this.latestEventsReceived = (this.latestEventsRememberCapacity > 0 ? Collections.synchronizedCollection(
-                    new CircularFifoSet<Integer>(this.latestEventsRememberCapacity)) : null);
+            this.latestEventsReceived = (this.latestEventsRememberCapacity > 0
+                    ? filterFactory.apply(this.latestEventsRememberCapacity) : null);
             if (dispatchingType.equals(DispatchingType.CONSUME_PRODUCE)) {
                 // PRODUCER too
-                this.latestEventsSent = (this.latestEventsRememberCapacity > 0 ? Collections.synchronizedCollection(
-                        new CircularFifoSet<Integer>(this.latestEventsRememberCapacity)) : null);
+                this.latestEventsSent = (this.latestEventsRememberCapacity > 0
+                        ? filterFactory.apply(this.latestEventsRememberCapacity) : null);
             }
         }
 
-        this.serializerHelpers = new HashMap<>();
+        this.base32EncoderHelper = SerializerRegistry.getBase32Encoder();
     }
 
     /**
@@ -114,6 +138,7 @@ public abstract class AbstractEventDispatcher implements IEventDispatcher {
                                    boolean doNotReceiveEventsFromSameSource, String[] packagesWithEvents) {
         this(config, latestEventsRememberCapacity, doNotReceiveEventsFromSameSource);
         this.packagesWithEvents = packagesWithEvents;
+        SerializerRegistry.warmUp(config.getDataEncodingMechanismType(), null, packagesWithEvents);
     }
 
     /**
@@ -124,6 +149,24 @@ public abstract class AbstractEventDispatcher implements IEventDispatcher {
         return this.latestEventsRememberCapacity;
     }
 
+    /**
+     * Returns the filter suppressing the receiving of events sent by the current dispatcher. Useful for monitoring of
+     * its hit and miss counters.
+     * @return The filter or null if the dispatcher does not produce events or latestEventsRememberCapacity is 0.
+     */
+    public final IDuplicateFilter getLatestEventsSentFilter() {
+        return this.latestEventsSent;
+    }
+
+    /**
+     * Returns the filter suppressing the receiving of the same event more than once. Useful for monitoring of its hit
+     * and miss counters.
+     * @return The filter or null if the dispatcher does not consume events or latestEventsRememberCapacity is 0.
+     */
+    public final IDuplicateFilter getLatestEventsReceivedFilter() {
+        return this.latestEventsReceived;
+    }
+
     /**
      * Returns whether the strict prevention of received events from the same source (client identifier) is activated.
      * @return True if the filering is active otherwise false.
@@ -146,7 +189,8 @@ public abstract class AbstractEventDispatcher implements IEventDispatcher {
     protected abstract AbstractBrokerConfigFactory retrieveConfig(DispatchingType dt);
 
     /**
-     * Converts IEvent instance to binary data packet.
+     * Converts IEvent instance to binary data packet. The payload gets compressed if so configured - see
+     * {@link AbstractBrokerConfigFactory#setPayloadCompression(IPayloadCompressor, int)}.
      * @param event The event instance to be used. Cannot be null.
      * @return The DataPacket representation of the provided event.
      * @throws IOException If event serialization fails.
@@ -164,48 +208,49 @@ public abstract class AbstractEventDispatcher implements IEventDispatcher {
             throw new NullPointerException("Null serialization mechanism type specified in the configuration!");
         }
 
+        DataPacket dp;
         switch (dataEncodingMechanismType) {
             case JAVA:
-                IEventSerializer serializer = this.serializerHelpers.computeIfAbsent(
-                        JavaEventSerializer.class, clazz -> new JavaEventSerializer());
-                return new DataPacket(dataEncodingMechanismType, null, serializer.serialize(event));
+                IEventSerializer serializer = SerializerRegistry.getJava();
+                dp = DataPacket.wrapPayload(dataEncodingMechanismType, null, serializer.serialize(event));
+                break;
 
             case JSON:
-                JsonEventSerializer jes = (JsonEventSerializer) this.serializerHelpers.computeIfAbsent(
-                        JsonEventSerializer.class, clazz -> {
-                            JsonEventSerializer res = new JsonEventSerializer(this.packagesWithEvents);
-                            res.setAttemptAutomaticClassRegistration(true);
-                            return res;
-                        });
-                return new DataPacket(dataEncodingMechanismType, jes.getEncoding(), jes.serialize(event));
+                JsonEventSerializer jes = SerializerRegistry.getJson(null, this.packagesWithEvents);
+                dp = DataPacket.wrapPayload(dataEncodingMechanismType, jes.getEncoding(), jes.serialize(event));
+                break;
 
             case BASE32:
-                throw new IllegalArgumentException("Event cannot be packed using BASE32 format.");
+            case BASE64:
+            case BASE85:
+                throw new IllegalArgumentException("Event cannot be packed using " + dataEncodingMechanismType.name()
+                        + " format.");
             case UNKNOWN:
             default:
                 throw new IllegalArgumentException("Cannot pack event in data packet due to unknown format.");
         }
+
+        IPayloadCompressor compressor = conf.getPayloadCompressor();
+        if (compressor != null) {
+            dp = dp.compress(compressor, conf.getPayloadCompressionThreshold());
+        }
+        return dp;
     }
 
     /**
      * Nests an existing data packet into another one.
      * @param packet An initialized data packet to be nested inside another data packet.
-     * @param dataEncodingMechanism Used for the packet nesting. Only BASE32 is supported.
+     * @param dataEncodingMechanism Used for the packet nesting. Only BASE32, BASE64 and BASE85 are supported. BASE85
+     *                              produces the smallest result.
      * @return A new data packet containing a nested copy of the existing one in its payload section.
      * @throws IllegalArgumentException If the provided data packet or data encoding mechanisms are null or invalid.
      */
     protected DataPacket nestDataPacket(DataPacket packet, DataEncodingMechanism dataEncodingMechanism) {
-        if (packet == null || dataEncodingMechanism != DataEncodingMechanism.BASE32) {
+        IBinaryTextEncoder encoder = SerializerRegistry.getTextEncoder(dataEncodingMechanism);
+        if (packet == null || encoder == null) {
             throw new IllegalArgumentException("Bad packet and/or data encoding mechanism provided");
         }
-
-        if (base32EncoderHelper == null) {
-            base32EncoderHelper = new Base32Encoder();
-        }
-        byte[] payload = base32EncoderHelper.encode(packet.toBytes());
-        Charset encoding = packet.getEncoding(); // providing the encoding of the inner packet since BASE32 procedure
-        // works with bytes only and it's not interested in any encodings
-        return new DataPacket(DataEncodingMechanism.BASE32, DataPacket.Version.NESTED, encoding, payload);
+        return DataPacket.nest(packet, dataEncodingMechanism, encoder);
     }
 
     /**
@@ -219,39 +264,42 @@ public abstract class AbstractEventDispatcher implements IEventDispatcher {
      */
     protected IEvent dataPacketToEvent(DataPacket dp) throws IOException, ClassNotFoundException,
             IllegalArgumentException {
+        return dataPacketToEvent(dp, false);
+    }
+
+    /**
+     * Converts DataPacket with data to its IEvent instance representation.
+     * @param dp The data packet instance to be used. Cannot be null.
+     * @param lazily If true a {@link LazyEvent} view is returned, which provides the id, timestamps, priority and
+     *               category of the event without deserializing the whole of it. Used by the receiving when
+     *               {@link AbstractBrokerConfigFactory#setReceiveFilter(Predicate)} is set.
+     * @return An initialized IEvent or null if the provided data packet was null.
+     * @throws IOException If event deserialization fails.
+     * @throws ClassNotFoundException If event serialization fails.
+     * @throws IllegalArgumentException If the serialization mechanism is not supported or other error or if the payload
+     *                                  of the data packet is another data packet that failed extracting.
+     */
+    protected IEvent dataPacketToEvent(DataPacket dp, boolean lazily) throws IOException, ClassNotFoundException,
+            IllegalArgumentException {
         if (dp == null) return null;
+        if (dp.isCompressed()) {
+            dp = dp.decompress();
+        }
         switch (dp.getDataEncodingMechanismType()) {
             case JAVA:
-                IEventSerializer serializer = this.serializerHelpers.computeIfAbsent(
-                        JavaEventSerializer.class, clazz -> new JavaEventSerializer());
-                return serializer.deserialize(dp.getPayload());
+                JavaEventSerializer serializer = SerializerRegistry.getJava();
+                return (lazily ? dp.readPayload(serializer::deserializeLazily)
+                        : dp.readPayload(serializer::deserialize));
 
             case JSON:
-                JsonEventSerializer jes = (JsonEventSerializer) this.serializerHelpers.computeIfAbsent(
-                        JsonEventSerializer.class, clazz -> {
-                            JsonEventSerializer res = new JsonEventSerializer(this.packagesWithEvents);
-                            res.setAttemptAutomaticClassRegistration(true);
-                            return res;
-                        });
-                if (dp.getEncoding() != null && !jes.getEncoding().equals(dp.getEncoding())) {
-                    jes = new JsonEventSerializer(dp.getEncoding(), null, null, this.packagesWithEvents);
-                    jes.setAttemptAutomaticClassRegistration(true);
-                }
-                return jes.deserialize(dp.getPayload());
+                JsonEventSerializer jes = SerializerRegistry.getJson(dp.getEncoding(), this.packagesWithEvents);
+                return (lazily ? dp.readPayload(jes::deserializeLazily) : dp.readPayload(jes::deserialize));
 
             case BASE32:
-                if (dp.getDataPacketVersion() != DataPacket.Version.NESTED) {
-                    throw new IllegalArgumentException("Cannot unpack not nested data packet encoded using BASE32!");
-                }
-                if (base32EncoderHelper == null) {
-                    base32EncoderHelper = new Base32Encoder();
-                }
-                byte[] nestedPacket = base32EncoderHelper.decode(dp.getPayload());
-                if (nestedPacket == null || nestedPacket.length == 0) {
-                    throw new IllegalArgumentException("Failed to extract nested data packet that is null or with a "
-                            + "length of zero!");
-                }
-                return dataPacketToEvent(new DataPacket(nestedPacket));
+            case BASE64:
+            case BASE85:
+                return dataPacketToEvent(dp.unnest(SerializerRegistry.getTextEncoder(dp.getDataEncodingMechanismType())),
+                        lazily);
 
             case UNKNOWN:
             default:
@@ -268,8 +316,8 @@ public abstract class AbstractEventDispatcher implements IEventDispatcher {
      * @return A complex hash value.
      */
     protected String computePacketHash(IEvent event, DataPacket dataPacket) {
-        // we use dataPacket.getPayload() instead of getBytes because it's cheaper
-        return String.valueOf(event.hashCode()) + String.valueOf(dataPacket.getPayload().length);
+        // we use dataPacket.getPayloadLength() instead of getBytes because it does not copy any data
+        return String.valueOf(event.hashCode()) + String.valueOf(dataPacket.getPayloadLength());
     }
 
     /**
@@ -286,6 +334,130 @@ public abstract class AbstractEventDispatcher implements IEventDispatcher {
      */
     protected abstract boolean doActualSend(String topic, DataPacket dp);
 
+    /**
+     * Calls the actual sending procedure for the desired data, destination topic and partition key. The default
+     * implementation ignores the key and calls {@link #doActualSend(String, DataPacket)}. Implementations supporting
+     * keys should override it.
+     * @param topic The topic (communication channel) to which the data to be sent.
+     * @param key The key by which the broker groups the data or null if none. See
+     *            {@link AbstractBrokerConfigFactory#setPartitionKeyExtractor(PartitionKeyExtractor)}.
+     * @param dp The data that will be sent. Cannot be null.
+     * @return True if the sending was successful otherwise false.
+     */
+    protected boolean doActualSend(String topic, String key, DataPacket dp) {
+        return doActualSend(topic, dp);
+    }
+
+    /**
+     * Calls the actual sending procedure for the desired data and all of its destination topics. The default
+     * implementation sends the same data packet to one topic after another using
+     * {@link #doActualSend(String, String, DataPacket)}. Implementations can override it to send the data only once,
+     * for e.g. to a composite destination.
+     * @param ec The class of the sent event.
+     * @param topics The destination topics. Not empty.
+     * @param key The partition key of the data or null if none.
+     * @param dp The data to be sent.
+     * @return True if the sending to at least one of the topics was successful otherwise false.
+     */
+    protected boolean doActualSendToAll(Class<? extends IEvent> ec, Set<String> topics, String key, DataPacket dp) {
+        boolean atLeastOneSent = false;
+        for (String topic : topics) {
+            if (doActualSend(topic, key, dp)) {
+                atLeastOneSent = true;
+            } else {
+                System.err.println("Failed to send event " + ec.getCanonicalName() + " to topic " + topic);
+            }
+        }
+        return atLeastOneSent;
+    }
+
+    /**
+     * Calls the actual sending procedure for the desired data and destination topic without waiting for its
+     * completion. Used only if {@link #isPipelinedSending()} returns true. The default implementation sends the data
+     * synchronously using {@link #doActualSend(String, String, DataPacket)}.
+     * @param topic The topic (communication channel) to which the data to be sent.
+     * @param key The partition key of the data or null if none.
+     * @param dp The data that will be sent. Cannot be null.
+     * @return Future completed with true if the sending was successful otherwise with false. Never completed
+     *         exceptionally.
+     */
+    protected CompletableFuture<Boolean> doActualSendAsync(String topic, String key, DataPacket dp) {
+        return CompletableFuture.completedFuture(doActualSend(topic, key, dp));
+    }
+
+    /**
+     * Returns whether the events are sent in pipelined mode using
+     * {@link #doActualSendAsync(String, String, DataPacket)}
+     * for all of their topics at once, instead of sending them to one topic after another.
+     * @return True if the pipelined mode is active, otherwise false. The default implementation returns false.
+     */
+    protected boolean isPipelinedSending() {
+        return false;
+    }
+
+    /**
+     * Sends data packet to all of its topics in pipelined mode.
+     * @param ec The class of the sent event.
+     * @param topics The topics to which the data to be sent.
+     * @param key The partition key of the data or null if none.
+     * @param dp The data that will be sent.
+     * @return Future completed with true if the sending to at least one of the topics was successful otherwise with
+     *         false.
+     */
+    private CompletableFuture<Boolean> sendPipelined(Class<? extends IEvent> ec, Set<String> topics, String key,
+                                                     DataPacket dp) {
+        // remembered in advance, since the packet can be received before the acknowledgement of its sending
+        if (this.latestEventsSent != null) this.latestEventsSent.record(dp);
+        return doActualSendToAllAsync(ec, topics, key, dp);
+    }
+
+    /**
+     * Calls the actual sending procedure for the desired data and all of its destination topics without waiting for
+     * its completion. Used only if {@link #isPipelinedSending()} returns true. The default implementation calls
+     * {@link #doActualSendAsync(String, String, DataPacket)} for each of the topics. Implementations can override it
+     * to send the data only once, for e.g. when the broker itself is capable of delivering it to many topics.
+     * @param ec The class of the sent event.
+     * @param topics The topics to which the data to be sent.
+     * @param key The partition key of the data or null if none.
+     * @param dp The data that will be sent.
+     * @return Future completed with true if the sending to at least one of the topics was successful otherwise with
+     *         false. Never completed exceptionally.
+     */
+    protected CompletableFuture<Boolean> doActualSendToAllAsync(Class<? extends IEvent> ec, Set<String> topics,
+                                                                String key, DataPacket dp) {
+        List<CompletableFuture<Boolean>> sends = new ArrayList<>(topics.size());
+        for (String topic : topics) {
+            sends.add(doActualSendAsync(topic, key, dp).thenApply(sent -> {
+                if (!sent) {
+                    System.err.println("Failed to send event " + ec.getCanonicalName() + " to topic " + topic);
+                }
+                return sent;
+            }));
+        }
+        return CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            for (CompletableFuture<Boolean> send : sends) {
+                if (send.join()) return Boolean.TRUE;
+            }
+            return Boolean.FALSE;
+        });
+    }
+
+    /**
+     * Returns the partition key of a sent event using the configured {@link PartitionKeyExtractor}.
+     * @param event The sent event.
+     * @return The key or null if the event has none or no extractor is configured.
+     */
+    protected String extractPartitionKey(IEvent event) {
+        PartitionKeyExtractor extractor = this.retrieveConfig(DispatchingType.PRODUCE).getPartitionKeyExtractor();
+        if (extractor == null) return null;
+        try {
+            return extractor.extractKey(event);
+        } catch (RuntimeException e) {
+            e.printStackTrace(System.err);
+            return null;
+        }
+    }
+
     /**
      * Prepares to send event by doing internal not initialized structures initialization followed by send pre-checks.
      * @param event The event to send.
@@ -379,29 +551,58 @@ public abstract class AbstractEventDispatcher implements IEventDispatcher {
             @SuppressWarnings("unchecked")
             Set<String> eventTopics = eventToTopicsMap.get(ec); // concurrent as well
 
-            if (!eventTopics.isEmpty()) {
-                CompletableFuture.supplyAsync(() -> {
-                    boolean atLeastOneSent = false;
-                    for (String topic : eventToTopicsMap.get(ec)) {
-                        if (doActualSend(topic, dp)) {
-                            if (this.latestEventsSent != null) this.latestEventsSent.add(dp.hashCode());
-                            atLeastOneSent = true;
-                        } else {
-                            System.err.println("Failed to send event " + ec.getCanonicalName() + " to topic " + topic);
-                        }
+            String key = (eventTopics.isEmpty() ? null : extractPartitionKey(event));
+            if (!eventTopics.isEmpty() && isPipelinedSending()) {
+                // the acknowledgements come from the I/O threads of the client, so the completion is handed over
+                trackCompletion(sendPipelined(ec, eventTopics, key, dp).thenAcceptAsync((result) -> {
+                    if (onCompletion != null) {
+                        onCompletion.accept(result, event);
                     }
+                }, this.retrieveConfig(DispatchingType.PRODUCE).getExecutor()));
+            } else if (!eventTopics.isEmpty()) {
+                // the sending blocks, so it must not run in the common pool
+                trackCompletion(CompletableFuture.supplyAsync(() -> {
+                    boolean atLeastOneSent = doActualSendToAll(ec, eventTopics, key, dp);
+                    if (atLeastOneSent && this.latestEventsSent != null) this.latestEventsSent.record(dp);
                     return atLeastOneSent;
-                }).thenAccept((result) -> {
+                }, this.retrieveConfig(DispatchingType.PRODUCE).getExecutor()).thenAccept((result) -> {
                     if (onCompletion != null) {
                         onCompletion.accept(result, event);
                     }
-                });
+                }));
+            } else if (onCompletion != null) {
+                // nothing to send, same as the result of the synchronous sending
+                onCompletion.accept(Boolean.TRUE, event);
             }
         } else if (onCompletion != null) {
             onCompletion.accept(Boolean.FALSE, event);
         }
     }
 
+    /**
+     * Keeps track of asynchronous sending until its completion handler is called, so {@link #flush()} can wait for it.
+     * @param completion Future completed once the completion handler of the sending is called.
+     */
+    private void trackCompletion(CompletableFuture<Void> completion) {
+        this.pendingCompletions.add(completion);
+        completion.whenComplete((v, e) -> this.pendingCompletions.remove(completion));
+    }
+
+    /**
+     * Blocks until the completion handlers of all of the events sent asynchronously so far are called. Dispatchers
+     * whose clients buffer the sent events must override it to send them first and then call the super method.
+     */
+    @Override
+    public void flush() {
+        for (CompletableFuture<Void> completion : this.pendingCompletions) {
+            try {
+                completion.join();
+            } catch (CompletionException | CancellationException e) {
+                e.printStackTrace(System.err);
+            }
+        }
+    }
+
     @Override
     public boolean send(IEvent event) {
         if (!prepareToSend(event)) return false;
@@ -416,13 +617,20 @@ public abstract class AbstractEventDispatcher implements IEventDispatcher {
         @SuppressWarnings("unchecked")
         Set<String> eventTopics = eventToTopicsMap.get(ec); // concurrent as well
 
-        if (!eventTopics.isEmpty()) {
+        if (!eventTopics.isEmpty() && isPipelinedSending()) {
+            try {
+                // sent to all of the topics at once
+                sendPipelined(ec, eventTopics, extractPartitionKey(event), this.eventToDataPacket(event)).join();
+            } catch (Exception e) {
+                e.printStackTrace(System.err);
+                return false;
+            }
+        } else if (!eventTopics.isEmpty()) {
             try {
                 DataPacket dp = this.eventToDataPacket(event);
-                for (String topic : eventToTopicsMap.get(ec)) {
-                    if (doActualSend(topic, dp)) {
-                        if (this.latestEventsSent != null) this.latestEventsSent.add(dp.hashCode());
-                    }
+                if (doActualSendToAll(ec, eventTopics, extractPartitionKey(event), dp)
+                        && this.latestEventsSent != null) {
+                    this.latestEventsSent.record(dp);
                 }
             } catch (Exception e) {
                 e.printStackTrace(System.err);
@@ -445,6 +653,18 @@ public abstract class AbstractEventDispatcher implements IEventDispatcher {
      */
     protected abstract List<DataPacket> doActualReceive(long timeout);
 
+    /**
+     * Calls the actual receiving procedure asking for a limited amount of data. Used when the receiving is driven by
+     * the demand of a subscriber. The default implementation ignores the limit and calls
+     * {@link #doActualReceive(long)}, so any excess data gets buffered by the caller.
+     * @param timeout The time in milliseconds to wait for data before giving up.
+     * @param maxRecords The maximum number of data packets needed. Positive number.
+     * @return List of data packets (if any) or a null (if none).
+     */
+    protected List<DataPacket> doActualReceive(long timeout, int maxRecords) {
+        return doActualReceive(timeout);
+    }
+
     @Override
     public List<IEvent> receive() {
         return this.receive(1500);
@@ -452,6 +672,44 @@ public abstract class AbstractEventDispatcher implements IEventDispatcher {
 
     @Override
     public List<IEvent> receive(long timeout) {
+        if (isSubscribed()) return null;
+        List<DataPacket> consumerRecords = receivePackets(timeout);
+
+        if (consumerRecords == null || consumerRecords.isEmpty()) return null;
+        List<IEvent> events = new ComparableArrayList<IEvent>(consumerRecords.size()) {
+            private static final long serialVersionUID = -7974246513379250713L;
+        };
+
+        for (DataPacket cr : consumerRecords) {
+            IEvent event = decodeReceived(cr);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+
+        if (events.isEmpty()) return null;
+        orderReceived(events);
+        doAfterReceive();
+        return events;
+    }
+
+    /**
+     * Receives the data packets of new events while filtering out any duplicates, which is the sequential part of the
+     * receiving that precedes the decoding of the events.
+     * @param timeout The time in milliseconds to wait for data before giving up.
+     * @return Non-empty list of data packets or null if none were received.
+     */
+    protected List<DataPacket> receivePackets(long timeout) {
+        return receivePackets(timeout, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Receives the data packets of new events while filtering out any duplicates. See {@link #receivePackets(long)}.
+     * @param timeout The time in milliseconds to wait for data before giving up.
+     * @param maxRecords The maximum number of data packets needed. See {@link #doActualReceive(long, int)}.
+     * @return Non-empty list of data packets or null if none were received.
+     */
+    protected List<DataPacket> receivePackets(long timeout, int maxRecords) {
         if (!doPreReceiveChecks()) return null;
         AbstractBrokerConfigFactory conf = this.retrieveConfig(DispatchingType.CONSUME);
         if (conf == null) return null;
@@ -459,39 +717,168 @@ public abstract class AbstractEventDispatcher implements IEventDispatcher {
         Set<String> topics = conf.getTopics();
         if (topics == null || topics.isEmpty()) return null;
 
-        List<DataPacket> consumerRecords = doActualReceive(timeout);
+        List<DataPacket> consumerRecords = (maxRecords == Integer.MAX_VALUE ? doActualReceive(timeout)
+                : doActualReceive(timeout, maxRecords));
 
         if (consumerRecords == null || consumerRecords.isEmpty()) return null;
-        List<IEvent> events = new ComparableArrayList<IEvent>(consumerRecords.size()) {
-            private static final long serialVersionUID = -7974246513379250713L;
-        };
-
-        boolean atLeastOneSucceeded = false;
+        List<DataPacket> result = new ArrayList<>(consumerRecords.size());
         for (DataPacket cr : consumerRecords) {
-            try {
-                // prevent receiving events sent by us with filtering based on the runtime instance data for the sent
-                // events until this period's X amount of events
-                if ((this.latestEventsSent != null && this.latestEventsSent.contains(cr.hashCode()))
-                        || (this.latestEventsReceived != null
-                        && this.latestEventsReceived.contains(cr.hashCode()))) {
-                    continue;
-                }
+            if (acceptReceived(cr)) {
+                result.add(cr);
+            }
+        }
+        return (result.isEmpty() ? null : result);
+    }
 
-                IEvent event = dataPacketToEvent(cr);
-                Event.reserveNewId(event, true);
-                events.add(event);
-                atLeastOneSucceeded = true;
-            } catch (IOException | ClassNotFoundException | IllegalAccessException e) {
-                e.printStackTrace(System.err);
+    /**
+     * Checks whether a received data packet is a duplicate and remembers it if not. Must be called sequentially in
+     * the order of the receiving.
+     * @param dp The received data packet.
+     * @return True if the data packet is new, false if it is a duplicate to be ignored.
+     */
+    protected boolean acceptReceived(DataPacket dp) {
+        // prevent receiving events sent by us with filtering based on the runtime instance data for the sent
+        // events until this period's X amount of events
+        if ((this.latestEventsSent != null && this.latestEventsSent.isDuplicate(dp))
+                || (this.latestEventsReceived != null && this.latestEventsReceived.isDuplicate(dp))) {
+            return false;
+        }
+        if (this.latestEventsReceived != null) this.latestEventsReceived.record(dp);
+        return true;
+    }
+
+    /**
+     * Decodes the event of a received data packet and reserves new ids for it. If a receive filter is configured it is
+     * applied on the lazy view of the event before the event gets deserialized. Can be called concurrently.
+     * @param dp The received data packet.
+     * @return The decoded event or null if the decoding failed or the event was rejected by the receive filter.
+     */
+    protected IEvent decodeReceived(DataPacket dp) {
+        try {
+            AbstractBrokerConfigFactory<?, ?> conf = this.retrieveConfig(DispatchingType.CONSUME);
+            Predicate<? super LazyEvent> filter = conf.getReceiveFilter();
+            IEvent event = dataPacketToEvent(dp, filter != null);
+            if (event instanceof LazyEvent) {
+                LazyEvent lazy = (LazyEvent) event;
+                if (!filter.test(lazy)) return null;
+                event = lazy.materialize();
+            }
+            IdReservation idReservation = conf.getIdReservation();
+            if (idReservation != IdReservation.KEEP) {
+                Event.reserveNewId(event, idReservation == IdReservation.RECURSIVE);
             }
+            return event;
+        } catch (Exception e) {
+            e.printStackTrace(System.err);
+            return null;
         }
+    }
 
-        if (!events.isEmpty()) {
+    /**
+     * Orders a batch of received events according to the configured {@link ReceiveOrdering}.
+     * @param events The decoded events of the batch, which are reordered in place.
+     */
+    protected void orderReceived(List<IEvent> events) {
+        AbstractBrokerConfigFactory conf = this.retrieveConfig(DispatchingType.CONSUME);
+        ReceiveOrdering ordering = (conf != null ? conf.getReceiveOrdering() : ReceiveOrdering.SORTED);
+        if (ordering == ReceiveOrdering.NONE || events.size() < 2) return;
+        int k = conf.getReceiveOrderingTopK();
+        if (ordering == ReceiveOrdering.SORTED || k >= events.size()) {
             Collections.sort(events);
+            return;
         }
 
-        if (!atLeastOneSucceeded) return null;
-        return events;
+        // the k lowest events (the ones with the highest priority) with the greatest of them on the top of the heap
+        PriorityQueue<IEvent> top = new PriorityQueue<>(k, Collections.reverseOrder());
+        for (IEvent event : events) {
+            if (top.size() < k) {
+                top.add(event);
+            } else if (event.compareTo(top.peek()) < 0) {
+                top.poll();
+                top.add(event);
+            }
+        }
+        IEvent[] sortedTop = new IEvent[top.size()];
+        for (int i = sortedTop.length - 1; i >= 0; --i) {
+            sortedTop[i] = top.poll();
+        }
+        Set<IEvent> isTop = Collections.newSetFromMap(new IdentityHashMap<>(k));
+        Collections.addAll(isTop, sortedTop);
+        List<IEvent> rest = new ArrayList<>(events.size() - k);
+        for (IEvent event : events) {
+            if (!isTop.contains(event)) rest.add(event);
+        }
+        events.clear();
+        Collections.addAll(events, sortedTop);
+        events.addAll(rest);
+    }
+
+    /**
+     * Called after received events are handed to the application, either returned by {@link #receive(long)} or
+     * accepted by the pipeline of a subscription. Always called from the thread that received them. The default
+     * implementation does nothing.
+     */
+    protected void doAfterReceive() {
+    }
+
+    @Override
+    public synchronized IEventSubscription subscribe(Consumer<IEvent> consumer, EventPipelineSettings settings) {
+        if (consumer == null || settings == null) {
+            throw new NullPointerException("Consumer and settings must be specified");
+        }
+        checkSubscribable();
+        EventPipeline p = new EventPipeline(this, consumer, settings);
+        this.subscription = p;
+        return p;
+    }
+
+    @Override
+    public EventFlow.Publisher<IEvent> toPublisher(EventPipelineSettings settings) {
+        if (settings == null) {
+            throw new NullPointerException("Null settings specified");
+        }
+        return new EventFlowPublisher(this, settings);
+    }
+
+    /**
+     * Makes a subscription the active one.
+     * @param s The subscription, which is not started yet.
+     * @throws IllegalStateException If the dispatcher cannot receive events or another subscription is active.
+     */
+    protected synchronized void attachSubscription(IEventSubscription s) {
+        checkSubscribable();
+        this.subscription = s;
+    }
+
+    private void checkSubscribable() {
+        if (!doPreReceiveChecks()) {
+            throw new IllegalStateException("The dispatcher is not able to receive events");
+        }
+        if (isSubscribed()) {
+            throw new IllegalStateException("Another subscription is already active");
+        }
+    }
+
+    /**
+     * Returns whether there's an active subscription. See {@link #subscribe(Consumer, EventPipelineSettings)} and
+     * {@link #toPublisher(EventPipelineSettings)}.
+     * @return True if subscribed otherwise false.
+     */
+    public boolean isSubscribed() {
+        IEventSubscription s = this.subscription;
+        return (s != null && !s.isCancelled());
+    }
+
+    /**
+     * Cancels the active subscription if any. Must be called by the implementations before closing the receiving
+     * part of the broker connection, so it is not used concurrently by the subscription.
+     */
+    protected void cancelSubscription() {
+        IEventSubscription s = this.subscription;
+        if (s != null) {
+            s.cancel();
+            this.subscription = null;
+        }
     }
 
     @Override
@@ -0,0 +1,237 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers;
+
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventFlow;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventPipelineSettings;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IEventSubscription;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Publisher of the events received by a dispatcher, where the demand of the subscriber drives the polling of the
+ * broker. The broker is polled only while there's outstanding demand and each poll asks for no more records than the
+ * demand, limited by {@link EventPipelineSettings#getQueueCapacity()}. Records received in excess of the demand, when
+ * the broker cannot limit the amount of a poll, are buffered until requested. The received data is decoded in
+ * parallel, while the events are signalled to the subscriber from a single thread in the order in which
+ * {@link AbstractEventDispatcher#receive(long)} would return them. A dispatcher supports a single subscriber at a time.
+ */
+final class EventFlowPublisher implements EventFlow.Publisher<IEvent> {
+
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    private final AbstractEventDispatcher dispatcher;
+    private final EventPipelineSettings settings;
+
+    /**
+     * Constructor.
+     * @param dispatcher The dispatcher whose events to be published.
+     * @param settings The settings of the polling and decoding.
+     */
+    EventFlowPublisher(AbstractEventDispatcher dispatcher, EventPipelineSettings settings) {
+        this.dispatcher = dispatcher;
+        this.settings = settings;
+    }
+
+    @Override
+    public void subscribe(EventFlow.Subscriber<? super IEvent> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Null subscriber specified");
+        }
+        FlowSubscription subscription = new FlowSubscription(subscriber);
+        try {
+            dispatcher.attachSubscription(subscription);
+        } catch (IllegalStateException e) {
+            subscriber.onSubscribe(subscription);
+            subscriber.onError(e);
+            return;
+        }
+        subscription.start();
+    }
+
+    /**
+     * Subscription polling the broker on demand of its subscriber.
+     */
+    private final class FlowSubscription implements EventFlow.Subscription, IEventSubscription {
+        private final EventFlow.Subscriber<? super IEvent> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition demanded = lock.newCondition();
+        private final ArrayDeque<IEvent> buffer = new ArrayDeque<>();
+        private final LongAdder delivered = new LongAdder();
+        private final Thread poller;
+        private ExecutorService decoders;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+
+        FlowSubscription(EventFlow.Subscriber<? super IEvent> subscriber) {
+            this.subscriber = subscriber;
+            this.poller = new Thread(this::run, "event-publisher-" + instances.incrementAndGet());
+            this.poller.setDaemon(true);
+        }
+
+        void start() {
+            if (settings.getParallelism() > 1) {
+                this.decoders = Executors.newFixedThreadPool(settings.getParallelism(),
+                        new BasicThreadFactory.Builder()
+                                .namingPattern(poller.getName() + "-decoder-%d")
+                                .daemon(true)
+                                .build());
+            }
+            poller.start();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Non-positive request: " + n);
+                cancelled = true;
+            } else {
+                demand.getAndUpdate(d -> (d + n < 0 ? Long.MAX_VALUE : d + n));
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            signal();
+            if (Thread.currentThread() != poller && poller.isAlive()) {
+                try {
+                    poller.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public long getDeliveredCount() {
+            return delivered.sum();
+        }
+
+        private void signal() {
+            lock.lock();
+            try {
+                demanded.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * The loop of the poll thread, from which all of the signals to the subscriber are made.
+         */
+        private void run() {
+            boolean completed = false;
+            try {
+                subscriber.onSubscribe(this);
+                while (!cancelled) {
+                    // first the already received events
+                    while (!cancelled && demand.get() > 0 && !buffer.isEmpty()) {
+                        if (demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+                        subscriber.onNext(buffer.poll());
+                        delivered.increment();
+                    }
+                    if (cancelled) break;
+                    if (!dispatcher.doPreReceiveChecks()) {
+                        // the dispatcher got closed
+                        completed = true;
+                        break;
+                    }
+                    if (demand.get() <= 0) {
+                        awaitDemand();
+                        continue;
+                    }
+
+                    int maxRecords = (int) Math.min(demand.get(), settings.getQueueCapacity());
+                    List<DataPacket> packets;
+                    try {
+                        packets = dispatcher.receivePackets(settings.getPollTimeoutMs(), maxRecords);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace(System.err);
+                        continue;
+                    }
+                    if (packets == null || packets.isEmpty()) continue;
+                    dispatcher.doAfterReceive();
+                    decode(packets);
+                }
+            } catch (Throwable t) {
+                // the subscriber violated the rules, so the subscription ends
+                t.printStackTrace(System.err);
+                cancelled = true;
+            } finally {
+                cancelled = true;
+                if (decoders != null) {
+                    decoders.shutdown();
+                }
+                try {
+                    if (error != null) {
+                        subscriber.onError(error);
+                    } else if (completed) {
+                        subscriber.onComplete();
+                    }
+                } catch (Throwable t) {
+                    t.printStackTrace(System.err);
+                }
+            }
+        }
+
+        private void awaitDemand() {
+            lock.lock();
+            try {
+                while (!cancelled && demand.get() <= 0) {
+                    demanded.await(settings.getPollTimeoutMs(), TimeUnit.MILLISECONDS);
+                    if (!dispatcher.doPreReceiveChecks()) break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Decodes the received data packets into the buffer.
+         * @param packets The received data packets.
+         */
+        private void decode(List<DataPacket> packets) {
+            List<IEvent> events = new ArrayList<>(packets.size());
+            if (decoders == null || packets.size() == 1) {
+                for (DataPacket dp : packets) {
+                    IEvent event = dispatcher.decodeReceived(dp);
+                    if (event != null) events.add(event);
+                }
+            } else {
+                List<CompletableFuture<IEvent>> decoded = new ArrayList<>(packets.size());
+                for (DataPacket dp : packets) {
+                    decoded.add(CompletableFuture.supplyAsync(() -> dispatcher.decodeReceived(dp), decoders));
+                }
+                for (CompletableFuture<IEvent> f : decoded) {
+                    IEvent event = f.join();
+                    if (event != null) events.add(event);
+                }
+            }
+            dispatcher.orderReceived(events);
+            buffer.addAll(events);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers;
+
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventPipelineSettings;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IEventSubscription;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Push-based pipeline delivering the events received by a dispatcher to a consumer. A poll thread receives the data
+ * packets from the broker and filters the duplicates, a pool of threads decodes them in parallel and the decoded events
+ * are delivered either in order from a single delivery thread or directly from the decoding threads. The number of
+ * events in the pipeline is bounded, so a slow consumer stops the polling of the broker.
+ */
+final class EventPipeline implements IEventSubscription {
+
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    private final AbstractEventDispatcher dispatcher;
+    private final Consumer<IEvent> consumer;
+    private final EventPipelineSettings settings;
+
+    private final Semaphore capacity;
+    private final ExecutorService decoders;
+    private final BlockingQueue<Batch> deliveries; // null if the delivery is unordered
+    private final Thread poller;
+    private final Thread deliverer; // null if the delivery is unordered
+
+    private final LongAdder delivered = new LongAdder();
+    private volatile boolean cancelled;
+
+    /**
+     * Events of a single poll of the broker being decoded.
+     */
+    private static final class Batch {
+        final List<CompletableFuture<IEvent>> events;
+        final int permits;
+
+        Batch(List<CompletableFuture<IEvent>> events, int permits) {
+            this.events = events;
+            this.permits = permits;
+        }
+    }
+
+    // marks the end of the deliveries
+    private static final Batch END = new Batch(Collections.emptyList(), 0);
+
+    /**
+     * Constructor. The pipeline is started immediately.
+     * @param dispatcher The dispatcher whose events to be delivered.
+     * @param consumer The consumer of the events.
+     * @param settings The settings of the pipeline.
+     */
+    EventPipeline(AbstractEventDispatcher dispatcher, Consumer<IEvent> consumer, EventPipelineSettings settings) {
+        this.dispatcher = dispatcher;
+        this.consumer = consumer;
+        this.settings = settings;
+        this.capacity = new Semaphore(settings.getQueueCapacity());
+
+        String name = "event-pipeline-" + instances.incrementAndGet();
+        this.decoders = Executors.newFixedThreadPool(settings.getParallelism(), new BasicThreadFactory.Builder()
+                .namingPattern(name + "-decoder-%d")
+                .daemon(true)
+                .build());
+        this.poller = new Thread(this::poll, name + "-poller");
+        this.poller.setDaemon(true);
+        if (settings.isOrdered()) {
+            this.deliveries = new LinkedBlockingQueue<>();
+            this.deliverer = new Thread(this::deliverInOrder, name + "-deliverer");
+            this.deliverer.setDaemon(true);
+            this.deliverer.start();
+        } else {
+            this.deliveries = null;
+            this.deliverer = null;
+        }
+        this.poller.start();
+    }
+
+    /**
+     * The loop of the poll thread.
+     */
+    private void poll() {
+        try {
+            while (!cancelled) {
+                if (!dispatcher.doPreReceiveChecks()) {
+                    // the dispatcher got closed
+                    cancelled = true;
+                    break;
+                }
+
+                // the broker is asked only for as many events as there's room for in the pipeline
+                if (!acquire(1)) break;
+                int permits = 1 + capacity.drainPermits();
+                List<DataPacket> packets;
+                try {
+                    packets = dispatcher.receivePackets(settings.getPollTimeoutMs(), permits);
+                } catch (RuntimeException e) {
+                    e.printStackTrace(System.err);
+                    capacity.release(permits);
+                    continue;
+                }
+                if (packets == null || packets.isEmpty()) {
+                    capacity.release(permits);
+                    continue;
+                }
+
+                int needed = Math.min(packets.size(), settings.getQueueCapacity());
+                if (needed < permits) {
+                    capacity.release(permits - needed);
+                } else if (needed > permits && !acquire(needed - permits)) {
+                    // the dispatcher does not limit its receiving
+                    break;
+                }
+                permits = needed;
+                dispatcher.doAfterReceive();
+
+                List<CompletableFuture<IEvent>> events = new ArrayList<>(packets.size());
+                for (DataPacket dp : packets) {
+                    events.add(CompletableFuture.supplyAsync(() -> dispatcher.decodeReceived(dp), decoders));
+                }
+                if (deliveries != null) {
+                    deliveries.add(new Batch(events, permits));
+                } else {
+                    for (CompletableFuture<IEvent> event : events) {
+                        event.thenAccept(this::deliver);
+                    }
+                    final int batchPermits = permits;
+                    CompletableFuture.allOf(events.toArray(new CompletableFuture<?>[0]))
+                            .whenComplete((v, ex) -> capacity.release(batchPermits));
+                }
+            }
+        } finally {
+            if (deliveries != null) {
+                deliveries.add(END);
+            }
+            decoders.shutdown();
+        }
+    }
+
+    /**
+     * Waits until there's free capacity in the pipeline, thus propagating the backpressure to the broker.
+     * @param permits The number of events to make room for.
+     * @return True on success, false if the pipeline got cancelled in the meantime.
+     */
+    private boolean acquire(int permits) {
+        try {
+            while (!cancelled) {
+                if (capacity.tryAcquire(permits, settings.getPollTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * The loop of the delivery thread used for ordered delivery.
+     */
+    private void deliverInOrder() {
+        List<IEvent> events = new ArrayList<>();
+        try {
+            for (Batch batch = deliveries.take(); batch != END; batch = deliveries.take()) {
+                for (CompletableFuture<IEvent> f : batch.events) {
+                    IEvent event = f.join();
+                    if (event != null) {
+                        events.add(event);
+                    }
+                }
+                dispatcher.orderReceived(events);
+                for (IEvent event : events) {
+                    deliver(event);
+                }
+                events.clear();
+                capacity.release(batch.permits);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Delivers an event to the consumer.
+     * @param event The event or null if its decoding failed.
+     */
+    private void deliver(IEvent event) {
+        if (event == null) return;
+        try {
+            consumer.accept(event);
+        } catch (RuntimeException e) {
+            e.printStackTrace(System.err);
+        }
+        delivered.increment();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        if (Thread.currentThread() != poller) {
+            try {
+                poller.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+}
@@ -4,11 +4,16 @@ import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.AbstractBrokerConfigFactory;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.DispatchingType;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataEncodingMechanism;
+import org.apache.activemq.ActiveMQConnection;
 import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.ActiveMQPrefetchPolicy;
 import org.apache.activemq.jndi.ActiveMQInitialContextFactory;
 
+import javax.jms.DeliveryMode;
 import javax.naming.Context;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Basic configuration factory for ActiveMQ providing only the most general options. It accepts initial configuration
@@ -25,6 +30,35 @@ import java.util.*;
 public class ConfigurationFactoryActiveMQ extends AbstractBrokerConfigFactory<Properties, Properties> {
 
     private Properties configuration;
+    private volatile boolean compositeDestinationSending;
+    private volatile boolean listenerReceiving;
+    private volatile boolean sessionPerTopic;
+    private volatile int receiveQueueCapacity;
+    private volatile int receiveBatchSize;
+    private volatile int topicPrefetch;
+    private volatile int durableTopicPrefetch;
+    private volatile boolean asyncSending;
+    private volatile int producerWindowSize;
+    private volatile int transactionBatchSize;
+    private volatile long transactionBatchTimeMs;
+    private volatile int defaultDeliveryMode;
+    private final ConcurrentMap<String, Integer> deliveryModes;
+
+    /**
+     * The default capacity of the queue of messages received asynchronously.
+     */
+    public static final int DEFAULT_RECEIVE_QUEUE_CAPACITY = 10000;
+
+    /**
+     * The default maximum number of messages returned by a single receiving.
+     */
+    public static final int DEFAULT_RECEIVE_BATCH_SIZE = 500;
+
+    /**
+     * Prefetch limit value meaning that the one from the ActiveMQ configuration is used, e.g. "jms.prefetchPolicy.all"
+     * or the ActiveMQ default one.
+     */
+    public static final int PREFETCH_NOT_SET = -1;
 
     /**
      * Constructor. Provides the basic configuration parameters.
@@ -59,6 +93,13 @@ public class ConfigurationFactoryActiveMQ extends AbstractBrokerConfigFactory<Pr
         this.configuration.put(Context.INITIAL_CONTEXT_FACTORY, ActiveMQInitialContextFactory.class.getCanonicalName());
         this.configuration.put(Context.PROVIDER_URL, ActiveMQConnectionFactory.DEFAULT_BROKER_BIND_URL);
         this.configuration.putAll(cfg);
+        this.compositeDestinationSending = true;
+        this.receiveQueueCapacity = DEFAULT_RECEIVE_QUEUE_CAPACITY;
+        this.receiveBatchSize = DEFAULT_RECEIVE_BATCH_SIZE;
+        this.topicPrefetch = PREFETCH_NOT_SET;
+        this.durableTopicPrefetch = PREFETCH_NOT_SET;
+        this.defaultDeliveryMode = DeliveryMode.PERSISTENT;
+        this.deliveryModes = new ConcurrentHashMap<>();
     }
 
     /**
@@ -70,6 +111,19 @@ public class ConfigurationFactoryActiveMQ extends AbstractBrokerConfigFactory<Pr
         super(cfg);
         this.configuration = new Properties();
         this.configuration.putAll(cfg.configuration);
+        this.compositeDestinationSending = cfg.compositeDestinationSending;
+        this.listenerReceiving = cfg.listenerReceiving;
+        this.sessionPerTopic = cfg.sessionPerTopic;
+        this.receiveQueueCapacity = cfg.receiveQueueCapacity;
+        this.receiveBatchSize = cfg.receiveBatchSize;
+        this.topicPrefetch = cfg.topicPrefetch;
+        this.durableTopicPrefetch = cfg.durableTopicPrefetch;
+        this.asyncSending = cfg.asyncSending;
+        this.producerWindowSize = cfg.producerWindowSize;
+        this.transactionBatchSize = cfg.transactionBatchSize;
+        this.transactionBatchTimeMs = cfg.transactionBatchTimeMs;
+        this.defaultDeliveryMode = cfg.defaultDeliveryMode;
+        this.deliveryModes = new ConcurrentHashMap<>(cfg.deliveryModes);
     }
 
     @Override
@@ -87,6 +141,282 @@ public class ConfigurationFactoryActiveMQ extends AbstractBrokerConfigFactory<Pr
         return result;
     }
 
+    /**
+     * Returns whether an event distributed to many topics is sent as a single message to a composite destination
+     * consisting of all of them, which the broker delivers to each topic. Enabled by default.
+     * @return True if the composite destinations are used otherwise false.
+     */
+    public boolean isCompositeDestinationSending() {
+        return compositeDestinationSending;
+    }
+
+    /**
+     * Sets whether an event distributed to many topics is sent as a single message to a composite destination
+     * consisting of all of them, instead of as a separate message to each topic. The topics of the composite
+     * destination cannot be reported as sent individually, so the sending either succeeds or fails for all of them.
+     * @param compositeDestinationSending True to use the composite destinations otherwise false.
+     */
+    public void setCompositeDestinationSending(boolean compositeDestinationSending) {
+        this.compositeDestinationSending = compositeDestinationSending;
+    }
+
+    /**
+     * Returns whether the messages are received asynchronously by message listeners into a bounded queue.
+     * @return True if the listeners are used otherwise false.
+     */
+    public boolean isListenerReceiving() {
+        return listenerReceiving;
+    }
+
+    /**
+     * Returns whether each topic is consumed by its own session when the messages are received asynchronously.
+     * @return True if there's a session per topic otherwise false.
+     */
+    public boolean isSessionPerTopic() {
+        return sessionPerTopic;
+    }
+
+    /**
+     * Returns the capacity of the queue of messages received asynchronously.
+     * @return Positive number.
+     */
+    public int getReceiveQueueCapacity() {
+        return receiveQueueCapacity;
+    }
+
+    /**
+     * Sets whether the messages are received asynchronously by message listeners into a bounded queue, from which
+     * the receiving of the dispatcher drains them within a single timeout instead of waiting for each topic one after
+     * another. The listeners stop taking messages when the queue is full. Each message is acknowledged individually
+     * once taken from the queue by the receiving, so the broker redelivers the ones still in the queue when the
+     * dispatcher closes or the application stops. The unacknowledged messages count towards the prefetch limit, so
+     * the broker stops pushing to a subscription at the limit until its queued messages are received. See
+     * {@link #setPrefetch(int, int)}. Disabled by default.
+     * @param listenerReceiving True to use message listeners otherwise false.
+     * @param queueCapacity The capacity of the queue of received messages.
+     * @param sessionPerTopic If true each topic is consumed by its own session and thread in parallel, otherwise all
+     *                        of the topics share one session.
+     * @throws IllegalArgumentException If queueCapacity is 0 or a negative number.
+     */
+    public void setListenerReceiving(boolean listenerReceiving, int queueCapacity, boolean sessionPerTopic) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("The receive queue capacity must be a positive number");
+        }
+        this.receiveQueueCapacity = queueCapacity;
+        this.sessionPerTopic = sessionPerTopic;
+        this.listenerReceiving = listenerReceiving;
+    }
+
+    /**
+     * Returns the maximum number of messages returned by a single receiving.
+     * @return Positive number.
+     */
+    public int getReceiveBatchSize() {
+        return receiveBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of messages returned by a single receiving. See {@link #DEFAULT_RECEIVE_BATCH_SIZE}.
+     * @param receiveBatchSize The maximum number of messages.
+     * @throws IllegalArgumentException If receiveBatchSize is 0 or a negative number.
+     */
+    public void setReceiveBatchSize(int receiveBatchSize) {
+        if (receiveBatchSize <= 0) {
+            throw new IllegalArgumentException("The receive batch size must be a positive number");
+        }
+        this.receiveBatchSize = receiveBatchSize;
+    }
+
+    /**
+     * Returns the maximum number of messages the broker pushes in advance to a non-durable topic consumer.
+     * @return Non-negative number or {@link #PREFETCH_NOT_SET}.
+     */
+    public int getTopicPrefetch() {
+        return topicPrefetch;
+    }
+
+    /**
+     * Returns the maximum number of messages the broker pushes in advance to a durable topic subscriber, which is the
+     * kind of the consumers used by the dispatchers.
+     * @return Non-negative number or {@link #PREFETCH_NOT_SET}.
+     */
+    public int getDurableTopicPrefetch() {
+        return durableTopicPrefetch;
+    }
+
+    /**
+     * Sets the prefetch limits - the maximum numbers of messages the broker pushes to the consumers in advance, before
+     * they are acknowledged. Higher limits allow more messages to be taken by a single receiving without waiting for
+     * the broker, while lower ones distribute the messages more evenly and keep less of them in the memory of the
+     * client. The limits override the ones from the ActiveMQ configuration.
+     * @param topicPrefetch The limit for non-durable topic consumers or {@link #PREFETCH_NOT_SET}.
+     * @param durableTopicPrefetch The limit for durable topic subscribers or {@link #PREFETCH_NOT_SET}.
+     * @throws IllegalArgumentException If any of the limits is a negative number other than {@link #PREFETCH_NOT_SET}.
+     */
+    public void setPrefetch(int topicPrefetch, int durableTopicPrefetch) {
+        if (topicPrefetch < PREFETCH_NOT_SET || durableTopicPrefetch < PREFETCH_NOT_SET) {
+            throw new IllegalArgumentException("The prefetch limits must be non-negative numbers");
+        }
+        this.topicPrefetch = topicPrefetch;
+        this.durableTopicPrefetch = durableTopicPrefetch;
+    }
+
+    /**
+     * Returns whether the messages are sent asynchronously, without waiting for the broker to acknowledge each of them.
+     * @return True if the asynchronous sending is enabled, otherwise false, in which case the one from the ActiveMQ
+     *         configuration ("jms.useAsyncSend") is used.
+     */
+    public boolean isAsyncSending() {
+        return asyncSending;
+    }
+
+    /**
+     * Returns the maximum size in bytes of the messages sent asynchronously but not yet acknowledged by the broker.
+     * @return Positive number or 0 if not limited.
+     */
+    public int getProducerWindowSize() {
+        return producerWindowSize;
+    }
+
+    /**
+     * Sets whether the messages are sent asynchronously. Then the sending of an event completes once its message is
+     * written to the connection, so a failure to store it in the broker is not reported. The producer window limits the
+     * amount of the unacknowledged messages, making the sending wait when reached.
+     * @param asyncSending True to enable the asynchronous sending otherwise false.
+     * @param producerWindowSize The maximum size in bytes of the unacknowledged messages or 0 for no limit.
+     * @throws IllegalArgumentException If producerWindowSize is a negative number.
+     */
+    public void setAsyncSending(boolean asyncSending, int producerWindowSize) {
+        if (producerWindowSize < 0) {
+            throw new IllegalArgumentException("The producer window size cannot be a negative number");
+        }
+        this.asyncSending = asyncSending;
+        this.producerWindowSize = producerWindowSize;
+    }
+
+    /**
+     * Returns whether the messages are sent in transactions, each committing a batch of them.
+     * @return True if the transacted sending is enabled otherwise false.
+     */
+    public boolean isTransactedSending() {
+        return transactionBatchSize > 0;
+    }
+
+    /**
+     * Returns the number of sent messages after which their transaction is committed.
+     * @return Positive number or 0 if the transacted sending is disabled.
+     */
+    public int getTransactionBatchSize() {
+        return transactionBatchSize;
+    }
+
+    /**
+     * Returns the time in milliseconds after which the messages sent so far are committed, if not committed before
+     * because of reaching {@link #getTransactionBatchSize()}.
+     * @return Positive number or 0 if the transacted sending is disabled.
+     */
+    public long getTransactionBatchTimeMs() {
+        return transactionBatchTimeMs;
+    }
+
+    /**
+     * Sets whether the messages are sent in transactions. The broker stores the messages of a transaction at once upon
+     * its commit, which happens after a batch of messages or after a period of time, whichever comes first. The
+     * sending of an event with a completion callback completes once its transaction is committed, or with a failure if
+     * the commit fails, in which case the transaction is rolled back and its messages are discarded. The sending
+     * without a callback commits the pending messages at once instead of waiting for the batch, so its result tells
+     * whether the commit was successful. {@link EventDispatcherActiveMQ#flush()} commits the pending messages
+     * immediately.
+     * @param batchSize The number of messages per transaction or 0 to disable the transacted sending.
+     * @param batchTimeMs The maximum time in milliseconds in which the messages remain uncommitted. Used only if the
+     *                    transacted sending is enabled.
+     * @throws IllegalArgumentException If batchSize is a negative number or the transacted sending is enabled with
+     *                                  batchTimeMs that is 0 or a negative number.
+     */
+    public void setTransactedSending(int batchSize, long batchTimeMs) {
+        if (batchSize < 0) {
+            throw new IllegalArgumentException("The transaction batch size cannot be a negative number");
+        }
+        if (batchSize > 0 && batchTimeMs <= 0) {
+            throw new IllegalArgumentException("The transaction batch time must be a positive number");
+        }
+        this.transactionBatchSize = batchSize;
+        this.transactionBatchTimeMs = (batchSize > 0 ? batchTimeMs : 0);
+    }
+
+    /**
+     * Returns the delivery mode of the events of a category, which is also the name of the topic to which they are
+     * sent by default.
+     * @param category The category of the events or the name of a topic.
+     * @return {@link DeliveryMode#PERSISTENT} or {@link DeliveryMode#NON_PERSISTENT}.
+     */
+    public int getDeliveryMode(String category) {
+        Integer mode = (category != null ? deliveryModes.get(category) : null);
+        return (mode != null ? mode : defaultDeliveryMode);
+    }
+
+    /**
+     * Sets the delivery mode of the events of a category, which is also the name of the topic to which they are sent
+     * by default. The non-persistent messages are not stored by the broker, so they are faster to send but get lost
+     * if it stops. When an event is sent as a single message to many topics it is persistent if any of them is.
+     * @param category The category of the events or the name of a topic. Cannot be null.
+     * @param deliveryMode {@link DeliveryMode#PERSISTENT} or {@link DeliveryMode#NON_PERSISTENT}.
+     * @throws NullPointerException If category is null.
+     * @throws IllegalArgumentException If deliveryMode is not a valid delivery mode.
+     */
+    public void setDeliveryMode(String category, int deliveryMode) {
+        if (category == null) {
+            throw new NullPointerException("Null category specified");
+        }
+        this.deliveryModes.put(category, validDeliveryMode(deliveryMode));
+    }
+
+    /**
+     * Returns the delivery mode of the events whose category has no delivery mode set.
+     * @return {@link DeliveryMode#PERSISTENT} or {@link DeliveryMode#NON_PERSISTENT}.
+     */
+    public int getDefaultDeliveryMode() {
+        return defaultDeliveryMode;
+    }
+
+    /**
+     * Sets the delivery mode of the events whose category has no delivery mode set. By default it is
+     * {@link DeliveryMode#PERSISTENT}. See {@link #setDeliveryMode(String, int)}.
+     * @param deliveryMode {@link DeliveryMode#PERSISTENT} or {@link DeliveryMode#NON_PERSISTENT}.
+     * @throws IllegalArgumentException If deliveryMode is not a valid delivery mode.
+     */
+    public void setDefaultDeliveryMode(int deliveryMode) {
+        this.defaultDeliveryMode = validDeliveryMode(deliveryMode);
+    }
+
+    private static int validDeliveryMode(int deliveryMode) {
+        if (deliveryMode != DeliveryMode.PERSISTENT && deliveryMode != DeliveryMode.NON_PERSISTENT) {
+            throw new IllegalArgumentException("Invalid delivery mode: " + deliveryMode);
+        }
+        return deliveryMode;
+    }
+
+    /**
+     * Applies the prefetch limits and the asynchronous sending settings on a connection. Must be called before the
+     * creation of its consumers and producers.
+     * @param connection The connection.
+     */
+    void configureConnection(ActiveMQConnection connection) {
+        ActiveMQPrefetchPolicy policy = connection.getPrefetchPolicy();
+        if (topicPrefetch != PREFETCH_NOT_SET) {
+            policy.setTopicPrefetch(topicPrefetch);
+        }
+        if (durableTopicPrefetch != PREFETCH_NOT_SET) {
+            policy.setDurableTopicPrefetch(durableTopicPrefetch);
+        }
+        if (asyncSending) {
+            connection.setUseAsyncSend(true);
+            if (producerWindowSize > 0) {
+                connection.setProducerWindowSize(producerWindowSize);
+            }
+        }
+    }
+
     /**
      * Returns the configuration entry string key pointing to the identifier of the producer/consumer.
      * @return An initialized string mentioning the configuration entry containing the client id.
@@ -6,15 +6,23 @@ import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.AbstractEventDispatch
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.DispatchingType;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
 import org.apache.activemq.ActiveMQConnection;
+import org.apache.activemq.ActiveMQSession;
 import org.apache.activemq.transport.TransportListener;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 
 import javax.jms.*;
-import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -26,6 +34,7 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
     protected Connection connection;
     protected Session session;
 
+    protected Session producerSession; // the same as session unless the sending is transacted
     protected MessageProducer producer;
     protected Consumer consumer;
 
@@ -33,13 +42,40 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
 
     protected final AtomicBoolean isConnected = new AtomicBoolean(false);
 
+    private String clientId;
+    private final ConcurrentMap<String, Topic> destinations = new ConcurrentHashMap<>();
+    private final Object sendLock = new Object(); // the sessions are not meant for concurrent sending
+    // the results of the sent messages pending the commit of their transaction
+    private final List<CompletableFuture<Boolean>> uncommitted = new ArrayList<>();
+    private ScheduledExecutorService committer;
+
     /**
-     * Wrapper of MessageConsumer allowing seamless multiple topics per "one" consumer.
+     * Message received asynchronously, not acknowledged until taken from the queue of the consumer.
+     */
+    private static final class ReceivedMessage {
+        final byte[] data;
+        final Message message;
+
+        ReceivedMessage(byte[] data, Message message) {
+            this.data = data;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Wrapper of MessageConsumer allowing seamless multiple topics per "one" consumer. The messages are either
+     * received synchronously from each topic or, if enabled in the configuration, asynchronously by message listeners
+     * into a bounded queue. See {@link ConfigurationFactoryActiveMQ#setListenerReceiving(boolean, int, boolean)}.
      */
     class Consumer {
         private List<MessageConsumer> consumers;
         private String clientId;
         private boolean isRetroactive;
+        private int next; // the consumer from which the next limited receiving starts
+
+        private List<Session> sessions; // the own sessions of the listeners
+        private BlockingQueue<ReceivedMessage> received; // null if the messages are received synchronously
+        private volatile boolean closed;
 
         /**
          * Constructor. Creates a durable consumer associated with one or more topics.
@@ -63,15 +99,78 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
 
             this.consumers = new ArrayList<>(topics.size());
 
-            this.clientId = configFactory.getMainConfiguration(null).getProperty(configFactory.getClientIdKey());
-            for (String topic : topics) {
-                MessageConsumer c = session.createDurableSubscriber(
-                        session.createTopic(topic + (isRetroactive ? "?consumer.retroactive=true" : "")),
-                        this.clientId + ":" + topic, null,
-                        doNotReceiveEventsFromSameSource
-                );
-                this.consumers.add(c);
+            boolean listening = configFactory.isListenerReceiving();
+            boolean sessionPerTopic = listening && configFactory.isSessionPerTopic();
+            try {
+                Session shared = session;
+                if (listening) {
+                    this.received = new ArrayBlockingQueue<>(configFactory.getReceiveQueueCapacity());
+                    this.sessions = new ArrayList<>();
+                    if (!sessionPerTopic) {
+                        // a session with listeners must not be used by other threads, e.g. for sending
+                        shared = connection.createSession(false, ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE);
+                        this.sessions.add(shared);
+                    }
+                }
+
+                this.clientId = configFactory.getMainConfiguration(null).getProperty(configFactory.getClientIdKey());
+                for (String topic : topics) {
+                    Session s = shared;
+                    if (sessionPerTopic) {
+                        s = connection.createSession(false, ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE);
+                        this.sessions.add(s);
+                    }
+                    MessageConsumer c = s.createDurableSubscriber(
+                            s.createTopic(topic + (isRetroactive ? "?consumer.retroactive=true" : "")),
+                            this.clientId + ":" + topic, null,
+                            doNotReceiveEventsFromSameSource
+                    );
+                    this.consumers.add(c);
+                    if (listening) {
+                        c.setMessageListener(this::onMessage);
+                    }
+                }
+            } catch (JMSException | RuntimeException e) {
+                this.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Queues message received asynchronously, waiting while the queue is full. The message is acknowledged only
+         * once taken from the queue, so the broker redelivers the ones left in the queue if the consumer closes or the
+         * application stops.
+         * @param m The received message.
+         */
+        private void onMessage(Message m) {
+            try {
+                if (!(m instanceof BytesMessage)) {
+                    m.acknowledge(); // never delivered
+                    return;
+                }
+                ReceivedMessage rm = new ReceivedMessage(readBody((BytesMessage) m), m);
+                while (!this.closed && !this.received.offer(rm, 100, TimeUnit.MILLISECONDS)) {
+                    // the backpressure keeps the rest of the messages in the broker
+                }
+            } catch (JMSException e) {
+                e.printStackTrace(System.err);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Reads the body of a message at once into an array of its exact length.
+         * @param bm The message.
+         * @return The body of the message.
+         * @throws JMSException If the reading fails.
+         */
+        private byte[] readBody(BytesMessage bm) throws JMSException {
+            byte[] data = new byte[(int) bm.getBodyLength()];
+            if (data.length > 0) {
+                bm.readBytes(data);
             }
+            return data;
         }
 
         /**
@@ -81,41 +180,94 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
          * @throws JMSException If the receiving process fails due to JMS problems.
          */
         public List<byte[]> receive(int timeoutMs) throws JMSException {
+            return receive(timeoutMs, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Receives limited amount of data from the associated topics. Up to maxRecords but no more than the configured
+         * receive batch size of messages are returned. The topics are asked in turn, waiting within the timeout only
+         * until a message arrives, after which each topic is drained of the messages already prefetched by the client.
+         * When the limit is reached before all of the topics are asked, the receiving continues on the next call from
+         * the first topic not asked for data. When the messages are received by listeners they are taken at once from
+         * the queue, waiting within the timeout only for the first one.
+         * @param timeoutMs The time in milliseconds to wait before to give up.
+         * @param maxRecords The maximum number of messages to be received. Positive number.
+         * @return Initialized byte array if there's data or null if none.
+         * @throws JMSException If the receiving process fails due to JMS problems.
+         */
+        public List<byte[]> receive(int timeoutMs, int maxRecords) throws JMSException {
             if (this.consumers == null || this.consumers.size() <= 0) {
                 return null;
             }
+            int limit = Math.min(maxRecords, configFactory.getReceiveBatchSize());
+            if (this.received != null) {
+                return drain(timeoutMs, limit);
+            }
 
-            byte[] buffer = new byte[1024];
-            int length;
-            List<byte[]> result = new ArrayList<>(this.consumers.size());
-
-            for (MessageConsumer mc : this.consumers) {
-                Message m = mc.receive(timeoutMs);
-                if (m != null && m instanceof BytesMessage) {
-                    // the filtering for data from the same source is done in the consumer - no need since ActiveMQ does that
-                    //if (doNotReceiveEventsFromSameSource) {
-                    //    String source = m.getStringProperty(CLIENT_ID_HEADER_KEY);
-                    //    if (source != null && source.equals(this.clientId)) {
-                    //        continue;
-                    //    }
-                    //}
-                    ByteArrayOutputStream data = new ByteArrayOutputStream();
-                    BytesMessage bm = (BytesMessage)m;
-                    while ((length = bm.readBytes(buffer)) > 0) {
-                        data.write(buffer, 0, length);
+            int size = this.consumers.size();
+            List<byte[]> result = new ArrayList<>(Math.min(size, limit));
+
+            int asked = 0;
+            while (asked < size && result.size() < limit) {
+                MessageConsumer mc = this.consumers.get((this.next + asked) % size);
+                ++asked;
+                Message m = (result.isEmpty() ? mc.receive(timeoutMs) : mc.receiveNoWait());
+                while (m != null) {
+                    if (m instanceof BytesMessage) {
+                        // the filtering for data from the same source is done in the consumer - no need since ActiveMQ does that
+                        //if (doNotReceiveEventsFromSameSource) {
+                        //    String source = m.getStringProperty(CLIENT_ID_HEADER_KEY);
+                        //    if (source != null && source.equals(this.clientId)) {
+                        //        continue;
+                        //    }
+                        //}
+                        result.add(readBody((BytesMessage)m));
                     }
-                    result.add(data.toByteArray());
+                    // the messages already prefetched by the client are taken without waiting
+                    m = (result.size() < limit ? mc.receiveNoWait() : null);
                 }
             }
+            this.next = (this.next + asked) % size;
 
             return result;
         }
 
+        /**
+         * Takes the messages received asynchronously from the queue and acknowledges them individually.
+         * @param timeoutMs The time in milliseconds to wait for the first message.
+         * @param maxRecords The maximum number of messages to be taken.
+         * @return List of the message bodies, which is empty if none were received.
+         */
+        private List<byte[]> drain(int timeoutMs, int maxRecords) {
+            List<ReceivedMessage> taken = new ArrayList<>(Math.min(maxRecords, this.received.size() + 1));
+            try {
+                ReceivedMessage first = this.received.poll(timeoutMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    taken.add(first);
+                    this.received.drainTo(taken, maxRecords - 1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<byte[]> result = new ArrayList<>(taken.size());
+            for (ReceivedMessage rm : taken) {
+                try {
+                    rm.message.acknowledge();
+                } catch (JMSException e) {
+                    // the broker redelivers it, which the duplicate filtering of the dispatcher can catch
+                    e.printStackTrace(System.err);
+                }
+                result.add(rm.data);
+            }
+            return result;
+        }
+
         /**
          * Close any opened consumer connections, thus the current instance would not be able to receive anymore data.
          * Calling this method is mandatory if the application needs to be closed gracefully.
          */
         public void close() {
+            this.closed = true;
             if (this.consumers != null && !this.consumers.isEmpty()) {
                 for (Iterator<MessageConsumer> it = this.consumers.iterator(); it.hasNext(); ) {
                     MessageConsumer mc = it.next();
@@ -128,6 +280,20 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
                 }
                 this.consumers = null;
             }
+            if (this.sessions != null) {
+                for (Session s : this.sessions) {
+                    try {
+                        s.close();
+                    } catch (Exception e) {
+                        e.printStackTrace(System.err);
+                    }
+                }
+                this.sessions = null;
+            }
+            if (this.received != null) {
+                // not acknowledged, so the broker redelivers them to the durable subscriptions
+                this.received.clear();
+            }
         }
 
         /**
@@ -163,6 +329,26 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
                                    boolean doNotReceiveEventsFromSameSource, boolean beRetroactive,
                                    String[] packagesWithEvents) throws
             NamingException, JMSException {
+        this(config, latestEventsRememberCapacity, doNotReceiveEventsFromSameSource, beRetroactive, packagesWithEvents,
+                (ConnectionFactory) new InitialContext(config.getMainConfiguration(null)).lookup("ConnectionFactory"));
+    }
+
+    /**
+     * Constructor using a connection factory that is already looked up, for e.g. a mock one.
+     * @param config The configuration settings that also include ActiveMQ configuration options. Cannot be null.
+     * @param latestEventsRememberCapacity The capacity of remembered latest events worked with.
+     * @param doNotReceiveEventsFromSameSource Events sent from the same source as the current one will be totally
+     *                                         ignored.
+     * @param beRetroactive Tries to gather the oldest available possible data upon connect.
+     * @param packagesWithEvents Array of full package names containing custom IEvent implementations. Can be null.
+     * @param cf The factory of the connection to the broker. Cannot be null.
+     * @throws NullPointerException If config or cf is null.
+     * @throws IllegalArgumentException If latestEventsRememberCapacity is negative number.
+     * @throws JMSException If ActiveMQ cannot be initialized for some reason.
+     */
+    EventDispatcherActiveMQ(ConfigurationFactoryActiveMQ config, int latestEventsRememberCapacity,
+                            boolean doNotReceiveEventsFromSameSource, boolean beRetroactive,
+                            String[] packagesWithEvents, ConnectionFactory cf) throws JMSException {
         super(config, latestEventsRememberCapacity, doNotReceiveEventsFromSameSource, packagesWithEvents);
         this.isRetroactive = beRetroactive;
 
@@ -171,24 +357,26 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
         DispatchingType dispatchingType = config.getDispatchingType();
         Properties props = config.getMainConfiguration(null);
 
-        Context ctx = new InitialContext(props);
-        ConnectionFactory cf = (ConnectionFactory)ctx.lookup("ConnectionFactory");
         this.connection = cf.createConnection();
-        ((ActiveMQConnection)this.connection).addTransportListener(new TransportListener() {
-            @Override
-            public void onCommand(Object o) {}
+        if (this.connection instanceof ActiveMQConnection) {
+            this.configFactory.configureConnection((ActiveMQConnection) this.connection);
+            ((ActiveMQConnection) this.connection).addTransportListener(new TransportListener() {
+                @Override
+                public void onCommand(Object o) {}
 
-            @Override
-            public void onException(IOException e) { }
+                @Override
+                public void onException(IOException e) { }
 
-            @Override
-            public void transportInterupted() { isConnected.lazySet(false); }
+                @Override
+                public void transportInterupted() { isConnected.lazySet(false); }
 
-            @Override
-            public void transportResumed() { isConnected.lazySet(true); }
-        });
+                @Override
+                public void transportResumed() { isConnected.lazySet(true); }
+            });
+        }
         try {
-            this.connection.setClientID(props.getProperty(configFactory.getClientIdKey()));
+            this.clientId = props.getProperty(configFactory.getClientIdKey());
+            this.connection.setClientID(this.clientId);
             this.connection.start();
 
             boolean isTransacted = false;
@@ -196,8 +384,19 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
             this.session = this.connection.createSession(isTransacted, Session.AUTO_ACKNOWLEDGE);
 
             if (!dispatchingType.equals(DispatchingType.CONSUME)) {
-                this.producer = this.session.createProducer(null);
-                this.producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+                if (this.configFactory.isTransactedSending()) {
+                    this.producerSession = this.connection.createSession(true, Session.SESSION_TRANSACTED);
+                    long period = this.configFactory.getTransactionBatchTimeMs();
+                    this.committer = Executors.newSingleThreadScheduledExecutor(new BasicThreadFactory.Builder()
+                            .namingPattern("activemq-committer-" + this.clientId)
+                            .daemon(true)
+                            .build());
+                    this.committer.scheduleAtFixedRate(this::commitPending, period, period, TimeUnit.MILLISECONDS);
+                } else {
+                    this.producerSession = this.session;
+                }
+                this.producer = this.producerSession.createProducer(null);
+                this.producer.setDeliveryMode(this.configFactory.getDefaultDeliveryMode());
             }
             if (!dispatchingType.equals(DispatchingType.PRODUCE)) {
                 this.consumer = new Consumer(config.getTopics(), beRetroactive);
@@ -229,11 +428,11 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
                     this.doNotReceiveEventsFromSameSource, this.isRetroactive, this.packagesWithEvents);
             DispatchingType dt = this.configFactory.getDispatchingType();
             if (!dt.equals(DispatchingType.CONSUME) && eda.latestEventsSent != null && this.latestEventsSent != null) {
-                eda.latestEventsSent.addAll(this.latestEventsSent);
+                eda.latestEventsSent = this.latestEventsSent.copy();
             }
             if (!dt.equals(DispatchingType.PRODUCE) && eda.latestEventsReceived != null
                     && this.latestEventsReceived != null) {
-                eda.latestEventsReceived.addAll(this.latestEventsReceived);
+                eda.latestEventsReceived = this.latestEventsReceived.copy();
             }
         } catch (NamingException | JMSException ex) {
             ex.printStackTrace(System.err);
@@ -251,21 +450,206 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
         return !(this.producer == null || this.configFactory == null);
     }
 
+    /**
+     * Sends data to a topic. When the sending is transacted waits for the commit of the message. ActiveMQ does not
+     * support keys, so the variants of this method accepting a key ignore it.
+     * @param topic The topic to which the data to be sent.
+     * @param dp The data that will be sent. Cannot be null.
+     * @return True if the sending was successful otherwise false.
+     */
+    @Override
+    protected boolean doActualSend(String topic, DataPacket dp) {
+        return sendData(topic, dp, this.configFactory.getDeliveryMode(topic)).join();
+    }
+
+    /**
+     * Returns whether the sending is transacted, in which case the result of the sending of each event is known once
+     * its transaction is committed.
+     * @return True if the sending is transacted otherwise false.
+     */
+    @Override
+    protected boolean isPipelinedSending() {
+        return this.committer != null;
+    }
+
+    /**
+     * Sends data to a topic. The key is ignored, since ActiveMQ does not support keys. See
+     * {@link #doActualSend(String, DataPacket)}.
+     * @param topic The topic to which the data to be sent.
+     * @param key Ignored.
+     * @param dp The data that will be sent. Cannot be null.
+     * @return Future completed with true if the sending was successful otherwise with false. Completed once the message
+     *         is committed when the sending is transacted, otherwise already completed.
+     */
+    @Override
+    protected CompletableFuture<Boolean> doActualSendAsync(String topic, String key, DataPacket dp) {
+        return sendData(topic, dp, this.configFactory.getDeliveryMode(topic));
+    }
+
+    @Override
+    protected boolean doActualSendToAll(Class<? extends IEvent> ec, Set<String> topics, String key, DataPacket dp) {
+        if (topics.size() < 2 || !this.configFactory.isCompositeDestinationSending()) {
+            return super.doActualSendToAll(ec, topics, key, dp);
+        }
+        return doActualSendToAllAsync(ec, topics, key, dp).join();
+    }
+
     @Override
-    protected synchronized boolean doActualSend(String topic, DataPacket dp) {
+    protected CompletableFuture<Boolean> doActualSendToAllAsync(Class<? extends IEvent> ec, Set<String> topics,
+                                                                String key, DataPacket dp) {
+        if (topics.size() < 2 || !this.configFactory.isCompositeDestinationSending()) {
+            return super.doActualSendToAllAsync(ec, topics, key, dp);
+        }
+        // one message that the broker delivers to each of the topics, since all of them are on the same broker
+        String compositeTopic = String.join(",", topics);
+        int deliveryMode = DeliveryMode.NON_PERSISTENT;
+        for (String topic : topics) {
+            if (this.configFactory.getDeliveryMode(topic) == DeliveryMode.PERSISTENT) {
+                deliveryMode = DeliveryMode.PERSISTENT;
+                break;
+            }
+        }
+        return sendData(compositeTopic, dp, deliveryMode).thenApply(sent -> {
+            if (!sent) {
+                System.err.println("Failed to send event " + ec.getCanonicalName() + " to topics " + compositeTopic);
+            }
+            return sent;
+        });
+    }
+
+    /**
+     * Sends data to a topic or to a composite destination of many topics.
+     * @param topic The name of the topic or of the composite destination.
+     * @param dp The data that will be sent.
+     * @param deliveryMode The delivery mode of the message.
+     * @return Future completed with true if the sending was successful otherwise with false. Never completed
+     *         exceptionally.
+     */
+    private CompletableFuture<Boolean> sendData(String topic, DataPacket dp, int deliveryMode) {
         try {
-            BytesMessage msg = session.createBytesMessage();
-            msg.writeBytes(dp.toBytes());
-            msg.setStringProperty(
-                    CLIENT_ID_HEADER_KEY,
-                    configFactory.getMainConfiguration(null).getProperty(configFactory.getClientIdKey())
-            );
-            this.producer.send(this.session.createTopic(topic), msg);
+            return send(destination(topic), createMessage(dp), deliveryMode);
         } catch (JMSException ex) {
             ex.printStackTrace(System.err);
-            return false;
+            return CompletableFuture.completedFuture(Boolean.FALSE);
+        }
+    }
+
+    /**
+     * Creates message containing the packaged form of a data packet. See {@link DataPacket#getWireBytes()}.
+     * @param dp The data packet.
+     * @return Initialized message.
+     * @throws JMSException If the message cannot be created.
+     */
+    private BytesMessage createMessage(DataPacket dp) throws JMSException {
+        // the creation of ActiveMQ messages does not change the session, so it is done outside of the send lock
+        BytesMessage msg = this.producerSession.createBytesMessage();
+        msg.writeBytes(dp.getWireBytes());
+        msg.setStringProperty(CLIENT_ID_HEADER_KEY, this.clientId);
+        return msg;
+    }
+
+    /**
+     * Returns the topic with the specified name, created once and reused afterwards.
+     * @param name The name of the topic.
+     * @return Initialized topic.
+     * @throws JMSException If the topic cannot be created.
+     */
+    private Topic destination(String name) throws JMSException {
+        Topic topic = this.destinations.get(name);
+        if (topic == null) {
+            topic = this.producerSession.createTopic(name);
+            Topic previous = this.destinations.putIfAbsent(name, topic);
+            if (previous != null) topic = previous;
+        }
+        return topic;
+    }
+
+    /**
+     * Sends message, committing the transaction of the sent messages if a whole batch of them is pending.
+     * @param destination The destination of the message.
+     * @param msg The message.
+     * @param deliveryMode The delivery mode of the message.
+     * @return Future completed with true once the message is committed or with false if the commit fails, when the
+     *         sending is transacted, otherwise one already completed with true.
+     * @throws JMSException If the sending fails.
+     */
+    private CompletableFuture<Boolean> send(Destination destination, Message msg, int deliveryMode)
+            throws JMSException {
+        synchronized (this.sendLock) {
+            this.producer.send(destination, msg, deliveryMode, Message.DEFAULT_PRIORITY, Message.DEFAULT_TIME_TO_LIVE);
+            if (this.committer == null) {
+                return CompletableFuture.completedFuture(Boolean.TRUE);
+            }
+            CompletableFuture<Boolean> committed = new CompletableFuture<>();
+            this.uncommitted.add(committed);
+            if (this.uncommitted.size() >= this.configFactory.getTransactionBatchSize()) {
+                commit();
+            }
+            return committed;
+        }
+    }
+
+    /**
+     * Commits the transaction of the sent messages if any of them are pending and completes their results. If the
+     * commit fails the transaction is rolled back, discarding its messages. Must be called holding the send lock.
+     */
+    private void commit() {
+        if (this.uncommitted.isEmpty()) return;
+        boolean committed = false;
+        if (this.producerSession != null) {
+            try {
+                this.producerSession.commit();
+                committed = true;
+            } catch (JMSException ex) {
+                ex.printStackTrace(System.err);
+                System.err.println("Failed to commit " + this.uncommitted.size() + " sent messages");
+                try {
+                    this.producerSession.rollback();
+                } catch (JMSException rex) {
+                    rex.printStackTrace(System.err);
+                }
+            }
+        }
+        for (CompletableFuture<Boolean> result : this.uncommitted) {
+            result.complete(committed);
+        }
+        this.uncommitted.clear();
+    }
+
+    /**
+     * Sends event, committing its transaction at once together with the other pending messages when the sending is
+     * transacted, instead of waiting for the whole batch. Then the result tells whether the commit was successful.
+     * @param event The event to send.
+     * @return True if the event was sent successfully or there was nothing to send, otherwise false.
+     */
+    @Override
+    public boolean send(IEvent event) {
+        if (this.committer == null) {
+            return super.send(event);
+        }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        send(event, (sent, e) -> result.complete(sent));
+        commitPending();
+        return result.join();
+    }
+
+    /**
+     * Commits the pending messages when the sending is transacted, completing the sending of their events.
+     */
+    private void commitPending() {
+        synchronized (this.sendLock) {
+            commit();
         }
-        return true;
+    }
+
+    /**
+     * Commits the pending messages when the sending is transacted and blocks until the completion handlers of the sent
+     * events are called. See {@link ConfigurationFactoryActiveMQ#setTransactedSending(int, long)}.
+     */
+    @Override
+    public void flush() {
+        commitPending();
+        super.flush();
     }
 
     @Override
@@ -275,10 +659,15 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
 
     @Override
     protected List<DataPacket> doActualReceive(long timeout) {
+        return doActualReceive(timeout, Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected List<DataPacket> doActualReceive(long timeout, int maxRecords) {
         List<byte[]> consumerRecords = null;
         try {
             // the filtering for data from the same source is done in the consumer
-            consumerRecords = this.consumer.receive((int)timeout);
+            consumerRecords = this.consumer.receive((int)timeout, maxRecords);
         } catch (JMSException we) {
             we.printStackTrace(System.err);
         }
@@ -289,7 +678,7 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
 
         for (byte[] cr : consumerRecords) {
             try {
-                DataPacket dp = new DataPacket(cr);
+                DataPacket dp = DataPacket.wrap(cr, 0, cr.length); // the received array is not shared
                 result.add(dp);
             } catch (Exception ex) {
                 ex.printStackTrace(System.err);
@@ -312,6 +701,12 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
 
     @Override
     public void close() {
+        this.cancelSubscription();
+        if (this.committer != null) {
+            this.committer.shutdownNow();
+            this.flush();
+            this.committer = null;
+        }
         if (this.producer != null) {
             try {
                 this.producer.close();
@@ -324,6 +719,14 @@ public class EventDispatcherActiveMQ extends AbstractEventDispatcher {
             this.consumer.close();
             this.consumer = null;
         }
+        if (this.producerSession != null && this.producerSession != this.session) {
+            try {
+                this.producerSession.close();
+            } catch (Exception e) {
+                e.printStackTrace(System.err);
+            }
+        }
+        this.producerSession = null;
         if (this.session != null) {
             try {
                 this.session.close();
@@ -22,6 +22,28 @@ import java.util.*;
 public class ConfigurationFactoryKafka extends AbstractBrokerConfigFactory<Properties, Properties> {
 
     private Properties configuration;
+    private volatile boolean pipelinedSending;
+    private volatile int maxInFlightSends;
+    private volatile OffsetCommitStrategy offsetCommitStrategy;
+    private volatile int commitIntervalRecords;
+    private volatile long commitIntervalMs;
+    private volatile boolean partitionedReceiving;
+
+    /**
+     * The default maximum number of the records sent in pipelined mode that can await their acknowledgement.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT_SENDS = 10000;
+
+    /**
+     * The default number of received records after which their offsets are committed by
+     * {@link OffsetCommitStrategy#PERIODIC}.
+     */
+    public static final int DEFAULT_COMMIT_INTERVAL_RECORDS = 1000;
+
+    /**
+     * The default time in milliseconds after which the offsets are committed by {@link OffsetCommitStrategy#PERIODIC}.
+     */
+    public static final long DEFAULT_COMMIT_INTERVAL_MS = 5000;
 
     /**
      * Constructor. Provides the basic configuration parameters.
@@ -54,6 +76,10 @@ public class ConfigurationFactoryKafka extends AbstractBrokerConfigFactory<Prope
         super(dataEncodingMechanismType, dispatchingType, topics, topicToEventsMap);
         this.configuration = new Properties();
         this.configuration.putAll(cfg);
+        this.maxInFlightSends = DEFAULT_MAX_IN_FLIGHT_SENDS;
+        this.offsetCommitStrategy = OffsetCommitStrategy.SYNC;
+        this.commitIntervalRecords = DEFAULT_COMMIT_INTERVAL_RECORDS;
+        this.commitIntervalMs = DEFAULT_COMMIT_INTERVAL_MS;
     }
 
     /**
@@ -65,6 +91,12 @@ public class ConfigurationFactoryKafka extends AbstractBrokerConfigFactory<Prope
         super(cfg);
         this.configuration = new Properties();
         this.configuration.putAll(cfg.configuration);
+        this.pipelinedSending = cfg.pipelinedSending;
+        this.maxInFlightSends = cfg.maxInFlightSends;
+        this.offsetCommitStrategy = cfg.offsetCommitStrategy;
+        this.commitIntervalRecords = cfg.commitIntervalRecords;
+        this.commitIntervalMs = cfg.commitIntervalMs;
+        this.partitionedReceiving = cfg.partitionedReceiving;
     }
 
     /**
@@ -98,9 +130,165 @@ public class ConfigurationFactoryKafka extends AbstractBrokerConfigFactory<Prope
         if (input != null) {
             result.putAll(input);
         }
+        if (!this.dispatchingType.equals(DispatchingType.PRODUCE)
+                && this.offsetCommitStrategy != OffsetCommitStrategy.SYNC) {
+            // the offsets are committed only by the dispatcher
+            result.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        }
         return result;
     }
 
+    /**
+     * Returns whether the events are sent in pipelined mode.
+     * @return True if the pipelined mode is turned on, otherwise false.
+     */
+    public boolean isPipelinedSending() {
+        return this.pipelinedSending;
+    }
+
+    /**
+     * Returns the maximum number of the records sent in pipelined mode that can await their acknowledgement.
+     * @return Positive number.
+     */
+    public int getMaxInFlightSends() {
+        return this.maxInFlightSends;
+    }
+
+    /**
+     * Sets the pipelined mode of sending events. By default it is turned off and every record sent waits for its
+     * acknowledgement by the broker before the next one is sent. In pipelined mode the records are handed to the
+     * Kafka producer without waiting, so they get batched according to its "batch.size" and "linger.ms" settings and
+     * the asynchronous sending completes from the acknowledgement callbacks. When the maximum number of records
+     * awaiting acknowledgement is reached the sending blocks until some of them get acknowledged. The mode is used
+     * only by the dispatchers created after its setting.
+     * @param pipelinedSending True to turn on the pipelined mode, false to turn it off.
+     * @param maxInFlightSends The maximum number of records awaiting acknowledgement. See
+     *                         {@link #DEFAULT_MAX_IN_FLIGHT_SENDS}.
+     * @throws IllegalArgumentException If maxInFlightSends is 0 or a negative number.
+     */
+    public void setPipelinedSending(boolean pipelinedSending, int maxInFlightSends) {
+        if (maxInFlightSends <= 0) {
+            throw new IllegalArgumentException("The maximum in-flight sends must be a positive number");
+        }
+        this.maxInFlightSends = maxInFlightSends;
+        this.pipelinedSending = pipelinedSending;
+    }
+
+    /**
+     * Sets the batching options of the Kafka producer, which are effective in pipelined mode. Equivalent to setting
+     * "batch.size" and "linger.ms" in the configuration. The buffered records can be sent immediately using
+     * {@link net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IEventDispatcher#flush()}.
+     * @param batchSize The maximum size of a batch of records per partition in bytes.
+     * @param lingerMs The time in milliseconds to wait for more records to be added to a batch before its sending.
+     * @throws IllegalArgumentException If batchSize or lingerMs is a negative number.
+     */
+    public void setProducerBatching(int batchSize, long lingerMs) {
+        if (batchSize < 0 || lingerMs < 0) {
+            throw new IllegalArgumentException("The batch size and the linger time must be non-negative numbers");
+        }
+        this.configuration.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        this.configuration.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+    }
+
+    /**
+     * Sets the maximum number of records returned by a single poll of the Kafka consumer. Equivalent to setting
+     * "max.poll.records" in the configuration. Lower values reduce the amount of records buffered by the publishers
+     * of events when their subscribers request fewer ones, see
+     * {@link net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IEventDispatcher#toPublisher()}.
+     * @param maxPollRecords The maximum number of records.
+     * @throws IllegalArgumentException If maxPollRecords is 0 or a negative number.
+     */
+    public void setMaxPollRecords(int maxPollRecords) {
+        if (maxPollRecords <= 0) {
+            throw new IllegalArgumentException("The maximum poll records must be a positive number");
+        }
+        this.configuration.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+    }
+
+    /**
+     * Returns the way in which the offsets of the received records are committed.
+     * @return The commit strategy.
+     */
+    public OffsetCommitStrategy getOffsetCommitStrategy() {
+        return this.offsetCommitStrategy;
+    }
+
+    /**
+     * Sets the way in which the offsets of the received records are committed. By default it is
+     * {@link OffsetCommitStrategy#SYNC}. Any other strategy turns off the automatic commits of the Kafka consumer
+     * ("enable.auto.commit"), since the offsets are committed only by the dispatcher. The strategy is used only by the
+     * dispatchers created after its setting.
+     * @param offsetCommitStrategy The commit strategy. Cannot be null.
+     * @throws NullPointerException If offsetCommitStrategy is null.
+     */
+    public void setOffsetCommitStrategy(OffsetCommitStrategy offsetCommitStrategy) {
+        if (offsetCommitStrategy == null) {
+            throw new NullPointerException("Null offset commit strategy specified");
+        }
+        this.offsetCommitStrategy = offsetCommitStrategy;
+    }
+
+    /**
+     * Returns the number of received records after which their offsets are committed by
+     * {@link OffsetCommitStrategy#PERIODIC}.
+     * @return Positive number.
+     */
+    public int getCommitIntervalRecords() {
+        return this.commitIntervalRecords;
+    }
+
+    /**
+     * Returns the time in milliseconds after which the offsets are committed by {@link OffsetCommitStrategy#PERIODIC}.
+     * @return Positive number.
+     */
+    public long getCommitIntervalMs() {
+        return this.commitIntervalMs;
+    }
+
+    /**
+     * Sets the commit strategy to {@link OffsetCommitStrategy#PERIODIC} with the specified intervals. The time
+     * interval is checked only while receiving, so it is the maximum one between commits of an actively used
+     * dispatcher.
+     * @param records The number of received records after which their offsets are committed. See
+     *                {@link #DEFAULT_COMMIT_INTERVAL_RECORDS}.
+     * @param ms The time in milliseconds after which the offsets are committed. See
+     *           {@link #DEFAULT_COMMIT_INTERVAL_MS}.
+     * @throws IllegalArgumentException If records or ms is 0 or a negative number.
+     */
+    public void setPeriodicCommit(int records, long ms) {
+        if (records <= 0 || ms <= 0) {
+            throw new IllegalArgumentException("The commit intervals must be positive numbers");
+        }
+        this.commitIntervalRecords = records;
+        this.commitIntervalMs = ms;
+        this.offsetCommitStrategy = OffsetCommitStrategy.PERIODIC;
+    }
+
+    /**
+     * Returns whether the subscriptions of the dispatchers receive the events of each partition independently.
+     * @return True if the partitioned receiving is turned on, otherwise false.
+     */
+    public boolean isPartitionedReceiving() {
+        return this.partitionedReceiving;
+    }
+
+    /**
+     * Sets whether the subscriptions of the dispatchers receive the events of each partition independently. By default
+     * it is turned off and all of the received events are decoded and ordered together. When turned on the records
+     * of every partition are handed to one of the workers of the subscription, which decodes and delivers their events
+     * from its own thread in the order of the partition. A worker whose queue is full gets its partitions paused
+     * while the rest of them continue to be received, so slow partitions do not block the fast ones. See
+     * {@link net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IEventDispatcher#subscribe(java.util.function.Consumer,
+     * net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventPipelineSettings)}. The offsets of the records handed to the
+     * workers are committed without waiting for their delivery, unless the commit strategy is
+     * {@link OffsetCommitStrategy#MANUAL}, which is the only one delivering the events at-least-once. The mode is used
+     * only by the dispatchers created after its setting.
+     * @param partitionedReceiving True to turn on the partitioned receiving, false to turn it off.
+     */
+    public void setPartitionedReceiving(boolean partitionedReceiving) {
+        this.partitionedReceiving = partitionedReceiving;
+    }
+
     /**
      * Returns the configuration entry string key pointing to the identifier of the producer/consumer.
      * @return An initialized string mentioning the configuration entry containing the client id.
@@ -50,7 +50,7 @@ public class DataPacketKafka implements Serializable, Serializer<DataPacket>, De
         if (this.data == null || this.data.length < DataPacket.MIN_VALID_PACKET_LENGTH) {
             return null;
         }
-        return new DataPacket(this.data);
+        return new DataPacket(this.data); // copied, because the stored array remains modifiable via setData
     }
 
     @Override
@@ -91,7 +91,8 @@ public class DataPacketKafka implements Serializable, Serializer<DataPacket>, De
 
     @Override
     public DataPacket deserialize(String s, byte[] bytes) {
-        return new DataPacket(bytes);
+        // the array is provided by the consumer only for this record, so it is not copied
+        return DataPacket.wrap(bytes, 0, bytes.length);
     }
 
     @Override
@@ -110,7 +111,7 @@ public class DataPacketKafka implements Serializable, Serializer<DataPacket>, De
     @Override
     public byte[] serialize(String s, DataPacket dataPacket) {
         if (dataPacket == null) return null;
-        return dataPacket.toBytes();
+        return dataPacket.getWireBytes(); // the same array for all of the topics of the packet
     }
 
     @Override
@@ -2,17 +2,22 @@ package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka;
 
 import net.uniplovdiv.fmi.cs.vrs.event.Event;
 import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventPipelineSettings;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IEventSubscription;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.AbstractBrokerConfigFactory;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.AbstractEventDispatcher;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.DispatchingType;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
 import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.mutable.MutableBoolean;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.internals.RecordHeader;
@@ -21,6 +26,8 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 
 /**
@@ -43,15 +50,40 @@ public class EventDispatcherKafka extends AbstractEventDispatcher {
     protected ConfigurationFactoryKafka configFactoryConsumer;
     protected ConfigurationFactoryKafka configFactoryProducer;
 
-    protected KafkaConsumer<String, DataPacket> consumer;
+    protected org.apache.kafka.clients.consumer.Consumer<String, DataPacket> consumer;
     protected KafkaProducer<String, DataPacket> producer;
 
     // create meta header used when kafka sends messages to identify who is the sender
     protected final Header clientIdHeader;
 
+    // bounds the records sent in pipelined mode that await acknowledgement; null if the mode is off
+    protected final Semaphore inFlightSends;
+
     // used as a dummy parameter when listing partitions for topic
     private final String SAMPLE_EVENT_TOPIC_NAME = new Event().getCategory();
 
+    private final OffsetCommitStrategy commitStrategy;
+    // the offsets of the received records; null if consuming with the SYNC strategy or not consuming at all
+    private final OffsetTracker offsets;
+    // the positions of the records pending acknowledgement; null unless consuming with the MANUAL strategy
+    private final Map<DataPacket, RecordPosition> packetPositions;
+    private final Map<IEvent, RecordPosition> eventPositions;
+    private List<DataPacket> lastReceived; // the data packets of the last poll, before the filtering of duplicates
+    private long lastCommitTime;
+
+    /**
+     * The position of a received record.
+     */
+    private static final class RecordPosition {
+        final TopicPartition partition;
+        final long offset;
+
+        RecordPosition(TopicPartition partition, long offset) {
+            this.partition = partition;
+            this.offset = offset;
+        }
+    }
+
     /**
      * Constructor - the most complete one.
      * @param config The configuration settings that also include Kafka configuration options. Cannot be null.
@@ -70,6 +102,25 @@ public class EventDispatcherKafka extends AbstractEventDispatcher {
      */
     public EventDispatcherKafka(ConfigurationFactoryKafka config, int latestEventsRememberCapacity,
                                 boolean doNotReceiveEventsFromSameSource, String[] packagesWithEvents) {
+        this(config, latestEventsRememberCapacity, doNotReceiveEventsFromSameSource, packagesWithEvents,
+                KafkaConsumer::new);
+    }
+
+    /**
+     * Constructor creating the Kafka consumer with a factory, for e.g. a mock one.
+     * @param config The configuration settings that also include Kafka configuration options. Cannot be null.
+     * @param latestEventsRememberCapacity The capacity of remembered latest events worked with.
+     * @param doNotReceiveEventsFromSameSource Events sent from the same source as the current one will be totally
+     *                                         ignored.
+     * @param packagesWithEvents Array of full package names containing custom IEvent implementations. Can be null.
+     * @param consumerFactory Creates the consumer from the effective Kafka configuration, if consuming at all.
+     * @throws NullPointerException If config is null.
+     * @throws IllegalArgumentException If latestEventsRememberCapacity is negative number.
+     */
+    EventDispatcherKafka(ConfigurationFactoryKafka config, int latestEventsRememberCapacity,
+                         boolean doNotReceiveEventsFromSameSource, String[] packagesWithEvents,
+                         Function<Properties, org.apache.kafka.clients.consumer.Consumer<String, DataPacket>>
+                                 consumerFactory) {
         super(config, latestEventsRememberCapacity, doNotReceiveEventsFromSameSource, packagesWithEvents);
         this.clientIdHeader = new RecordHeader(
                 CLIENT_ID_HEADER_KEY,
@@ -79,6 +130,22 @@ public class EventDispatcherKafka extends AbstractEventDispatcher {
 
         this.configFactoryProducer = this.configFactoryConsumer = null;
         DispatchingType dispatchingType = config.getDispatchingType();
+        this.inFlightSends = (config.isPipelinedSending() && dispatchingType != DispatchingType.CONSUME
+                ? new Semaphore(config.getMaxInFlightSends()) : null);
+
+        this.commitStrategy = config.getOffsetCommitStrategy();
+        boolean trackOffsets = (dispatchingType != DispatchingType.PRODUCE
+                && this.commitStrategy != OffsetCommitStrategy.SYNC);
+        this.offsets = (trackOffsets ? new OffsetTracker() : null);
+        if (trackOffsets && this.commitStrategy == OffsetCommitStrategy.MANUAL) {
+            // the decoding of the events can be concurrent
+            this.packetPositions = Collections.synchronizedMap(new IdentityHashMap<>());
+            this.eventPositions = Collections.synchronizedMap(new IdentityHashMap<>());
+        } else {
+            this.packetPositions = null;
+            this.eventPositions = null;
+        }
+        this.lastCommitTime = System.currentTimeMillis();
 
         Properties props = config.getMainConfiguration(null);
         if (dispatchingType == DispatchingType.PRODUCE) {
@@ -88,8 +155,28 @@ public class EventDispatcherKafka extends AbstractEventDispatcher {
         } else {
             // CONSUMER
             this.configFactoryConsumer = new ConfigurationFactoryKafka(config);
-            this.consumer = new KafkaConsumer<>(props);
-            this.consumer.subscribe(config.getTopics());
+            this.consumer = consumerFactory.apply(props);
+            if (trackOffsets) {
+                this.consumer.subscribe(config.getTopics(), new ConsumerRebalanceListener() {
+                    @Override
+                    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                        // the processed records are committed before another consumer gets them
+                        commitOffsets(true);
+                        forgetPartitions(partitions);
+                    }
+
+                    @Override
+                    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                    }
+
+                    @Override
+                    public void onPartitionsLost(Collection<TopicPartition> partitions) {
+                        forgetPartitions(partitions);
+                    }
+                });
+            } else {
+                this.consumer.subscribe(config.getTopics());
+            }
             if (dispatchingType == DispatchingType.CONSUME_PRODUCE) {
                 // PRODUCER too
                 this.configFactoryProducer = new ConfigurationFactoryKafka(config);
@@ -115,38 +202,31 @@ public class EventDispatcherKafka extends AbstractEventDispatcher {
      */
     public EventDispatcherKafka makeNewWithSameConfig() {
         if (this.configFactoryProducer != null && this.configFactoryConsumer != null) {
-            Properties props = this.configFactoryConsumer.getMainConfiguration(
-                    this.configFactoryProducer.getMainConfiguration(null));
-            ConfigurationFactoryKafka cfk = new ConfigurationFactoryKafka(
-                    props,
-                    this.configFactoryProducer.getDataEncodingMechanismType(),
-                    DispatchingType.CONSUME_PRODUCE,
-                    this.configFactoryConsumer.getTopics(),
-                    this.configFactoryProducer.getTopicToEventsMap()
-            );
+            // both factories are copies of the same CONSUME_PRODUCE configuration
+            ConfigurationFactoryKafka cfk = new ConfigurationFactoryKafka(this.configFactoryConsumer);
             EventDispatcherKafka eventDispatcherKafka = new EventDispatcherKafka(cfk, this.latestEventsRememberCapacity,
                     this.doNotReceiveEventsFromSameSource, this.packagesWithEvents);
-            if (eventDispatcherKafka.latestEventsSent != null) {
-                eventDispatcherKafka.latestEventsSent.addAll(this.latestEventsSent);
+            if (eventDispatcherKafka.latestEventsSent != null && this.latestEventsSent != null) {
+                eventDispatcherKafka.latestEventsSent = this.latestEventsSent.copy();
             }
-            if (eventDispatcherKafka.latestEventsReceived != null) {
-                eventDispatcherKafka.latestEventsReceived.addAll(this.latestEventsReceived);
+            if (eventDispatcherKafka.latestEventsReceived != null && this.latestEventsReceived != null) {
+                eventDispatcherKafka.latestEventsReceived = this.latestEventsReceived.copy();
             }
             return eventDispatcherKafka;
         }
         if (this.configFactoryProducer != null) {
             EventDispatcherKafka eventDispatcherKafka = new EventDispatcherKafka(this.configFactoryProducer,
                     this.latestEventsRememberCapacity, this.doNotReceiveEventsFromSameSource, this.packagesWithEvents);
-            if (eventDispatcherKafka.latestEventsSent != null) {
-                eventDispatcherKafka.latestEventsSent.addAll(this.latestEventsSent);
+            if (eventDispatcherKafka.latestEventsSent != null && this.latestEventsSent != null) {
+                eventDispatcherKafka.latestEventsSent = this.latestEventsSent.copy();
             }
             return eventDispatcherKafka;
         }
 
         EventDispatcherKafka edk = new EventDispatcherKafka(this.configFactoryConsumer,
                 this.latestEventsRememberCapacity, this.doNotReceiveEventsFromSameSource, this.packagesWithEvents);
-        if (edk.latestEventsReceived != null) {
-            edk.latestEventsReceived.addAll(this.latestEventsReceived);
+        if (edk.latestEventsReceived != null && this.latestEventsReceived != null) {
+            edk.latestEventsReceived = this.latestEventsReceived.copy();
         }
         return edk;
     }
@@ -198,12 +278,24 @@ public class EventDispatcherKafka extends AbstractEventDispatcher {
     }
 
     @Override
-    protected synchronized boolean doActualSend(String topic, DataPacket dp) {
+    protected boolean doActualSend(String topic, DataPacket dp) {
+        return doActualSend(topic, null, dp);
+    }
+
+    /**
+     * Sends data waiting for its acknowledgement. The records with the same key are sent to the same partition.
+     * @param topic The topic to which the data to be sent.
+     * @param key The key of the record or null to let the producer choose the partition.
+     * @param dp The data that will be sent. Cannot be null.
+     * @return True if the sending was successful otherwise false.
+     */
+    @Override
+    protected synchronized boolean doActualSend(String topic, String key, DataPacket dp) {
         try {
-            ProducerRecord<String, DataPacket> pr = new ProducerRecord<>(topic, null, dp);
+            ProducerRecord<String, DataPacket> pr = new ProducerRecord<>(topic, key, dp);
             pr.headers().add(this.clientIdHeader);
             this.producer.send(pr).get(); // wait for the data to be sent
-            if (this.latestEventsSent != null) this.latestEventsSent.add(dp.hashCode());
+            if (this.latestEventsSent != null) this.latestEventsSent.record(dp);
         } catch (Exception e) {
             e.printStackTrace(System.err);
             return false;
@@ -211,6 +303,56 @@ public class EventDispatcherKafka extends AbstractEventDispatcher {
         return true;
     }
 
+    @Override
+    protected boolean isPipelinedSending() {
+        return this.inFlightSends != null;
+    }
+
+    @Override
+    protected CompletableFuture<Boolean> doActualSendAsync(String topic, String key, DataPacket dp) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        try {
+            this.inFlightSends.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.complete(Boolean.FALSE);
+            return result;
+        }
+        try {
+            ProducerRecord<String, DataPacket> pr = new ProducerRecord<>(topic, key, dp);
+            pr.headers().add(this.clientIdHeader);
+            // not waiting, so the producer can batch the records according to its batch.size and linger.ms settings
+            this.producer.send(pr, (metadata, exception) -> {
+                this.inFlightSends.release();
+                if (exception != null) {
+                    exception.printStackTrace(System.err);
+                }
+                result.complete(exception == null);
+            });
+        } catch (Exception e) {
+            this.inFlightSends.release();
+            e.printStackTrace(System.err);
+            result.complete(Boolean.FALSE);
+        }
+        return result;
+    }
+
+    /**
+     * Sends immediately all of the buffered records regardless of the "linger.ms" setting and blocks until their
+     * sending completes and the completion handlers are called.
+     */
+    @Override
+    public void flush() {
+        if (this.producer != null) {
+            try {
+                this.producer.flush();
+            } catch (Exception e) {
+                e.printStackTrace(System.err);
+            }
+        }
+        super.flush();
+    }
+
     @Override
     protected boolean doPreReceiveChecks() {
         return !(this.consumer == null || this.configFactoryConsumer == null);
@@ -234,6 +376,36 @@ public class EventDispatcherKafka extends AbstractEventDispatcher {
 
     @Override
     protected List<DataPacket> doActualReceive(long timeout) {
+        Map<TopicPartition, List<DataPacket>> polled = poll(timeout);
+        if (polled == null) return null;
+
+        List<DataPacket> result;
+        if (polled.size() == 1) {
+            result = polled.values().iterator().next();
+        } else {
+            int count = 0;
+            for (List<DataPacket> packets : polled.values()) count += packets.size();
+            result = new ArrayList<>(count);
+            for (List<DataPacket> packets : polled.values()) result.addAll(packets);
+        }
+
+        if (this.packetPositions != null) this.lastReceived = result;
+        return result;
+    }
+
+    /**
+     * Polls the consumer for records and extracts their data packets, leaving out the ones sent by the current
+     * dispatcher if required.
+     * @param timeout The time in milliseconds to wait for records.
+     * @return The data packets of each partition in the order of the partition or null if there are none.
+     */
+    private Map<TopicPartition, List<DataPacket>> poll(long timeout) {
+        if (this.commitStrategy == OffsetCommitStrategy.MANUAL
+                || (this.commitStrategy == OffsetCommitStrategy.PERIODIC && isCommitDue())) {
+            // the consumer is not thread safe, so the acknowledgements are committed by the receiving thread
+            commitOffsets(false);
+        }
+
         ConsumerRecords<String, DataPacket> consumerRecords = null;
         try {
             // Since Kafka 2.0.0 poll() always times out as expected
@@ -244,40 +416,228 @@ public class EventDispatcherKafka extends AbstractEventDispatcher {
 
         if (consumerRecords == null || consumerRecords.isEmpty()) return null;
 
-        List<DataPacket> result = new ArrayList<>(consumerRecords.count());
-
-        for (ConsumerRecord<String, DataPacket> cr : consumerRecords) {
-            // prevent receiving data sent by us with more strict approach based on metadata inside the record
-            if (this.doNotReceiveEventsFromSameSource) {
-                Header h = cr.headers().lastHeader(this.clientIdHeader.key());
-                if (h != null && h.value() != null
-                        && Arrays.equals(h.value(), this.clientIdHeader.value())) {
-                    continue;
+        Map<TopicPartition, List<DataPacket>> result = new LinkedHashMap<>();
+
+        for (TopicPartition tp : consumerRecords.partitions()) {
+            List<ConsumerRecord<String, DataPacket>> records = consumerRecords.records(tp);
+            List<DataPacket> packets = new ArrayList<>(records.size());
+            for (ConsumerRecord<String, DataPacket> cr : records) {
+                // prevent receiving data sent by us with more strict approach based on metadata inside the record
+                boolean isOwn = false;
+                if (this.doNotReceiveEventsFromSameSource) {
+                    Header h = cr.headers().lastHeader(this.clientIdHeader.key());
+                    isOwn = (h != null && h.value() != null && Arrays.equals(h.value(), this.clientIdHeader.value()));
+                }
+                if (this.offsets != null) {
+                    boolean pending = (!isOwn && this.packetPositions != null && cr.value() != null);
+                    this.offsets.received(tp, cr.offset(), pending);
+                    if (pending) this.packetPositions.put(cr.value(), new RecordPosition(tp, cr.offset()));
+                }
+                if (!isOwn) {
+                    packets.add(cr.value());
                 }
             }
-            result.add(cr.value());
+            if (!packets.isEmpty()) {
+                result.put(tp, packets);
+            }
         }
 
         return (result.isEmpty() ? null : result);
     }
 
+    /**
+     * Polls the consumer for the data packets of new events per partition, filtering out any duplicates. Used by the
+     * partitioned subscriptions.
+     * @param timeout The time in milliseconds to wait for records.
+     * @return The data packets of each partition in the order of the partition or null if there are none.
+     */
+    Map<TopicPartition, List<DataPacket>> pollPartitions(long timeout) {
+        Map<TopicPartition, List<DataPacket>> polled = poll(timeout);
+        if (polled == null) return null;
+        Iterator<List<DataPacket>> it = polled.values().iterator();
+        while (it.hasNext()) {
+            List<DataPacket> packets = it.next();
+            packets.removeIf(dp -> {
+                if (acceptReceived(dp)) return false;
+                if (this.packetPositions != null) {
+                    // never handed to the application, so processed already
+                    processed(this.packetPositions.remove(dp));
+                }
+                return true;
+            });
+            if (packets.isEmpty()) it.remove();
+        }
+        return (polled.isEmpty() ? null : polled);
+    }
+
+    /**
+     * Subscribes a consumer to the received events. If the partitioned receiving is turned on the events of each
+     * partition are delivered in the order of the partition from the thread of the worker to which the partition is
+     * assigned, so the consumer must be thread-safe. Then the parallelism setting is the number of the workers, the
+     * queue capacity limits the events of each worker and the ordering setting is ignored. See
+     * {@link ConfigurationFactoryKafka#setPartitionedReceiving(boolean)}.
+     * @param consumer The consumer of the events. Cannot be null.
+     * @param settings The settings of the pipeline. Cannot be null.
+     * @return The active subscription.
+     * @throws NullPointerException If consumer or settings is null.
+     * @throws IllegalStateException If the dispatcher cannot receive events or another subscription is active.
+     */
+    @Override
+    public synchronized IEventSubscription subscribe(Consumer<IEvent> consumer, EventPipelineSettings settings) {
+        if (this.configFactoryConsumer == null || !this.configFactoryConsumer.isPartitionedReceiving()) {
+            return super.subscribe(consumer, settings);
+        }
+        if (consumer == null || settings == null) {
+            throw new NullPointerException("Consumer and settings must be specified");
+        }
+        PartitionedEventPipeline p = new PartitionedEventPipeline(this, consumer, settings);
+        attachSubscription(p);
+        p.start();
+        return p;
+    }
+
+    @Override
+    protected List<DataPacket> receivePackets(long timeout, int maxRecords) {
+        this.lastReceived = null;
+        List<DataPacket> result = super.receivePackets(timeout, maxRecords);
+        List<DataPacket> received = this.lastReceived;
+        if (received != null && (result == null || result.size() < received.size())) {
+            // the filtered out duplicates are never handed to the application, so they are processed already
+            Set<DataPacket> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+            if (result != null) kept.addAll(result);
+            for (DataPacket dp : received) {
+                if (!kept.contains(dp)) {
+                    processed(this.packetPositions.remove(dp));
+                }
+            }
+        }
+        this.lastReceived = null;
+        return result;
+    }
+
+    @Override
+    protected IEvent decodeReceived(DataPacket dp) {
+        IEvent event = super.decodeReceived(dp);
+        if (this.packetPositions != null) {
+            RecordPosition position = this.packetPositions.remove(dp);
+            if (event == null) {
+                processed(position); // never handed to the application
+            } else if (position != null) {
+                this.eventPositions.put(event, position);
+            }
+        }
+        return event;
+    }
+
+    /**
+     * Acknowledges that received events are processed, so their offsets can be committed. Used only with
+     * {@link OffsetCommitStrategy#MANUAL}, otherwise it does nothing. The offset of a partition is committed only up
+     * to its first record which event is not acknowledged yet, so each received event must be acknowledged exactly
+     * once, even if its processing fails. The offsets are committed asynchronously by the next receiving and also when
+     * the dispatcher is closed. Can be called from any thread.
+     * @param events The processed events, as returned by the receiving. Can be null.
+     */
+    public void acknowledge(Collection<? extends IEvent> events) {
+        if (this.eventPositions == null || events == null) return;
+        for (IEvent event : events) {
+            processed(this.eventPositions.remove(event));
+        }
+    }
+
+    /**
+     * Marks record as processed.
+     * @param position The position of the record. Can be null.
+     */
+    private void processed(RecordPosition position) {
+        if (position != null) {
+            this.offsets.processed(position.partition, position.offset);
+        }
+    }
+
+    /**
+     * Stops the tracking of the offsets of partitions, which are no longer assigned to the consumer.
+     * @param partitions The partitions.
+     */
+    private void forgetPartitions(Collection<TopicPartition> partitions) {
+        this.offsets.remove(partitions);
+        if (this.eventPositions != null) {
+            synchronized (this.eventPositions) {
+                this.eventPositions.values().removeIf(p -> partitions.contains(p.partition));
+            }
+            synchronized (this.packetPositions) {
+                this.packetPositions.values().removeIf(p -> partitions.contains(p.partition));
+            }
+        }
+    }
+
+    /**
+     * Returns whether the offsets are due to be committed by {@link OffsetCommitStrategy#PERIODIC}.
+     * @return True if due otherwise false.
+     */
+    private boolean isCommitDue() {
+        return this.offsets.getReceivedSinceCommit() >= this.configFactoryConsumer.getCommitIntervalRecords()
+                || System.currentTimeMillis() - this.lastCommitTime >= this.configFactoryConsumer.getCommitIntervalMs();
+    }
+
+    /**
+     * Commits the tracked offsets that can be committed, if any. Must be called from the receiving thread.
+     * @param sync True to wait for the commit to complete, false to commit asynchronously.
+     */
+    private void commitOffsets(boolean sync) {
+        this.lastCommitTime = System.currentTimeMillis();
+        Map<TopicPartition, OffsetAndMetadata> committable = this.offsets.takeCommittable();
+        if (committable.isEmpty()) return;
+        if (sync) {
+            try {
+                this.consumer.commitSync(committable);
+            } catch (Exception e) {
+                this.offsets.commitFailed(committable);
+                e.printStackTrace(System.err);
+            }
+        } else {
+            this.consumer.commitAsync(committable, (committed, exception) -> {
+                if (exception != null) {
+                    // retried by the next commit
+                    this.offsets.commitFailed(committable);
+                    exception.printStackTrace(System.err);
+                }
+            });
+        }
+    }
+
     @Override
     public List<IEvent> receive() {
         return this.receive(650);
     }
 
     @Override
-    public List<IEvent> receive(long timeout) {
-        List<IEvent> result = super.receive(timeout);
-        if (!(result == null || result.isEmpty())) {
-            this.consumer.commitSync();
+    protected void doAfterReceive() {
+        switch (this.commitStrategy) {
+            case SYNC:
+                this.consumer.commitSync();
+                break;
+
+            case ASYNC:
+                commitOffsets(false);
+                break;
+
+            case PERIODIC:
+                if (isCommitDue()) commitOffsets(false);
+                break;
+
+            default:
+                // MANUAL - committed upon the acknowledgements
+                break;
         }
-        return result;
     }
 
     @Override
     public void close() {
+        this.cancelSubscription();
         if (this.consumer != null) {
+            if (this.offsets != null) {
+                commitOffsets(true);
+            }
             this.consumer.close(Duration.ofSeconds(60));
             this.consumer = null;
         }
@@ -0,0 +1,36 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka;
+
+/**
+ * The ways in which {@link EventDispatcherKafka} commits the offsets of the received records. See
+ * {@link ConfigurationFactoryKafka#setOffsetCommitStrategy(OffsetCommitStrategy)}. All of the strategies except
+ * {@link #MANUAL} commit the offsets once the records are received, before the application processes their events,
+ * so events can be lost if the application stops meanwhile (at-most-once delivery). This applies to the subscriptions
+ * too, since the events still queued for delivery are already committed. Only {@link #MANUAL} delivers the events
+ * at-least-once.
+ */
+public enum OffsetCommitStrategy {
+    /**
+     * The offsets are committed synchronously after each receiving that returned events, so every receiving waits for
+     * the broker. This is the default.
+     */
+    SYNC,
+
+    /**
+     * The offsets are committed asynchronously after each receiving that returned events. Failed commits are only
+     * logged, since the following ones include their offsets anyway.
+     */
+    ASYNC,
+
+    /**
+     * The offsets are committed asynchronously once a number of records are received or a period of time passes since
+     * the previous commit, whichever comes first. See {@link ConfigurationFactoryKafka#setPeriodicCommit(int, long)}.
+     */
+    PERIODIC,
+
+    /**
+     * The offsets are committed only after the application acknowledges the processing of the received events using
+     * {@link EventDispatcherKafka#acknowledge(java.util.Collection)}. The offset of each partition is committed up to
+     * its first not acknowledged record, so the events can be processed in any order while none of them is lost.
+     */
+    MANUAL
+}
@@ -0,0 +1,115 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Tracks the offsets of the received records per partition in order to determine the ones safe to commit. The offset
+ * of a partition can be committed up to its first record that is still pending processing, or past its last received
+ * record if none are pending. Thread safe.
+ */
+final class OffsetTracker {
+
+    /**
+     * The tracked state of a partition.
+     */
+    private static final class Partition {
+        long next = -1; // the offset after the last received record
+        long committed = -1; // the last committed offset
+        final TreeSet<Long> pending = new TreeSet<>();
+
+        long committable() {
+            return (pending.isEmpty() ? next : pending.first());
+        }
+    }
+
+    private final Map<TopicPartition, Partition> partitions = new HashMap<>();
+    private long received; // the number of records received since the last commit
+
+    /**
+     * Registers received record.
+     * @param tp The partition of the record.
+     * @param offset The offset of the record.
+     * @param pending True if the record must be processed before its offset gets committed, otherwise false.
+     */
+    synchronized void received(TopicPartition tp, long offset, boolean pending) {
+        Partition p = partitions.get(tp);
+        if (p == null) {
+            p = new Partition();
+            partitions.put(tp, p);
+        }
+        if (offset + 1 > p.next) {
+            p.next = offset + 1;
+        }
+        if (pending) {
+            p.pending.add(offset);
+        }
+        ++received;
+    }
+
+    /**
+     * Marks pending record as processed.
+     * @param tp The partition of the record.
+     * @param offset The offset of the record.
+     */
+    synchronized void processed(TopicPartition tp, long offset) {
+        Partition p = partitions.get(tp);
+        if (p != null) {
+            p.pending.remove(offset);
+        }
+    }
+
+    /**
+     * Returns the number of records received since the last taking of the committable offsets.
+     * @return Non-negative number.
+     */
+    synchronized long getReceivedSinceCommit() {
+        return received;
+    }
+
+    /**
+     * Returns the offsets that can be committed and are not committed yet, assuming their commit will succeed.
+     * @return The offsets to be committed per partition. Can be empty.
+     */
+    synchronized Map<TopicPartition, OffsetAndMetadata> takeCommittable() {
+        Map<TopicPartition, OffsetAndMetadata> result = new HashMap<>();
+        for (Map.Entry<TopicPartition, Partition> e : partitions.entrySet()) {
+            Partition p = e.getValue();
+            long offset = p.committable();
+            if (offset > p.committed) {
+                result.put(e.getKey(), new OffsetAndMetadata(offset));
+                p.committed = offset;
+            }
+        }
+        received = 0;
+        return result;
+    }
+
+    /**
+     * Marks offsets as not committed, so they are included by the next {@link #takeCommittable()}.
+     * @param offsets The offsets whose commit failed.
+     */
+    synchronized void commitFailed(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> e : offsets.entrySet()) {
+            Partition p = partitions.get(e.getKey());
+            if (p != null && p.committed == e.getValue().offset()) {
+                p.committed = -1;
+            }
+        }
+    }
+
+    /**
+     * Stops the tracking of partitions, for e.g. when they are assigned to another consumer.
+     * @param tps The partitions.
+     */
+    synchronized void remove(Collection<TopicPartition> tps) {
+        for (TopicPartition tp : tps) {
+            partitions.remove(tp);
+        }
+    }
+}
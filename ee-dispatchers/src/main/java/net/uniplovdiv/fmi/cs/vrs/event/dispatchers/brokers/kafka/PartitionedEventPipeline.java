@@ -0,0 +1,228 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka;
+
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventPipelineSettings;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IEventSubscription;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Push-based pipeline delivering the events received by a Kafka dispatcher independently for each partition. A poll
+ * thread receives the records from the broker, filters the duplicates and hands the records of every partition to the
+ * worker to which the partition is assigned. Each worker decodes and delivers the events of its partitions from its
+ * own thread in the order of the partitions. The partitions of a worker whose queue is full are paused, so they are
+ * not received until it catches up, while the other partitions continue to be received.
+ * <p>
+ * The offsets are committed by the poll thread, so with {@link OffsetCommitStrategy#SYNC},
+ * {@link OffsetCommitStrategy#ASYNC} and {@link OffsetCommitStrategy#PERIODIC} they can be committed before the workers
+ * deliver the events, and the queued events are lost if the application stops. Only with
+ * {@link OffsetCommitStrategy#MANUAL} the delivery is at-least-once.
+ */
+final class PartitionedEventPipeline implements IEventSubscription {
+
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    // marks the end of the deliveries
+    private static final List<DataPacket> END = Collections.emptyList();
+
+    private final EventDispatcherKafka dispatcher;
+    private final Consumer<IEvent> consumer;
+    private final EventPipelineSettings settings;
+
+    private final Worker[] workers;
+    private final Map<TopicPartition, Worker> assignments = new HashMap<>(); // used only by the poll thread
+    private final Thread poller;
+
+    private final LongAdder delivered = new LongAdder();
+    private volatile boolean cancelled;
+
+    /**
+     * Decodes and delivers the events of its partitions.
+     */
+    private final class Worker implements Runnable {
+        final BlockingQueue<List<DataPacket>> batches = new LinkedBlockingQueue<>();
+        final AtomicInteger queued = new AtomicInteger(); // the number of the queued data packets
+        final Thread thread;
+        int partitions; // the number of the assigned partitions
+
+        Worker(String name) {
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (List<DataPacket> batch = batches.take(); batch != END; batch = batches.take()) {
+                    for (DataPacket dp : batch) {
+                        deliver(dispatcher.decodeReceived(dp));
+                    }
+                    queued.addAndGet(-batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param dispatcher The dispatcher whose events to be delivered.
+     * @param consumer The consumer of the events.
+     * @param settings The settings of the pipeline. The parallelism is the number of the workers and the queue
+     *                 capacity limits the events of each worker.
+     */
+    PartitionedEventPipeline(EventDispatcherKafka dispatcher, Consumer<IEvent> consumer,
+                             EventPipelineSettings settings) {
+        this.dispatcher = dispatcher;
+        this.consumer = consumer;
+        this.settings = settings;
+
+        String name = "event-partitions-" + instances.incrementAndGet();
+        this.workers = new Worker[settings.getParallelism()];
+        for (int i = 0; i < this.workers.length; ++i) {
+            this.workers[i] = new Worker(name + "-worker-" + (i + 1));
+        }
+        this.poller = new Thread(this::poll, name + "-poller");
+        this.poller.setDaemon(true);
+    }
+
+    /**
+     * Starts the pipeline.
+     */
+    void start() {
+        for (Worker w : workers) {
+            w.thread.start();
+        }
+        poller.start();
+    }
+
+    /**
+     * The loop of the poll thread.
+     */
+    private void poll() {
+        try {
+            while (!cancelled) {
+                if (!dispatcher.doPreReceiveChecks()) {
+                    // the dispatcher got closed
+                    cancelled = true;
+                    break;
+                }
+
+                Map<TopicPartition, List<DataPacket>> packets;
+                try {
+                    pauseBusyPartitions();
+                    packets = dispatcher.pollPartitions(settings.getPollTimeoutMs());
+                } catch (RuntimeException e) {
+                    e.printStackTrace(System.err);
+                    continue;
+                }
+                if (packets == null) continue;
+                dispatcher.doAfterReceive();
+
+                for (Map.Entry<TopicPartition, List<DataPacket>> e : packets.entrySet()) {
+                    Worker w = workerOf(e.getKey());
+                    w.queued.addAndGet(e.getValue().size());
+                    w.batches.add(e.getValue());
+                }
+            }
+        } finally {
+            for (Worker w : workers) {
+                w.batches.add(END);
+            }
+            try {
+                // the dispatcher can be used afterwards
+                if (dispatcher.consumer != null) {
+                    dispatcher.consumer.resume(dispatcher.consumer.paused());
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace(System.err);
+            }
+        }
+    }
+
+    /**
+     * Pauses the assigned partitions whose workers are full and resumes the rest of them, thus propagating the
+     * backpressure of each worker to the broker.
+     */
+    private void pauseBusyPartitions() {
+        List<TopicPartition> busy = new ArrayList<>();
+        List<TopicPartition> free = new ArrayList<>();
+        for (TopicPartition tp : dispatcher.consumer.assignment()) {
+            if (workerOf(tp).queued.get() >= settings.getQueueCapacity()) {
+                busy.add(tp);
+            } else {
+                free.add(tp);
+            }
+        }
+        if (!busy.isEmpty()) dispatcher.consumer.pause(busy);
+        if (!free.isEmpty()) dispatcher.consumer.resume(free);
+    }
+
+    /**
+     * Returns the worker to which a partition is assigned, assigning it to the worker with the fewest partitions if
+     * not assigned yet. The assignments never change, so the order of each partition is preserved.
+     * @param tp The partition.
+     * @return The worker.
+     */
+    private Worker workerOf(TopicPartition tp) {
+        Worker w = assignments.get(tp);
+        if (w == null) {
+            w = workers[0];
+            for (Worker candidate : workers) {
+                if (candidate.partitions < w.partitions) w = candidate;
+            }
+            ++w.partitions;
+            assignments.put(tp, w);
+        }
+        return w;
+    }
+
+    /**
+     * Delivers an event to the consumer.
+     * @param event The event or null if its decoding failed.
+     */
+    private void deliver(IEvent event) {
+        if (event == null) return;
+        try {
+            consumer.accept(event);
+        } catch (RuntimeException e) {
+            e.printStackTrace(System.err);
+        }
+        delivered.increment();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        if (Thread.currentThread() != poller) {
+            try {
+                poller.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+}
@@ -0,0 +1,291 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation;
+
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.IEventSerializer;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+/**
+ * Preset dictionary used for compression of small payloads, which repeat the same content like key names, class names
+ * and topics. The dictionary is identified by the CRC32 checksum of its content, thus the producers and the consumers
+ * sharing the same dictionary file use the same identifier. The dictionaries can be trained from sample events,
+ * stored to and loaded from files. In order a payload compressed with particular dictionary to be decompressed, the
+ * dictionary must be {@link #register(CompressionDictionary) registered}. See
+ * {@link DictionaryDeflatePayloadCompressor}.
+ */
+public final class CompressionDictionary {
+
+    /**
+     * The maximum size of a dictionary in bytes, limited by the window of the Deflate algorithm.
+     */
+    public static final int MAX_SIZE = 32768;
+
+    /**
+     * The default size of a trained dictionary in bytes. Bigger dictionaries increase the cost of each compression.
+     */
+    public static final int DEFAULT_SIZE = 4096;
+
+    private static final byte[] FILE_MAGIC = "EEDICT1".getBytes(StandardCharsets.ISO_8859_1);
+    private static final int MIN_SEGMENT_LENGTH = 8;
+
+    private static final ConcurrentMap<Integer, CompressionDictionary> dictionaries = new ConcurrentHashMap<>();
+
+    private final int id;
+    private final byte[] content;
+
+    /**
+     * Constructor.
+     * @param content The content of the dictionary. The most frequently used data should be placed at its end.
+     * @throws NullPointerException If content is null.
+     * @throws IllegalArgumentException If content is empty or longer than {@link #MAX_SIZE}.
+     */
+    public CompressionDictionary(byte[] content) {
+        if (content == null) {
+            throw new NullPointerException("Null dictionary content");
+        }
+        if (content.length == 0 || content.length > MAX_SIZE) {
+            throw new IllegalArgumentException("The dictionary size must be between 1 and " + MAX_SIZE + " bytes");
+        }
+        this.content = content.clone();
+        CRC32 crc = new CRC32();
+        crc.update(this.content, 0, this.content.length);
+        int checksum = (int) crc.getValue();
+        this.id = (checksum != 0 ? checksum : 1); // 0 is reserved for no dictionary
+    }
+
+    /**
+     * Returns the identifier of the dictionary.
+     * @return Non-zero value derived from the content of the dictionary.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the content of the dictionary.
+     * @return Copy of the content.
+     */
+    public byte[] getContent() {
+        return content.clone();
+    }
+
+    /**
+     * Returns the content of the dictionary without copying it.
+     * @return The content that must not be modified.
+     */
+    byte[] content() {
+        return content;
+    }
+
+    /**
+     * Returns the size of the dictionary.
+     * @return The size in bytes.
+     */
+    public int getSize() {
+        return content.length;
+    }
+
+    /**
+     * Registers a dictionary, making the payloads compressed with it decodable.
+     * @param dictionary The dictionary to be registered.
+     * @return The registered dictionary.
+     * @throws NullPointerException If dictionary is null.
+     */
+    public static CompressionDictionary register(CompressionDictionary dictionary) {
+        if (dictionary == null) {
+            throw new NullPointerException("Null dictionary");
+        }
+        dictionaries.put(dictionary.id, dictionary);
+        return dictionary;
+    }
+
+    /**
+     * Returns registered dictionary.
+     * @param id The identifier of the dictionary.
+     * @return The dictionary or null if there is no such registered.
+     */
+    public static CompressionDictionary get(int id) {
+        return dictionaries.get(id);
+    }
+
+    /**
+     * Stores the dictionary into a file, which can be distributed among the producers and the consumers.
+     * @param file The file path.
+     * @throws IOException If writing fails.
+     */
+    public void save(Path file) throws IOException {
+        byte[] data = new byte[FILE_MAGIC.length + content.length];
+        System.arraycopy(FILE_MAGIC, 0, data, 0, FILE_MAGIC.length);
+        System.arraycopy(content, 0, data, FILE_MAGIC.length, content.length);
+        Files.write(file, data);
+    }
+
+    /**
+     * Loads and {@link #register(CompressionDictionary) registers} dictionary stored with {@link #save(Path)}.
+     * @param file The file path.
+     * @return The loaded dictionary.
+     * @throws IOException If reading fails or the file does not contain a dictionary.
+     */
+    public static CompressionDictionary load(Path file) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        if (data.length <= FILE_MAGIC.length
+                || !Arrays.equals(FILE_MAGIC, Arrays.copyOfRange(data, 0, FILE_MAGIC.length))) {
+            throw new IOException("Not a compression dictionary file " + file);
+        }
+        try {
+            return register(new CompressionDictionary(Arrays.copyOfRange(data, FILE_MAGIC.length, data.length)));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid compression dictionary file " + file, e);
+        }
+    }
+
+    /**
+     * Trains a dictionary from the default instances of event classes.
+     * @param serializer The serializer used in production to encode the events.
+     * @param eventClasses The event classes to be sampled. The classes without default constructor are skipped.
+     * @param maxSize The maximum size of the dictionary in bytes. See {@link #DEFAULT_SIZE}.
+     * @return The trained dictionary.
+     * @throws IllegalArgumentException If no common content is found or maxSize is invalid.
+     */
+    public static CompressionDictionary trainFromClasses(IEventSerializer serializer,
+                                                         Collection<Class<? extends IEvent>> eventClasses,
+                                                         int maxSize) {
+        List<IEvent> events = new ArrayList<>(eventClasses.size());
+        for (Class<? extends IEvent> cls : eventClasses) {
+            try {
+                Constructor<? extends IEvent> ctor = cls.getDeclaredConstructor();
+                ctor.setAccessible(true);
+                events.add(ctor.newInstance());
+            } catch (Exception e) {
+                e.printStackTrace(System.err);
+            }
+        }
+        return train(serializer, events, maxSize);
+    }
+
+    /**
+     * Trains a dictionary from sample events.
+     * @param serializer The serializer used in production to encode the events.
+     * @param events The sample events.
+     * @param maxSize The maximum size of the dictionary in bytes. See {@link #DEFAULT_SIZE}.
+     * @return The trained dictionary.
+     * @throws IllegalArgumentException If no common content is found or maxSize is invalid.
+     */
+    public static CompressionDictionary train(IEventSerializer serializer, Collection<? extends IEvent> events,
+                                              int maxSize) {
+        List<byte[]> samples = new ArrayList<>(events.size());
+        for (IEvent e : events) {
+            try {
+                samples.add(serializer.serialize(e));
+            } catch (IOException ex) {
+                ex.printStackTrace(System.err);
+            }
+        }
+        return train(samples, maxSize);
+    }
+
+    /**
+     * Trains a dictionary from sample payloads. The segments of at least 8 bytes repeated among the samples are
+     * collected and the most valuable of them (by frequency and length) are placed closest to the end of the
+     * dictionary.
+     * @param samples The sample payloads.
+     * @param maxSize The maximum size of the dictionary in bytes. See {@link #DEFAULT_SIZE}.
+     * @return The trained dictionary.
+     * @throws IllegalArgumentException If no common content is found or maxSize is invalid.
+     */
+    public static CompressionDictionary train(Collection<byte[]> samples, int maxSize) {
+        if (maxSize < 1 || maxSize > MAX_SIZE) {
+            throw new IllegalArgumentException("The dictionary size must be between 1 and " + MAX_SIZE + " bytes");
+        }
+        final int minFrequency = (samples.size() > 1 ? 2 : 1);
+
+        // the samples are handled as ISO_8859_1 strings which map the bytes 1:1 to chars
+        List<String> texts = new ArrayList<>(samples.size());
+        Map<String, Integer> gramFrequencies = new HashMap<>();
+        for (byte[] sample : samples) {
+            if (sample == null || sample.length < MIN_SEGMENT_LENGTH) continue;
+            String text = new String(sample, StandardCharsets.ISO_8859_1);
+            texts.add(text);
+            Set<String> grams = new HashSet<>();
+            for (int i = 0; i + MIN_SEGMENT_LENGTH <= text.length(); ++i) {
+                grams.add(text.substring(i, i + MIN_SEGMENT_LENGTH));
+            }
+            for (String gram : grams) {
+                gramFrequencies.merge(gram, 1, Integer::sum);
+            }
+        }
+
+        Map<String, Integer> segmentFrequencies = new HashMap<>();
+        for (String text : texts) {
+            Set<String> segments = new HashSet<>();
+            int start = -1;
+            for (int i = 0; i + MIN_SEGMENT_LENGTH <= text.length() + 1; ++i) {
+                boolean frequent = (i + MIN_SEGMENT_LENGTH <= text.length()
+                        && gramFrequencies.get(text.substring(i, i + MIN_SEGMENT_LENGTH)) >= minFrequency);
+                if (frequent && start < 0) {
+                    start = i;
+                } else if (!frequent && start >= 0) {
+                    segments.add(text.substring(start, i - 1 + MIN_SEGMENT_LENGTH));
+                    start = -1;
+                }
+            }
+            for (String segment : segments) {
+                segmentFrequencies.merge(segment, 1, Integer::sum);
+            }
+        }
+
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(segmentFrequencies.entrySet());
+        ranked.sort((a, b) -> {
+            int cmp = Long.compare((long) b.getValue() * b.getKey().length(),
+                    (long) a.getValue() * a.getKey().length());
+            return (cmp != 0 ? cmp : a.getKey().compareTo(b.getKey()));
+        });
+
+        List<String> chosen = new ArrayList<>();
+        StringBuilder all = new StringBuilder();
+        int size = 0;
+        for (Map.Entry<String, Integer> entry : ranked) {
+            String segment = entry.getKey();
+            if (size + segment.length() > maxSize) continue;
+            if (all.indexOf(segment) >= 0) continue;
+            chosen.add(segment);
+            all.append(segment);
+            size += segment.length();
+        }
+        if (chosen.isEmpty()) {
+            throw new IllegalArgumentException("No common content found in the samples");
+        }
+
+        StringBuilder content = new StringBuilder(size);
+        for (int i = chosen.size() - 1; i >= 0; --i) {
+            content.append(chosen.get(i));
+        }
+        return new CompressionDictionary(content.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompressionDictionary that = (CompressionDictionary) o;
+        return id == that.id && Arrays.equals(content, that.content);
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{ id=0x%08x, size=%d }", id, content.length);
+    }
+}
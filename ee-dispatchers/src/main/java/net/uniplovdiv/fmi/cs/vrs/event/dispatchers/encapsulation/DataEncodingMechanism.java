@@ -23,7 +23,17 @@ public enum DataEncodingMechanism {
     /**
      * BASE32 encoding mechanism indicator value. Encoding events with it is not supported.
      */
-    BASE32((byte)65);
+    BASE32((byte)65),
+
+    /**
+     * BASE64 encoding mechanism indicator value. Encoding events with it is not supported.
+     */
+    BASE64((byte)66),
+
+    /**
+     * BASE85 (Z85 alphabet) encoding mechanism indicator value. Encoding events with it is not supported.
+     */
+    BASE85((byte)67);
 
     private final byte code;
 
@@ -60,10 +70,21 @@ public enum DataEncodingMechanism {
             case 1: return JAVA;
             case 2: return JSON;
             case 65: return BASE32;
+            case 66: return BASE64;
+            case 67: return BASE85;
             default: throw new IllegalArgumentException("Not supported serialization mechanism code " + code);
         }
     }
 
+    /**
+     * Checks whether the mechanism is a binary-to-text encoding used only for nesting of data packets, which means
+     * that encoding events with it is not supported.
+     * @return True if the mechanism is used only for nesting of data packets otherwise false.
+     */
+    public boolean isNestingOnly() {
+        return (this == BASE32 || this == BASE64 || this == BASE85);
+    }
+
     /**
      * Returns the size of the code representing any enumeration in bytes.
      * @return The integer value with size of the data type in bytes.
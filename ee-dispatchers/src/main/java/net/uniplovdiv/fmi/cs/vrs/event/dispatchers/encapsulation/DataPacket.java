@@ -1,15 +1,46 @@
 package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation;
 
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.IBinaryTextEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Encapsulates data into a binary form that's suitable for transfer via various media.
+ * The payload is kept as a region of a backing array. Packets unpacked with {@link #wrap(byte[], int, int)} parse
+ * their header in place and reference the provided array without copying it, and the payload can be accessed without
+ * copies through {@link #getPayloadBuffer()} and {@link #readPayload(PayloadReader)}.
  * This class should not be inherited.
  */
 public class DataPacket {
 
+    /**
+     * Reader of the payload of a data packet, which receives the payload region of the backing array directly.
+     * The reader must not modify the array. It may keep a reference to it, like the lazy deserialization does, since
+     * the packets never modify their data.
+     * @param <R> The type of the result of the reading.
+     */
+    @FunctionalInterface
+    public interface PayloadReader<R> {
+        /**
+         * Reads the payload.
+         * @param data The backing array of the packet.
+         * @param offset The offset of the payload inside the array.
+         * @param length The length of the payload in bytes.
+         * @return The result of the reading.
+         * @throws IOException If the reading fails.
+         * @throws ClassNotFoundException If the reading involves deserialization of an unknown class.
+         */
+        R read(byte[] data, int offset, int length) throws IOException, ClassNotFoundException;
+    }
+
     /**
      * Contains the supported by DataPacket versions (effectively formats) of data packets.
      */
@@ -28,6 +59,14 @@ public class DataPacket {
          */
         NESTED((byte)65),
 
+        /**
+         * A classic packet whose payload is compressed. The format is:
+         * b_packet_version, b_serialization_mechanism_code, b_encoding_charset_name_length, ba_encoding_name,
+         * b_compression_codec_id, ba_compressed_payload.
+         * See {@link IPayloadCompressor} and {@link #CLASSIC}.
+         */
+        COMPRESSED((byte)66),
+
         /**
          * Used to designate unknown, unsupported or invalid version.
          */
@@ -63,6 +102,7 @@ public class DataPacket {
             switch (version) {
                 case 0: return CLASSIC;
                 case 65: return NESTED;
+                case 66: return COMPRESSED;
                 default:
                     return BAD;
             }
@@ -97,7 +137,20 @@ public class DataPacket {
     private Charset encoding;
     private byte[] encodingName_ISO_8859_1;
 
-    private byte[] payload;
+    // the payload is a region of the backing array, which can also contain the whole packet in its packaged form
+    private byte[] data;
+    private int packetOffset; // -1 if the backing array does not contain the packaged form
+    private int payloadOffset;
+    private int payloadLength;
+
+    private byte compressionId;
+
+    // lazily computed and cached, because the packets are immutable
+    private volatile long fingerprint;
+    private volatile boolean fingerprintComputed;
+    private volatile byte[] wireBytes;
+
+    private static final ConcurrentMap<String, Charset> charsets = new ConcurrentHashMap<>();
 
     /**
      * Internal constructor used for initialization of the structure.
@@ -107,7 +160,11 @@ public class DataPacket {
         this.dataPacketVersion = Version.CLASSIC;
         this.encoding = null;
         this.encodingName_ISO_8859_1 = null;
-        this.payload = null;
+        this.data = null;
+        this.packetOffset = -1;
+        this.payloadOffset = 0;
+        this.payloadLength = 0;
+        this.compressionId = 0;
     }
 
     /**
@@ -126,31 +183,48 @@ public class DataPacket {
         if (payload == null || payload.length == 0) {
             throw new IllegalArgumentException("The payload must be at least 1 byte long");
         }
-        if (encoding != null) {
-            if (encoding.name().length() > MAX_ENCODING_CHARSET_LENGTH) {
-                Optional<String> encName = encoding.aliases().stream()
-                        .filter(name -> name.length() <= MAX_ENCODING_CHARSET_LENGTH).findFirst();
-                if (!encName.isPresent()) {
-                    throw new IllegalArgumentException("The encoding's human readable name is longer than "
-                            + MAX_ENCODING_CHARSET_LENGTH + " symbols");
-                } else {
-                    this.encodingName_ISO_8859_1 = encName.get().getBytes(StandardCharsets.ISO_8859_1);
-                }
-            } else {
-                this.encodingName_ISO_8859_1 = encoding.name().getBytes(StandardCharsets.ISO_8859_1);
-            }
-        }
+        this.encodingName_ISO_8859_1 = encodingNameOf(encoding);
         this.dataEncodingMechanismType = dataEncodingMechanismType;
         this.encoding = encoding;
-        this.payload = payload.clone();
+        this.data = payload.clone();
+        this.payloadLength = payload.length;
         this.initSuccess = true;
     }
 
+    /**
+     * Packages data without copying the payload, which is useful when it has been just produced for e.g. by an event
+     * serializer. The payload array is referenced by the created packet, thus it must not be modified afterwards.
+     * See {@link #DataPacket(DataEncodingMechanism, Charset, byte[])}.
+     * @param dataEncodingMechanismType The serialization mechanism used to create payload.
+     * @param encoding The encoding used during the creation of payload. Can be null.
+     * @param payload The payload with the actual data.
+     * @return The created data packet.
+     * @throws IllegalArgumentException if the provided parameters cannot be packaged.
+     */
+    public static DataPacket wrapPayload(DataEncodingMechanism dataEncodingMechanismType, Charset encoding,
+                                         byte[] payload) {
+        if (dataEncodingMechanismType == null) {
+            throw new NullPointerException("Serialization mechanism must be specified");
+        }
+        if (payload == null || payload.length == 0) {
+            throw new IllegalArgumentException("The payload must be at least 1 byte long");
+        }
+        DataPacket result = new DataPacket();
+        result.encodingName_ISO_8859_1 = encodingNameOf(encoding);
+        result.dataEncodingMechanismType = dataEncodingMechanismType;
+        result.encoding = encoding;
+        result.data = payload;
+        result.payloadLength = payload.length;
+        result.initSuccess = true;
+        return result;
+    }
+
     /**
      * Constructor used for packaging of data that will be sent as a binary message through another environment.
      * To get the produced package consisting of byte data see {@link #toBytes() toBytes()} method.
      * @param dataEncodingMechanismType The serialization mechanism used to create payload.
-     * @param packetVersion The version (format) of the packet.
+     * @param packetVersion The version (format) of the packet. {@link Version#COMPRESSED} is not supported, since
+     *                      such packets are produced only by {@link #compress(IPayloadCompressor, int)}.
      * @param encoding The encoding used during the creation of payload. Can be null.
      * @param payload The payload with the actual data.
      * @throws IllegalArgumentException If the provided parameters cannot be packaged.
@@ -160,6 +234,8 @@ public class DataPacket {
         this(dataEncodingMechanismType, encoding, payload);
         if (packetVersion == null || packetVersion == Version.BAD)
             throw new IllegalArgumentException("Invalid packet version specified!");
+        if (packetVersion == Version.COMPRESSED)
+            throw new IllegalArgumentException("Compressed packets can be created only by compressing other ones!");
         this.dataPacketVersion = packetVersion;
     }
 
@@ -175,40 +251,353 @@ public class DataPacket {
      *                                                      of the Java virtual machine.
      */
     public DataPacket(byte[] data) {
+        this(data, 0, (data != null ? data.length : 0));
+    }
+
+    /**
+     * Constructor used to unpack data from a region of an array into dataPacketVersion, serializationMechanism,
+     * encoding and payload fields. See {@link #DataPacket(byte[])}.
+     *
+     * @param data The array containing the data to be unpacked.
+     * @param offset The offset of the packet inside the array.
+     * @param length The length of the packet in bytes.
+     * @throws IllegalArgumentException - If the provided parameters cannot be unpacked.
+     * @throws IndexOutOfBoundsException If the region exceeds the bounds of the array.
+     * @throws java.nio.charset.IllegalCharsetNameException If the charset inside the data is illegal.
+     * @throws java.nio.charset.UnsupportedCharsetException If no support for the charset is available in this instance
+     *                                                      of the Java virtual machine.
+     */
+    public DataPacket(byte[] data, int offset, int length) {
         this();
-        if (data == null || data.length < MIN_VALID_PACKET_LENGTH)
+        if (data == null || length < MIN_VALID_PACKET_LENGTH)
             throw new IllegalArgumentException("Malformed data packet");
-        if ((this.dataPacketVersion = Version.fromCode(data[0])) == Version.BAD)
-            throw new IllegalArgumentException(String.format("Not supported packet dataPacketVersion 0x%02X", data[0]));
+        IBinaryTextEncoder.checkRegion(data, offset, length);
+        byte[] copy = new byte[length];
+        System.arraycopy(data, offset, copy, 0, length);
+        parse(copy, 0, length);
+    }
+
+    /**
+     * Unpacks data packet without copying the data. The header is parsed in place and the created packet references
+     * the provided array, thus it must not be modified afterwards. See {@link #DataPacket(byte[], int, int)}.
+     * @param data The array containing the data to be unpacked.
+     * @param offset The offset of the packet inside the array.
+     * @param length The length of the packet in bytes.
+     * @return The unpacked data packet.
+     * @throws IllegalArgumentException - If the provided parameters cannot be unpacked.
+     * @throws IndexOutOfBoundsException If the region exceeds the bounds of the array.
+     * @throws java.nio.charset.IllegalCharsetNameException If the charset inside the data is illegal.
+     * @throws java.nio.charset.UnsupportedCharsetException If no support for the charset is available in this instance
+     *                                                      of the Java virtual machine.
+     */
+    public static DataPacket wrap(byte[] data, int offset, int length) {
+        if (data == null || length < MIN_VALID_PACKET_LENGTH)
+            throw new IllegalArgumentException("Malformed data packet");
+        IBinaryTextEncoder.checkRegion(data, offset, length);
+        DataPacket result = new DataPacket();
+        result.parse(data, offset, length);
+        return result;
+    }
+
+    /**
+     * Unpacks data packet from the remaining bytes of a buffer. If the buffer is backed by an accessible array the
+     * data is not copied, thus it must not be modified afterwards. The position of the buffer is not changed.
+     * See {@link #wrap(byte[], int, int)}.
+     * @param buffer The buffer containing the data to be unpacked.
+     * @return The unpacked data packet.
+     * @throws IllegalArgumentException - If the provided parameters cannot be unpacked.
+     * @throws java.nio.charset.IllegalCharsetNameException If the charset inside the data is illegal.
+     * @throws java.nio.charset.UnsupportedCharsetException If no support for the charset is available in this instance
+     *                                                      of the Java virtual machine.
+     */
+    public static DataPacket wrap(ByteBuffer buffer) {
+        if (buffer == null) throw new IllegalArgumentException("Malformed data packet");
+        if (buffer.hasArray()) {
+            return wrap(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return wrap(copy, 0, copy.length);
+    }
 
-        this.dataEncodingMechanismType = DataEncodingMechanism.fromCode(data[1]);
-        int encLength = Byte.toUnsignedInt(data[2]);
+    /**
+     * Parses the packaged form of a data packet, referencing the provided array.
+     * @param data The array containing the data to be unpacked.
+     * @param offset The offset of the packet inside the array.
+     * @param length The length of the packet in bytes.
+     * @throws IllegalArgumentException - If the provided parameters cannot be unpacked.
+     */
+    private void parse(byte[] data, int offset, int length) {
+        if ((this.dataPacketVersion = Version.fromCode(data[offset])) == Version.BAD)
+            throw new IllegalArgumentException(String.format("Not supported packet dataPacketVersion 0x%02X",
+                    data[offset]));
+
+        this.dataEncodingMechanismType = DataEncodingMechanism.fromCode(data[offset + 1]);
+        int encLength = Byte.toUnsignedInt(data[offset + 2]);
 
         final int FIRST_3_PACKET_FIELDS_SZ = Version.getCodeSize() + DataEncodingMechanism.getCodeSize()
                 + getEncodingNameLengthFieldByteSize();
 
-        {
-            int computedPayloadLength = data.length - (FIRST_3_PACKET_FIELDS_SZ + encLength);
-            if (computedPayloadLength < 1)
-                throw new IllegalArgumentException("Malformed data packet without payload");
-        }
+        final int compressionIdLength = (this.dataPacketVersion == Version.COMPRESSED ? 1 : 0);
+        int payloadLength = length - (FIRST_3_PACKET_FIELDS_SZ + encLength + compressionIdLength);
+        if (payloadLength < 1)
+            throw new IllegalArgumentException("Malformed data packet without payload");
 
-        int i = 0, j = FIRST_3_PACKET_FIELDS_SZ;
+        int j = offset + FIRST_3_PACKET_FIELDS_SZ;
         if (encLength > 0) {
             this.encodingName_ISO_8859_1 = new byte[encLength];
-            for ( ; i < encLength; ++i, ++j) {
-                this.encodingName_ISO_8859_1[i] = data[j];
+            System.arraycopy(data, j, this.encodingName_ISO_8859_1, 0, encLength);
+            j += encLength;
+
+            this.encoding = charsetOf(new String(this.encodingName_ISO_8859_1, StandardCharsets.ISO_8859_1));
+        }
+        if (compressionIdLength > 0) {
+            this.compressionId = data[j++];
+            if (this.compressionId == 0)
+                throw new IllegalArgumentException("Malformed compressed data packet without compression codec");
+        }
+
+        this.data = data;
+        this.packetOffset = offset;
+        this.payloadOffset = j;
+        this.payloadLength = payloadLength;
+
+        this.initSuccess = true;
+    }
+
+    /**
+     * Returns the charset with particular name, caching the result of the lookup.
+     * @param name The name of the charset.
+     * @return The charset.
+     * @throws java.nio.charset.IllegalCharsetNameException If the charset name is illegal.
+     * @throws java.nio.charset.UnsupportedCharsetException If no support for the charset is available in this instance
+     *                                                      of the Java virtual machine.
+     */
+    private static Charset charsetOf(String name) {
+        Charset charset = charsets.get(name);
+        if (charset == null) {
+            charset = Charset.forName(name);
+            if (charsets.size() < 64) {
+                charsets.put(name, charset);
             }
+        }
+        return charset;
+    }
 
-            this.encoding = Charset.forName(new String(this.encodingName_ISO_8859_1, StandardCharsets.ISO_8859_1));
+    /**
+     * Creates new packet with the same header as the current one except the version.
+     * @param version The version of the new packet.
+     * @param payload The payload of the new packet, which gets referenced.
+     * @return Initialized data packet.
+     */
+    private DataPacket derive(Version version, byte[] payload) {
+        DataPacket result = new DataPacket();
+        result.dataPacketVersion = version;
+        result.dataEncodingMechanismType = this.dataEncodingMechanismType;
+        result.encoding = this.encoding;
+        result.encodingName_ISO_8859_1 = this.encodingName_ISO_8859_1;
+        result.data = payload;
+        result.payloadLength = payload.length;
+        result.initSuccess = true;
+        return result;
+    }
+
+    /**
+     * Nests an existing data packet into a new one by encoding it with binary-to-text encoding. The packet is encoded
+     * directly into the payload of the new packet without any intermediate copies.
+     * @param packet An initialized data packet to be nested.
+     * @param dataEncodingMechanismType The data encoding mechanism designating the binary-to-text encoding. See
+     *                                  {@link DataEncodingMechanism#isNestingOnly()}.
+     * @param encoder The binary-to-text encoder corresponding to the data encoding mechanism.
+     * @return A new data packet with {@link Version#NESTED} version, containing the encoded packet in its payload and
+     *         the encoding of the nested packet.
+     * @throws NullPointerException If any of the parameters is null.
+     * @throws IllegalArgumentException If the data encoding mechanism is not used for nesting.
+     * @throws UnsupportedOperationException If the packet to be nested is not initialized successfully.
+     */
+    public static DataPacket nest(DataPacket packet, DataEncodingMechanism dataEncodingMechanismType,
+                                  IBinaryTextEncoder encoder) {
+        if (packet == null || dataEncodingMechanismType == null || encoder == null) {
+            throw new NullPointerException("Packet, data encoding mechanism and encoder must be specified");
+        }
+        if (!dataEncodingMechanismType.isNestingOnly()) {
+            throw new IllegalArgumentException("Not supported nesting data encoding mechanism "
+                    + dataEncodingMechanismType.name());
         }
 
-        this.payload = new byte [data.length - j];
-        for (i = 0; j < data.length; ++i, ++j) {
-            this.payload[i] = data[j];
+        byte[] nested;
+        int nestedOffset, nestedLength = packet.getLength();
+        if (packet.packetOffset >= 0) {
+            nested = packet.data;
+            nestedOffset = packet.packetOffset;
+        } else {
+            nested = packet.toBytes();
+            nestedOffset = 0;
         }
+        // the binary-to-text procedures work with bytes only and are not interested in any encodings, so the encoding
+        // of the nested packet is provided
+        DataPacket result = packet.derive(Version.NESTED, new byte[encoder.getEncodedLength(nestedLength)]);
+        result.dataEncodingMechanismType = dataEncodingMechanismType;
+        encoder.encode(nested, nestedOffset, nestedLength, result.data, 0);
+        return result;
+    }
 
-        this.initSuccess = true;
+    /**
+     * Extracts the data packet nested inside the current one. The payload is decoded without any intermediate copies.
+     * See {@link #nest(DataPacket, DataEncodingMechanism, IBinaryTextEncoder)}.
+     * @param encoder The binary-to-text encoder corresponding to the data encoding mechanism of the current packet.
+     * @return The nested data packet.
+     * @throws NullPointerException If the encoder is null.
+     * @throws IllegalArgumentException If the current packet is not nested or the nested packet cannot be unpacked.
+     * @throws UnsupportedOperationException If the current packet is not initialized successfully.
+     */
+    public DataPacket unnest(IBinaryTextEncoder encoder) {
+        checkInit();
+        if (encoder == null) {
+            throw new NullPointerException("Encoder must be specified");
+        }
+        if (this.dataPacketVersion != Version.NESTED || !this.dataEncodingMechanismType.isNestingOnly()) {
+            throw new IllegalArgumentException("Cannot unpack not nested data packet encoded using "
+                    + this.dataEncodingMechanismType.name() + "!");
+        }
+        byte[] nested = new byte[encoder.getMaxDecodedLength(this.payloadLength)];
+        int length = encoder.decode(this.data, this.payloadOffset, this.payloadLength, nested, 0);
+        if (length == 0) {
+            throw new IllegalArgumentException("Failed to extract nested data packet with a length of zero!");
+        }
+        return wrap(nested, 0, length);
+    }
+
+    /**
+     * Compresses the payload of the current packet if it's big enough and the compression is worth it.
+     * @param compressor The compression codec to be used. It must be registered in {@link PayloadCompressors} on the
+     *                   receiving side.
+     * @param threshold The minimum payload length in bytes that triggers the compression.
+     * @return A new data packet with {@link Version#COMPRESSED} version and the same data encoding mechanism and
+     *         encoding, or the current instance if it's not a {@link Version#CLASSIC} packet, the payload is smaller
+     *         than the threshold or the compressed payload is not smaller than the original one.
+     * @throws NullPointerException If compressor is null.
+     * @throws UnsupportedOperationException If the current packet is not initialized successfully.
+     */
+    public DataPacket compress(IPayloadCompressor compressor, int threshold) {
+        checkInit();
+        if (compressor == null) {
+            throw new NullPointerException("Compressor must be specified");
+        }
+        if (this.dataPacketVersion != Version.CLASSIC || this.payloadLength < threshold) {
+            return this;
+        }
+        byte[] compressed = compressor.compress(this.data, this.payloadOffset, this.payloadLength);
+        if (compressed == null || compressed.length == 0 || compressed.length + 1 >= this.payloadLength) {
+            return this;
+        }
+
+        DataPacket result = derive(Version.COMPRESSED, compressed);
+        result.compressionId = compressor.getId();
+        return result;
+    }
+
+    /**
+     * Decompresses the payload of the current packet using the codec registered in {@link PayloadCompressors}.
+     * @return A new {@link Version#CLASSIC} data packet with the decompressed payload or the current instance if it's
+     *         not compressed.
+     * @throws IllegalArgumentException If the compression codec is unknown or the payload is malformed.
+     * @throws UnsupportedOperationException If the current packet is not initialized successfully.
+     */
+    public DataPacket decompress() {
+        checkInit();
+        if (this.dataPacketVersion != Version.COMPRESSED) {
+            return this;
+        }
+        IPayloadCompressor compressor = PayloadCompressors.get(this.compressionId);
+        if (compressor == null) {
+            throw new IllegalArgumentException(String.format("Unknown payload compression codec 0x%02X",
+                    this.compressionId));
+        }
+        byte[] decompressed = compressor.decompress(this.data, this.payloadOffset, this.payloadLength);
+        if (decompressed == null || decompressed.length == 0) {
+            throw new IllegalArgumentException("Decompressed data packet without payload");
+        }
+        return derive(Version.CLASSIC, decompressed);
+    }
+
+    /**
+     * Checks whether the payload of the packet is compressed.
+     * @return True if the packet is with {@link Version#COMPRESSED} version otherwise false.
+     * @throws UnsupportedOperationException If the operation cannot be performed.
+     */
+    public boolean isCompressed() {
+        checkInit();
+        return this.dataPacketVersion == Version.COMPRESSED;
+    }
+
+    /**
+     * Returns the identifier of the compression codec used for the payload.
+     * @return The identifier of the codec or 0 if the payload is not compressed. See {@link IPayloadCompressor#getId()}.
+     * @throws UnsupportedOperationException If the operation cannot be performed.
+     */
+    public byte getCompressionId() {
+        checkInit();
+        return this.compressionId;
+    }
+
+    /**
+     * Returns 64-bit fingerprint of the packet computed using {@link XxHash64} over its header fields and payload.
+     * The value is computed only once and cached, so it is a cheap key for deduplication, broker record keys and
+     * metrics. Equal packets always have equal fingerprints, while different packets have different ones with a
+     * probability good enough for such purposes - the collision-safe check remains {@link #equals(Object)}.
+     * @return The fingerprint.
+     * @throws UnsupportedOperationException If the operation cannot be performed.
+     */
+    public long getFingerprint() {
+        checkInit();
+        if (!this.fingerprintComputed) {
+            long seed = ((long) this.dataPacketVersion.getCode() << 16)
+                    | ((this.dataEncodingMechanismType.getCode() & 0xFFL) << 8) | (this.compressionId & 0xFFL);
+            if (this.encoding != null) {
+                // the canonical name, since equals() compares the charsets and not the (possibly aliased) stored names
+                byte[] encodingName = this.encoding.name().getBytes(StandardCharsets.ISO_8859_1);
+                seed = XxHash64.hash(encodingName, 0, encodingName.length, seed);
+            }
+            this.fingerprint = XxHash64.hash(this.data, this.payloadOffset, this.payloadLength, seed);
+            this.fingerprintComputed = true;
+        }
+        return this.fingerprint;
+    }
+
+    /**
+     * Returns the fingerprint of the packet as a fixed-length hexadecimal string. See {@link #getFingerprint()}.
+     * @return String of 16 hexadecimal characters.
+     * @throws UnsupportedOperationException If the operation cannot be performed.
+     */
+    public String getFingerprintHex() {
+        long fp = getFingerprint();
+        char[] result = new char[16];
+        for (int i = 15; i >= 0; --i, fp >>>= 4) {
+            result[i] = hexArray[(int) (fp & 0x0F)];
+        }
+        return new String(result);
+    }
+
+
+    /**
+     * Returns the name of a charset suitable for storing inside a data packet.
+     * @param encoding The charset. Can be null.
+     * @return The ISO_8859_1 bytes of the name or null if the charset is null.
+     * @throws IllegalArgumentException If the charset has no name short enough.
+     */
+    private static byte[] encodingNameOf(Charset encoding) {
+        if (encoding == null) return null;
+        if (encoding.name().length() > MAX_ENCODING_CHARSET_LENGTH) {
+            Optional<String> encName = encoding.aliases().stream()
+                    .filter(name -> name.length() <= MAX_ENCODING_CHARSET_LENGTH).findFirst();
+            if (!encName.isPresent()) {
+                throw new IllegalArgumentException("The encoding's human readable name is longer than "
+                        + MAX_ENCODING_CHARSET_LENGTH + " symbols");
+            }
+            return encName.get().getBytes(StandardCharsets.ISO_8859_1);
+        }
+        return encoding.name().getBytes(StandardCharsets.ISO_8859_1);
     }
 
     /**
@@ -222,32 +611,142 @@ public class DataPacket {
     }
 
     /**
-     * Returns the packaged equivalent of the constructed object.
-     * @return Array of bytes.
+     * Returns the packaged equivalent of the constructed object. See also {@link #getWireBytes()}.
+     * @return New array of bytes.
      * @throws UnsupportedOperationException If the operation cannot be performed.
      */
     public byte[] toBytes() {
-        checkInit();
+        byte[] packet = new byte[getLength()];
+        writeTo(packet, 0);
+        return packet;
+    }
+
+    /**
+     * Returns the packaged equivalent of the constructed object, which is built only once and cached. Sending the same
+     * packet to many destinations reuses the same array instead of packaging the packet for each of them. If the
+     * backing array of the packet contains exactly its packaged form, for e.g. a received packet, it is returned as is.
+     * @return Array of bytes that is shared and must not be modified. Use {@link #toBytes()} to obtain a private copy.
+     * @throws UnsupportedOperationException If the operation cannot be performed.
+     */
+    public byte[] getWireBytes() {
+        byte[] result = this.wireBytes;
+        if (result == null) {
+            if (this.packetOffset == 0 && this.data.length == getLength()) {
+                result = this.data;
+            } else {
+                result = toBytes();
+            }
+            this.wireBytes = result;
+        }
+        return result;
+    }
 
+    /**
+     * Returns the length of the packaged equivalent of the constructed object.
+     * @return The length in bytes of the array returned by {@link #toBytes()}.
+     * @throws UnsupportedOperationException If the operation cannot be performed.
+     */
+    public int getLength() {
+        checkInit();
         int encLength = (this.encoding != null ? this.encodingName_ISO_8859_1.length : 0);
+        return Version.getCodeSize() + DataEncodingMechanism.getCodeSize() + getEncodingNameLengthFieldByteSize()
+                + encLength + (this.dataPacketVersion == Version.COMPRESSED ? 1 : 0) + this.payloadLength;
+    }
 
-        byte[] packet = new byte[Version.getCodeSize() + DataEncodingMechanism.getCodeSize()
-                + getEncodingNameLengthFieldByteSize() + encLength + this.payload.length];
+    /**
+     * Writes the packaged equivalent of the constructed object into a buffer.
+     * @param dst The destination buffer. Must have at least {@link #getLength()} bytes available after offset.
+     * @param offset The position in the destination buffer from which the packet will be written.
+     * @return The number of written bytes.
+     * @throws UnsupportedOperationException If the operation cannot be performed.
+     * @throws IndexOutOfBoundsException If the destination buffer is too small.
+     */
+    public int writeTo(byte[] dst, int offset) {
+        int length = getLength();
+        IBinaryTextEncoder.checkRegion(dst, offset, length);
+        if (this.packetOffset >= 0) {
+            System.arraycopy(this.data, this.packetOffset, dst, offset, length);
+            return length;
+        }
 
-        packet[0] = this.dataPacketVersion.getCode();
-        packet[1] = dataEncodingMechanismType.getCode(); // potential point for fixing in future if the length of this field is increased
-        packet[2] = (byte)encLength;
+        int j = offset + writeHeaderTo(dst, offset);
+        System.arraycopy(this.data, this.payloadOffset, dst, j, this.payloadLength);
+        return length;
+    }
 
-        int i = 0, j = 3;
-        for ( ; i < encLength; ++i, ++j) {
-            packet[j] = this.encodingName_ISO_8859_1[i];
+    /**
+     * Writes the packaged equivalent of the constructed object into a buffer.
+     * @param dst The destination buffer. Must have at least {@link #getLength()} bytes remaining. Its position gets
+     *            advanced with the number of written bytes.
+     * @return The number of written bytes.
+     * @throws UnsupportedOperationException If the operation cannot be performed.
+     * @throws BufferOverflowException If the destination buffer is too small.
+     * @throws java.nio.ReadOnlyBufferException If the destination buffer is read-only.
+     */
+    public int writeTo(ByteBuffer dst) {
+        int length = getLength();
+        if (dst.remaining() < length) {
+            throw new BufferOverflowException();
         }
+        byte[] cached = this.wireBytes;
+        if (cached != null) {
+            dst.put(cached);
+        } else if (this.packetOffset >= 0) {
+            dst.put(this.data, this.packetOffset, length);
+        } else {
+            byte[] header = new byte[length - this.payloadLength];
+            writeHeaderTo(header, 0);
+            dst.put(header);
+            dst.put(this.data, this.payloadOffset, this.payloadLength);
+        }
+        return length;
+    }
 
-        for (i = 0; i < this.payload.length; ++i, ++j) {
-            packet[j] = payload[i];
+    /**
+     * Writes the packaged equivalent of the constructed object into a stream without building it as an intermediate
+     * array.
+     * @param out The destination stream.
+     * @return The number of written bytes.
+     * @throws IOException If the writing fails.
+     * @throws UnsupportedOperationException If the operation cannot be performed.
+     */
+    public int writeTo(OutputStream out) throws IOException {
+        int length = getLength();
+        byte[] cached = this.wireBytes;
+        if (cached != null) {
+            out.write(cached);
+        } else if (this.packetOffset >= 0) {
+            out.write(this.data, this.packetOffset, length);
+        } else {
+            byte[] header = new byte[length - this.payloadLength];
+            writeHeaderTo(header, 0);
+            out.write(header);
+            out.write(this.data, this.payloadOffset, this.payloadLength);
         }
+        return length;
+    }
 
-        return packet;
+    /**
+     * Writes the header of the packaged equivalent of the constructed object, preceding the payload.
+     * @param dst The destination buffer.
+     * @param offset The position in the destination buffer from which the header will be written.
+     * @return The number of written bytes.
+     */
+    private int writeHeaderTo(byte[] dst, int offset) {
+        int encLength = (this.encoding != null ? this.encodingName_ISO_8859_1.length : 0);
+        dst[offset] = this.dataPacketVersion.getCode();
+        dst[offset + 1] = dataEncodingMechanismType.getCode(); // potential point for fixing in future if the length of this field is increased
+        dst[offset + 2] = (byte)encLength;
+
+        int j = offset + 3;
+        if (encLength > 0) {
+            System.arraycopy(this.encodingName_ISO_8859_1, 0, dst, j, encLength);
+            j += encLength;
+        }
+        if (this.dataPacketVersion == Version.COMPRESSED) {
+            dst[j++] = this.compressionId;
+        }
+        return j - offset;
     }
 
     /**
@@ -317,7 +816,43 @@ public class DataPacket {
      */
     public byte[] getPayload() {
         checkInit();
-        return payload.clone();
+        byte[] result = new byte[this.payloadLength];
+        System.arraycopy(this.data, this.payloadOffset, result, 0, this.payloadLength);
+        return result;
+    }
+
+    /**
+     * Returns the length of the contained payload.
+     * @throws UnsupportedOperationException If the operation cannot be performed.
+     * @return The length in bytes.
+     */
+    public int getPayloadLength() {
+        checkInit();
+        return this.payloadLength;
+    }
+
+    /**
+     * Returns read-only view of the contained payload without copying it.
+     * @throws UnsupportedOperationException If the operation cannot be performed.
+     * @return New read-only buffer whose position is 0 and limit is the payload length.
+     */
+    public ByteBuffer getPayloadBuffer() {
+        checkInit();
+        return ByteBuffer.wrap(this.data, this.payloadOffset, this.payloadLength).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Reads the contained payload directly from the backing array without copying it.
+     * @param reader The reader of the payload for e.g. the region deserialization method of an event serializer.
+     * @param <R> The type of the result.
+     * @return The result of the reader.
+     * @throws IOException If the reading fails.
+     * @throws ClassNotFoundException If the reading involves deserialization of an unknown class.
+     * @throws UnsupportedOperationException If the operation cannot be performed.
+     */
+    public <R> R readPayload(PayloadReader<R> reader) throws IOException, ClassNotFoundException {
+        checkInit();
+        return reader.read(this.data, this.payloadOffset, this.payloadLength);
     }
 
     @Override
@@ -326,17 +861,9 @@ public class DataPacket {
         result = 31 * result + (initSuccess ? 1 : 0);
         if (!initSuccess) return result;
 
-        result = 31 * result + (int) dataPacketVersion.getCode();
-        result = 31 * result + (int) dataEncodingMechanismType.getCode();
-        result = 31 * result + (encoding != null ? encoding.hashCode() : 0);
-        if (payload != null && payload.length > 0) {
-            for (int i = 0; i < payload.length; ++i) {
-                result = 31 * result + (int)payload[i];
-            }
-        } else {
-            result = 31 * result /*+ 0*/;
-        }
-        return result;
+        // derived from the cached fingerprint instead of iterating over the whole payload on every call
+        long fp = getFingerprint();
+        return 31 * result + (int) (fp ^ (fp >>> 32));
     }
 
     /**
@@ -359,16 +886,16 @@ public class DataPacket {
             if (this.isInitSuccess() == _obj.isInitSuccess()
                     && this.getDataPacketVersion() == _obj.getDataPacketVersion()
                     && safeEquals(this.getDataEncodingMechanismType(), _obj.getDataEncodingMechanismType())
-                    && safeEquals(this.getEncoding(), _obj.getEncoding())) {
-
-                byte[] p1 = this.getPayload();
-                byte[] p2 = _obj.getPayload();
+                    && safeEquals(this.getEncoding(), _obj.getEncoding())
+                    && this.compressionId == _obj.compressionId) {
 
-                if (p1 != p2) {
-                    if (p1 == null || p2 == null || p1.length != p2.length) return false;
-                    for (int i = 0; i < p1.length; ++i) {
-                        if (p1[i] != p2[i]) return false;
-                    }
+                if (this.payloadLength != _obj.payloadLength) return false;
+                if (this.fingerprintComputed && _obj.fingerprintComputed && this.fingerprint != _obj.fingerprint) {
+                    return false;
+                }
+                for (int i = this.payloadOffset, j = _obj.payloadOffset, end = i + this.payloadLength; i < end;
+                     ++i, ++j) {
+                    if (this.data[i] != _obj.data[j]) return false;
                 }
                 return true;
             }
@@ -406,9 +933,9 @@ public class DataPacket {
     public String toString() {
         return String.format(
                 "{ initSuccess=%s, dataPacketVersion=0x%02x/%s, dataEncodingMechanismType=0x%02x/%s, encoding=%s, "
-                + "payload=%s }", initSuccess, dataPacketVersion.getCode(), dataPacketVersion.name(),
-                dataEncodingMechanismType.getCode(), dataEncodingMechanismType.name(), encoding,
-                bytesToHexJavaCsv(payload)
+                + "compressionId=0x%02x, payload=%s }", initSuccess, dataPacketVersion.getCode(),
+                dataPacketVersion.name(), dataEncodingMechanismType.getCode(), dataEncodingMechanismType.name(),
+                encoding, compressionId, bytesToHexJavaCsv(initSuccess ? getPayload() : null)
         );
     }
 }
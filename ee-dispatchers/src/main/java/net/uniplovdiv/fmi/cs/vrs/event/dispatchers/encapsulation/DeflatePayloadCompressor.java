@@ -0,0 +1,218 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Pure Java payload compression codec based on the Deflate algorithm provided by {@link java.util.zip}. The compressed
+ * data is prefixed with the 4 byte big-endian length of the original data, followed by raw Deflate stream. The
+ * deflaters and inflaters are reused per thread. See {@link DictionaryDeflatePayloadCompressor} for small payloads.
+ * The length prefix comes from the received data, thus it is not trusted - payloads declaring more than the maximum
+ * decompressed length are rejected and the output buffer grows with the actually inflated data instead of being
+ * allocated up front. To change the maximum of the received packets register an instance with another one through
+ * {@link PayloadCompressors#register(IPayloadCompressor)}.
+ */
+public class DeflatePayloadCompressor implements IPayloadCompressor {
+
+    /**
+     * The identifier of the codec.
+     */
+    public static final byte ID = 1;
+
+    /**
+     * The size of the original data length prefix in bytes.
+     */
+    protected static final int LENGTH_PREFIX_SIZE = Integer.BYTES;
+
+    /**
+     * The default maximum length in bytes of the decompressed data - 64 MiB.
+     */
+    public static final int DEFAULT_MAX_DECOMPRESSED_LENGTH = 64 * 1024 * 1024;
+
+    private static final int MIN_INFLATE_BUFFER_SIZE = 1024;
+
+    private final int level;
+    private final int maxDecompressedLength;
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters;
+
+    /**
+     * Constructor using {@link Deflater#BEST_SPEED} compression level.
+     */
+    public DeflatePayloadCompressor() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Constructor.
+     * @param level The compression level from 0 to 9 or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @throws IllegalArgumentException If the compression level is invalid.
+     */
+    public DeflatePayloadCompressor(int level) {
+        this(level, DEFAULT_MAX_DECOMPRESSED_LENGTH);
+    }
+
+    /**
+     * Constructor.
+     * @param level The compression level from 0 to 9 or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param maxDecompressedLength The maximum length in bytes of the decompressed data. Must be a positive number.
+     * @throws IllegalArgumentException If the compression level or the maximum length is invalid.
+     */
+    public DeflatePayloadCompressor(int level, int maxDecompressedLength) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+        if (maxDecompressedLength <= 0) {
+            throw new IllegalArgumentException("Invalid maximum decompressed length " + maxDecompressedLength);
+        }
+        this.level = level;
+        this.maxDecompressedLength = maxDecompressedLength;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(this.level, true));
+        this.inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+    }
+
+    /**
+     * Returns the used compression level.
+     * @return The compression level from 0 to 9 or {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the maximum length of the decompressed data.
+     * @return Positive number of bytes.
+     */
+    public int getMaxDecompressedLength() {
+        return maxDecompressedLength;
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return "deflate";
+    }
+
+    @Override
+    public byte[] compress(byte[] data, int offset, int length) {
+        return deflate(data, offset, length, null, 0);
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int offset, int length) {
+        return inflate(data, offset, length, null, 0);
+    }
+
+    /**
+     * Compresses a region of data.
+     * @param data The data to be compressed. Cannot be null.
+     * @param offset The offset of the first byte to be compressed.
+     * @param length The number of bytes to be compressed.
+     * @param dictionary Preset dictionary for the compression. Can be null.
+     * @param extraHeaderSize The number of bytes to be reserved after the length prefix for the needs of the
+     *                        inheritors.
+     * @return New array with the length prefix, the reserved bytes and the compressed data.
+     */
+    protected byte[] deflate(byte[] data, int offset, int length, byte[] dictionary, int extraHeaderSize) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary);
+        }
+        deflater.setInput(data, offset, length);
+        deflater.finish();
+
+        // the worst case of deflate with stored blocks is about 5 bytes per 16K block plus some header bytes
+        final int headerSize = LENGTH_PREFIX_SIZE + extraHeaderSize;
+        byte[] buffer = new byte[headerSize + length + (length >>> 12) + 16];
+        writeLength(buffer, length);
+        int written = headerSize;
+        while (!deflater.finished()) {
+            if (written == buffer.length) {
+                byte[] bigger = new byte[buffer.length + (buffer.length >>> 1) + 1];
+                System.arraycopy(buffer, 0, bigger, 0, written);
+                buffer = bigger;
+            }
+            written += deflater.deflate(buffer, written, buffer.length - written);
+        }
+
+        if (written == buffer.length) return buffer;
+        byte[] result = new byte[written];
+        System.arraycopy(buffer, 0, result, 0, written);
+        return result;
+    }
+
+    /**
+     * Decompresses a region of data compressed by {@link #deflate(byte[], int, int, byte[], int)}.
+     * @param data The data to be decompressed. Cannot be null.
+     * @param offset The offset of the first byte to be decompressed.
+     * @param length The number of bytes to be decompressed.
+     * @param dictionary The preset dictionary used during the compression. Can be null.
+     * @param extraHeaderSize The number of bytes reserved after the length prefix by the inheritors.
+     * @return New array with the decompressed data.
+     * @throws IllegalArgumentException If the data is malformed or its declared original length exceeds
+     *                                  {@link #getMaxDecompressedLength()}.
+     */
+    protected byte[] inflate(byte[] data, int offset, int length, byte[] dictionary, int extraHeaderSize) {
+        final int headerSize = LENGTH_PREFIX_SIZE + extraHeaderSize;
+        if (length < headerSize) {
+            throw new IllegalArgumentException("Malformed deflate payload without header");
+        }
+        int originalLength = ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+        if (originalLength < 0) {
+            throw new IllegalArgumentException("Malformed deflate payload with length " + originalLength);
+        }
+        if (originalLength > maxDecompressedLength) {
+            throw new IllegalArgumentException("Deflate payload length " + originalLength + " exceeds the maximum "
+                    + maxDecompressedLength);
+        }
+
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        if (dictionary != null) {
+            inflater.setDictionary(dictionary);
+        }
+        inflater.setInput(data, offset + headerSize, length - headerSize);
+        // deflate rarely exceeds a ratio of 1:16, so larger declared lengths are reached by growing the buffer
+        long expected = Math.max(MIN_INFLATE_BUFFER_SIZE, 16L * (length - headerSize));
+        byte[] result = new byte[(int) Math.min(originalLength, expected)];
+        try {
+            int read = 0;
+            while (read < originalLength && !inflater.finished()) {
+                if (read == result.length) {
+                    byte[] bigger = new byte[(int) Math.min(originalLength, 2L * result.length)];
+                    System.arraycopy(result, 0, bigger, 0, read);
+                    result = bigger;
+                }
+                int n = inflater.inflate(result, read, result.length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                read += n;
+            }
+            if (read != originalLength) {
+                throw new IllegalArgumentException("Truncated deflate payload - expected " + originalLength
+                        + " bytes, got " + read);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Malformed deflate payload", e);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the length prefix in the beginning of a buffer.
+     * @param buffer The buffer. Must be at least 4 bytes long.
+     * @param length The length to be written.
+     */
+    private static void writeLength(byte[] buffer, int length) {
+        buffer[0] = (byte) (length >>> 24);
+        buffer[1] = (byte) (length >>> 16);
+        buffer[2] = (byte) (length >>> 8);
+        buffer[3] = (byte) length;
+    }
+}
@@ -0,0 +1,102 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation;
+
+import java.util.zip.Deflater;
+
+/**
+ * Payload compression codec based on the Deflate algorithm with a preset {@link CompressionDictionary}, suitable for
+ * small payloads, which general-purpose compression handles poorly. The compressed data is prefixed with the 4 byte
+ * big-endian length of the original data and the 4 byte big-endian identifier of the used dictionary (0 if none),
+ * followed by raw Deflate stream. Decompression requires the dictionary to be registered - see
+ * {@link CompressionDictionary#register(CompressionDictionary)} and {@link CompressionDictionary#load}.
+ */
+public class DictionaryDeflatePayloadCompressor extends DeflatePayloadCompressor {
+
+    /**
+     * The identifier of the codec.
+     */
+    public static final byte ID = 2;
+
+    private static final int DICTIONARY_ID_SIZE = Integer.BYTES;
+
+    private final CompressionDictionary dictionary;
+
+    /**
+     * Constructor using {@link Deflater#BEST_SPEED} compression level.
+     * @param dictionary The dictionary used for compression. It gets registered. If null no dictionary is used.
+     */
+    public DictionaryDeflatePayloadCompressor(CompressionDictionary dictionary) {
+        this(dictionary, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Constructor.
+     * @param dictionary The dictionary used for compression. It gets registered. If null no dictionary is used.
+     * @param level The compression level from 0 to 9 or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @throws IllegalArgumentException If the compression level is invalid.
+     */
+    public DictionaryDeflatePayloadCompressor(CompressionDictionary dictionary, int level) {
+        this(dictionary, level, DEFAULT_MAX_DECOMPRESSED_LENGTH);
+    }
+
+    /**
+     * Constructor.
+     * @param dictionary The dictionary used for compression. It gets registered. If null no dictionary is used.
+     * @param level The compression level from 0 to 9 or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param maxDecompressedLength The maximum length in bytes of the decompressed data. Must be a positive number.
+     * @throws IllegalArgumentException If the compression level or the maximum length is invalid.
+     */
+    public DictionaryDeflatePayloadCompressor(CompressionDictionary dictionary, int level, int maxDecompressedLength) {
+        super(level, maxDecompressedLength);
+        this.dictionary = (dictionary != null ? CompressionDictionary.register(dictionary) : null);
+    }
+
+    /**
+     * Returns the dictionary used for compression.
+     * @return The dictionary or null if none.
+     */
+    public CompressionDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return "deflate-dictionary";
+    }
+
+    @Override
+    public byte[] compress(byte[] data, int offset, int length) {
+        byte[] result = deflate(data, offset, length, (dictionary != null ? dictionary.content() : null),
+                DICTIONARY_ID_SIZE);
+        int dictionaryId = (dictionary != null ? dictionary.getId() : 0);
+        result[LENGTH_PREFIX_SIZE] = (byte) (dictionaryId >>> 24);
+        result[LENGTH_PREFIX_SIZE + 1] = (byte) (dictionaryId >>> 16);
+        result[LENGTH_PREFIX_SIZE + 2] = (byte) (dictionaryId >>> 8);
+        result[LENGTH_PREFIX_SIZE + 3] = (byte) dictionaryId;
+        return result;
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int offset, int length) {
+        if (length < LENGTH_PREFIX_SIZE + DICTIONARY_ID_SIZE) {
+            throw new IllegalArgumentException("Malformed deflate payload without header");
+        }
+        int i = offset + LENGTH_PREFIX_SIZE;
+        int dictionaryId = ((data[i] & 0xFF) << 24) | ((data[i + 1] & 0xFF) << 16) | ((data[i + 2] & 0xFF) << 8)
+                | (data[i + 3] & 0xFF);
+        byte[] dictionaryContent = null;
+        if (dictionaryId != 0) {
+            CompressionDictionary d = CompressionDictionary.get(dictionaryId);
+            if (d == null) {
+                throw new IllegalArgumentException(String.format("Unknown compression dictionary 0x%08x",
+                        dictionaryId));
+            }
+            dictionaryContent = d.content();
+        }
+        return inflate(data, offset, length, dictionaryContent, DICTIONARY_ID_SIZE);
+    }
+}
@@ -0,0 +1,41 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation;
+
+/**
+ * Service provider interface for compression codecs applied over the payload of {@link DataPacket}. The codec used
+ * for particular packet is identified by its {@link #getId() identifier} stored in the packet header, thus each
+ * implementation must use an unique one. Implementations are discovered via {@link java.util.ServiceLoader} or
+ * registered manually - see {@link PayloadCompressors}. All of the implementations must be thread-safe.
+ */
+public interface IPayloadCompressor {
+
+    /**
+     * Returns the identifier of the codec stored in the header of the compressed data packets.
+     * @return A non-zero byte value. The values from 1 to 15 are reserved for the built-in codecs.
+     */
+    byte getId();
+
+    /**
+     * Returns human readable name of the codec.
+     * @return Nonnull string.
+     */
+    String getName();
+
+    /**
+     * Compresses a region of data.
+     * @param data The data to be compressed. Cannot be null.
+     * @param offset The offset of the first byte to be compressed.
+     * @param length The number of bytes to be compressed.
+     * @return New array with the compressed data.
+     */
+    byte[] compress(byte[] data, int offset, int length);
+
+    /**
+     * Decompresses a region of data compressed by {@link #compress(byte[], int, int)}.
+     * @param data The data to be decompressed. Cannot be null.
+     * @param offset The offset of the first byte to be decompressed.
+     * @param length The number of bytes to be decompressed.
+     * @return New array with the decompressed data.
+     * @throws IllegalArgumentException If the data is malformed.
+     */
+    byte[] decompress(byte[] data, int offset, int length);
+}
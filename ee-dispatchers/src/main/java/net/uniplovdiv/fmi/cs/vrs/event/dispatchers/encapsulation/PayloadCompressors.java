@@ -0,0 +1,72 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Process-wide registry of the payload compression codecs, used to find the codec by the identifier stored in the
+ * header of a compressed {@link DataPacket}. The built-in {@link DeflatePayloadCompressor} and
+ * {@link DictionaryDeflatePayloadCompressor} (able to decompress with any registered dictionary) are always registered.
+ * The implementations of {@link IPayloadCompressor} provided via {@link ServiceLoader} are registered during the first
+ * usage of the class, and others can be registered manually with {@link #register(IPayloadCompressor)}.
+ */
+public final class PayloadCompressors {
+
+    private static final AtomicReferenceArray<IPayloadCompressor> compressors = new AtomicReferenceArray<>(256);
+
+    static {
+        register(new DeflatePayloadCompressor());
+        register(new DictionaryDeflatePayloadCompressor(null));
+        try {
+            for (IPayloadCompressor compressor : ServiceLoader.load(IPayloadCompressor.class)) {
+                register(compressor);
+            }
+        } catch (ServiceConfigurationError | IllegalArgumentException e) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    private PayloadCompressors() {
+    }
+
+    /**
+     * Registers a compression codec, replacing any other with the same identifier.
+     * @param compressor The codec to be registered.
+     * @throws NullPointerException If compressor is null.
+     * @throws IllegalArgumentException If the identifier of the codec is 0.
+     */
+    public static void register(IPayloadCompressor compressor) {
+        if (compressor == null) {
+            throw new NullPointerException("Null compressor");
+        }
+        if (compressor.getId() == 0) {
+            throw new IllegalArgumentException("Compressor " + compressor.getName() + " uses the reserved id 0");
+        }
+        compressors.set(Byte.toUnsignedInt(compressor.getId()), compressor);
+    }
+
+    /**
+     * Returns the codec with particular identifier.
+     * @param id The identifier of the codec.
+     * @return The registered codec or null if there is no such.
+     */
+    public static IPayloadCompressor get(byte id) {
+        return compressors.get(Byte.toUnsignedInt(id));
+    }
+
+    /**
+     * Returns all of the registered codecs.
+     * @return Nonnull list of codecs ordered by their identifiers.
+     */
+    public static List<IPayloadCompressor> getAll() {
+        List<IPayloadCompressor> result = new ArrayList<>();
+        for (int i = 0; i < compressors.length(); ++i) {
+            IPayloadCompressor c = compressors.get(i);
+            if (c != null) result.add(c);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,172 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation;
+
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.IEventSerializer;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.JavaEventSerializer;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.JsonEventSerializer;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.Base32Encoder;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.Base64Encoder;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.Base85Encoder;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.EventSchemaRegistry;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.IBinaryTextEncoder;
+
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process-wide registry of event serializers shared between all dispatchers and threads. The serializers are keyed by
+ * the data encoding mechanism, the charset and the packages containing custom events, and are created (including their
+ * event classes lookup) only once per key. All of the provided instances are thread-safe. The JSON serializers have
+ * their automatic class registration mode turned on, use {@link EventSchemaRegistry#getDefault()} to adapt events
+ * produced by other versions of their classes and have their configuration locked (see
+ * {@link JsonEventSerializer#lockConfiguration()}), so a caller cannot change the behaviour of the serializers used by
+ * the rest. The Java serializer has no configuration at all.
+ */
+public final class SerializerRegistry {
+
+    private static final ConcurrentMap<Key, IEventSerializer> serializers = new ConcurrentHashMap<>();
+    private static final JavaEventSerializer javaEventSerializer = new JavaEventSerializer();
+    private static final Base32Encoder base32Encoder = new Base32Encoder();
+    private static final Base64Encoder base64Encoder = new Base64Encoder();
+    private static final Base85Encoder base85Encoder = new Base85Encoder();
+
+    /**
+     * Identifies a particular serializer configuration.
+     */
+    private static final class Key {
+        private final DataEncodingMechanism mechanism;
+        private final Charset charset;
+        private final List<String> packages;
+
+        Key(DataEncodingMechanism mechanism, Charset charset, String[] packages) {
+            this.mechanism = mechanism;
+            this.charset = charset;
+            if (packages == null || packages.length == 0) {
+                this.packages = Collections.emptyList();
+            } else {
+                TreeSet<String> unique = new TreeSet<>();
+                for (String p : packages) {
+                    if (p != null) unique.add(p);
+                }
+                this.packages = new ArrayList<>(unique);
+            }
+        }
+
+        String[] getPackages() {
+            return (packages.isEmpty() ? null : packages.toArray(new String[0]));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return mechanism == key.mechanism && Objects.equals(charset, key.charset)
+                    && packages.equals(key.packages);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mechanism, charset, packages);
+        }
+    }
+
+    private SerializerRegistry() {
+    }
+
+    /**
+     * Returns a shared serializer for the specified data encoding mechanism.
+     * @param mechanism The data encoding mechanism. Only {@link DataEncodingMechanism#JAVA} and
+     *                  {@link DataEncodingMechanism#JSON} are supported.
+     * @param charset The charset used by the serializer. Ignored for {@link DataEncodingMechanism#JAVA}. If null
+     *                {@link JsonEventSerializer#getDefaultEncoding()} is used for {@link DataEncodingMechanism#JSON}.
+     * @param packagesWithEvents Array of full package names containing custom IEvent implementations. Can be null.
+     * @return An initialized, thread-safe serializer instance.
+     * @throws IllegalArgumentException If the data encoding mechanism is not supported or is null.
+     */
+    public static IEventSerializer get(DataEncodingMechanism mechanism, Charset charset, String[] packagesWithEvents) {
+        if (mechanism == null) {
+            throw new IllegalArgumentException("Null data encoding mechanism!");
+        }
+        switch (mechanism) {
+            case JAVA:
+                return javaEventSerializer;
+            case JSON:
+                return getJson(charset, packagesWithEvents);
+            default:
+                throw new IllegalArgumentException("No event serializer for data encoding mechanism " + mechanism);
+        }
+    }
+
+    /**
+     * Returns a shared JSON serializer.
+     * @param charset The charset used by the serializer. If null {@link JsonEventSerializer#getDefaultEncoding()} is
+     *                used.
+     * @param packagesWithEvents Array of full package names containing custom IEvent implementations. Can be null.
+     * @return An initialized, thread-safe serializer instance with turned on automatic class registration mode, the
+     *         default schema registry and locked configuration.
+     */
+    public static JsonEventSerializer getJson(Charset charset, String[] packagesWithEvents) {
+        Key key = new Key(DataEncodingMechanism.JSON,
+                (charset != null ? charset : JsonEventSerializer.getDefaultEncoding()), packagesWithEvents);
+        return (JsonEventSerializer) serializers.computeIfAbsent(key, k -> {
+            JsonEventSerializer res = new JsonEventSerializer(k.charset, null, null, k.getPackages());
+            res.setAttemptAutomaticClassRegistration(true);
+            res.setSchemaRegistry(EventSchemaRegistry.getDefault());
+            res.lockConfiguration();
+            return res;
+        });
+    }
+
+    /**
+     * Returns the shared Java serializer.
+     * @return An initialized, thread-safe serializer instance.
+     */
+    public static JavaEventSerializer getJava() {
+        return javaEventSerializer;
+    }
+
+    /**
+     * Returns the shared BASE32 encoder.
+     * @return An initialized, thread-safe encoder instance.
+     */
+    public static Base32Encoder getBase32Encoder() {
+        return base32Encoder;
+    }
+
+    /**
+     * Returns the shared binary-to-text encoder for a data encoding mechanism used for nesting of data packets.
+     * @param mechanism The data encoding mechanism. See {@link DataEncodingMechanism#isNestingOnly()}.
+     * @return An initialized, thread-safe encoder instance or null if the mechanism is not a binary-to-text encoding.
+     */
+    public static IBinaryTextEncoder getTextEncoder(DataEncodingMechanism mechanism) {
+        if (mechanism == null) return null;
+        switch (mechanism) {
+            case BASE32: return base32Encoder;
+            case BASE64: return base64Encoder;
+            case BASE85: return base85Encoder;
+            default: return null;
+        }
+    }
+
+    /**
+     * Creates in advance the serializer for the specified configuration, so the first de/serialization using it does
+     * not suffer from the initialization costs.
+     * @param mechanism The data encoding mechanism. Mechanisms without event serializers are ignored.
+     * @param charset The charset used by the serializer. Can be null.
+     * @param packagesWithEvents Array of full package names containing custom IEvent implementations. Can be null.
+     */
+    public static void warmUp(DataEncodingMechanism mechanism, Charset charset, String[] packagesWithEvents) {
+        if (mechanism == DataEncodingMechanism.JAVA || mechanism == DataEncodingMechanism.JSON) {
+            get(mechanism, charset, packagesWithEvents);
+        }
+    }
+
+    /**
+     * Removes all of the cached serializers. Instances already obtained remain usable.
+     */
+    public static void clear() {
+        serializers.clear();
+    }
+}
@@ -0,0 +1,120 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation;
+
+/**
+ * Implementation of the 64-bit xxHash non-cryptographic hash function (XXH64). It is fast, has excellent distribution
+ * and is suitable for fingerprinting of data packets. The results are identical to the ones of the reference
+ * implementation. The class is thread-safe.
+ */
+public final class XxHash64 {
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private XxHash64() {
+    }
+
+    /**
+     * Computes the hash of a region of data.
+     * @param data The data. Cannot be null.
+     * @param offset The offset of the first byte to be hashed.
+     * @param length The number of bytes to be hashed.
+     * @param seed The seed of the hash.
+     * @return The 64-bit hash value.
+     * @throws IndexOutOfBoundsException If the region exceeds the bounds of the array.
+     */
+    public static long hash(byte[] data, int offset, int length, long seed) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("Region [" + offset + ", " + offset + " + " + length
+                    + ") is out of bounds for length " + data.length);
+        }
+
+        int i = offset;
+        final int end = offset + length;
+        long h;
+
+        if (length >= 32) {
+            long v1 = seed + PRIME64_1 + PRIME64_2;
+            long v2 = seed + PRIME64_2;
+            long v3 = seed;
+            long v4 = seed - PRIME64_1;
+            for (final int limit = end - 32; i <= limit; i += 32) {
+                v1 = round(v1, readLong(data, i));
+                v2 = round(v2, readLong(data, i + 8));
+                v3 = round(v3, readLong(data, i + 16));
+                v4 = round(v4, readLong(data, i + 24));
+            }
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = seed + PRIME64_5;
+        }
+
+        h += length;
+
+        for ( ; i <= end - 8; i += 8) {
+            h ^= round(0, readLong(data, i));
+            h = Long.rotateLeft(h, 27) * PRIME64_1 + PRIME64_4;
+        }
+        if (i <= end - 4) {
+            h ^= (readInt(data, i) & 0xFFFFFFFFL) * PRIME64_1;
+            h = Long.rotateLeft(h, 23) * PRIME64_2 + PRIME64_3;
+            i += 4;
+        }
+        for ( ; i < end; ++i) {
+            h ^= (data[i] & 0xFFL) * PRIME64_5;
+            h = Long.rotateLeft(h, 11) * PRIME64_1;
+        }
+
+        return avalanche(h);
+    }
+
+    /**
+     * Computes the hash of data.
+     * @param data The data. Cannot be null.
+     * @return The 64-bit hash value using seed 0.
+     */
+    public static long hash(byte[] data) {
+        return hash(data, 0, data.length, 0);
+    }
+
+    /**
+     * Mixes a 64-bit value into well distributed one using the final avalanche step of the hash function.
+     * @param value The value to be mixed.
+     * @return The mixed value.
+     */
+    public static long avalanche(long value) {
+        value ^= value >>> 33;
+        value *= PRIME64_2;
+        value ^= value >>> 29;
+        value *= PRIME64_3;
+        value ^= value >>> 32;
+        return value;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long mergeRound(long acc, long val) {
+        acc ^= round(0, val);
+        return acc * PRIME64_1 + PRIME64_4;
+    }
+
+    private static long readLong(byte[] data, int i) {
+        return (data[i] & 0xFFL) | ((data[i + 1] & 0xFFL) << 8) | ((data[i + 2] & 0xFFL) << 16)
+                | ((data[i + 3] & 0xFFL) << 24) | ((data[i + 4] & 0xFFL) << 32) | ((data[i + 5] & 0xFFL) << 40)
+                | ((data[i + 6] & 0xFFL) << 48) | ((data[i + 7] & 0xFFL) << 56);
+    }
+
+    private static int readInt(byte[] data, int i) {
+        return (data[i] & 0xFF) | ((data[i + 1] & 0xFF) << 8) | ((data[i + 2] & 0xFF) << 16)
+                | ((data[i + 3] & 0xFF) << 24);
+    }
+}
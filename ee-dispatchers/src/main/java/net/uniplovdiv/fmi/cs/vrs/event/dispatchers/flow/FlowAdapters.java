@@ -0,0 +1,215 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.flow;
+
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventFlow;
+
+import java.util.concurrent.Flow;
+
+/**
+ * Converts the publishers and subscribers of {@link EventFlow} to the ones of {@link Flow} and vice versa, so the
+ * events of a dispatcher can be consumed by, or sent from, any Flow compatible library. For example
+ * {@code FlowAdapters.toFlowPublisher(dispatcher.toPublisher(settings))} publishes the received events, while
+ * {@code FlowAdapters.toFlowSubscriber(new EventFlowSubscriber(dispatcher, window))} sends the events it is given. The
+ * adapters only delegate, so the semantics of the adapted components are preserved. Converting an adapter back
+ * returns the original component.
+ */
+public final class FlowAdapters {
+
+    private FlowAdapters() {
+    }
+
+    /**
+     * Converts publisher to a Flow publisher.
+     * @param publisher The publisher to be converted. Cannot be null.
+     * @param <T> The published item type.
+     * @return Initialized Flow publisher.
+     * @throws NullPointerException If publisher is null.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Flow.Publisher<T> toFlowPublisher(EventFlow.Publisher<T> publisher) {
+        if (publisher == null) {
+            throw new NullPointerException("Null publisher specified");
+        }
+        if (publisher instanceof EventFlowPublisherFromFlow) {
+            return ((EventFlowPublisherFromFlow<T>) publisher).flowPublisher;
+        }
+        return new FlowPublisherFromEventFlow<>(publisher);
+    }
+
+    /**
+     * Converts Flow publisher to a publisher.
+     * @param flowPublisher The Flow publisher to be converted. Cannot be null.
+     * @param <T> The published item type.
+     * @return Initialized publisher.
+     * @throws NullPointerException If flowPublisher is null.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EventFlow.Publisher<T> toEventFlowPublisher(Flow.Publisher<T> flowPublisher) {
+        if (flowPublisher == null) {
+            throw new NullPointerException("Null publisher specified");
+        }
+        if (flowPublisher instanceof FlowPublisherFromEventFlow) {
+            return ((FlowPublisherFromEventFlow<T>) flowPublisher).publisher;
+        }
+        return new EventFlowPublisherFromFlow<>(flowPublisher);
+    }
+
+    /**
+     * Converts subscriber to a Flow subscriber.
+     * @param subscriber The subscriber to be converted. Cannot be null.
+     * @param <T> The subscribed item type.
+     * @return Initialized Flow subscriber.
+     * @throws NullPointerException If subscriber is null.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Flow.Subscriber<T> toFlowSubscriber(EventFlow.Subscriber<T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Null subscriber specified");
+        }
+        if (subscriber instanceof EventFlowSubscriberFromFlow) {
+            return (Flow.Subscriber<T>) ((EventFlowSubscriberFromFlow<T>) subscriber).flowSubscriber;
+        }
+        return new FlowSubscriberFromEventFlow<>(subscriber);
+    }
+
+    /**
+     * Converts Flow subscriber to a subscriber.
+     * @param flowSubscriber The Flow subscriber to be converted. Cannot be null.
+     * @param <T> The subscribed item type.
+     * @return Initialized subscriber.
+     * @throws NullPointerException If flowSubscriber is null.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EventFlow.Subscriber<T> toEventFlowSubscriber(Flow.Subscriber<T> flowSubscriber) {
+        if (flowSubscriber == null) {
+            throw new NullPointerException("Null subscriber specified");
+        }
+        if (flowSubscriber instanceof FlowSubscriberFromEventFlow) {
+            return (EventFlow.Subscriber<T>) ((FlowSubscriberFromEventFlow<T>) flowSubscriber).subscriber;
+        }
+        return new EventFlowSubscriberFromFlow<>(flowSubscriber);
+    }
+
+    private static final class FlowPublisherFromEventFlow<T> implements Flow.Publisher<T> {
+        final EventFlow.Publisher<T> publisher;
+
+        FlowPublisherFromEventFlow(EventFlow.Publisher<T> publisher) {
+            this.publisher = publisher;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super T> subscriber) {
+            if (subscriber == null) {
+                throw new NullPointerException("Null subscriber specified");
+            }
+            publisher.subscribe(new EventFlowSubscriberFromFlow<>(subscriber));
+        }
+    }
+
+    private static final class EventFlowPublisherFromFlow<T> implements EventFlow.Publisher<T> {
+        final Flow.Publisher<T> flowPublisher;
+
+        EventFlowPublisherFromFlow(Flow.Publisher<T> flowPublisher) {
+            this.flowPublisher = flowPublisher;
+        }
+
+        @Override
+        public void subscribe(EventFlow.Subscriber<? super T> subscriber) {
+            if (subscriber == null) {
+                throw new NullPointerException("Null subscriber specified");
+            }
+            flowPublisher.subscribe(new FlowSubscriberFromEventFlow<>(subscriber));
+        }
+    }
+
+    private static final class FlowSubscriberFromEventFlow<T> implements Flow.Subscriber<T> {
+        final EventFlow.Subscriber<? super T> subscriber;
+
+        FlowSubscriberFromEventFlow(EventFlow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscriber.onSubscribe(subscription == null ? null : new EventFlowSubscriptionFromFlow(subscription));
+        }
+
+        @Override
+        public void onNext(T item) {
+            subscriber.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            subscriber.onComplete();
+        }
+    }
+
+    private static final class EventFlowSubscriberFromFlow<T> implements EventFlow.Subscriber<T> {
+        final Flow.Subscriber<? super T> flowSubscriber;
+
+        EventFlowSubscriberFromFlow(Flow.Subscriber<? super T> flowSubscriber) {
+            this.flowSubscriber = flowSubscriber;
+        }
+
+        @Override
+        public void onSubscribe(EventFlow.Subscription subscription) {
+            flowSubscriber.onSubscribe(subscription == null ? null : new FlowSubscriptionFromEventFlow(subscription));
+        }
+
+        @Override
+        public void onNext(T item) {
+            flowSubscriber.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            flowSubscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            flowSubscriber.onComplete();
+        }
+    }
+
+    private static final class FlowSubscriptionFromEventFlow implements Flow.Subscription {
+        private final EventFlow.Subscription subscription;
+
+        FlowSubscriptionFromEventFlow(EventFlow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void request(long n) {
+            subscription.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            subscription.cancel();
+        }
+    }
+
+    private static final class EventFlowSubscriptionFromFlow implements EventFlow.Subscription {
+        private final Flow.Subscription subscription;
+
+        EventFlowSubscriptionFromFlow(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void request(long n) {
+            subscription.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            subscription.cancel();
+        }
+    }
+}
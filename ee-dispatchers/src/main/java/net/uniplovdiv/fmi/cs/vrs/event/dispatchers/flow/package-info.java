@@ -0,0 +1,5 @@
+/**
+ * Provides adapters between the flow-controlled components of the dispatchers and java.util.concurrent.Flow. Compiled
+ * only on Java 9 and later.
+ */
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.flow;
@@ -20,4 +20,7 @@ module net.uniplovdiv.fmi.cs.vrs.event.dispatchers {
     exports net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.activemq;
     exports net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka;
     exports net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation;
+    exports net.uniplovdiv.fmi.cs.vrs.event.dispatchers.flow;
+
+    uses net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.IPayloadCompressor;
 }
\ No newline at end of file
@@ -0,0 +1,387 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.activemq;
+
+import net.uniplovdiv.fmi.cs.vrs.event.DomainEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.Event;
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.PartitionKeyExtractors;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.DispatchingType;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataEncodingMechanism;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.JsonEventSerializer;
+import org.apache.activemq.ActiveMQConnection;
+import org.apache.activemq.ActiveMQSession;
+import org.apache.activemq.management.JMSStatsImpl;
+import org.apache.activemq.transport.Transport;
+import org.apache.activemq.util.IdGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import javax.jms.DeliveryMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventDispatcherActiveMQTest {
+
+    static ConfigurationFactoryActiveMQ config(DispatchingType dispatchingType, String... topics) {
+        return new ConfigurationFactoryActiveMQ(new Properties(), DataEncodingMechanism.JSON, dispatchingType,
+                new LinkedHashSet<>(Arrays.asList(topics)), null);
+    }
+
+    static EventDispatcherActiveMQ dispatcher(ConfigurationFactoryActiveMQ config, FakeJms broker) throws Exception {
+        return new EventDispatcherActiveMQ(config, 100, false, false, null, broker.connectionFactory());
+    }
+
+    static byte[] wireBytes(IEvent event) throws Exception {
+        JsonEventSerializer jes = new JsonEventSerializer(StandardCharsets.UTF_8);
+        return DataPacket.wrapPayload(DataEncodingMechanism.JSON, jes.getEncoding(), jes.serialize(event))
+                .getWireBytes();
+    }
+
+    static void publishEvents(FakeJms broker, String topic, int count) throws Exception {
+        for (int i = 0; i < count; ++i) {
+            broker.publish(topic, wireBytes(Event.makeInstance(Event.class)));
+        }
+    }
+
+    static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void listenerReceivingAcknowledgementTest() throws Exception {
+        FakeJms broker = new FakeJms();
+        ConfigurationFactoryActiveMQ config = config(DispatchingType.CONSUME, "a", "b");
+        config.setListenerReceiving(true, 2, false);
+        EventDispatcherActiveMQ eda = dispatcher(config, broker);
+
+        // one listener session, acknowledging each received message on its own
+        long listenerSessions = broker.sessions.stream()
+                .filter(s -> s.acknowledgeMode == ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE).count();
+        assertEquals(1, listenerSessions);
+
+        publishEvents(broker, "a", 5);
+        FakeJms.Subscription a = broker.subscription("a");
+        // 2 queued and 1 waiting for space in the queue
+        await(() -> a.delivered.size() == 3);
+        assertEquals(3, a.unacknowledged().size());
+
+        List<IEvent> received = eda.receive(100);
+        assertNotNull(received);
+        // only the messages taken from the queue are acknowledged
+        int acknowledged = a.delivered.size() - a.unacknowledged().size();
+        assertEquals(received.size(), acknowledged);
+
+        while (acknowledged < 5) {
+            List<IEvent> more = eda.receive(100);
+            if (more != null) acknowledged += more.size();
+        }
+        assertTrue(a.unacknowledged().isEmpty());
+
+        // the messages left in the queue on closing remain unacknowledged, so the broker redelivers them
+        publishEvents(broker, "b", 3);
+        FakeJms.Subscription b = broker.subscription("b");
+        await(() -> b.delivered.size() == 3);
+        eda.close();
+        assertTrue(b.closed);
+        assertEquals(3, b.unacknowledged().size());
+        assertTrue(broker.sessions.stream().allMatch(s -> s.closed));
+    }
+
+    @Test
+    void listenerSessionPerTopicTest() throws Exception {
+        FakeJms broker = new FakeJms();
+        ConfigurationFactoryActiveMQ config = config(DispatchingType.CONSUME, "a", "b", "c");
+        config.setListenerReceiving(true, 100, true);
+        EventDispatcherActiveMQ eda = dispatcher(config, broker);
+        long listenerSessions = broker.sessions.stream()
+                .filter(s -> s.acknowledgeMode == ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE).count();
+        assertEquals(3, listenerSessions);
+
+        publishEvents(broker, "a", 2);
+        publishEvents(broker, "c", 2);
+        Set<Long> ids = new HashSet<>();
+        await(() -> {
+            List<IEvent> received = eda.receive(10);
+            if (received != null) received.forEach(e -> ids.add(e.getId()));
+            return ids.size() == 4;
+        });
+        assertTrue(broker.subscription("a").unacknowledged().isEmpty());
+        assertTrue(broker.subscription("c").unacknowledged().isEmpty());
+        eda.close();
+    }
+
+    static List<String> asStrings(List<byte[]> bodies) {
+        return bodies.stream().map(b -> new String(b, StandardCharsets.UTF_8)).collect(Collectors.toList());
+    }
+
+    static void publishStrings(FakeJms broker, String topic, String... bodies) {
+        for (String body : bodies) {
+            broker.publish(topic, body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void receiveBatchLimitAndTopicRotationTest() throws Exception {
+        FakeJms broker = new FakeJms();
+        ConfigurationFactoryActiveMQ config = config(DispatchingType.CONSUME, "a", "b", "c");
+        config.setReceiveBatchSize(3);
+        EventDispatcherActiveMQ eda = dispatcher(config, broker);
+
+        publishStrings(broker, "a", "a1", "a2");
+        publishStrings(broker, "b", "b1", "b2");
+        publishStrings(broker, "c", "c1", "c2");
+
+        // each topic is drained before the next is asked, stopping at the batch size
+        assertEquals(Arrays.asList("a1", "a2", "b1"), asStrings(eda.consumer.receive(100, 10)));
+        // the next receiving starts from the first topic not asked
+        assertEquals(Arrays.asList("c1", "c2", "b2"), asStrings(eda.consumer.receive(100, 10)));
+        assertTrue(eda.consumer.receive(10, 10).isEmpty());
+
+        // the lower of maxRecords and the batch size applies
+        publishStrings(broker, "a", "a3", "a4", "a5");
+        assertEquals(Arrays.asList("a3", "a4"), asStrings(eda.consumer.receive(100, 2)));
+        assertEquals(Arrays.asList("a5"), asStrings(eda.consumer.receive(100, 10)));
+        eda.close();
+    }
+
+    @Test
+    void receiveBodyReadTest() throws Exception {
+        FakeJms broker = new FakeJms();
+        EventDispatcherActiveMQ eda = dispatcher(config(DispatchingType.CONSUME, "a"), broker);
+
+        publishStrings(broker, "a", "body", "");
+        List<byte[]> received = eda.consumer.receive(100, 10);
+        assertEquals(Arrays.asList("body", ""), asStrings(received));
+
+        // the body is read at once into an array of its exact length
+        List<FakeJms.FakeMessage> delivered = broker.subscription("a").delivered;
+        assertEquals(2, delivered.size());
+        assertEquals(1, delivered.get(0).bodyLengthCalls.get());
+        assertEquals(1, delivered.get(0).readCalls.get());
+        assertEquals(1, delivered.get(1).bodyLengthCalls.get());
+        assertEquals(0, delivered.get(1).readCalls.get());
+        eda.close();
+    }
+
+    static ActiveMQConnection connection() throws Exception {
+        Transport transport = (Transport) Proxy.newProxyInstance(Transport.class.getClassLoader(),
+                new Class<?>[] { Transport.class }, (p, m, a) -> (m.getReturnType() == boolean.class ? false : null));
+        return new ActiveMQConnection(transport, new IdGenerator(), new IdGenerator(), new JMSStatsImpl()) {};
+    }
+
+    @Test
+    void prefetchTest() throws Exception {
+        ActiveMQConnection connection = connection();
+        int topicPrefetch = connection.getPrefetchPolicy().getTopicPrefetch();
+
+        ConfigurationFactoryActiveMQ config = config(DispatchingType.CONSUME, "a");
+        config.setPrefetch(ConfigurationFactoryActiveMQ.PREFETCH_NOT_SET, 7);
+        config.configureConnection(connection);
+        assertEquals(topicPrefetch, connection.getPrefetchPolicy().getTopicPrefetch());
+        assertEquals(7, connection.getPrefetchPolicy().getDurableTopicPrefetch());
+
+        config.setPrefetch(0, 1);
+        config.configureConnection(connection);
+        assertEquals(0, connection.getPrefetchPolicy().getTopicPrefetch());
+        assertEquals(1, connection.getPrefetchPolicy().getDurableTopicPrefetch());
+
+        assertThrows(IllegalArgumentException.class, () -> config.setPrefetch(-2, 1));
+    }
+
+    @Test
+    void asyncSendingTest() throws Exception {
+        ActiveMQConnection connection = connection();
+        int windowSize = connection.getProducerWindowSize();
+
+        ConfigurationFactoryActiveMQ config = config(DispatchingType.PRODUCE);
+        config.configureConnection(connection);
+        assertFalse(connection.isUseAsyncSend());
+
+        config.setAsyncSending(true, 0);
+        config.configureConnection(connection);
+        assertTrue(connection.isUseAsyncSend());
+        assertEquals(windowSize, connection.getProducerWindowSize());
+
+        config.setAsyncSending(true, 1024);
+        config.configureConnection(connection);
+        assertEquals(1024, connection.getProducerWindowSize());
+
+        assertThrows(IllegalArgumentException.class, () -> config.setAsyncSending(true, -1));
+    }
+
+    @Test
+    void deliveryModeTest() throws Exception {
+        FakeJms broker = new FakeJms();
+        ConfigurationFactoryActiveMQ config = config(DispatchingType.PRODUCE);
+        config.setDefaultDeliveryMode(DeliveryMode.NON_PERSISTENT);
+        config.setDeliveryMode("domain-events", DeliveryMode.PERSISTENT);
+        EventDispatcherActiveMQ eda = dispatcher(config, broker);
+
+        assertTrue(eda.send(Event.makeInstance(Event.class)));
+        assertEquals(1, broker.published.size());
+        assertEquals("events", broker.published.get(0).topic);
+        assertEquals(DeliveryMode.NON_PERSISTENT, broker.published.get(0).deliveryMode);
+
+        // a single message to both topics, persistent since one of them is
+        assertTrue(eda.send(Event.makeInstance(DomainEvent.class)));
+        assertEquals(2, broker.published.size());
+        assertEquals(new HashSet<>(Arrays.asList("events", "domain-events")),
+                new HashSet<>(Arrays.asList(broker.published.get(1).topic.split(","))));
+        assertEquals(DeliveryMode.PERSISTENT, broker.published.get(1).deliveryMode);
+
+        eda.close();
+
+        // a message per topic with its own delivery mode
+        config.setCompositeDestinationSending(false);
+        eda = dispatcher(config, broker);
+        assertTrue(eda.send(Event.makeInstance(DomainEvent.class)));
+        assertEquals(4, broker.published.size());
+        for (FakeJms.FakeMessage fm : broker.published.subList(2, 4)) {
+            assertEquals(config.getDeliveryMode(fm.topic), fm.deliveryMode);
+        }
+        assertEquals(new HashSet<>(Arrays.asList("events", "domain-events")),
+                new HashSet<>(Arrays.asList(broker.published.get(2).topic, broker.published.get(3).topic)));
+        eda.close();
+    }
+
+    @Test
+    void partitionKeyIgnoredTest() throws Exception {
+        FakeJms broker = new FakeJms();
+        ConfigurationFactoryActiveMQ config = config(DispatchingType.PRODUCE);
+        config.setPartitionKeyExtractor(PartitionKeyExtractors.byEventId());
+        EventDispatcherActiveMQ eda = dispatcher(config, broker);
+
+        // ActiveMQ does not support keys, so the messages carry no group
+        assertTrue(eda.send(Event.makeInstance(Event.class)));
+        assertTrue(eda.send(Event.makeInstance(DomainEvent.class)));
+        eda.close();
+
+        config.setCompositeDestinationSending(false);
+        eda = dispatcher(config, broker);
+        assertTrue(eda.send(Event.makeInstance(DomainEvent.class)));
+        eda.close();
+
+        assertEquals(4, broker.published.size());
+        for (FakeJms.FakeMessage fm : broker.published) {
+            assertFalse(fm.properties.containsKey("JMSXGroupID"));
+        }
+    }
+
+    @Test
+    void transactedSendingTest() throws Exception {
+        FakeJms broker = new FakeJms();
+        ConfigurationFactoryActiveMQ config = config(DispatchingType.PRODUCE);
+        config.setTransactedSending(3, TimeUnit.HOURS.toMillis(1));
+        EventDispatcherActiveMQ eda = dispatcher(config, broker);
+
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 2; ++i) {
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            eda.send(Event.makeInstance(Event.class), (sent, e) -> result.complete(sent));
+            results.add(result);
+        }
+        // the messages are sent by the calling thread, but the sending completes only once the transaction is committed
+        FakeJms.FakeSession producerSession = broker.sessions.stream().filter(s -> s.transacted).findFirst().get();
+        assertEquals(2, producerSession.uncommitted.size());
+        assertEquals(0, broker.commits.get());
+        assertTrue(broker.published.isEmpty());
+        assertTrue(results.stream().noneMatch(CompletableFuture::isDone));
+
+        CompletableFuture<Boolean> last = new CompletableFuture<>();
+        eda.send(Event.makeInstance(Event.class), (sent, e) -> last.complete(sent));
+        results.add(last);
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(3, broker.published.size());
+        assertEquals(1, broker.commits.get());
+
+        // the synchronous sending commits at once
+        assertTrue(eda.send(Event.makeInstance(Event.class)));
+        assertEquals(4, broker.published.size());
+        assertEquals(2, broker.commits.get());
+        eda.close();
+    }
+
+    @Test
+    void flushTest() throws Exception {
+        FakeJms broker = new FakeJms();
+        ConfigurationFactoryActiveMQ config = config(DispatchingType.PRODUCE);
+        config.setTransactedSending(100, TimeUnit.HOURS.toMillis(1));
+        EventDispatcherActiveMQ eda = dispatcher(config, broker);
+
+        // the completion handlers run on the executor, yet the flushing waits for them
+        AtomicInteger completed = new AtomicInteger();
+        for (int i = 0; i < 3; ++i) {
+            eda.send(Event.makeInstance(Event.class), (sent, e) -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ignored) {
+                }
+                if (sent) completed.incrementAndGet();
+            });
+        }
+        eda.flush();
+        assertEquals(3, completed.get());
+        assertEquals(3, broker.published.size());
+        assertEquals(1, broker.commits.get());
+        eda.close();
+    }
+
+    @Test
+    void transactedSendingTimeTest() throws Exception {
+        FakeJms broker = new FakeJms();
+        ConfigurationFactoryActiveMQ config = config(DispatchingType.PRODUCE);
+        config.setTransactedSending(100, 50);
+        EventDispatcherActiveMQ eda = dispatcher(config, broker);
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        eda.send(Event.makeInstance(Event.class), (sent, e) -> result.complete(sent));
+        assertTrue(result.get(10, TimeUnit.SECONDS));
+        assertEquals(1, broker.published.size());
+        eda.close();
+    }
+
+    @Test
+    void transactedSendingCommitFailureTest() throws Exception {
+        FakeJms broker = new FakeJms();
+        ConfigurationFactoryActiveMQ config = config(DispatchingType.PRODUCE);
+        config.setTransactedSending(2, TimeUnit.HOURS.toMillis(1));
+        EventDispatcherActiveMQ eda = dispatcher(config, broker);
+        broker.failCommits = true;
+
+        CompletableFuture<Boolean> first = new CompletableFuture<>();
+        CompletableFuture<Boolean> second = new CompletableFuture<>();
+        eda.send(Event.makeInstance(Event.class), (sent, e) -> first.complete(sent));
+        eda.send(Event.makeInstance(Event.class), (sent, e) -> second.complete(sent));
+        assertFalse(first.get(10, TimeUnit.SECONDS));
+        assertFalse(second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, broker.rollbacks.get());
+
+        assertFalse(eda.send(Event.makeInstance(Event.class)));
+        assertEquals(2, broker.rollbacks.get());
+        assertTrue(broker.published.isEmpty());
+
+        broker.failCommits = false;
+        assertTrue(eda.send(Event.makeInstance(Event.class)));
+        assertEquals(1, broker.published.size());
+        eda.close();
+    }
+}
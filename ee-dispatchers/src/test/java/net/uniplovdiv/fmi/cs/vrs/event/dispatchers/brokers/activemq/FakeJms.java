@@ -0,0 +1,359 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.activemq;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.Topic;
+import javax.jms.TopicSubscriber;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory broker with topics and durable subscriptions implementing the used parts of the JMS API by dynamic proxies.
+ */
+final class FakeJms {
+
+    final Map<String, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    final List<FakeMessage> published = new CopyOnWriteArrayList<>();
+    final List<FakeSession> sessions = new CopyOnWriteArrayList<>();
+    final AtomicInteger commits = new AtomicInteger();
+    final AtomicInteger rollbacks = new AtomicInteger();
+    volatile boolean failCommits;
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        return null;
+    }
+
+    /**
+     * Handler of the identity methods of the proxies, delegating the rest.
+     */
+    private static final class Delegate implements InvocationHandler {
+        final Class<?> type;
+        final InvocationHandler target;
+
+        Delegate(Class<?> type, InvocationHandler target) {
+            this.type = type;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object p, Method m, Object[] args) throws Throwable {
+            switch (m.getName()) {
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "toString":
+                    return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(p));
+                default:
+                    Object result = target.invoke(p, m, args);
+                    return (result != null ? result : defaultValue(m.getReturnType()));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(FakeJms.class.getClassLoader(), new Class<?>[] { type },
+                new Delegate(type, handler));
+    }
+
+    /**
+     * Returns the state of a message created by the broker.
+     */
+    static FakeMessage of(Object message) {
+        return (FakeMessage) ((Delegate) Proxy.getInvocationHandler(message)).target;
+    }
+
+    /**
+     * Bytes message.
+     */
+    static final class FakeMessage implements InvocationHandler {
+        final BytesMessage proxy = proxy(BytesMessage.class, this);
+        final Map<String, Object> properties = new ConcurrentHashMap<>();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AtomicInteger bodyLengthCalls = new AtomicInteger();
+        final AtomicInteger readCalls = new AtomicInteger();
+        volatile byte[] body = new byte[0];
+        volatile int deliveryMode;
+        volatile String topic;
+        volatile boolean acknowledged;
+        private int readPosition;
+
+        FakeMessage copy() {
+            FakeMessage copy = new FakeMessage();
+            copy.properties.putAll(properties);
+            copy.body = body;
+            copy.deliveryMode = deliveryMode;
+            copy.topic = topic;
+            return copy;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "writeBytes":
+                    byte[] src = (byte[]) args[0];
+                    if (args.length == 1) {
+                        out.write(src, 0, src.length);
+                    } else {
+                        out.write(src, (int) args[1], (int) args[2]);
+                    }
+                    body = out.toByteArray();
+                    return null;
+                case "getBodyLength":
+                    bodyLengthCalls.incrementAndGet();
+                    return (long) body.length;
+                case "readBytes":
+                    byte[] dst = (byte[]) args[0];
+                    int n = Math.min((args.length > 1 ? (int) args[1] : dst.length), body.length - readPosition);
+                    if (n <= 0) return -1;
+                    System.arraycopy(body, readPosition, dst, 0, n);
+                    readPosition += n;
+                    readCalls.incrementAndGet();
+                    return n;
+                case "setStringProperty":
+                case "setObjectProperty":
+                    properties.put((String) args[0], args[1]);
+                    return null;
+                case "getStringProperty":
+                case "getObjectProperty":
+                    return properties.get((String) args[0]);
+                case "propertyExists":
+                    return properties.containsKey((String) args[0]);
+                case "acknowledge":
+                    acknowledged = true;
+                    return null;
+                case "getJMSDeliveryMode":
+                    return deliveryMode;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Durable subscription to a topic.
+     */
+    final class Subscription implements InvocationHandler {
+        final TopicSubscriber proxy = proxy(TopicSubscriber.class, this);
+        final String topic;
+        final String name;
+        final BlockingQueue<FakeMessage> pending = new LinkedBlockingQueue<>();
+        final List<FakeMessage> delivered = new CopyOnWriteArrayList<>();
+        private volatile MessageListener listener;
+        private volatile Thread deliverer;
+        volatile boolean closed;
+
+        Subscription(String topic, String name) {
+            this.topic = topic;
+            this.name = name;
+        }
+
+        private BytesMessage deliver(FakeMessage fm) {
+            if (fm == null) return null;
+            delivered.add(fm);
+            return fm.proxy;
+        }
+
+        private void listen() {
+            try {
+                while (!closed) {
+                    FakeMessage fm = pending.poll(10, TimeUnit.MILLISECONDS);
+                    if (fm != null) listener.onMessage(deliver(fm));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+            switch (method.getName()) {
+                case "receive":
+                    if (args == null || args.length == 0) return deliver(pending.take());
+                    return deliver(pending.poll((long) args[0], TimeUnit.MILLISECONDS));
+                case "receiveNoWait":
+                    return deliver(pending.poll());
+                case "setMessageListener":
+                    listener = (MessageListener) args[0];
+                    deliverer = new Thread(this::listen, "fake-jms-" + name);
+                    deliverer.setDaemon(true);
+                    deliverer.start();
+                    return null;
+                case "getMessageListener":
+                    return listener;
+                case "close":
+                    closed = true;
+                    Thread t = deliverer;
+                    if (t != null && t != Thread.currentThread()) t.join(5000);
+                    return null;
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Returns the messages delivered but not acknowledged yet.
+         */
+        List<FakeMessage> unacknowledged() {
+            List<FakeMessage> result = new ArrayList<>();
+            for (FakeMessage fm : delivered) {
+                if (!fm.acknowledged) result.add(fm);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Session.
+     */
+    final class FakeSession implements InvocationHandler {
+        final Session proxy = proxy(Session.class, this);
+        final boolean transacted;
+        final int acknowledgeMode;
+        final List<FakeMessage> uncommitted = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean closed;
+
+        FakeSession(boolean transacted, int acknowledgeMode) {
+            this.transacted = transacted;
+            this.acknowledgeMode = acknowledgeMode;
+        }
+
+        private void send(Destination destination, BytesMessage msg, int deliveryMode) {
+            FakeMessage fm = of(msg);
+            fm.topic = ((Topic) destination).toString();
+            fm.deliveryMode = deliveryMode;
+            if (transacted) {
+                uncommitted.add(fm);
+            } else {
+                publish(fm);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+            switch (method.getName()) {
+                case "createTopic":
+                    String name = ((String) args[0]);
+                    String topicName = (name.indexOf('?') >= 0 ? name.substring(0, name.indexOf('?')) : name);
+                    return Proxy.newProxyInstance(FakeJms.class.getClassLoader(), new Class<?>[] { Topic.class },
+                            (p, m, a) -> {
+                                switch (m.getName()) {
+                                    case "getTopicName":
+                                    case "toString":
+                                        return topicName;
+                                    case "equals":
+                                        return p == a[0];
+                                    case "hashCode":
+                                        return topicName.hashCode();
+                                    default:
+                                        return null;
+                                }
+                            });
+                case "createDurableSubscriber":
+                    Subscription s = new Subscription(args[0].toString(), (String) args[1]);
+                    subscriptions.computeIfAbsent(s.topic, k -> new CopyOnWriteArrayList<>()).add(s);
+                    return s.proxy;
+                case "createBytesMessage":
+                    return new FakeMessage().proxy;
+                case "createProducer":
+                    return proxy(MessageProducer.class, (p, m, a) -> {
+                        if ("send".equals(m.getName())) {
+                            send((Destination) a[0], (BytesMessage) a[1], (int) a[2]);
+                        }
+                        return null;
+                    });
+                case "commit":
+                    if (failCommits) {
+                        uncommitted.clear();
+                        throw new JMSException("Test commit failure");
+                    }
+                    synchronized (uncommitted) {
+                        for (FakeMessage fm : uncommitted) publish(fm);
+                        uncommitted.clear();
+                    }
+                    commits.incrementAndGet();
+                    return null;
+                case "rollback":
+                    uncommitted.clear();
+                    rollbacks.incrementAndGet();
+                    return null;
+                case "getTransacted":
+                    return transacted;
+                case "getAcknowledgeMode":
+                    return acknowledgeMode;
+                case "close":
+                    closed = true;
+                    return null;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Publishes message to each subscription of its topics.
+     */
+    void publish(FakeMessage fm) {
+        published.add(fm);
+        for (String topic : fm.topic.split(",")) {
+            for (Subscription s : subscriptions.getOrDefault(topic, Collections.emptyList())) {
+                s.pending.add(fm.copy());
+            }
+        }
+    }
+
+    /**
+     * Publishes message with the specified body to a topic.
+     */
+    void publish(String topic, byte[] body) {
+        FakeMessage fm = new FakeMessage();
+        fm.body = body;
+        fm.topic = topic;
+        publish(fm);
+    }
+
+    /**
+     * Returns the only subscription to a topic.
+     */
+    Subscription subscription(String topic) {
+        List<Subscription> list = subscriptions.get(topic);
+        if (list == null || list.size() != 1) throw new IllegalStateException("Not a single subscription: " + topic);
+        return list.get(0);
+    }
+
+    ConnectionFactory connectionFactory() {
+        return proxy(ConnectionFactory.class, (p, m, a) -> {
+            if (!m.getName().equals("createConnection")) return null;
+            return proxy(Connection.class, (cp, cm, ca) -> {
+                if (cm.getName().equals("createSession")) {
+                    FakeSession s = new FakeSession((boolean) ca[0], (int) ca[1]);
+                    sessions.add(s);
+                    return s.proxy;
+                }
+                return null;
+            });
+        });
+    }
+}
@@ -0,0 +1,260 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka;
+
+import net.uniplovdiv.fmi.cs.vrs.event.Event;
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.DuplicateFilters;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IdReservation;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.ReceiveOrdering;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.DispatchingType;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataEncodingMechanism;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DeflatePayloadCompressor;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.JsonEventSerializer;
+import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.consumer.RetriableCommitFailedException;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventDispatcherKafkaTest {
+
+    static final String TOPIC = "events";
+    static final TopicPartition TP0 = new TopicPartition(TOPIC, 0);
+    static final TopicPartition TP1 = new TopicPartition(TOPIC, 1);
+
+    /**
+     * Mock consumer that can fail the asynchronous commits, notifies the rebalance listener like the real one and
+     * remains usable after its closing, so its commits can be checked.
+     */
+    static class TestConsumer extends MockConsumer<String, DataPacket> {
+        volatile int failCommits;
+        volatile boolean closed;
+        private ConsumerRebalanceListener listener;
+
+        TestConsumer() {
+            super(OffsetResetStrategy.EARLIEST);
+        }
+
+        @Override
+        public synchronized void subscribe(Collection<String> topics, ConsumerRebalanceListener listener) {
+            super.subscribe(topics, listener);
+            this.listener = listener;
+        }
+
+        @Override
+        public synchronized void rebalance(Collection<TopicPartition> newAssignment) {
+            Set<TopicPartition> revoked = new HashSet<>(assignment());
+            revoked.removeAll(newAssignment);
+            if (listener != null && !revoked.isEmpty()) listener.onPartitionsRevoked(revoked);
+            super.rebalance(newAssignment);
+        }
+
+        @Override
+        public synchronized void close(Duration timeout) {
+            closed = true;
+        }
+
+        @Override
+        public ConsumerRecords<String, DataPacket> poll(Duration timeout) {
+            ConsumerRecords<String, DataPacket> records = super.poll(timeout);
+            if (records.isEmpty()) {
+                // the mock one never waits
+                try {
+                    Thread.sleep(Math.min(timeout.toMillis(), 5));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return records;
+        }
+
+        @Override
+        public synchronized void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets,
+                                             OffsetCommitCallback callback) {
+            if (failCommits > 0) {
+                --failCommits;
+                callback.onComplete(offsets, new RetriableCommitFailedException("Test failure"));
+                return;
+            }
+            super.commitAsync(offsets, callback);
+        }
+
+        void assign(TopicPartition... tps) {
+            Map<TopicPartition, Long> beginning = new HashMap<>();
+            for (TopicPartition tp : tps) beginning.put(tp, 0L);
+            updateBeginningOffsets(beginning);
+            rebalance(Arrays.asList(tps));
+        }
+
+        void add(TopicPartition tp, long offset, IEvent event) throws Exception {
+            JsonEventSerializer jes = new JsonEventSerializer(StandardCharsets.UTF_8);
+            addRecord(new ConsumerRecord<>(tp.topic(), tp.partition(), offset, null,
+                    DataPacket.wrapPayload(DataEncodingMechanism.JSON, jes.getEncoding(), jes.serialize(event))));
+        }
+
+        long committedOffset(TopicPartition tp) {
+            OffsetAndMetadata oam = committed(Collections.singleton(tp)).get(tp);
+            return (oam != null ? oam.offset() : -1);
+        }
+    }
+
+    /**
+     * Creates consuming dispatcher using a mock consumer. The received events keep their identifiers and order.
+     */
+    static EventDispatcherKafka dispatcher(TestConsumer consumer, OffsetCommitStrategy strategy) {
+        ConfigurationFactoryKafka cfk = new ConfigurationFactoryKafka(new Properties(), DataEncodingMechanism.JSON,
+                DispatchingType.CONSUME, Collections.singleton(TOPIC), null);
+        cfk.setOffsetCommitStrategy(strategy);
+        cfk.setIdReservation(IdReservation.KEEP);
+        cfk.setReceiveOrdering(ReceiveOrdering.NONE);
+        return new EventDispatcherKafka(cfk, 100, false, null, props -> consumer);
+    }
+
+    @Test
+    void manualCommitTest() throws Exception {
+        TestConsumer consumer = new TestConsumer();
+        EventDispatcherKafka edk = dispatcher(consumer, OffsetCommitStrategy.MANUAL);
+        consumer.assign(TP0, TP1);
+        Event[] events = new Event[4];
+        for (int i = 0; i < 3; ++i) {
+            events[i] = Event.makeInstance(Event.class);
+            consumer.add(TP0, i, events[i]);
+        }
+        events[3] = Event.makeInstance(Event.class);
+        consumer.add(TP1, 0, events[3]);
+
+        List<IEvent> received = edk.receive(10);
+        assertNotNull(received);
+        assertEquals(4, received.size());
+        IEvent[] byOffset = new IEvent[3];
+        for (IEvent e : received) {
+            for (int i = 0; i < 3; ++i) {
+                if (e.getId() == events[i].getId()) byOffset[i] = e;
+            }
+        }
+
+        // acknowledged out of order, so the partition is committed only up to its first not acknowledged record
+        edk.acknowledge(Arrays.asList(byOffset[2], byOffset[1]));
+        assertNull(edk.receive(10)); // commits the acknowledgements
+        assertEquals(0, consumer.committedOffset(TP0));
+        assertEquals(0, consumer.committedOffset(TP1)); // its only record is not acknowledged
+
+        // failed commit is retried by the next receiving
+        consumer.failCommits = 1;
+        edk.acknowledge(Collections.singleton(byOffset[0]));
+        assertNull(edk.receive(10));
+        assertEquals(0, consumer.committedOffset(TP0));
+        assertNull(edk.receive(10));
+        assertEquals(3, consumer.committedOffset(TP0));
+
+        // the rest is committed by the closing
+        for (IEvent e : received) {
+            if (e.getId() == events[3].getId()) edk.acknowledge(Collections.singleton(e));
+        }
+        edk.close();
+        assertTrue(consumer.closed);
+        assertEquals(1, consumer.committedOffset(TP1));
+    }
+
+    @Test
+    void periodicCommitTest() throws Exception {
+        TestConsumer consumer = new TestConsumer();
+        EventDispatcherKafka edk = dispatcher(consumer, OffsetCommitStrategy.PERIODIC);
+        ((ConfigurationFactoryKafka) edk.retrieveConfig(DispatchingType.CONSUME)).setPeriodicCommit(2, 3_600_000);
+        consumer.assign(TP0);
+        for (int i = 0; i < 3; ++i) consumer.add(TP0, i, Event.makeInstance(Event.class));
+
+        assertEquals(3, edk.receive(10).size());
+        assertEquals(3, consumer.committedOffset(TP0));
+
+        // not due yet
+        consumer.add(TP0, 3, Event.makeInstance(Event.class));
+        assertEquals(1, edk.receive(10).size());
+        assertEquals(3, consumer.committedOffset(TP0));
+
+        consumer.add(TP0, 4, Event.makeInstance(Event.class));
+        assertEquals(1, edk.receive(10).size());
+        assertEquals(5, consumer.committedOffset(TP0));
+        edk.close();
+    }
+
+    @Test
+    void revocationTest() throws Exception {
+        TestConsumer consumer = new TestConsumer();
+        EventDispatcherKafka edk = dispatcher(consumer, OffsetCommitStrategy.MANUAL);
+        consumer.assign(TP0, TP1);
+        consumer.add(TP0, 0, Event.makeInstance(Event.class));
+        consumer.add(TP1, 0, Event.makeInstance(Event.class));
+        List<IEvent> received = edk.receive(10);
+        assertEquals(2, received.size());
+
+        // the revocation commits what is processed, then acknowledging the events of the revoked partition commits
+        // nothing
+        consumer.rebalance(Collections.singleton(TP1));
+        assertEquals(0, consumer.committedOffset(TP0));
+        edk.acknowledge(received);
+        assertNull(edk.receive(10));
+        assertEquals(0, consumer.committedOffset(TP0));
+        assertEquals(1, consumer.committedOffset(TP1));
+        edk.close();
+    }
+
+    @Test
+    void makeNewWithSameConfigTest() {
+        Properties props = new Properties();
+        props.put(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, "localhost:1");
+        ConfigurationFactoryKafka cfk = new ConfigurationFactoryKafka(props, DataEncodingMechanism.JSON,
+                DispatchingType.CONSUME_PRODUCE, Collections.singleton("events"), null);
+        cfk.setIdReservation(IdReservation.KEEP);
+        cfk.setTopKReceiveOrdering(3);
+        cfk.setPayloadCompression(new DeflatePayloadCompressor(), 256);
+        cfk.setDuplicateFilterFactory(DuplicateFilters.exact());
+        cfk.setPipelinedSending(true, 7);
+        cfk.setOffsetCommitStrategy(OffsetCommitStrategy.SYNC);
+
+        EventDispatcherKafka original = new EventDispatcherKafka(cfk);
+        EventDispatcherKafka copy = original.makeNewWithSameConfig();
+        try {
+            for (DispatchingType dt : new DispatchingType[] { DispatchingType.CONSUME, DispatchingType.PRODUCE }) {
+                ConfigurationFactoryKafka copied = (ConfigurationFactoryKafka) copy.retrieveConfig(dt);
+                assertNotNull(copied);
+                assertEquals(DispatchingType.CONSUME_PRODUCE, copied.getDispatchingType());
+                assertEquals(IdReservation.KEEP, copied.getIdReservation());
+                assertEquals(cfk.getReceiveOrdering(), copied.getReceiveOrdering());
+                assertEquals(3, copied.getReceiveOrderingTopK());
+                assertSame(cfk.getPayloadCompressor(), copied.getPayloadCompressor());
+                assertEquals(256, copied.getPayloadCompressionThreshold());
+                assertSame(cfk.getDuplicateFilterFactory(), copied.getDuplicateFilterFactory());
+                assertTrue(copied.isPipelinedSending());
+                assertEquals(7, copied.getMaxInFlightSends());
+                assertEquals(cfk.getIdentifier1(), copied.getIdentifier1());
+                assertEquals(cfk.getTopics(), copied.getTopics());
+                assertEquals("localhost:1",
+                        copied.getMainConfiguration(null).get(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG));
+            }
+        } finally {
+            copy.close();
+            original.close();
+        }
+    }
+}
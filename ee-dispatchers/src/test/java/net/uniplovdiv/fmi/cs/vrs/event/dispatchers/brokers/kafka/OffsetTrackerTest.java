@@ -0,0 +1,99 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffsetTrackerTest {
+
+    private static final TopicPartition TP0 = new TopicPartition("events", 0);
+    private static final TopicPartition TP1 = new TopicPartition("events", 1);
+
+    private static long offsetOf(Map<TopicPartition, OffsetAndMetadata> committable, TopicPartition tp) {
+        OffsetAndMetadata oam = committable.get(tp);
+        assertNotNull(oam);
+        return oam.offset();
+    }
+
+    @Test
+    void commitUpToFirstPendingTest() {
+        OffsetTracker tracker = new OffsetTracker();
+        for (long offset = 0; offset < 4; ++offset) {
+            tracker.received(TP0, offset, true);
+        }
+        assertEquals(4, tracker.getReceivedSinceCommit());
+
+        // processed out of order, so only the offset of the first pending record can be committed
+        tracker.processed(TP0, 2);
+        tracker.processed(TP0, 1);
+        assertEquals(0, offsetOf(tracker.takeCommittable(), TP0));
+        assertEquals(0, tracker.getReceivedSinceCommit());
+        assertTrue(tracker.takeCommittable().isEmpty());
+
+        tracker.processed(TP0, 0);
+        assertEquals(3, offsetOf(tracker.takeCommittable(), TP0));
+        tracker.processed(TP0, 3);
+        assertEquals(4, offsetOf(tracker.takeCommittable(), TP0));
+        assertTrue(tracker.takeCommittable().isEmpty());
+
+        // records not pending processing are committable right away
+        tracker.received(TP1, 10, false);
+        tracker.received(TP1, 11, false);
+        tracker.received(TP0, 4, true);
+        Map<TopicPartition, OffsetAndMetadata> committable = tracker.takeCommittable();
+        assertEquals(1, committable.size());
+        assertEquals(12, offsetOf(committable, TP1));
+
+        // processing twice or unknown records changes nothing
+        tracker.processed(TP0, 2);
+        tracker.processed(new TopicPartition("other", 0), 4);
+        assertTrue(tracker.takeCommittable().isEmpty());
+    }
+
+    @Test
+    void commitFailedTest() {
+        OffsetTracker tracker = new OffsetTracker();
+        tracker.received(TP0, 0, false);
+        tracker.received(TP1, 0, false);
+        Map<TopicPartition, OffsetAndMetadata> failed = tracker.takeCommittable();
+        assertEquals(2, failed.size());
+        assertTrue(tracker.takeCommittable().isEmpty());
+
+        // the failed offsets are retried by the next commit
+        tracker.commitFailed(failed);
+        assertEquals(failed, tracker.takeCommittable());
+
+        // a failure of an older commit does not undo a newer one
+        tracker.received(TP0, 1, false);
+        Map<TopicPartition, OffsetAndMetadata> newer = tracker.takeCommittable();
+        assertEquals(2, offsetOf(newer, TP0));
+        tracker.commitFailed(failed);
+        Map<TopicPartition, OffsetAndMetadata> retried = tracker.takeCommittable();
+        assertEquals(1, retried.size());
+        assertEquals(1, offsetOf(retried, TP1));
+    }
+
+    @Test
+    void revocationTest() {
+        OffsetTracker tracker = new OffsetTracker();
+        tracker.received(TP0, 5, true);
+        tracker.received(TP1, 7, true);
+        tracker.remove(Collections.singleton(TP0));
+
+        // the records of the revoked partition are no longer tracked, even if processed later
+        tracker.processed(TP0, 5);
+        tracker.processed(TP1, 7);
+        Map<TopicPartition, OffsetAndMetadata> committable = tracker.takeCommittable();
+        assertEquals(1, committable.size());
+        assertEquals(8, offsetOf(committable, TP1));
+
+        // reassigned partition is tracked from scratch
+        tracker.received(TP0, 9, false);
+        assertEquals(10, offsetOf(tracker.takeCommittable(), TP0));
+    }
+}
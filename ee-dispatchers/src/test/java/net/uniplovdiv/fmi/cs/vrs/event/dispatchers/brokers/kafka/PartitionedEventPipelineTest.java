@@ -0,0 +1,169 @@
+package net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka;
+
+import net.uniplovdiv.fmi.cs.vrs.event.Event;
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventPipelineSettings;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IEventSubscription;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IdReservation;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.DispatchingType;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataEncodingMechanism;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka.EventDispatcherKafkaTest.TOPIC;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedEventPipelineTest {
+
+    private static final TopicPartition TP0 = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition TP1 = new TopicPartition(TOPIC, 1);
+    private static final TopicPartition TP2 = new TopicPartition(TOPIC, 2);
+
+    private static EventDispatcherKafka dispatcher(EventDispatcherKafkaTest.TestConsumer consumer) {
+        ConfigurationFactoryKafka cfk = new ConfigurationFactoryKafka(new Properties(), DataEncodingMechanism.JSON,
+                DispatchingType.CONSUME, Collections.singleton(TOPIC), null);
+        cfk.setIdReservation(IdReservation.KEEP);
+        cfk.setPartitionedReceiving(true);
+        return new EventDispatcherKafka(cfk, 1000, false, null, props -> consumer);
+    }
+
+    /**
+     * Adds records with new events to a partition.
+     * @return The ids of the added events in the order of the partition.
+     */
+    private static List<Long> add(EventDispatcherKafkaTest.TestConsumer consumer, TopicPartition tp, long fromOffset,
+                                  int count) throws Exception {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            Event e = Event.makeInstance(Event.class);
+            ids.add(e.getId());
+            consumer.add(tp, fromOffset + i, e);
+        }
+        return ids;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void partitionOrderingTest() throws Exception {
+        EventDispatcherKafkaTest.TestConsumer consumer = new EventDispatcherKafkaTest.TestConsumer();
+        EventDispatcherKafka edk = dispatcher(consumer);
+        consumer.assign(TP0, TP1, TP2);
+        Map<Long, TopicPartition> partitionOf = new HashMap<>();
+        Map<TopicPartition, List<Long>> expected = new HashMap<>();
+        for (TopicPartition tp : new TopicPartition[] { TP0, TP1, TP2 }) {
+            List<Long> ids = add(consumer, tp, 0, 50);
+            expected.put(tp, ids);
+            for (Long id : ids) partitionOf.put(id, tp);
+        }
+
+        Map<TopicPartition, List<Long>> delivered = new ConcurrentHashMap<>();
+        Map<TopicPartition, Thread> threads = new ConcurrentHashMap<>();
+        IEventSubscription subscription = edk.subscribe(e -> {
+            TopicPartition tp = partitionOf.get(e.getId());
+            // each partition is delivered by a single worker
+            assertSame(Thread.currentThread(), threads.computeIfAbsent(tp, k -> Thread.currentThread()));
+            delivered.computeIfAbsent(tp, k -> Collections.synchronizedList(new ArrayList<>())).add(e.getId());
+        }, new EventPipelineSettings(2, 100, false, 10));
+
+        await(() -> subscription.getDeliveredCount() == 150);
+        assertEquals(expected, delivered);
+        assertEquals(2, new HashSet<>(threads.values()).size());
+        subscription.cancel();
+        edk.close();
+    }
+
+    @Test
+    void pauseBusyPartitionsTest() throws Exception {
+        EventDispatcherKafkaTest.TestConsumer consumer = new EventDispatcherKafkaTest.TestConsumer();
+        EventDispatcherKafka edk = dispatcher(consumer);
+        consumer.assign(TP0, TP1);
+        List<Long> slowIds = new CopyOnWriteArrayList<>(add(consumer, TP0, 0, 3));
+        List<Long> fastIds = add(consumer, TP1, 0, 3);
+
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> slow = Collections.synchronizedList(new ArrayList<>());
+        List<Long> fast = Collections.synchronizedList(new ArrayList<>());
+        IEventSubscription subscription = edk.subscribe(e -> {
+            if (slowIds.contains(e.getId())) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                slow.add(e.getId());
+            } else {
+                fast.add(e.getId());
+            }
+        }, new EventPipelineSettings(2, 1, false, 10));
+
+        // the partition of the blocked worker gets paused, while the other one continues to be received
+        await(() -> consumer.paused().contains(TP0));
+        slowIds.addAll(add(consumer, TP0, 3, 2));
+        fastIds.addAll(add(consumer, TP1, 3, 2));
+        await(() -> fast.size() == 5);
+        assertEquals(fastIds, fast);
+        assertTrue(slow.isEmpty());
+        assertTrue(consumer.paused().contains(TP0));
+        await(() -> !consumer.paused().contains(TP1)); // paused only while its worker is busy
+
+        // resumed once the worker catches up
+        release.countDown();
+        await(() -> slow.size() == 5);
+        assertEquals(slowIds, slow);
+        await(() -> consumer.paused().isEmpty());
+
+        subscription.cancel();
+        assertTrue(subscription.isCancelled());
+        assertEquals(10, subscription.getDeliveredCount());
+        edk.close();
+    }
+
+    @Test
+    void resumeOnExitTest() throws Exception {
+        EventDispatcherKafkaTest.TestConsumer consumer = new EventDispatcherKafkaTest.TestConsumer();
+        EventDispatcherKafka edk = dispatcher(consumer);
+        consumer.assign(TP0);
+        add(consumer, TP0, 0, 3);
+
+        CountDownLatch release = new CountDownLatch(1);
+        IEventSubscription subscription = edk.subscribe(e -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }, new EventPipelineSettings(1, 1, false, 10));
+        await(() -> consumer.paused().contains(TP0));
+
+        // the dispatcher can be used afterwards, so the cancelled pipeline leaves no partition paused
+        subscription.cancel();
+        assertTrue(consumer.paused().isEmpty());
+        release.countDown();
+
+        add(consumer, TP0, 3, 1);
+        List<IEvent> received = edk.receive(10);
+        assertNotNull(received);
+        assertEquals(1, received.size());
+        edk.close();
+    }
+}
@@ -1,16 +1,30 @@
 package test;
 
 import net.uniplovdiv.fmi.cs.vrs.event.*;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.CircularFifoSet;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.DispatchingType;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.CompressionDictionary;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataEncodingMechanism;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DeflatePayloadCompressor;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DictionaryDeflatePayloadCompressor;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.IPayloadCompressor;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.PayloadCompressors;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.SerializerRegistry;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.XxHash64;
 import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka.ConfigurationFactoryKafka;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka.DataPacketKafka;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka.OffsetCommitStrategy;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.JsonEventSerializer;
 import org.junit.jupiter.api.Test;
 
 
 import static org.junit.jupiter.api.Assertions.*;
 
 
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
@@ -140,6 +154,219 @@ public class DispatchersTest {
         assertArrayEquals(payload, new DataPacket(unpDp.getPayload()).getPayload());
     }
 
+    @Test
+    void nestingWithTextEncodingsTest() {
+        byte[] payload = new byte[]{0x00, 0x01, (byte) 0xFF, 0x7F, (byte) 0x80, 0x55, 0x10};
+        DataPacket inner = new DataPacket(DataEncodingMechanism.JSON, StandardCharsets.UTF_8, payload);
+        for (DataEncodingMechanism m : new DataEncodingMechanism[] {
+                DataEncodingMechanism.BASE32, DataEncodingMechanism.BASE64, DataEncodingMechanism.BASE85 }) {
+            assertTrue(m.isNestingOnly());
+            DataPacket outer = DataPacket.nest(inner, m, SerializerRegistry.getTextEncoder(m));
+            assertEquals(DataPacket.Version.NESTED, outer.getDataPacketVersion());
+            assertEquals(m, outer.getDataEncodingMechanismType());
+            assertEquals(StandardCharsets.UTF_8, outer.getEncoding());
+            assertEquals(outer.toBytes().length, outer.getLength());
+
+            DataPacket received = new DataPacket(outer.toBytes());
+            assertEquals(inner, received.unnest(SerializerRegistry.getTextEncoder(m)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> DataPacket.nest(inner, DataEncodingMechanism.JSON,
+                SerializerRegistry.getBase32Encoder()));
+        assertThrows(IllegalArgumentException.class, () -> inner.unnest(SerializerRegistry.getBase32Encoder()));
+
+        byte[] buffer = new byte[inner.getLength() + 4];
+        assertEquals(inner.getLength(), inner.writeTo(buffer, 2));
+        assertEquals(inner, new DataPacket(buffer, 2, inner.getLength()));
+    }
+
+    @Test
+    void payloadCompressionTest() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            sb.append("{\"dynamicParameters\":{},\"subEvents\":{},\"id\":").append(i).append('}');
+        }
+        byte[] payload = sb.toString().getBytes(StandardCharsets.UTF_16);
+        DataPacket dp = new DataPacket(DataEncodingMechanism.JSON, StandardCharsets.UTF_16, payload);
+        IPayloadCompressor deflate = PayloadCompressors.get(DeflatePayloadCompressor.ID);
+        assertNotNull(deflate);
+
+        assertSame(dp, dp.compress(deflate, payload.length + 1));
+        DataPacket compressed = dp.compress(deflate, 0);
+        assertTrue(compressed.isCompressed());
+        assertEquals(DeflatePayloadCompressor.ID, compressed.getCompressionId());
+        assertEquals(StandardCharsets.UTF_16, compressed.getEncoding());
+        assertTrue(compressed.getLength() * 5 < dp.getLength());
+
+        DataPacket received = new DataPacket(compressed.toBytes());
+        assertEquals(compressed, received);
+        assertEquals(dp, received.decompress());
+
+        DataPacket nested = DataPacket.nest(compressed, DataEncodingMechanism.BASE85,
+                SerializerRegistry.getTextEncoder(DataEncodingMechanism.BASE85));
+        assertEquals(dp, new DataPacket(nested.toBytes()).unnest(
+                SerializerRegistry.getTextEncoder(DataEncodingMechanism.BASE85)).decompress());
+
+        byte[] unknownCodec = compressed.toBytes();
+        unknownCodec[3 + compressed.getEncodingName_ISO_8859_1().length] = (byte) 0xEE;
+        assertThrows(IllegalArgumentException.class, () -> new DataPacket(unknownCodec).decompress());
+    }
+
+    @Test
+    void payloadDecompressionLimitTest() {
+        DeflatePayloadCompressor deflate = new DeflatePayloadCompressor();
+        assertEquals(DeflatePayloadCompressor.DEFAULT_MAX_DECOMPRESSED_LENGTH, deflate.getMaxDecompressedLength());
+        assertThrows(IllegalArgumentException.class, () -> new DeflatePayloadCompressor(1, 0));
+
+        // highly compressible data, so the output buffer must grow while inflating
+        byte[] zeros = new byte[1 << 20];
+        byte[] compressed = deflate.compress(zeros, 0, zeros.length);
+        assertTrue(compressed.length * 100 < zeros.length);
+        assertArrayEquals(zeros, deflate.decompress(compressed, 0, compressed.length));
+        assertThrows(IllegalArgumentException.class, () -> new DeflatePayloadCompressor(1, zeros.length - 1)
+                .decompress(compressed, 0, compressed.length));
+
+        // a forged length prefix is rejected without allocating for it
+        byte[] forged = compressed.clone();
+        forged[0] = 0x7F;
+        assertThrows(IllegalArgumentException.class, () -> deflate.decompress(forged, 0, forged.length));
+        byte[] truncated = compressed.clone();
+        truncated[0] = 0x01;
+        assertThrows(IllegalArgumentException.class, () -> deflate.decompress(truncated, 0, truncated.length));
+    }
+
+    @Test
+    void dictionaryPayloadCompressionTest() throws Exception {
+        JsonEventSerializer jes = new JsonEventSerializer();
+        List<IEvent> samples = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            samples.add(i % 2 == 0 ? new Event() : new DomainEvent());
+        }
+        CompressionDictionary dictionary = CompressionDictionary.train(jes, samples, CompressionDictionary.DEFAULT_SIZE);
+        assertTrue(dictionary.getSize() <= CompressionDictionary.DEFAULT_SIZE);
+
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("ee-dictionary", ".bin");
+        try {
+            dictionary.save(file);
+            assertEquals(dictionary, CompressionDictionary.load(file));
+        } finally {
+            java.nio.file.Files.delete(file);
+        }
+
+        byte[] payload = jes.serialize(new DomainEvent());
+        DataPacket dp = new DataPacket(DataEncodingMechanism.JSON, jes.getEncoding(), payload);
+        DataPacket plain = dp.compress(new DeflatePayloadCompressor(), 0);
+        DataPacket withDictionary = dp.compress(new DictionaryDeflatePayloadCompressor(dictionary), 0);
+        assertEquals(DictionaryDeflatePayloadCompressor.ID, withDictionary.getCompressionId());
+        assertTrue(withDictionary.getLength() < plain.getLength());
+        assertTrue(withDictionary.getLength() * 3 < dp.getLength());
+        assertEquals(dp, new DataPacket(withDictionary.toBytes()).decompress());
+    }
+
+    @Test
+    void zeroCopyPacketTest() throws Exception {
+        JsonEventSerializer jes = new JsonEventSerializer(StandardCharsets.UTF_8);
+        Event ev = new Event();
+        DataPacket dp = DataPacket.wrapPayload(DataEncodingMechanism.JSON, jes.getEncoding(), jes.serialize(ev));
+        byte[] packed = dp.toBytes();
+
+        byte[] framed = new byte[packed.length + 7];
+        System.arraycopy(packed, 0, framed, 3, packed.length);
+        DataPacket wrapped = DataPacket.wrap(framed, 3, packed.length);
+        assertEquals(dp, wrapped);
+        assertEquals(dp.hashCode(), wrapped.hashCode());
+        assertEquals(new DataPacket(framed, 3, packed.length), wrapped);
+        assertEquals(wrapped, DataPacket.wrap(ByteBuffer.wrap(framed, 3, packed.length)));
+        ByteBuffer direct = ByteBuffer.allocateDirect(packed.length);
+        direct.put(packed).flip();
+        assertEquals(wrapped, DataPacket.wrap(direct));
+        assertEquals(0, direct.position());
+
+        ByteBuffer payload = wrapped.getPayloadBuffer();
+        assertTrue(payload.isReadOnly());
+        assertEquals(wrapped.getPayloadLength(), payload.remaining());
+        byte[] payloadCopy = new byte[payload.remaining()];
+        payload.get(payloadCopy);
+        assertArrayEquals(wrapped.getPayload(), payloadCopy);
+        assertEquals(ev, wrapped.readPayload(jes::deserialize));
+
+        ByteBuffer out = ByteBuffer.allocate(dp.getLength() + wrapped.getLength());
+        assertEquals(dp.getLength(), dp.writeTo(out));
+        assertEquals(wrapped.getLength(), wrapped.writeTo(out));
+        assertFalse(out.hasRemaining());
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        dp.writeTo(baos);
+        wrapped.writeTo(baos);
+        assertArrayEquals(out.array(), baos.toByteArray());
+        assertArrayEquals(packed, wrapped.toBytes());
+        assertThrows(BufferOverflowException.class, () -> dp.writeTo(ByteBuffer.allocate(dp.getLength() - 1)));
+    }
+
+    @Test
+    void wireBytesTest() throws Exception {
+        JsonEventSerializer jes = new JsonEventSerializer(StandardCharsets.UTF_8);
+        DataPacket dp = DataPacket.wrapPayload(DataEncodingMechanism.JSON, jes.getEncoding(),
+                jes.serialize(new Event()));
+        byte[] wire = dp.getWireBytes();
+        assertSame(wire, dp.getWireBytes());
+        assertArrayEquals(dp.toBytes(), wire);
+        assertNotSame(wire, dp.toBytes());
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        dp.writeTo(baos);
+        assertArrayEquals(wire, baos.toByteArray());
+
+        DataPacketKafka serde = new DataPacketKafka();
+        assertSame(wire, serde.serialize("events", dp));
+        assertSame(wire, serde.serialize("domain-events", dp));
+
+        // the received array is the packaged form itself
+        DataPacket received = DataPacket.wrap(wire, 0, wire.length);
+        assertSame(wire, received.getWireBytes());
+        byte[] framed = new byte[wire.length + 1];
+        System.arraycopy(wire, 0, framed, 0, wire.length);
+        assertArrayEquals(wire, DataPacket.wrap(framed, 0, wire.length).getWireBytes());
+    }
+
+    @Test
+    void fingerprintTest() {
+        assertEquals(0xEF46DB3751D8E999L, XxHash64.hash(new byte[0]));
+        assertEquals(0x44BC2CF5AD770999L, XxHash64.hash("abc".getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(0xFBCEA83C8A378BF1L, XxHash64.hash(
+                "Nobody inspects the spammish repetition".getBytes(StandardCharsets.ISO_8859_1)));
+
+        byte[] payload = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        DataPacket dp = new DataPacket(DataEncodingMechanism.JSON, StandardCharsets.UTF_8, payload);
+        DataPacket received = new DataPacket(dp.toBytes());
+        assertEquals(dp.getFingerprint(), received.getFingerprint());
+        assertEquals(16, dp.getFingerprintHex().length());
+        assertEquals(Long.parseUnsignedLong(dp.getFingerprintHex(), 16), dp.getFingerprint());
+        assertNotEquals(dp.getFingerprint(),
+                new DataPacket(DataEncodingMechanism.JSON, StandardCharsets.UTF_16BE, payload).getFingerprint());
+        assertNotEquals(dp.getFingerprint(),
+                new DataPacket(DataEncodingMechanism.JAVA, StandardCharsets.UTF_8, payload).getFingerprint());
+
+        // the same packet carrying an alias of the charset name
+        byte[] alias = "utf8".getBytes(StandardCharsets.ISO_8859_1);
+        byte[] aliased = new byte[3 + alias.length + payload.length];
+        aliased[0] = DataPacket.Version.CLASSIC.getCode();
+        aliased[1] = DataEncodingMechanism.JSON.getCode();
+        aliased[2] = (byte) alias.length;
+        System.arraycopy(alias, 0, aliased, 3, alias.length);
+        System.arraycopy(payload, 0, aliased, 3 + alias.length, payload.length);
+        DataPacket aliasedDp = new DataPacket(aliased);
+        assertEquals(dp, aliasedDp);
+        assertEquals(dp.getFingerprint(), aliasedDp.getFingerprint());
+        assertEquals(dp.hashCode(), aliasedDp.hashCode());
+
+        assertThrows(IllegalArgumentException.class, () -> new DataPacket(DataEncodingMechanism.JSON,
+                DataPacket.Version.COMPRESSED, StandardCharsets.UTF_8, payload));
+
+        CircularFifoSet<DataPacket> latest = new CircularFifoSet<>(2);
+        latest.add(dp);
+        assertTrue(latest.contains(received));
+        assertFalse(latest.contains(new DataPacket(DataEncodingMechanism.JSON, StandardCharsets.UTF_8,
+                "{\"id\":2}".getBytes(StandardCharsets.UTF_8))));
+    }
+
     @Test
     void encapsulationWithImproperDataLengthTest() {
         byte badSize = 0x50;
@@ -304,4 +531,75 @@ public class DispatchersTest {
         topicToEventsMap.put("system-events", new HashSet<Class<? extends IEvent>>(){{add(DomainEvent.class);}});
         assertEquals(topicToEventsMap, cfk.getTopicToEventsMap());
     }
+
+    @Test
+    void configFactoryKafkaPipelinedSendingTest() {
+        ConfigurationFactoryKafka cfk = new ConfigurationFactoryKafka(new Properties(), null,
+                DispatchingType.PRODUCE, null, null);
+        assertFalse(cfk.isPipelinedSending());
+        assertEquals(ConfigurationFactoryKafka.DEFAULT_MAX_IN_FLIGHT_SENDS, cfk.getMaxInFlightSends());
+        assertThrows(IllegalArgumentException.class, () -> cfk.setPipelinedSending(true, 0));
+        assertThrows(IllegalArgumentException.class, () -> cfk.setProducerBatching(-1, 5));
+        assertFalse(cfk.isPipelinedSending());
+
+        cfk.setPipelinedSending(true, 128);
+        cfk.setProducerBatching(65536, 5);
+        Properties props = cfk.getMainConfiguration(null);
+        assertEquals(65536, props.get("batch.size"));
+        assertEquals(5L, props.get("linger.ms"));
+
+        ConfigurationFactoryKafka copy = new ConfigurationFactoryKafka(cfk);
+        assertTrue(copy.isPipelinedSending());
+        assertEquals(128, copy.getMaxInFlightSends());
+        assertEquals(props.get("linger.ms"), copy.getMainConfiguration(null).get("linger.ms"));
+    }
+
+    @Test
+    void configFactoryKafkaOffsetCommitTest() {
+        ConfigurationFactoryKafka cfk = new ConfigurationFactoryKafka(new Properties(), null,
+                DispatchingType.CONSUME, null, null);
+        assertEquals(OffsetCommitStrategy.SYNC, cfk.getOffsetCommitStrategy());
+        assertNull(cfk.getMainConfiguration(null).get("enable.auto.commit"));
+        assertThrows(NullPointerException.class, () -> cfk.setOffsetCommitStrategy(null));
+        assertThrows(IllegalArgumentException.class, () -> cfk.setPeriodicCommit(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> cfk.setPeriodicCommit(100, 0));
+        assertEquals(OffsetCommitStrategy.SYNC, cfk.getOffsetCommitStrategy());
+
+        cfk.setPeriodicCommit(100, 250);
+        assertEquals(OffsetCommitStrategy.PERIODIC, cfk.getOffsetCommitStrategy());
+        assertEquals(false, cfk.getMainConfiguration(null).get("enable.auto.commit"));
+
+        cfk.setOffsetCommitStrategy(OffsetCommitStrategy.MANUAL);
+        ConfigurationFactoryKafka copy = new ConfigurationFactoryKafka(cfk);
+        assertEquals(OffsetCommitStrategy.MANUAL, copy.getOffsetCommitStrategy());
+        assertEquals(100, copy.getCommitIntervalRecords());
+        assertEquals(250, copy.getCommitIntervalMs());
+
+        ConfigurationFactoryKafka producer = new ConfigurationFactoryKafka(new Properties(), null,
+                DispatchingType.PRODUCE, null, null);
+        producer.setOffsetCommitStrategy(OffsetCommitStrategy.ASYNC);
+        assertNull(producer.getMainConfiguration(null).get("enable.auto.commit"));
+    }
+
+    @Test
+    void serializerRegistryTest() throws Exception {
+        assertSame(SerializerRegistry.getJava(), SerializerRegistry.get(DataEncodingMechanism.JAVA, null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> SerializerRegistry.get(DataEncodingMechanism.BASE32, null, null));
+
+        JsonEventSerializer jes = SerializerRegistry.getJson(null, new String[] { "b.pkg", "a.pkg" });
+        assertSame(jes, SerializerRegistry.getJson(JsonEventSerializer.getDefaultEncoding(),
+                new String[] { "a.pkg", "b.pkg", "a.pkg" }));
+        assertTrue(jes.isAttemptAutomaticClassRegistration());
+        assertTrue(jes.isConfigurationLocked());
+        assertThrows(IllegalStateException.class, () -> jes.setAttemptAutomaticClassRegistration(false));
+        assertThrows(IllegalStateException.class, () -> jes.setSchemaRegistry(null));
+        assertTrue(jes.isAttemptAutomaticClassRegistration());
+        assertNotSame(jes, SerializerRegistry.getJson(StandardCharsets.UTF_8, new String[] { "a.pkg", "b.pkg" }));
+        assertEquals(StandardCharsets.UTF_8,
+                SerializerRegistry.getJson(StandardCharsets.UTF_8, new String[] { "b.pkg", "a.pkg" }).getEncoding());
+
+        Event e = Event.makeInstance(Event.class);
+        assertEquals(e, jes.deserialize(jes.serialize(e)));
+    }
 }
@@ -0,0 +1,261 @@
+package test;
+
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.ConcurrentLongFifoSet;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.DuplicateFilters;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.ExactDuplicateFilter;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.FingerprintDuplicateFilter;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IDuplicateFilter;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.RotatingBloomDuplicateFilter;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.TimeWindowDuplicateFilter;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataEncodingMechanism;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DuplicateFilterTest {
+
+    private static DataPacket packet(int i) {
+        return new DataPacket(DataEncodingMechanism.JSON, StandardCharsets.UTF_8,
+                ("{\"id\":" + i + "}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void concurrentLongFifoSetTest() {
+        ConcurrentLongFifoSet set = new ConcurrentLongFifoSet(5);
+        assertEquals(5, set.getCapacity());
+        assertTrue(set.add(1));
+        assertTrue(set.add(3));
+        assertTrue(set.add(2));
+        assertFalse(set.add(3));
+        assertArrayEquals(new long[]{3, 2, 1}, set.toArray());
+
+        for (long i = 4; i <= 7; ++i) set.add(i);
+        assertArrayEquals(new long[]{7, 6, 5, 4, 3}, set.toArray());
+        assertFalse(set.contains(1));
+        assertFalse(set.contains(2));
+        assertTrue(set.contains(3));
+
+        ConcurrentLongFifoSet strict = new ConcurrentLongFifoSet(3, false);
+        strict.add(1);
+        strict.add(2);
+        strict.add(1);
+        strict.add(3);
+        strict.add(4);
+        assertArrayEquals(new long[]{4, 3, 2}, strict.toArray());
+
+        strict.clear();
+        assertEquals(0, strict.size());
+        assertFalse(strict.contains(2));
+
+        // refreshing the oldest element reuses its own position of the ring buffer
+        ConcurrentLongFifoSet single = new ConcurrentLongFifoSet(1);
+        assertTrue(single.add(5));
+        assertFalse(single.add(5));
+        assertTrue(single.contains(5));
+        assertArrayEquals(new long[]{5}, single.toArray());
+
+        ConcurrentLongFifoSet full = new ConcurrentLongFifoSet(3);
+        full.add(10);
+        full.add(20);
+        full.add(30);
+        assertFalse(full.add(10));
+        assertTrue(full.contains(10));
+        assertArrayEquals(new long[]{10, 30, 20}, full.toArray());
+        full.add(40);
+        assertArrayEquals(new long[]{40, 10, 30}, full.toArray());
+        assertFalse(full.contains(20));
+
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentLongFifoSet(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ConcurrentLongFifoSet(ConcurrentLongFifoSet.MAX_CAPACITY + 1));
+    }
+
+    @Test
+    void concurrentLongFifoSetLargeCapacityTest() throws InterruptedException {
+        final int capacity = 1_000_000;
+        final ConcurrentLongFifoSet set = new ConcurrentLongFifoSet(capacity);
+        final int threads = 4, perThread = capacity / threads;
+        final AtomicInteger added = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; ++t) {
+            final long base = (long) t * perThread;
+            Thread w = new Thread(() -> {
+                for (long i = 1; i <= perThread; ++i) {
+                    if (set.add((base + i) * 0x9E3779B97F4A7C15L)) added.incrementAndGet();
+                }
+            });
+            workers.add(w);
+            w.start();
+        }
+        for (Thread w : workers) w.join();
+
+        assertEquals(capacity, added.get());
+        int found = 0;
+        for (long i = 1; i <= capacity; ++i) {
+            if (set.contains(i * 0x9E3779B97F4A7C15L)) ++found;
+        }
+        // only the rare overflows of full buckets are forgotten earlier
+        assertTrue(found > capacity * 0.99, "found " + found);
+
+        for (long i = capacity + 1; i <= 2L * capacity; ++i) {
+            set.add(i * 0x9E3779B97F4A7C15L);
+        }
+        assertFalse(set.contains(0x9E3779B97F4A7C15L));
+        assertTrue(set.contains(2L * capacity * 0x9E3779B97F4A7C15L));
+    }
+
+    @Test
+    void duplicateFiltersTest() {
+        IDuplicateFilter[] filters = { new FingerprintDuplicateFilter(2), new ExactDuplicateFilter(2) };
+        for (IDuplicateFilter filter : filters) {
+            filter.record(packet(1));
+            assertTrue(filter.isDuplicate(new DataPacket(packet(1).toBytes())));
+            assertFalse(filter.isDuplicate(packet(2)));
+            filter.record(packet(2));
+
+            IDuplicateFilter copy = filter.copy();
+            filter.record(packet(3));
+            assertFalse(filter.isDuplicate(packet(1)));
+            assertTrue(copy.isDuplicate(packet(1)));
+            assertTrue(copy.isDuplicate(packet(2)));
+            assertFalse(copy.isDuplicate(packet(3)));
+
+            filter.clear();
+            assertFalse(filter.isDuplicate(packet(3)));
+        }
+    }
+
+    /**
+     * Packet with a fixed fingerprint, thus colliding with all of the others.
+     */
+    static class CollidingPacket extends DataPacket {
+        CollidingPacket(int id) {
+            super(DataEncodingMechanism.JSON, StandardCharsets.UTF_8,
+                    ("{\"id\":" + id + "}").getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public long getFingerprint() {
+            return 42;
+        }
+    }
+
+    @Test
+    void fingerprintCollisionTest() {
+        FingerprintDuplicateFilter verified = (FingerprintDuplicateFilter) DuplicateFilters.fingerprint().apply(4);
+        assertTrue(verified.isVerifyOnHit());
+        verified.record(new CollidingPacket(1));
+        assertTrue(verified.isDuplicate(new CollidingPacket(1)));
+        assertFalse(verified.isDuplicate(new CollidingPacket(2)));
+        assertTrue(verified.copy().isDuplicate(new CollidingPacket(1)));
+
+        FingerprintDuplicateFilter fingerprintOnly =
+                (FingerprintDuplicateFilter) DuplicateFilters.fingerprintOnly().apply(4);
+        assertFalse(fingerprintOnly.isVerifyOnHit());
+        fingerprintOnly.record(new CollidingPacket(1));
+        assertTrue(fingerprintOnly.isDuplicate(new CollidingPacket(2)));
+
+        // the packets of the evicted fingerprints are released
+        DataPacket first = packet(-1);
+        WeakReference<DataPacket> evicted = new WeakReference<>(first);
+        verified.record(first);
+        first = null;
+        for (int i = 0; i < 100; ++i) verified.record(packet(i));
+        assertTrue(verified.isDuplicate(packet(99)));
+        assertFalse(verified.isDuplicate(packet(90)));
+        for (int i = 0; i < 10 && evicted.get() != null; ++i) {
+            System.gc();
+        }
+        assertNull(evicted.get());
+    }
+
+    @Test
+    void timeWindowDuplicateFilterTest() {
+        AtomicLong clock = new AtomicLong();
+        TimeWindowDuplicateFilter filter = new TimeWindowDuplicateFilter(Duration.ofSeconds(10), 1000, clock::get);
+        for (int i = 0; i < 100; ++i) {
+            filter.record(packet(i));
+        }
+        // a burst larger than any count-based window still gets deduplicated
+        for (int i = 0; i < 100; ++i) {
+            assertTrue(filter.isDuplicate(packet(i)));
+        }
+        assertFalse(filter.isDuplicate(packet(100)));
+        assertEquals(100, filter.getHitCount());
+        assertEquals(1, filter.getMissCount());
+
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        filter.record(packet(0));
+        clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertTrue(filter.isDuplicate(packet(0)));
+        assertFalse(filter.isDuplicate(packet(1)));
+        filter.record(packet(200));
+        assertEquals(2, filter.size());
+
+        TimeWindowDuplicateFilter bounded = new TimeWindowDuplicateFilter(Duration.ofSeconds(10), 3, clock::get);
+        for (int i = 0; i < 5; ++i) {
+            bounded.record(packet(i));
+        }
+        assertFalse(bounded.isDuplicate(packet(1)));
+        assertTrue(bounded.isDuplicate(packet(2)));
+        assertEquals(3, bounded.size());
+
+        filter.resetCounters();
+        assertEquals(0, filter.getHitCount());
+        assertThrows(IllegalArgumentException.class, () -> new TimeWindowDuplicateFilter(Duration.ZERO));
+    }
+
+    @Test
+    void rotatingBloomDuplicateFilterTest() {
+        final int n = 100_000;
+        RotatingBloomDuplicateFilter filter = new RotatingBloomDuplicateFilter(n, 0.001);
+        assertTrue(filter.getFalsePositiveProbability() < 0.002);
+
+        for (int i = 0; i < n; ++i) {
+            filter.record(packet(i));
+        }
+        for (int i = 0; i < n; ++i) {
+            assertTrue(filter.isDuplicate(packet(i)));
+        }
+        int falsePositives = 0;
+        for (int i = n; i < 2 * n; ++i) {
+            if (filter.isDuplicate(packet(i))) ++falsePositives;
+        }
+        assertTrue(falsePositives < n * filter.getFalsePositiveProbability() * 2, "fp " + falsePositives);
+        assertEquals(n + falsePositives, filter.getHitCount());
+        assertEquals(n - falsePositives, filter.getMissCount());
+
+        // the window covers between 1 and 2 generations
+        for (int i = n; i < 2 * n; ++i) {
+            filter.record(packet(i));
+        }
+        assertTrue(filter.isDuplicate(packet(0)));
+        for (int i = 2 * n; i < 3 * n; ++i) {
+            filter.record(packet(i));
+        }
+        assertTrue(filter.isDuplicate(packet(2 * n + 5)));
+        int forgotten = 0;
+        for (int i = 0; i < 1000; ++i) {
+            if (!filter.isDuplicate(packet(i))) ++forgotten;
+        }
+        assertTrue(forgotten > 990);
+
+        IDuplicateFilter copy = filter.copy();
+        filter.clear();
+        assertFalse(filter.isDuplicate(packet(2 * n + 5)));
+        assertTrue(copy.isDuplicate(packet(2 * n + 5)));
+
+        assertThrows(IllegalArgumentException.class, () -> DuplicateFilters.rotatingBloom(n, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> DuplicateFilters.rotatingBloom(0, 0.01));
+        assertNotNull(DuplicateFilters.timeWindow(Duration.ofMinutes(1)).apply(15));
+    }
+}
@@ -0,0 +1,467 @@
+package test;
+
+import net.uniplovdiv.fmi.cs.vrs.event.Event;
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.DispatcherExecutors;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventFlow;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventFlowSubscriber;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventPipelineSettings;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IEventSubscription;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.IdReservation;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.ReceiveOrdering;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.AbstractBrokerConfigFactory;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.AbstractEventDispatcher;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.DispatchingType;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka.ConfigurationFactoryKafka;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataEncodingMechanism;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.JsonEventSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventPipelineTest {
+
+    /**
+     * Dispatcher receiving data packets from an in-memory queue instead of a broker.
+     */
+    static class InMemoryDispatcher extends AbstractEventDispatcher {
+        final ConcurrentLinkedQueue<DataPacket> queue = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<DataPacket> sent = new ConcurrentLinkedQueue<>();
+        final ConfigurationFactoryKafka config;
+        final int batchSize;
+        volatile boolean closed;
+
+        InMemoryDispatcher(int batchSize) {
+            this(new ConfigurationFactoryKafka(new Properties(), DataEncodingMechanism.JSON, DispatchingType.CONSUME,
+                    null, null), batchSize);
+        }
+
+        InMemoryDispatcher(ConfigurationFactoryKafka config, int batchSize) {
+            super(config, 100, false, null);
+            this.config = config;
+            this.batchSize = batchSize;
+        }
+
+        void offer(IEvent event) throws Exception {
+            JsonEventSerializer jes = new JsonEventSerializer(StandardCharsets.UTF_8);
+            queue.add(DataPacket.wrapPayload(DataEncodingMechanism.JSON, jes.getEncoding(), jes.serialize(event)));
+        }
+
+        @Override
+        public AbstractEventDispatcher makeNewWithSameConfig() {
+            return new InMemoryDispatcher(config, batchSize);
+        }
+
+        @Override
+        protected AbstractBrokerConfigFactory retrieveConfig(DispatchingType dt) {
+            return config;
+        }
+
+        @Override
+        protected boolean doPreSendChecks() {
+            return !closed;
+        }
+
+        @Override
+        protected boolean doActualSend(String topic, DataPacket dp) {
+            return sent.add(dp);
+        }
+
+        @Override
+        protected boolean doPreReceiveChecks() {
+            return !closed;
+        }
+
+        @Override
+        protected List<DataPacket> doActualReceive(long timeout) {
+            List<DataPacket> result = new ArrayList<>();
+            DataPacket dp;
+            while (result.size() < batchSize && (dp = queue.poll()) != null) {
+                result.add(dp);
+            }
+            if (result.isEmpty()) {
+                try {
+                    Thread.sleep(Math.min(timeout, 10));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+            return result;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return !closed;
+        }
+
+        @Override
+        public void close() {
+            cancelSubscription();
+            closed = true;
+        }
+    }
+
+    private static Event event(int priority) {
+        Event e = Event.makeInstance(Event.class);
+        e.setPriority(priority);
+        return e;
+    }
+
+    @Test
+    void receiveOrderingTest() throws Exception {
+        int[] priorities = { 9, 3, 7, 1, 8, 2, 6, 0, 5, 4 };
+        InMemoryDispatcher dispatcher = new InMemoryDispatcher(100);
+        assertEquals(ReceiveOrdering.SORTED, dispatcher.config.getReceiveOrdering());
+        assertThrows(IllegalArgumentException.class, () -> dispatcher.config.setReceiveOrdering(ReceiveOrdering.TOP_K));
+        assertThrows(IllegalArgumentException.class, () -> dispatcher.config.setTopKReceiveOrdering(0));
+
+        for (int p : priorities) dispatcher.offer(event(p));
+        List<IEvent> events = dispatcher.receive(10);
+        for (int i = 0; i < priorities.length; ++i) {
+            assertEquals(i, events.get(i).getPriority());
+        }
+
+        dispatcher.config.setReceiveOrdering(ReceiveOrdering.NONE);
+        for (int p : priorities) dispatcher.offer(event(p));
+        events = dispatcher.receive(10);
+        for (int i = 0; i < priorities.length; ++i) {
+            assertEquals(priorities[i], events.get(i).getPriority());
+        }
+
+        // the 3 events with the highest priority first, then the rest in the order of receiving
+        dispatcher.config.setTopKReceiveOrdering(3);
+        for (int p : priorities) dispatcher.offer(event(p));
+        events = dispatcher.receive(10);
+        int[] expected = { 0, 1, 2, 9, 3, 7, 8, 6, 5, 4 };
+        assertEquals(expected.length, events.size());
+        for (int i = 0; i < expected.length; ++i) {
+            assertEquals(expected[i], events.get(i).getPriority());
+        }
+        dispatcher.close();
+    }
+
+    @Test
+    void receiveFilterTest() throws Exception {
+        InMemoryDispatcher dispatcher = new InMemoryDispatcher(100);
+        assertNull(dispatcher.config.getReceiveFilter());
+        AtomicInteger materialized = new AtomicInteger();
+        dispatcher.config.setReceiveFilter(lazy -> {
+            if (lazy.isMaterialized()) materialized.incrementAndGet();
+            return lazy.getPriority() % 2 == 0;
+        });
+
+        for (int i = 0; i < 10; ++i) dispatcher.offer(event(i));
+        List<IEvent> events = dispatcher.receive(10);
+        assertEquals(5, events.size());
+        for (int i = 0; i < events.size(); ++i) {
+            assertEquals(Event.class, events.get(i).getClass());
+            assertEquals(2 * i, events.get(i).getPriority());
+        }
+        assertEquals(0, materialized.get());
+        dispatcher.close();
+    }
+
+    @Test
+    void idReservationTest() throws Exception {
+        InMemoryDispatcher dispatcher = new InMemoryDispatcher(10);
+        assertEquals(IdReservation.RECURSIVE, dispatcher.config.getIdReservation());
+        assertThrows(NullPointerException.class, () -> dispatcher.config.setIdReservation(null));
+
+        for (IdReservation reservation : IdReservation.values()) {
+            dispatcher.config.setIdReservation(reservation);
+            Event parent = event(1);
+            Event child = event(2);
+            parent.getSubEvents().put(child.getId(), child);
+
+            dispatcher.offer(parent);
+            List<IEvent> received = dispatcher.receive(10);
+            assertEquals(1, received.size());
+            IEvent event = received.get(0);
+            assertEquals(reservation == IdReservation.KEEP, parent.getId() == event.getId());
+            assertEquals(1, event.getSubEvents().size());
+            IEvent subEvent = event.getSubEvents().values().iterator().next();
+            assertEquals(reservation != IdReservation.RECURSIVE, child.getId() == subEvent.getId());
+            assertEquals(subEvent.getId(), (long) event.getSubEvents().keySet().iterator().next());
+        }
+        dispatcher.close();
+    }
+
+    @Test
+    void orderedDeliveryTest() throws Exception {
+        InMemoryDispatcher dispatcher = new InMemoryDispatcher(7);
+        int count = 500;
+        for (int i = 0; i < count; ++i) {
+            dispatcher.offer(event(i));
+            if (i == 0) {
+                dispatcher.queue.add(dispatcher.queue.peek()); // filtered out duplicate
+            }
+        }
+
+        List<Integer> priorities = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(count);
+        IEventSubscription subscription = dispatcher.subscribe(e -> {
+            priorities.add(e.getPriority());
+            latch.countDown();
+        }, new EventPipelineSettings(4, 16, true, 50));
+
+        assertThrows(IllegalStateException.class, () -> dispatcher.subscribe(e -> { }));
+        assertNull(dispatcher.receive(10));
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(count, subscription.getDeliveredCount());
+        for (int i = 0; i < count; ++i) {
+            assertEquals(i, (int) priorities.get(i));
+        }
+
+        dispatcher.close();
+        assertTrue(subscription.isCancelled());
+        assertFalse(dispatcher.isSubscribed());
+    }
+
+    @Test
+    void unorderedDeliveryAndBackpressureTest() throws Exception {
+        InMemoryDispatcher dispatcher = new InMemoryDispatcher(5);
+        int count = 200;
+        for (int i = 0; i < count; ++i) {
+            dispatcher.offer(event(i));
+        }
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger delivered = new AtomicInteger();
+        IEventSubscription subscription = dispatcher.subscribe(e -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.incrementAndGet();
+        }, new EventPipelineSettings(2, 10, false, 20));
+
+        // the blocked consumer stops the polling once the capacity is reached
+        Thread.sleep(300);
+        assertTrue(dispatcher.queue.size() >= count - 15);
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 30000;
+        while (delivered.get() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, delivered.get());
+        subscription.cancel();
+        assertTrue(subscription.isCancelled());
+
+        // the pull receiving works again after the cancellation
+        dispatcher.offer(event(1));
+        List<IEvent> events = dispatcher.receive(10);
+        assertNotNull(events);
+        assertEquals(1, events.size());
+        dispatcher.close();
+        assertThrows(IllegalStateException.class, () -> dispatcher.subscribe(e -> { }));
+    }
+
+    @Test
+    void pollLimitedByCapacityTest() throws Exception {
+        List<Integer> requested = Collections.synchronizedList(new ArrayList<>());
+        InMemoryDispatcher dispatcher = new InMemoryDispatcher(5) {
+            @Override
+            protected List<DataPacket> doActualReceive(long timeout, int maxRecords) {
+                requested.add(maxRecords);
+                List<DataPacket> result = new ArrayList<>();
+                DataPacket dp;
+                while (result.size() < Math.min(batchSize, maxRecords) && (dp = queue.poll()) != null) {
+                    result.add(dp);
+                }
+                return (result.isEmpty() ? null : result);
+            }
+        };
+        int count = 50;
+        for (int i = 0; i < count; ++i) {
+            dispatcher.offer(event(i));
+        }
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger delivered = new AtomicInteger();
+        IEventSubscription subscription = dispatcher.subscribe(e -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.incrementAndGet();
+        }, new EventPipelineSettings(2, 7, true, 20));
+
+        // the broker is asked only for as many events as there's room for, so none are taken beyond the capacity
+        Thread.sleep(300);
+        assertEquals(count - 7, dispatcher.queue.size());
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 30000;
+        while (delivered.get() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, delivered.get());
+        synchronized (requested) {
+            assertTrue(requested.stream().allMatch(r -> r >= 1 && r <= 7));
+        }
+        subscription.cancel();
+        dispatcher.close();
+    }
+
+    @Test
+    void publisherDemandTest() throws Exception {
+        InMemoryDispatcher dispatcher = new InMemoryDispatcher(5);
+        int count = 100;
+        for (int i = 0; i < count; ++i) {
+            dispatcher.offer(event(i));
+        }
+
+        List<Integer> priorities = Collections.synchronizedList(new ArrayList<>());
+        List<EventFlow.Subscription> subscriptions = new ArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        EventFlow.Subscriber<IEvent> subscriber = new EventFlow.Subscriber<IEvent>() {
+            @Override
+            public void onSubscribe(EventFlow.Subscription subscription) {
+                subscriptions.add(subscription);
+                subscription.request(3);
+            }
+
+            @Override
+            public void onNext(IEvent item) {
+                priorities.add(item.getPriority());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        };
+        EventFlow.Publisher<IEvent> publisher = dispatcher.toPublisher(new EventPipelineSettings(2, 16, true, 20));
+        publisher.subscribe(subscriber);
+
+        // a single poll for the demand of 3 events, the rest of the polled ones are buffered
+        Thread.sleep(200);
+        assertEquals(3, priorities.size());
+        assertEquals(count - 5, dispatcher.queue.size());
+        assertTrue(dispatcher.isSubscribed());
+
+        AtomicInteger refusals = new AtomicInteger();
+        publisher.subscribe(new EventFlow.Subscriber<IEvent>() {
+            @Override
+            public void onSubscribe(EventFlow.Subscription subscription) { }
+
+            @Override
+            public void onNext(IEvent item) { }
+
+            @Override
+            public void onError(Throwable throwable) {
+                assertTrue(throwable instanceof IllegalStateException);
+                refusals.incrementAndGet();
+            }
+
+            @Override
+            public void onComplete() { }
+        });
+        assertEquals(1, refusals.get());
+
+        subscriptions.get(0).request(Long.MAX_VALUE);
+        long deadline = System.currentTimeMillis() + 30000;
+        while (priorities.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        for (int i = 0; i < count; ++i) {
+            assertEquals(i, (int) priorities.get(i));
+        }
+
+        dispatcher.closed = true;
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertFalse(dispatcher.isSubscribed());
+    }
+
+    @Test
+    void subscriberSendingTest() throws Exception {
+        InMemoryDispatcher source = new InMemoryDispatcher(8);
+        InMemoryDispatcher sink = new InMemoryDispatcher(8);
+        int count = 100;
+        for (int i = 0; i < count; ++i) {
+            source.offer(event(i));
+        }
+
+        EventFlowSubscriber subscriber = new EventFlowSubscriber(sink, 4);
+        assertThrows(IllegalArgumentException.class, () -> new EventFlowSubscriber(sink, 0));
+        source.toPublisher(new EventPipelineSettings(1, true)).subscribe(subscriber);
+
+        long deadline = System.currentTimeMillis() + 30000;
+        while (subscriber.getSentCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, subscriber.getSentCount());
+        assertEquals(0, subscriber.getFailedCount());
+        assertEquals(count, sink.sent.size());
+
+        subscriber.cancel();
+        assertFalse(source.isSubscribed());
+        source.close();
+        sink.close();
+    }
+
+    @Test
+    void executorTest() throws Exception {
+        String version = System.getProperty("java.specification.version");
+        int major = Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+        assertEquals(major >= 21, DispatcherExecutors.isVirtualThreadSupported());
+        if (!DispatcherExecutors.isVirtualThreadSupported()) {
+            assertSame(DispatcherExecutors.blockingIoPool(), DispatcherExecutors.virtualThreadPerTask());
+        }
+
+        ConfigurationFactoryKafka config = new ConfigurationFactoryKafka(new Properties(), DataEncodingMechanism.JSON,
+                DispatchingType.CONSUME_PRODUCE, null, null);
+        assertSame(DispatcherExecutors.blockingIoPool(), config.getExecutor());
+        assertThrows(NullPointerException.class, () -> config.setExecutor(null));
+        config.setExecutor(DispatcherExecutors.callerRuns());
+        assertSame(DispatcherExecutors.callerRuns(), new ConfigurationFactoryKafka(config).getExecutor());
+
+        // the caller runs the sending, so it completes before returning
+        InMemoryDispatcher dispatcher = new InMemoryDispatcher(config, 1);
+        Thread caller = Thread.currentThread();
+        AtomicInteger completions = new AtomicInteger();
+        dispatcher.send(event(1), (success, e) -> {
+            assertTrue(success);
+            assertSame(caller, Thread.currentThread());
+            completions.incrementAndGet();
+        });
+        assertEquals(1, completions.get());
+        assertEquals(1, dispatcher.sent.size());
+
+        config.setExecutor(DispatcherExecutors.virtualThreadPerTask());
+        dispatcher = new InMemoryDispatcher(new ConfigurationFactoryKafka(config), 1);
+        CountDownLatch latch = new CountDownLatch(100);
+        AtomicInteger commonPoolUses = new AtomicInteger();
+        for (int i = 0; i < 100; ++i) {
+            dispatcher.send(event(i), (success, e) -> {
+                if (Thread.currentThread().getName().startsWith("ForkJoinPool.commonPool")) {
+                    commonPoolUses.incrementAndGet();
+                }
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals(100, dispatcher.sent.size());
+        assertEquals(0, commonPoolUses.get());
+    }
+}
@@ -0,0 +1,154 @@
+package test;
+
+import net.uniplovdiv.fmi.cs.vrs.event.Event;
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventFlow;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventFlowSubscriber;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.EventPipelineSettings;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.flow.FlowAdapters;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlowAdaptersTest {
+
+    private static Event event(int priority) {
+        Event e = Event.makeInstance(Event.class);
+        e.setPriority(priority);
+        return e;
+    }
+
+    @Test
+    void flowPublisherTest() throws Exception {
+        EventPipelineTest.InMemoryDispatcher dispatcher = new EventPipelineTest.InMemoryDispatcher(8);
+        int count = 20;
+        for (int i = 0; i < count; ++i) {
+            dispatcher.offer(event(i));
+        }
+
+        List<Integer> priorities = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        Flow.Publisher<IEvent> publisher =
+                FlowAdapters.toFlowPublisher(dispatcher.toPublisher(new EventPipelineSettings(1, true)));
+        publisher.subscribe(new Flow.Subscriber<IEvent>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(5);
+            }
+
+            @Override
+            public void onNext(IEvent item) {
+                priorities.add(item.getPriority());
+                if (priorities.size() % 5 == 0) subscription.request(5);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+
+        long deadline = System.currentTimeMillis() + 30000;
+        while (priorities.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        for (int i = 0; i < count; ++i) {
+            assertEquals(i, (int) priorities.get(i));
+        }
+        assertTrue(dispatcher.isSubscribed());
+
+        dispatcher.closed = true;
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertFalse(dispatcher.isSubscribed());
+    }
+
+    @Test
+    void flowSubscriberTest() throws Exception {
+        EventPipelineTest.InMemoryDispatcher sink = new EventPipelineTest.InMemoryDispatcher(8);
+        EventFlowSubscriber subscriber = new EventFlowSubscriber(sink, 4);
+        int count = 50;
+        try (SubmissionPublisher<IEvent> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(FlowAdapters.toFlowSubscriber(subscriber));
+            for (int i = 0; i < count; ++i) {
+                publisher.submit(event(i));
+            }
+            long deadline = System.currentTimeMillis() + 30000;
+            while (subscriber.getSentCount() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+        assertEquals(count, subscriber.getSentCount());
+        assertEquals(0, subscriber.getFailedCount());
+        assertEquals(count, sink.sent.size());
+        sink.close();
+    }
+
+    @Test
+    void eventFlowPublisherTest() throws Exception {
+        List<Integer> items = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        try (SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+            FlowAdapters.toEventFlowPublisher(publisher).subscribe(new EventFlow.Subscriber<Integer>() {
+                @Override
+                public void onSubscribe(EventFlow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Integer item) {
+                    items.add(item);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                    completed.countDown();
+                }
+            });
+            for (int i = 0; i < 10; ++i) {
+                publisher.submit(i);
+            }
+        }
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(i, (int) items.get(i));
+        }
+    }
+
+    @Test
+    void unwrappingTest() {
+        EventPipelineTest.InMemoryDispatcher dispatcher = new EventPipelineTest.InMemoryDispatcher(8);
+        EventFlow.Publisher<IEvent> publisher = dispatcher.toPublisher(new EventPipelineSettings(1, true));
+        assertSame(publisher, FlowAdapters.toEventFlowPublisher(FlowAdapters.toFlowPublisher(publisher)));
+
+        SubmissionPublisher<IEvent> flowPublisher = new SubmissionPublisher<>();
+        assertSame(flowPublisher, FlowAdapters.toFlowPublisher(FlowAdapters.toEventFlowPublisher(flowPublisher)));
+        flowPublisher.close();
+
+        EventFlowSubscriber subscriber = new EventFlowSubscriber(dispatcher, 1);
+        assertSame(subscriber, FlowAdapters.toEventFlowSubscriber(FlowAdapters.toFlowSubscriber(subscriber)));
+
+        assertThrows(NullPointerException.class, () -> FlowAdapters.toFlowPublisher(null));
+        assertThrows(NullPointerException.class, () -> FlowAdapters.toEventFlowPublisher(null));
+        assertThrows(NullPointerException.class, () -> FlowAdapters.toFlowSubscriber(null));
+        assertThrows(NullPointerException.class, () -> FlowAdapters.toEventFlowSubscriber(null));
+        dispatcher.close();
+    }
+}
@@ -0,0 +1,77 @@
+package test;
+
+import net.uniplovdiv.fmi.cs.vrs.event.Event;
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.PartitionKeyExtractor;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.PartitionKeyExtractors;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.DispatchingType;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.brokers.kafka.ConfigurationFactoryKafka;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataEncodingMechanism;
+import net.uniplovdiv.fmi.cs.vrs.event.dispatchers.encapsulation.DataPacket;
+import net.uniplovdiv.fmi.cs.vrs.event.location.EventLocation;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionKeyExtractorsTest {
+
+    @Test
+    void geohashTest() {
+        assertEquals("ezs42", PartitionKeyExtractors.geohash(42.6, -5.6, 5));
+        assertEquals("u4pruydqqvj", PartitionKeyExtractors.geohash(57.64911, 10.40744, 11));
+        assertEquals("u4pru", PartitionKeyExtractors.geohash(57.64911, 10.40744, 5));
+        assertThrows(IllegalArgumentException.class, () -> PartitionKeyExtractors.geohash(0, 0, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> PartitionKeyExtractors.byGeohash(PartitionKeyExtractors.MAX_GEOHASH_PRECISION + 1));
+    }
+
+    @Test
+    void extractorsTest() {
+        Event e = Event.makeInstance(Event.class);
+        assertEquals(Long.toString(e.getId()), PartitionKeyExtractors.byEventId().extractKey(e));
+
+        PartitionKeyExtractor bySource = PartitionKeyExtractors.byDynamicParameter("source");
+        assertNull(bySource.extractKey(e));
+        e.getDynamicParameters().put("source", 42);
+        assertEquals("42", bySource.extractKey(e));
+        assertThrows(NullPointerException.class, () -> PartitionKeyExtractors.byDynamicParameter(null));
+
+        PartitionKeyExtractor byLocation = PartitionKeyExtractors.byGeohash(5);
+        assertNull(byLocation.extractKey(e));
+        e.setEventLocation(new EventLocation(-5.6, 42.6, null, null, null, 0, null));
+        assertEquals("ezs42", byLocation.extractKey(e));
+    }
+
+    @Test
+    void dispatcherKeyTest() {
+        ConfigurationFactoryKafka cfk = new ConfigurationFactoryKafka(new Properties(), DataEncodingMechanism.JSON,
+                DispatchingType.CONSUME_PRODUCE, null, null);
+        ConcurrentLinkedQueue<String> keys = new ConcurrentLinkedQueue<>();
+        EventPipelineTest.InMemoryDispatcher dispatcher = new EventPipelineTest.InMemoryDispatcher(cfk, 10) {
+            @Override
+            protected boolean doActualSend(String topic, String key, DataPacket dp) {
+                keys.add(String.valueOf(key));
+                return super.doActualSend(topic, key, dp);
+            }
+        };
+
+        IEvent e = Event.makeInstance(Event.class);
+        assertTrue(dispatcher.send(e));
+        assertEquals("null", keys.poll());
+
+        cfk.setPartitionKeyExtractor(PartitionKeyExtractors.byEventId());
+        assertTrue(dispatcher.send(e));
+        assertEquals(Long.toString(e.getId()), keys.poll());
+
+        cfk.setPartitionKeyExtractor(event -> {
+            throw new IllegalStateException("failing extractor");
+        });
+        assertTrue(dispatcher.send(e));
+        assertEquals("null", keys.poll());
+        assertEquals(3, dispatcher.sent.size());
+        dispatcher.close();
+    }
+}
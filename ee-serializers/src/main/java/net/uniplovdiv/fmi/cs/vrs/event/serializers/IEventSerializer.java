@@ -56,6 +56,32 @@ public interface IEventSerializer {
     IEvent deserialize(byte[] serializedEvent) throws IOException, SecurityException, NullPointerException,
             ClassNotFoundException;
 
+    /**
+     * Deserializes region of byte data representing object implementing IEvent to an actual object instance. The
+     * default implementation copies the region, while the implementations are expected to read it directly.
+     * @param data The array containing the serialized IEvent.
+     * @param offset The offset of the serialized IEvent inside the array.
+     * @param length The length of the serialized IEvent in bytes.
+     * @return An initialized object implementing IEvent.
+     * @throws java.io.StreamCorruptedException - if the provided data cannot form a stream header that is correct ot
+     *                                            if the resulting object does not implement the IEvent interface
+     * @throws java.io.IOException - if an I/O error occurs while reading stream header
+     * @throws SecurityException - if untrusted subclass illegally overrides security-sensitive methods
+     * @throws NullPointerException - if data is null
+     * @throws IndexOutOfBoundsException - if the region exceeds the bounds of the array
+     * @throws ClassNotFoundException - if the resulting of the deserialization object cannot be instantiated, because
+     *                                  its class is not found in the system
+     */
+    default IEvent deserialize(byte[] data, int offset, int length) throws IOException, SecurityException,
+            NullPointerException, ClassNotFoundException {
+        if (offset == 0 && length == data.length) {
+            return deserialize(data);
+        }
+        byte[] region = new byte[length];
+        System.arraycopy(data, offset, region, 0, length);
+        return deserialize(region);
+    }
+
     /**
      * Deserializes byte data representing object implementing IParameterComparisonOutcome to an actual object instance.
      * @param serializedComparisonOutcome The serialized IParameterComparisonOutcome which will be converted to an
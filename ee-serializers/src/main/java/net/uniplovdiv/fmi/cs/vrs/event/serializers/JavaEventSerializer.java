@@ -25,6 +25,9 @@ public class JavaEventSerializer implements IEventSerializer {
 
     @Override
     public byte[] serialize(IEvent event) throws IOException, SecurityException, NullPointerException {
+        if (event instanceof LazyEvent) {
+            event = ((LazyEvent) event).materialize();
+        }
         return this.basicJavaSerializer.serialize(event);
     }
 
@@ -51,6 +54,42 @@ public class JavaEventSerializer implements IEventSerializer {
         return (IEvent)o;
     }
 
+    @Override
+    public IEvent deserialize(byte[] data, int offset, int length) throws IOException, SecurityException,
+            NullPointerException, ClassNotFoundException {
+        Object o = this.basicJavaSerializer.deserialize(data, offset, length);
+        if (!(o instanceof IEvent)) {
+            throw new StreamCorruptedException(
+                    "The provided serialized data does not represent an object implementing IEvent!");
+        }
+        return (IEvent)o;
+    }
+
+    /**
+     * Creates a lazy view of serialized IEvent that provides its header fields without deserializing the whole event.
+     * See {@link LazyEvent}.
+     * @param serializedEvent The serialized IEvent. The array is used directly so it must not be modified afterwards.
+     * @return An initialized lazy event instance.
+     * @throws NullPointerException If serializedEvent is null
+     */
+    public LazyEvent deserializeLazily(byte[] serializedEvent) {
+        return LazyEvent.fromJava(this, serializedEvent);
+    }
+
+    /**
+     * Creates a lazy view of serialized IEvent stored in a region of an array, without copying it. See
+     * {@link LazyEvent}.
+     * @param data The array containing the serialized IEvent, used directly so it must not be modified afterwards.
+     * @param offset The offset of the serialized IEvent inside the array.
+     * @param length The length of the serialized IEvent in bytes.
+     * @return An initialized lazy event instance.
+     * @throws NullPointerException If data is null
+     * @throws IndexOutOfBoundsException If the region exceeds the bounds of the array
+     */
+    public LazyEvent deserializeLazily(byte[] data, int offset, int length) {
+        return LazyEvent.fromJava(this, data, offset, length);
+    }
+
     @Override
     public IParameterComparisonOutcome deserializePCO(byte[] serializedComparisonOutcome) throws IOException,
             SecurityException, NullPointerException, ClassNotFoundException {
@@ -11,6 +11,7 @@ import net.uniplovdiv.fmi.cs.vrs.event.parameters.comparison.ParameterComparison
 import net.uniplovdiv.fmi.cs.vrs.event.parameters.comparison.ParameterComparisonOutcomeTemplate;
 import net.uniplovdiv.fmi.cs.vrs.event.parameters.comparison.ParametersComparisonResult;
 import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.ClassesIEventScanner;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.EventSchemaRegistry;
 import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.RuntimeTypeAdapterFactory;
 
 import java.io.IOException;
@@ -37,7 +38,9 @@ public class JsonEventSerializer implements IEventSerializer {
     private Gson gson;
     private Charset encoding;
     private ClassesIEventScanner packageScanner;
-    private boolean attemptAutomaticClassRegistration;
+    private volatile boolean attemptAutomaticClassRegistration;
+    private volatile EventSchemaRegistry schemaRegistry;
+    private volatile boolean configurationLocked;
 
     //<editor-fold desc="Experiments with Gson generic type adapters">
     /*
@@ -358,17 +361,13 @@ public class JsonEventSerializer implements IEventSerializer {
             }
 
             JsonElement element = context.serialize(src, clazz);
-            try {
-                long serialUid = ObjectStreamClass.lookup(clazz).getSerialVersionUID();
-                if (serialUid == 0) {
-                    serialUid = javaEventSerializer.computeSerialVersionUidFromEvent(src);
-                }
-                element.getAsJsonObject().addProperty(SV_UID_FIELD_NAME, serialUid);
-            } catch (Exception e) {
-                e.printStackTrace(System.err);
+            RuntimeTypeAdapterFactory.Subtype subtype = iEventRuntimeTypeAdapterFactory.getSubtype(clazz);
+            if (subtype == null) {
+                registerEvent(clazz);
+                subtype = iEventRuntimeTypeAdapterFactory.getSubtype(clazz);
             }
-
-            element.getAsJsonObject().addProperty(CLASS_META_KEY, getClassFullName(src.getClass()));
+            element.getAsJsonObject().addProperty(SV_UID_FIELD_NAME, subtype.getSerialVersionUID());
+            element.getAsJsonObject().addProperty(CLASS_META_KEY, subtype.getLabel());
             return element;
         }
 
@@ -412,17 +411,51 @@ public class JsonEventSerializer implements IEventSerializer {
      * Constructor. The default encoding used during serialization/deserialization is UTF-16.
      */
     public JsonEventSerializer() {
+        this(getDefaultEncoding(), null, null);
+    }
+
+    /**
+     * Constructor.
+     * @param encoding The encoding used during serialization/deserialization.
+     */
+    public JsonEventSerializer(final Charset encoding) {
+        this(encoding, null, null);
+    }
+
+    /**
+     * Constructor.
+     * @param packagesWithEvents The packages that contain classes implementing {@link IEvent} interface.
+     */
+    public JsonEventSerializer(String... packagesWithEvents) {
+        this(getDefaultEncoding(), null, null, packagesWithEvents);
+    }
+
+    /**
+     * Constructor - the most complete one.
+     * @param encoding The encoding used during serialization/deserialization.
+     *                 The see preferred one take a look at {@link #getDefaultEncoding() getDefaultEncoding()} method.
+     * @param classesImplementingEvents Any class objects that represent classes implementing {@link IEvent} interface.
+     *                                  Can be null. Useful alternative of packagesWithEvents parameter on platforms
+     *                                  where package scanning is not well supported for e.g. Android.
+     * @param customDataTypeAdapters Data type adapters used for de/serialization of you own concrete data types,
+     *                               that usually appear 'exotic' and not supported by standard. Can be null.
+     *                               Each pair consists of class object and class instance that implements
+     *                               GSON's JsonSerializer, JsonDeserializer, etc.
+     * @param packagesWithEvents The packages that contain classes implementing {@link IEvent} interface.
+     *                           Can be null or missing.
+     */
+    public JsonEventSerializer(final Charset encoding, Set<Class<? extends IEvent>> classesImplementingEvents,
+                               Map<Type, Object> customDataTypeAdapters, String... packagesWithEvents) {
         this.attemptAutomaticClassRegistration = false;
-        this.encoding = getDefaultEncoding();
+        this.encoding = encoding;
         this.javaEventSerializer = new JavaEventSerializer();
 
         this.iEventRuntimeTypeAdapterFactory = RuntimeTypeAdapterFactory.of(IEvent.class,
                 IEvent.___EVENT_TYPE_CLASS_NAME,
-                (RuntimeTypeAdapterFactory.RuntimeFieldInjector<IEvent>) (into, value) -> {
+                (RuntimeTypeAdapterFactory.RuntimeFieldInjector<IEvent>) (into, value, subtype) -> {
                     if (into == null || value == null) return;
-                    Class<?> clazz = value.getClass();
                     try {
-                        long serialUid = ObjectStreamClass.lookup(clazz).getSerialVersionUID();
+                        long serialUid = subtype.getSerialVersionUID();
                         if (serialUid == 0) {
                             serialUid = javaEventSerializer.computeSerialVersionUidFromEvent(value);
                         }
@@ -431,37 +464,35 @@ public class JsonEventSerializer implements IEventSerializer {
                         e.printStackTrace(System.err);
                     }
                 },
-                (RuntimeTypeAdapterFactory.RuntimeFieldRemover) (from, typeClassName, labelToSubtype) -> {
+                (RuntimeTypeAdapterFactory.RuntimeFieldRemover) (from, typeClassName, subtype) -> {
                     if (from == null) return;
-                    Class<?> clazz = labelToSubtype.getOrDefault(typeClassName, null);
-                    if (clazz == null && isAttemptAutomaticClassRegistration()) {
-                        try {
-                            clazz = Class.forName(typeClassName);
-                            if (clazz != null && (IEvent.class.isAssignableFrom(clazz))) {
-                                @SuppressWarnings("unchecked")
-                                Class<? extends IEvent> cls = (Class<? extends IEvent>) clazz;
-                                registerEvent(cls);
-                                labelToSubtype.put(typeClassName, cls);
-                            }
-                        } catch (Exception e) {
-                        }
-                    }
                     try {
-                        clazz = labelToSubtype.getOrDefault(typeClassName, Event.class); //Class.forName(typeClassName);
-                        long serialUid = ObjectStreamClass.lookup(clazz).getSerialVersionUID();
+                        if (subtype == null) {
+                            throw new IllegalClassFormatException("Unregistered serialized class " + typeClassName);
+                        }
+                        long serialUid = subtype.getSerialVersionUID();
+                        EventSchemaRegistry schemas = this.schemaRegistry;
                         if (from.has(IEvent.___SV_UID_FIELD_NAME)) {
                             long serializedSerialUid = from.get(IEvent.___SV_UID_FIELD_NAME).getAsLong();
                             if (serializedSerialUid != serialUid) {
-                                throw new IllegalClassFormatException(IEvent.___SV_UID_FIELD_NAME
-                                        + " mismatch - original " + serialUid + ", serialized " + serializedSerialUid
-                                        + " - class " + typeClassName);
+                                if (schemas == null) {
+                                    throw new IllegalClassFormatException(IEvent.___SV_UID_FIELD_NAME
+                                            + " mismatch - original " + serialUid + ", serialized "
+                                            + serializedSerialUid + " - class " + typeClassName);
+                                }
+                                from.remove(IEvent.___SV_UID_FIELD_NAME);
+                                schemas.adapt(from, subtype.getType(), serializedSerialUid);
                             }
                         } else {
-                            throw new IllegalClassFormatException("Missing field " + IEvent.___SV_UID_FIELD_NAME
-                                    + " for serialized class " + typeClassName);
+                            if (schemas == null) {
+                                throw new IllegalClassFormatException("Missing field " + IEvent.___SV_UID_FIELD_NAME
+                                        + " for serialized class " + typeClassName);
+                            }
+                            schemas.adapt(from, subtype.getType(), null);
                         }
                     } catch (Exception e) {
-                        System.err.println("Cannot deserialize " + typeClassName + " using " + clazz + ". Cause: ");
+                        System.err.println("Cannot deserialize " + typeClassName + " using "
+                                + (subtype != null ? subtype.getType() : null) + ". Cause: ");
                         e.printStackTrace(System.err);
                         System.err.println("--------------------");
                         throw new IOException(e);
@@ -470,14 +501,32 @@ public class JsonEventSerializer implements IEventSerializer {
                 }
         );
 
+        this.iEventRuntimeTypeAdapterFactory.withSubtypeResolver(new RuntimeTypeAdapterFactory.SubtypeResolver() {
+            @Override
+            public Class<?> resolveType(String label) {
+                if (isAttemptAutomaticClassRegistration()) {
+                    try {
+                        return Class.forName(label);
+                    } catch (Exception e) {
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public String resolveLabel(Class<?> type) {
+                // the instance is already loaded and available, so registering its class is always safe
+                return getClassFullName(type);
+            }
+        });
+
         this.iParameterComparisonOutcomeRuntimeTypeAdapterFactory = RuntimeTypeAdapterFactory.of(
                 IParameterComparisonOutcome.class, ParameterComparisonOutcome.___RESULT_TYPE_CLASS_NAME,
-                (RuntimeTypeAdapterFactory.RuntimeFieldInjector<IParameterComparisonOutcome>)(into, value) -> {
+                (RuntimeTypeAdapterFactory.RuntimeFieldInjector<IParameterComparisonOutcome>)(into, value, subtype) -> {
                     if (into == null || value == null) return;
-                    Class<?> clazz = value.getClass();
                     try {
-                        if (!clazz.equals(ParameterComparisonOutcome.class)) {
-                            long serialUid = ObjectStreamClass.lookup(clazz).getSerialVersionUID();
+                        if (!subtype.getType().equals(ParameterComparisonOutcome.class)) {
+                            long serialUid = subtype.getSerialVersionUID();
                             if (serialUid == 0) {
                                 serialUid = javaEventSerializer.computeSerialVersionUidFromEventHelper(value);
                             }
@@ -487,12 +536,11 @@ public class JsonEventSerializer implements IEventSerializer {
                         e.printStackTrace(System.err);
                     }
                 },
-                (RuntimeTypeAdapterFactory.RuntimeFieldRemover) (from, typeClassName, labelToSubtype) -> {
+                (RuntimeTypeAdapterFactory.RuntimeFieldRemover) (from, typeClassName, subtype) -> {
                     if (from == null) return;
                     try {
-                        Class<?> clazz = labelToSubtype.getOrDefault(typeClassName, ParameterComparisonOutcome.class); //Class.forName(typeClassName);
-                        if (!clazz.equals(ParameterComparisonOutcome.class)) {
-                            long serialUid = ObjectStreamClass.lookup(clazz).getSerialVersionUID();
+                        if (subtype != null && !subtype.getType().equals(ParameterComparisonOutcome.class)) {
+                            long serialUid = subtype.getSerialVersionUID();
                             if (from.has(ParametersComparisonResult.___SV_UID_FIELD_NAME)) {
                                 long serializedSerialUid = from.get(ParametersComparisonResult.___SV_UID_FIELD_NAME)
                                         .getAsLong();
@@ -519,11 +567,17 @@ public class JsonEventSerializer implements IEventSerializer {
         this.iParameterComparisonOutcomeRuntimeTypeAdapterFactory.registerSubtype(ParametersComparisonResult.class,
                 getClassFullName(ParametersComparisonResult.class));
 
-        this.packageScanner = new ClassesIEventScanner();
-        Set<Class<? extends IEvent>> iEventImplementors = packageScanner.scan();
+        // the scanner relies on the compile time index and caches its results, so no repetitive class path scanning
+        this.packageScanner = new ClassesIEventScanner(packagesWithEvents);
+        Set<Class<? extends IEvent>> iEventImplementors = this.packageScanner.scan();
         for (Class<? extends IEvent> implementor : iEventImplementors) {
             this.iEventRuntimeTypeAdapterFactory.registerSubtype(implementor, getClassFullName(implementor));
         }
+        if (classesImplementingEvents != null) {
+            for (Class<? extends IEvent> implementor : classesImplementingEvents) {
+                this.iEventRuntimeTypeAdapterFactory.registerSubtype(implementor, getClassFullName(implementor));
+            }
+        }
 
         this.gsonBuilder = new GsonBuilder().enableComplexMapKeySerialization()
                 .registerTypeAdapter(IEventsContainer.class, new IEventsContainerInstanceCreator())
@@ -538,58 +592,6 @@ public class JsonEventSerializer implements IEventSerializer {
         for (Class<? extends IEvent> implementor : iEventImplementors) {
             this.gsonBuilder.registerTypeAdapter(implementor, iEventImplementorsSerializer);
         }*/
-        this.gson = this.gsonBuilder.create();
-    }
-
-    /**
-     * Constructor.
-     * @param encoding The encoding used during serialization/deserialization.
-     */
-    public JsonEventSerializer(final Charset encoding) {
-        this();
-        this.encoding = encoding;
-    }
-
-    /**
-     * Constructor.
-     * @param packagesWithEvents The packages that contain classes implementing {@link IEvent} interface.
-     */
-    public JsonEventSerializer(String... packagesWithEvents) {
-        this();
-        this.packageScanner = new ClassesIEventScanner(packagesWithEvents);
-        Set<Class<? extends IEvent>> iEventImplementors = this.packageScanner.scan();
-        for (Class<? extends IEvent> implementor : iEventImplementors) {
-            this.iEventRuntimeTypeAdapterFactory.registerSubtype(implementor, getClassFullName(implementor));
-        }
-        this.gson = this.gsonBuilder.create();
-    }
-
-    /**
-     * Constructor - the most complete one.
-     * @param encoding The encoding used during serialization/deserialization.
-     *                 The see preferred one take a look at {@link #getDefaultEncoding() getDefaultEncoding()} method.
-     * @param classesImplementingEvents Any class objects that represent classes implementing {@link IEvent} interface.
-     *                                  Can be null. Useful alternative of packagesWithEvents parameter on platforms
-     *                                  where package scanning is not well supported for e.g. Android.
-     * @param customDataTypeAdapters Data type adapters used for de/serialization of you own concrete data types,
-     *                               that usually appear 'exotic' and not supported by standard. Can be null.
-     *                               Each pair consists of class object and class instance that implements
-     *                               GSON's JsonSerializer, JsonDeserializer, etc.
-     * @param packagesWithEvents The packages that contain classes implementing {@link IEvent} interface.
-     *                           Can be null or missing.
-     */
-    public JsonEventSerializer(final Charset encoding, Set<Class<? extends IEvent>> classesImplementingEvents,
-                               Map<Type, Object> customDataTypeAdapters, String... packagesWithEvents) {
-        this();
-        this.encoding = encoding;
-        this.packageScanner = new ClassesIEventScanner(packagesWithEvents);
-        Set<Class<? extends IEvent>> iEventImplementors = this.packageScanner.scan();
-        if (classesImplementingEvents != null) {
-            iEventImplementors.addAll(classesImplementingEvents);
-        }
-        for (Class<? extends IEvent> implementor : iEventImplementors) {
-            this.iEventRuntimeTypeAdapterFactory.registerSubtype(implementor, getClassFullName(implementor));
-        }
         if (customDataTypeAdapters != null && !customDataTypeAdapters.isEmpty()) {
             for (Map.Entry<Type, Object> entry : customDataTypeAdapters.entrySet()) {
                 if (entry.getKey() != null && entry.getValue() != null) {
@@ -601,31 +603,38 @@ public class JsonEventSerializer implements IEventSerializer {
     }
 
     /**
-     * Registers additional event classes.
+     * Registers additional event classes. The registration takes effect immediately without recreating the underlying
+     * GSON instance.
      * @param event The event class to be registered.
      */
     public void registerEvent(Class<? extends IEvent> event) {
         if (event != null) {
-            synchronized (this) {
-                this.iEventRuntimeTypeAdapterFactory.registerSubtype(event, getClassFullName(event));
-                this.gson = this.gsonBuilder.create();
-            }
+            this.iEventRuntimeTypeAdapterFactory.registerSubtype(event, getClassFullName(event));
         }
     }
 
     /**
-     * Registers additional event classes.
+     * Registers additional event classes. The registration takes effect immediately without recreating the underlying
+     * GSON instance.
      * @param events The set of event classes to be registered.
      */
     public void registerEvent(Set<Class<? extends IEvent>> events) {
         if (events != null) {
-            synchronized (this) {
-                events.forEach(ev -> this.iEventRuntimeTypeAdapterFactory.registerSubtype(ev, getClassFullName(ev)));
-                this.gson = this.gsonBuilder.create();
-            }
+            events.forEach(ev -> this.iEventRuntimeTypeAdapterFactory.registerSubtype(ev, getClassFullName(ev)));
         }
     }
 
+    /**
+     * Returns the registered event class identified by a type label used in the JSON representation.
+     * @param label The type label - normally the full name of the class.
+     * @return The class object or null if no event class is registered with that label.
+     */
+    @SuppressWarnings("unchecked")
+    public Class<? extends IEvent> getRegisteredEventClass(String label) {
+        RuntimeTypeAdapterFactory.Subtype subtype = this.iEventRuntimeTypeAdapterFactory.getSubtype(label);
+        return (subtype != null ? (Class<? extends IEvent>) subtype.getType() : null);
+    }
+
     /**
      * Retrieves the status of the automatic class registration mode.
      * @return True if the mode is activated otherwise false.
@@ -640,11 +649,56 @@ public class JsonEventSerializer implements IEventSerializer {
      * in case of a problem. However the performance might be reduced as well as the security of the application, thus
      * by default is turned off.
      * @param attemptAutomaticClassRegistration True to turn on the function. False to turn it off.
+     * @throws IllegalStateException If the configuration is locked. See {@link #lockConfiguration()}.
      */
     public void setAttemptAutomaticClassRegistration(boolean attemptAutomaticClassRegistration) {
+        checkConfigurationNotLocked();
         this.attemptAutomaticClassRegistration = attemptAutomaticClassRegistration;
     }
 
+    /**
+     * Returns the schema registry used to adapt events produced by other versions of their classes.
+     * @return The schema registry or null if the strict mode is active.
+     */
+    public EventSchemaRegistry getSchemaRegistry() {
+        return schemaRegistry;
+    }
+
+    /**
+     * Sets the schema registry used to adapt events whose serialVersionUID is different from the one of the local
+     * event class or is missing. By default no registry is set, which means that such events are strictly rejected
+     * with an IOException. See {@link EventSchemaRegistry}.
+     * @param schemaRegistry The schema registry to be used or null to activate the strict mode.
+     * @throws IllegalStateException If the configuration is locked. See {@link #lockConfiguration()}.
+     */
+    public void setSchemaRegistry(EventSchemaRegistry schemaRegistry) {
+        checkConfigurationNotLocked();
+        this.schemaRegistry = schemaRegistry;
+    }
+
+    /**
+     * Locks the configuration of the serializer, so the automatic class registration mode and the schema registry can
+     * no longer be changed. Used for instances shared between many independent users. The registration of additional
+     * event classes remains possible. The lock cannot be released.
+     */
+    public void lockConfiguration() {
+        this.configurationLocked = true;
+    }
+
+    /**
+     * Returns whether the configuration of the serializer is locked. See {@link #lockConfiguration()}.
+     * @return True if locked otherwise false.
+     */
+    public boolean isConfigurationLocked() {
+        return configurationLocked;
+    }
+
+    private void checkConfigurationNotLocked() {
+        if (configurationLocked) {
+            throw new IllegalStateException("The configuration of the serializer is locked");
+        }
+    }
+
     /**
      * Returns the default encoding used during de/serialization from/to strings.
      * @return The used encoding instance.
@@ -720,12 +774,10 @@ public class JsonEventSerializer implements IEventSerializer {
 
     @Override
     public byte[] serialize(IEvent event) throws IOException {
-        try {
-            return this._serialize(event);
-        } catch (IOException ex) {
-            registerEvent(event.getClass());
-            return this._serialize(event);
+        if (event instanceof LazyEvent) {
+            event = ((LazyEvent) event).materialize();
         }
+        return this._serialize(event);
     }
 
     @Override
@@ -751,8 +803,39 @@ public class JsonEventSerializer implements IEventSerializer {
      * @throws NullPointerException If serializedEvent is null
      */
     private <R> R _deserialize(byte[] serializedData, Class<? extends R> representative) throws IOException {
+        return this._deserialize(new String(serializedData, this.encoding), representative);
+    }
+
+    /**
+     * Deserialize region of byte data representing object implementing object for which a corresponding
+     * de/serializer GSON utility exists to an actual object instance.
+     * @param data The array containing the serialized object data.
+     * @param offset The offset of the serialized object data inside the array.
+     * @param length The length of the serialized object data in bytes.
+     * @param representative The class object of the class that will be used to represent the deserialized data.
+     * @return An initialized object.
+     * @throws IOException If the resulting of the deserialization object cannot be instantiated, because its class is
+     *                     not found in the system
+     * @throws NullPointerException If data is null
+     * @throws IndexOutOfBoundsException If the region exceeds the bounds of the array
+     */
+    private <R> R _deserialize(byte[] data, int offset, int length, Class<? extends R> representative)
+            throws IOException {
+        return this._deserialize(new String(data, offset, length, this.encoding), representative);
+    }
+
+    /**
+     * Deserialize the JSON representation of object for which a corresponding de/serializer GSON utility exists to an
+     * actual object instance.
+     * @param json The JSON representation of the object.
+     * @param representative The class object of the class that will be used to represent the deserialized data.
+     * @return An initialized object.
+     * @throws IOException If the resulting of the deserialization object cannot be instantiated, because its class is
+     *                     not found in the system
+     */
+    private <R> R _deserialize(String json, Class<? extends R> representative) throws IOException {
         try {
-            return this.gson.fromJson(new String(serializedData, this.encoding), representative);
+            return this.gson.fromJson(json, representative);
         } catch (RuntimeException ex) {
             Throwable t = ex.getCause();
             if (t != null && ((t = t.getCause()) != null) && t instanceof JsonParseException) {
@@ -777,15 +860,7 @@ public class JsonEventSerializer implements IEventSerializer {
      * @throws NullPointerException If serializedEvent is null
      */
     public IEvent deserialize(byte[] serializedEvent, Class<? extends IEvent> representative) throws IOException {
-        try {
-            return this._deserialize(serializedEvent, representative);
-        } catch (Exception e) {
-            if (isAttemptAutomaticClassRegistration()) {
-                // if not registered class is the case the auto registration should have fixed it. Retry...
-                return this._deserialize(serializedEvent, representative);
-            }
-            throw e;
-        }
+        return this._deserialize(serializedEvent, representative);
     }
 
     /**
@@ -804,6 +879,47 @@ public class JsonEventSerializer implements IEventSerializer {
         return this.deserialize(serializedEvent, IEvent.class);
     }
 
+    /**
+     * Deserialization of a region of byte data without copying it, where the class representative will be Event.
+     * @param data The array containing the serialized IEvent.
+     * @param offset The offset of the serialized IEvent inside the array.
+     * @param length The length of the serialized IEvent in bytes.
+     * @return Event instance with the initialized data.
+     * @throws IOException If an I/O error occurs while reading stream header or if the resulting of the deserialization
+     *                     object cannot be instantiated, because its class is not found in the system
+     * @throws NullPointerException If data or the encoding is null
+     * @throws IndexOutOfBoundsException If the region exceeds the bounds of the array
+     */
+    @Override
+    public IEvent deserialize(byte[] data, int offset, int length) throws IOException {
+        return this._deserialize(data, offset, length, IEvent.class);
+    }
+
+    /**
+     * Creates a lazy view of serialized IEvent that provides its header fields without deserializing the whole event.
+     * See {@link LazyEvent}.
+     * @param serializedEvent The serialized IEvent. The array is used directly so it must not be modified afterwards.
+     * @return An initialized lazy event instance.
+     * @throws NullPointerException If serializedEvent is null
+     */
+    public LazyEvent deserializeLazily(byte[] serializedEvent) {
+        return LazyEvent.fromJson(this, serializedEvent);
+    }
+
+    /**
+     * Creates a lazy view of serialized IEvent stored in a region of an array, without copying it. See
+     * {@link LazyEvent}.
+     * @param data The array containing the serialized IEvent, used directly so it must not be modified afterwards.
+     * @param offset The offset of the serialized IEvent inside the array.
+     * @param length The length of the serialized IEvent in bytes.
+     * @return An initialized lazy event instance.
+     * @throws NullPointerException If data is null
+     * @throws IndexOutOfBoundsException If the region exceeds the bounds of the array
+     */
+    public LazyEvent deserializeLazily(byte[] data, int offset, int length) {
+        return LazyEvent.fromJson(this, data, offset, length);
+    }
+
     @Override
     public IParameterComparisonOutcome deserializePCO(byte[] serializedComparisonOutcome) throws IOException {
         return this._deserialize(serializedComparisonOutcome, IParameterComparisonOutcome.class);
@@ -0,0 +1,502 @@
+package net.uniplovdiv.fmi.cs.vrs.event.serializers;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import net.uniplovdiv.fmi.cs.vrs.event.Event;
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.annotations.ExcludeFromEventScan;
+import net.uniplovdiv.fmi.cs.vrs.event.location.EventLocation;
+import net.uniplovdiv.fmi.cs.vrs.event.parameters.IEventsContainer;
+import net.uniplovdiv.fmi.cs.vrs.event.parameters.ParametersContainer;
+import net.uniplovdiv.fmi.cs.vrs.event.parameters.comparison.ParametersComparisonResult;
+
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.Charset;
+
+/**
+ * Lazy view of a serialized {@link IEvent}. Only the header fields - the type, id, timestamps and priority - are
+ * parsed up front directly from the serialized data. The actual event (including its dynamic parameters, location and
+ * sub-events) gets deserialized on the first access to any other information or on the first modification, after
+ * which all of the calls are delegated to it. Useful for filtering and routing where most of the events get rejected
+ * only by their header. If the header cannot be parsed the event is deserialized immediately on demand.
+ * The instances are thread-safe as long as the materialized event is not modified concurrently. A lazy event is equal
+ * only to another lazy event whose materialized event is equal, so to compare it with a regular event use
+ * {@link #materialize()}. Not an event type on its own, thus excluded from the event classes scanning.
+ */
+@ExcludeFromEventScan
+public class LazyEvent implements IEvent {
+
+    private static final ClassValue<String> categories = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            try {
+                Constructor<?> ctor = type.getDeclaredConstructor();
+                ctor.setAccessible(true);
+                return ((IEvent) ctor.newInstance()).getCategory();
+            } catch (Exception | LinkageError e) {
+                return null;
+            }
+        }
+    };
+
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+    private final IEventSerializer serializer;
+
+    private boolean headerParsed;
+    private String typeName;
+    private Class<? extends IEvent> type;
+    private long id;
+    private long timestampMs;
+    private long validFromTimestampMs;
+    private long validThroughTimestampMs;
+    private int priority;
+
+    private volatile IEvent materialized;
+
+    private LazyEvent(byte[] data, int offset, int length, IEventSerializer serializer) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("Region [" + offset + ", " + offset + " + " + length
+                    + ") is out of bounds for length " + data.length);
+        }
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        this.serializer = serializer;
+    }
+
+    /**
+     * Creates lazy view over event serialized in JSON format by {@link JsonEventSerializer}.
+     * @param serializer The serializer that produced the data and will be used to materialize the event. Cannot be null.
+     * @param data The serialized event. The array is used directly so it must not be modified afterwards.
+     * @return An initialized lazy event instance.
+     * @throws NullPointerException If any of the parameters is null.
+     */
+    public static LazyEvent fromJson(JsonEventSerializer serializer, byte[] data) {
+        if (serializer == null || data == null) {
+            throw new NullPointerException("Null serializer or data!");
+        }
+        return fromJson(serializer, data, 0, data.length);
+    }
+
+    /**
+     * Creates lazy view over event serialized in JSON format by {@link JsonEventSerializer}, which is stored in a
+     * region of an array.
+     * @param serializer The serializer that produced the data and will be used to materialize the event. Cannot be null.
+     * @param data The array containing the serialized event. It is used directly so it must not be modified afterwards.
+     * @param offset The offset of the serialized event inside the array.
+     * @param length The length of the serialized event in bytes.
+     * @return An initialized lazy event instance.
+     * @throws NullPointerException If any of the parameters is null.
+     * @throws IndexOutOfBoundsException If the region exceeds the bounds of the array.
+     */
+    public static LazyEvent fromJson(JsonEventSerializer serializer, byte[] data, int offset, int length) {
+        if (serializer == null || data == null) {
+            throw new NullPointerException("Null serializer or data!");
+        }
+        LazyEvent le = new LazyEvent(data, offset, length, serializer);
+        try {
+            le.parseJsonHeader(serializer.getEncoding());
+            if (le.typeName != null) {
+                le.type = serializer.getRegisteredEventClass(le.typeName);
+            }
+        } catch (Exception e) {
+            le.headerParsed = false;
+        }
+        return le;
+    }
+
+    /**
+     * Creates lazy view over event serialized in the standard java serialization format by {@link JavaEventSerializer}.
+     * @param serializer The serializer that produced the data and will be used to materialize the event. Cannot be null.
+     * @param data The serialized event. The array is used directly so it must not be modified afterwards.
+     * @return An initialized lazy event instance.
+     * @throws NullPointerException If any of the parameters is null.
+     */
+    public static LazyEvent fromJava(JavaEventSerializer serializer, byte[] data) {
+        if (serializer == null || data == null) {
+            throw new NullPointerException("Null serializer or data!");
+        }
+        return fromJava(serializer, data, 0, data.length);
+    }
+
+    /**
+     * Creates lazy view over event serialized in the standard java serialization format by {@link JavaEventSerializer},
+     * which is stored in a region of an array.
+     * @param serializer The serializer that produced the data and will be used to materialize the event. Cannot be null.
+     * @param data The array containing the serialized event. It is used directly so it must not be modified afterwards.
+     * @param offset The offset of the serialized event inside the array.
+     * @param length The length of the serialized event in bytes.
+     * @return An initialized lazy event instance.
+     * @throws NullPointerException If any of the parameters is null.
+     * @throws IndexOutOfBoundsException If the region exceeds the bounds of the array.
+     */
+    public static LazyEvent fromJava(JavaEventSerializer serializer, byte[] data, int offset, int length) {
+        if (serializer == null || data == null) {
+            throw new NullPointerException("Null serializer or data!");
+        }
+        LazyEvent le = new LazyEvent(data, offset, length, serializer);
+        try {
+            le.parseJavaHeader();
+        } catch (Exception e) {
+            le.headerParsed = false;
+        }
+        if (le.typeName != null) {
+            try {
+                ClassLoader cl = serializer.basicJavaSerializer.getContextClassLoader();
+                Class<?> cls = Class.forName(le.typeName, false,
+                        (cl != null ? cl : LazyEvent.class.getClassLoader()));
+                if (IEvent.class.isAssignableFrom(cls)) {
+                    @SuppressWarnings("unchecked")
+                    Class<? extends IEvent> c = (Class<? extends IEvent>) cls;
+                    le.type = c;
+                }
+            } catch (Exception | LinkageError ignored) {
+            }
+        }
+        return le;
+    }
+
+    /**
+     * Reads the top level fields of the JSON object skipping all of the nested values.
+     * @param encoding The character encoding of the data.
+     * @throws IOException If the data is malformed.
+     */
+    private void parseJsonHeader(Charset encoding) throws IOException {
+        int found = 0;
+        boolean hasId = false, hasTimestamp = false;
+        try (JsonReader jr = new JsonReader(new InputStreamReader(new ByteArrayInputStream(data, offset, length),
+                encoding))) {
+            jr.beginObject();
+            while (found < 6 && jr.hasNext()) {
+                String name = jr.nextName();
+                if (jr.peek() == JsonToken.NULL) {
+                    jr.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case IEvent.___EVENT_TYPE_CLASS_NAME: typeName = jr.nextString(); ++found; break;
+                    case "id": id = jr.nextLong(); hasId = true; ++found; break;
+                    case "timestampMs": timestampMs = jr.nextLong(); hasTimestamp = true; ++found; break;
+                    case "validFromTimestampMs": validFromTimestampMs = jr.nextLong(); ++found; break;
+                    case "validThroughTimestampMs": validThroughTimestampMs = jr.nextLong(); ++found; break;
+                    case "priority": priority = jr.nextInt(); ++found; break;
+                    default: jr.skipValue();
+                }
+            }
+        }
+        headerParsed = (typeName != null && hasId && hasTimestamp);
+    }
+
+    /**
+     * Reads the class descriptors of the serialized object and the primitive field values of {@link Event} which, as
+     * the top most serializable class, are written right after the descriptors.
+     * @throws IOException If the data is malformed or uses not supported stream constructs.
+     */
+    private void parseJavaHeader() throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, length));
+        if (in.readShort() != ObjectStreamConstants.STREAM_MAGIC
+                || in.readShort() != ObjectStreamConstants.STREAM_VERSION
+                || in.readByte() != ObjectStreamConstants.TC_OBJECT) {
+            throw new StreamCorruptedException("Unsupported object stream header");
+        }
+
+        String topClassName = null;
+        char[] topTypeCodes = null;
+        String[] topNames = null;
+
+        byte tc = in.readByte();
+        while (tc == ObjectStreamConstants.TC_CLASSDESC) {
+            String className = in.readUTF();
+            if (typeName == null) {
+                typeName = className;
+            }
+            in.readLong(); // serialVersionUID
+            in.readByte(); // flags
+            int fieldsCount = in.readUnsignedShort();
+            char[] typeCodes = new char[fieldsCount];
+            String[] names = new String[fieldsCount];
+            for (int i = 0; i < fieldsCount; ++i) {
+                typeCodes[i] = (char) in.readByte();
+                names[i] = in.readUTF();
+                if (typeCodes[i] == '[' || typeCodes[i] == 'L') {
+                    byte stc = in.readByte();
+                    if (stc == ObjectStreamConstants.TC_STRING) {
+                        in.readUTF();
+                    } else if (stc == ObjectStreamConstants.TC_REFERENCE) {
+                        in.readInt();
+                    } else {
+                        throw new StreamCorruptedException("Unsupported field type name");
+                    }
+                }
+            }
+            if (in.readByte() != ObjectStreamConstants.TC_ENDBLOCKDATA) {
+                throw new StreamCorruptedException("Unsupported class annotation");
+            }
+            topClassName = className;
+            topTypeCodes = typeCodes;
+            topNames = names;
+            tc = in.readByte();
+        }
+        if (tc != ObjectStreamConstants.TC_NULL || !Event.class.getName().equals(topClassName)) {
+            return; // only the type name is known
+        }
+
+        int found = 0;
+        for (int i = 0; i < topTypeCodes.length; ++i) {
+            long value;
+            switch (topTypeCodes[i]) {
+                case 'B': case 'Z': value = in.readByte(); break;
+                case 'C': case 'S': value = in.readShort(); break;
+                case 'I': case 'F': value = in.readInt(); break;
+                case 'J': case 'D': value = in.readLong(); break;
+                default: i = topTypeCodes.length; continue; // the object fields follow the primitive ones
+            }
+            switch (topNames[i]) {
+                case "id": id = value; ++found; break;
+                case "timestampMs": timestampMs = value; ++found; break;
+                case "validFromTimestampMs": validFromTimestampMs = value; ++found; break;
+                case "validThroughTimestampMs": validThroughTimestampMs = value; ++found; break;
+                case "priority": priority = (int) value; ++found; break;
+                default:
+            }
+        }
+        headerParsed = (found == 5);
+    }
+
+    /**
+     * Returns whether the header fields have been successfully parsed without deserializing the whole event.
+     * @return True if the header is available, otherwise false.
+     */
+    public boolean isHeaderParsed() {
+        return headerParsed;
+    }
+
+    /**
+     * Returns the name of the serialized event type as it appears in the serialized data.
+     * @return The type name or null if it cannot be determined.
+     */
+    public String getTypeName() {
+        return typeName;
+    }
+
+    /**
+     * Returns the class of the serialized event if it is known to the current application.
+     * @return The class object or null if it cannot be determined.
+     */
+    public Class<? extends IEvent> getType() {
+        return type;
+    }
+
+    /**
+     * Returns whether the actual event has already been deserialized.
+     * @return True if the event is materialized, otherwise false.
+     */
+    public boolean isMaterialized() {
+        return materialized != null;
+    }
+
+    /**
+     * Deserializes the actual event, if not done already, and returns it.
+     * @return The deserialized event instance.
+     * @throws IllegalStateException If the deserialization fails.
+     */
+    public IEvent materialize() {
+        IEvent result = materialized;
+        if (result == null) {
+            synchronized (this) {
+                result = materialized;
+                if (result == null) {
+                    try {
+                        result = serializer.deserialize(data, offset, length);
+                    } catch (IOException | ClassNotFoundException e) {
+                        throw new IllegalStateException("Cannot deserialize event of type " + typeName, e);
+                    }
+                    materialized = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long getId() {
+        IEvent m = materialized;
+        return (m == null && headerParsed ? id : materialize().getId());
+    }
+
+    @Override
+    public void setId(long id) {
+        materialize().setId(id);
+    }
+
+    @Override
+    public long getTimestampMs() {
+        IEvent m = materialized;
+        return (m == null && headerParsed ? timestampMs : materialize().getTimestampMs());
+    }
+
+    @Override
+    public void setTimestampMs(long timestampMs) {
+        materialize().setTimestampMs(timestampMs);
+    }
+
+    @Override
+    public long getValidFromTimestampMs() {
+        IEvent m = materialized;
+        return (m == null && headerParsed ? validFromTimestampMs : materialize().getValidFromTimestampMs());
+    }
+
+    @Override
+    public void setValidFromTimestampMs(long validFromTimestampMs) {
+        materialize().setValidFromTimestampMs(validFromTimestampMs);
+    }
+
+    @Override
+    public long getValidThroughTimestampMs() {
+        IEvent m = materialized;
+        return (m == null && headerParsed ? validThroughTimestampMs : materialize().getValidThroughTimestampMs());
+    }
+
+    @Override
+    public void setValidThroughTimestampMs(long validThroughTimestampMs) {
+        materialize().setValidThroughTimestampMs(validThroughTimestampMs);
+    }
+
+    @Override
+    public int getPriority() {
+        IEvent m = materialized;
+        return (m == null && headerParsed ? priority : materialize().getPriority());
+    }
+
+    @Override
+    public void setPriority(int priority) {
+        materialize().setPriority(priority);
+    }
+
+    @Override
+    public String getCategory() {
+        if (materialized == null && type != null) {
+            String category = categories.get(type);
+            if (category != null) {
+                return category;
+            }
+        }
+        return materialize().getCategory();
+    }
+
+    @Override
+    public String getDescription() {
+        return materialize().getDescription();
+    }
+
+    @Override
+    public void setDescription(String description) {
+        materialize().setDescription(description);
+    }
+
+    @Override
+    public ParametersContainer getDynamicParameters() {
+        return materialize().getDynamicParameters();
+    }
+
+    @Override
+    public void setDynamicParameters(ParametersContainer parameters) {
+        materialize().setDynamicParameters(parameters);
+    }
+
+    @Override
+    public ParametersContainer getWithEmbeddedParameters() throws NoSuchMethodException, IllegalAccessException,
+            InstantiationException, InvocationTargetException {
+        return materialize().getWithEmbeddedParameters();
+    }
+
+    @Override
+    public ParametersContainer getEmbeddedParameters() throws NoSuchMethodException, IllegalAccessException,
+            InstantiationException, InvocationTargetException {
+        return materialize().getEmbeddedParameters();
+    }
+
+    @Override
+    public EventLocation getEventLocation() {
+        return materialize().getEventLocation();
+    }
+
+    @Override
+    public void setEventLocation(EventLocation eventLocation) {
+        materialize().setEventLocation(eventLocation);
+    }
+
+    @Override
+    public IEventsContainer getSubEvents() {
+        return materialize().getSubEvents();
+    }
+
+    @Override
+    public void setSubEvents(IEventsContainer subEvents) {
+        materialize().setSubEvents(subEvents);
+    }
+
+    @Override
+    public void addSubEvent(Long keyId, IEvent event) {
+        materialize().addSubEvent(keyId, event);
+    }
+
+    @Override
+    public IEvent removeSubEvent(Long id) {
+        return materialize().removeSubEvent(id);
+    }
+
+    @Override
+    public IEvent getSubEvent(Long id) {
+        return materialize().getSubEvent(id);
+    }
+
+    @Override
+    public ParametersComparisonResult compareParametersTo(ParametersContainer to) throws InvocationTargetException,
+            NoSuchMethodException, InstantiationException, IllegalAccessException {
+        return materialize().compareParametersTo(to);
+    }
+
+    @Override
+    public ParametersComparisonResult compareParametersTo(IEvent to) throws InvocationTargetException,
+            NoSuchMethodException, InstantiationException, IllegalAccessException {
+        return materialize().compareParametersTo(to instanceof LazyEvent ? ((LazyEvent) to).materialize() : to);
+    }
+
+    @Override
+    public int compareTo(IEvent event) {
+        // mirrors Event's ordering, so no deserialization is needed
+        if (event == null) {
+            throw new NullPointerException("Supplied null event for comparison!");
+        }
+        if (this.getPriority() != event.getPriority()) {
+            return (this.getPriority() < event.getPriority() ? -1 : 1);
+        } else if (this.isValidWhenCreated() != event.isValidWhenCreated()) {
+            return (this.isValidWhenCreated() ? -1 : 1);
+        } else if (this.getTimestampMs() != event.getTimestampMs()) {
+            return (this.getTimestampMs() < event.getTimestampMs() ? -1 : 1);
+        }
+        return Long.compare(this.getId(), event.getId());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LazyEvent)) return false;
+        return materialize().equals(((LazyEvent) o).materialize());
+    }
+
+    @Override
+    public int hashCode() {
+        return materialize().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return materialize().toString();
+    }
+}
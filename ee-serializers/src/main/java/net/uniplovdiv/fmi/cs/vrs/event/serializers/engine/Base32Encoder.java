@@ -1,20 +1,89 @@
 package net.uniplovdiv.fmi.cs.vrs.event.serializers.engine;
 
-import org.apache.commons.codec.binary.Base32;
-
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
- * Provides base32 data en/decoding functionality.
+ * Provides base32 data en/decoding functionality as defined in RFC 4648 including the padding. The decoding is lenient
+ * - the lower case letters are accepted, the characters outside the alphabet are ignored and the padding ends the data.
+ * The class is thread-safe.
  */
-public class Base32Encoder {
-    private Base32 encoder;
+public class Base32Encoder implements IBinaryTextEncoder {
+    private static final byte[] ENCODE_TABLE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] DECODE_TABLE = new byte[128];
+    private static final byte PAD = '=';
+
+    static {
+        Arrays.fill(DECODE_TABLE, (byte) -1);
+        for (int i = 0; i < ENCODE_TABLE.length; ++i) {
+            DECODE_TABLE[ENCODE_TABLE[i]] = (byte) i;
+            DECODE_TABLE[Character.toLowerCase(ENCODE_TABLE[i])] = (byte) i;
+        }
+    }
 
     /**
      * Constructor.
      */
     public Base32Encoder() {
-        this.encoder = new Base32();
+    }
+
+    @Override
+    public int getEncodedLength(int length) {
+        return ((length + 4) / 5) * 8;
+    }
+
+    @Override
+    public int getMaxDecodedLength(int length) {
+        return (int) ((length * 5L) / 8);
+    }
+
+    @Override
+    public int encode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        IBinaryTextEncoder.checkRegion(src, offset, length);
+        IBinaryTextEncoder.checkRegion(dst, dstOffset, getEncodedLength(length));
+
+        int i = offset, j = dstOffset;
+        final int end = offset + length, fullGroupsEnd = offset + (length / 5) * 5;
+        for ( ; i < fullGroupsEnd; i += 5) {
+            long bits = ((src[i] & 0xFFL) << 32) | ((src[i + 1] & 0xFFL) << 24) | ((src[i + 2] & 0xFFL) << 16)
+                    | ((src[i + 3] & 0xFFL) << 8) | (src[i + 4] & 0xFFL);
+            for (int shift = 35; shift >= 0; shift -= 5) {
+                dst[j++] = ENCODE_TABLE[(int) (bits >>> shift) & 0x1F];
+            }
+        }
+
+        int remaining = end - i;
+        if (remaining > 0) {
+            long bits = 0;
+            for (int k = 0; k < 5; ++k) {
+                bits = (bits << 8) | (k < remaining ? (src[i + k] & 0xFFL) : 0);
+            }
+            int chars = (remaining * 8 + 4) / 5;
+            for (int k = 0, shift = 35; k < 8; ++k, shift -= 5) {
+                dst[j++] = (k < chars ? ENCODE_TABLE[(int) (bits >>> shift) & 0x1F] : PAD);
+            }
+        }
+        return j - dstOffset;
+    }
+
+    @Override
+    public int decode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        IBinaryTextEncoder.checkRegion(src, offset, length);
+
+        int j = dstOffset, bitCount = 0, bits = 0;
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            byte c = src[i];
+            if (c == PAD) break;
+            if (c < 0 || DECODE_TABLE[c] < 0) continue;
+            bits = (bits << 5) | DECODE_TABLE[c];
+            bitCount += 5;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                dst[j++] = (byte) (bits >>> bitCount);
+                bits &= (1 << bitCount) - 1;
+            }
+        }
+        return j - dstOffset;
     }
 
     /**
@@ -24,7 +93,7 @@ public class Base32Encoder {
      */
     public byte[] encode(byte[] data) {
         if (data == null) return null;
-        return this.encoder.encode(data);
+        return encode(data, 0, data.length);
     }
 
     /**
@@ -34,7 +103,7 @@ public class Base32Encoder {
      */
     public byte[] encodeString(String sdata) {
         if (sdata == null) return null;
-        return this.encoder.encode(sdata.getBytes(StandardCharsets.ISO_8859_1));
+        return encode(sdata.getBytes(StandardCharsets.ISO_8859_1));
     }
 
     /**
@@ -44,7 +113,7 @@ public class Base32Encoder {
      */
     public byte[] decode(byte[] data) {
         if (data == null) return null;
-        return this.encoder.decode(data);
+        return decode(data, 0, data.length);
     }
 
     /**
@@ -54,6 +123,6 @@ public class Base32Encoder {
      */
     public String decodeString(byte[] data) {
         if (data == null) return null;
-        return new String(this.encoder.decode(data), StandardCharsets.ISO_8859_1);
+        return new String(decode(data), StandardCharsets.ISO_8859_1);
     }
 }
@@ -49,6 +49,27 @@ public class BasicJavaSerializer {
         return ois.readObject();
     }
 
+    /**
+     * Deserializes region of byte data representing a java object to an actual instance of that object without
+     * copying it.
+     * @param data The array containing the serialized object.
+     * @param offset The offset of the serialized object inside the array.
+     * @param length The length of the serialized object in bytes.
+     * @return An initialized object.
+     * @throws java.io.StreamCorruptedException If the provided data cannot form a stream header that is correct
+     * @throws java.io.IOException If an I/O error occurs while reading stream header
+     * @throws SecurityException If untrusted subclass illegally overrides security-sensitive methods
+     * @throws NullPointerException If data is null
+     * @throws ClassNotFoundException If the resulting of the deserialization object cannot be instantiated, because
+     *                                its class is not found in the system.
+     */
+    public Object deserialize(byte[] data, int offset, int length) throws IOException, SecurityException,
+            NullPointerException, ClassNotFoundException {
+        ByteArrayInputStream bios = new ByteArrayInputStream(data, offset, length);
+        ObjectInputStream ois = new ObjectInputStream(bios);
+        return ois.readObject();
+    }
+
     /**
      * Returns the context class loader of the thread that have initialized this class.
      * @return An initialized ClassLoader object or null.
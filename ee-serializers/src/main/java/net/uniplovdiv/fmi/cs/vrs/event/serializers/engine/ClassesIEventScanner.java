@@ -5,16 +5,37 @@ import io.github.classgraph.ClassGraph;
 import io.github.classgraph.ScanResult;
 import net.uniplovdiv.fmi.cs.vrs.event.*;
 import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.annotations.ExcludeFromEventScan;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Retriever of the classes implementing {@link IEvent} interface.
+ * Retriever of the classes implementing {@link IEvent} interface. The classes are primarily obtained from the
+ * {@link #INDEX_RESOURCE} index generated at compile time by the IEventIndexProcessor annotation processor. The class
+ * path elements (jars or directories) that contain no index are scanned at run-time as a fallback, unless that is
+ * disabled via {@link #setRuntimeScanningEnabled(boolean)}, in which case the events of such elements are found only if
+ * specified manually. Classes annotated with {@link ExcludeFromEventScan} are never found. Both the index and the
+ * run-time scan results are cached process-wide.
  */
 public class ClassesIEventScanner {
 
+    /**
+     * The location of the event classes index resource generated at compile time.
+     */
+    public static final String INDEX_RESOURCE = "META-INF/net.uniplovdiv.fmi.cs.vrs.event.IEvent.index";
+
+    private static final Map<ClassLoader, Set<Class<? extends IEvent>>> indexCache =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    private static final ConcurrentMap<String, Set<Class<? extends IEvent>>> scanCache = new ConcurrentHashMap<>();
+    private static volatile boolean runtimeScanningEnabled = true;
+
     private final String[] packagesToScan;
-    private final ClassGraph classGraphScanner;
     private HashSet<Class<? extends IEvent>> foundEventClasses;
 
     /**
@@ -24,10 +45,6 @@ public class ClassesIEventScanner {
         foundEventClasses = new HashSet<>();
         String mainPackage = IEvent.class.getPackage().getName();
         packagesToScan = new String[] { mainPackage };
-        classGraphScanner = new ClassGraph()
-                .whitelistPackages(mainPackage)
-                .enableExternalClasses()
-                .enableAllInfo();
     }
 
     /**
@@ -46,10 +63,6 @@ public class ClassesIEventScanner {
                 packagesToScan[j] = packages[i];
             }
         }
-        classGraphScanner = new ClassGraph()
-                .whitelistPackages(packagesToScan)
-                .enableExternalClasses()
-                .enableAllInfo();
     }
 
     /**
@@ -71,10 +84,6 @@ public class ClassesIEventScanner {
                 packagesToScan[j] = packages[i];
             }
         }
-        classGraphScanner = new ClassGraph()
-                .whitelistPackages(packages)
-                .enableExternalClasses()
-                .enableAllInfo();
         if (classes != null && !classes.isEmpty()) {
             classes.forEach(c -> { if (c != null) this.foundEventClasses.add(c); } );
         }
@@ -97,12 +106,40 @@ public class ClassesIEventScanner {
     }
 
     /**
-     * Scans the packages and returns the classes that implement {@link IEvent} interface.
+     * Returns whether packages missing from the compile time index are scanned at run-time.
+     * @return True if the run-time scanning is enabled (the default), otherwise false.
+     */
+    public static boolean isRuntimeScanningEnabled() {
+        return runtimeScanningEnabled;
+    }
+
+    /**
+     * Enables or disables the run-time scanning of the packages that are missing from the compile time index.
+     * @param enabled True to enable the run-time scanning, false to rely on the index only.
+     */
+    public static void setRuntimeScanningEnabled(boolean enabled) {
+        runtimeScanningEnabled = enabled;
+    }
+
+    /**
+     * Clears the process-wide cache of the index and the run-time scan results, so they get reloaded on the next scan.
+     */
+    public static void clearCache() {
+        indexCache.clear();
+        scanCache.clear();
+    }
+
+    /**
+     * Scans the packages and returns the classes that implement {@link IEvent} interface. The indexed classes are
+     * combined with the ones found in the class path elements without an index, which get scanned at run-time once per
+     * package and process.
      * @return On success nonempty set of data otherwise an empty one.
      */
-    @SuppressWarnings("unchecked")
     public Set<Class<? extends IEvent>> scan() {
+        Set<Class<? extends IEvent>> manuallySpecified = new HashSet<>(this.foundEventClasses);
         this.foundEventClasses.clear();
+        this.foundEventClasses.addAll(manuallySpecified);
+
         ClassLoader currentClassLoader = null;
         try {
             currentClassLoader = this.getClass().getClassLoader();
@@ -110,7 +147,104 @@ public class ClassesIEventScanner {
             e.printStackTrace(System.err);
         }
 
-        try (ScanResult results = this.classGraphScanner.scan()) {
+        Set<Class<? extends IEvent>> indexed = loadIndex(currentClassLoader);
+        for (String pkg : this.packagesToScan) {
+            if (pkg == null) continue;
+            for (Class<? extends IEvent> cls : indexed) {
+                if (isInPackage(cls, pkg)) {
+                    this.foundEventClasses.add(cls);
+                }
+            }
+            if (runtimeScanningEnabled) {
+                this.foundEventClasses.addAll(scanCache.computeIfAbsent(pkg,
+                        p -> Collections.unmodifiableSet(runtimeScan(p))));
+            }
+        }
+
+        return this.foundEventClasses;
+    }
+
+    /**
+     * Checks whether a class belongs to a package or any of its subpackages.
+     * @param cls The class to check.
+     * @param pkg The full name of the package.
+     * @return True if the class is inside the package, otherwise false.
+     */
+    private static boolean isInPackage(Class<?> cls, String pkg) {
+        String name = cls.getName();
+        return pkg.isEmpty() || (name.startsWith(pkg) && name.length() > pkg.length()
+                && name.charAt(pkg.length()) == '.');
+    }
+
+    /**
+     * Loads the classes listed in all {@link #INDEX_RESOURCE} resources visible to a class loader. The result is cached
+     * per class loader.
+     * @param classLoader The class loader used to find the resources and load the classes. Can be null.
+     * @return Nonnull, unmodifiable set of the indexed classes.
+     */
+    @SuppressWarnings("unchecked")
+    private static Set<Class<? extends IEvent>> loadIndex(ClassLoader classLoader) {
+        final ClassLoader cl = (classLoader != null ? classLoader : ClassLoader.getSystemClassLoader());
+        Set<Class<? extends IEvent>> result = indexCache.get(cl);
+        if (result != null) {
+            return result;
+        }
+
+        result = new HashSet<>();
+        try {
+            Enumeration<URL> resources = cl.getResources(INDEX_RESOURCE);
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                try (BufferedReader br = new BufferedReader(
+                        new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = br.readLine()) != null) {
+                        line = line.trim();
+                        if (line.isEmpty() || line.startsWith("#")) continue;
+                        try {
+                            Class<?> cls = Class.forName(line, false, cl);
+                            if (IEvent.class.isAssignableFrom(cls)
+                                    && !cls.isAnnotationPresent(ExcludeFromEventScan.class)) {
+                                result.add((Class<? extends IEvent>) cls);
+                            }
+                        } catch (ClassNotFoundException | LinkageError ignored) {
+                            // stale entry
+                        }
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace(System.err);
+        }
+
+        result = Collections.unmodifiableSet(result);
+        indexCache.put(cl, result);
+        return result;
+    }
+
+    /**
+     * Scans a package at run-time using ClassGraph. The class path elements containing {@link #INDEX_RESOURCE} are
+     * skipped, since their classes are already known from the index.
+     * @param pkg The package to be scanned.
+     * @return Nonnull set of the found classes implementing {@link IEvent} interface.
+     */
+    @SuppressWarnings("unchecked")
+    private static Set<Class<? extends IEvent>> runtimeScan(String pkg) {
+        Set<Class<? extends IEvent>> result = new HashSet<>();
+        ClassLoader currentClassLoader = null;
+        try {
+            currentClassLoader = ClassesIEventScanner.class.getClassLoader();
+        } catch (SecurityException e) {
+            e.printStackTrace(System.err);
+        }
+
+        ClassGraph classGraphScanner = new ClassGraph()
+                .whitelistPackages(pkg)
+                .blacklistClasspathElementsContainingResourcePath(INDEX_RESOURCE)
+                .enableExternalClasses()
+                .enableClassInfo();
+
+        try (ScanResult results = classGraphScanner.scan()) {
             final ClassLoader localClassLoader = currentClassLoader;
 
             results.getClassesImplementing(IEvent.class.getCanonicalName())
@@ -119,15 +253,17 @@ public class ClassesIEventScanner {
                     .forEach(clazz -> {
                         if (localClassLoader != null && localClassLoader != clazz.getClassLoader()) {
                             try {
-                                clazz = localClassLoader.loadClass(clazz.getCanonicalName());
+                                clazz = localClassLoader.loadClass(clazz.getName());
                             } catch (Exception ex) {
                                 ex.printStackTrace(System.err);
                             }
                         }
-                        foundEventClasses.add((Class<? extends IEvent>) clazz);
+                        if (!clazz.isAnnotationPresent(ExcludeFromEventScan.class)) {
+                            result.add((Class<? extends IEvent>) clazz);
+                        }
                     });
         }
 
-        return this.foundEventClasses;
+        return result;
     }
 }
@@ -0,0 +1,232 @@
+package net.uniplovdiv.fmi.cs.vrs.event.serializers.engine;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.uniplovdiv.fmi.cs.vrs.event.IEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.annotations.EmbeddedParameter;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the known differences between the local versions of event classes and their versions used by other
+ * (older or newer) producers, identified by serialVersionUID. It is used to adapt the JSON representation of an event
+ * produced by another version of its class to the local one in a single pass, before its actual deserialization.
+ * The adaptation consists of:
+ * <ol>
+ *     <li>the explicitly registered {@link FieldMapping} for the particular class and serialVersionUID if any;</li>
+ *     <li>automatic mapping based on the {@link EmbeddedParameter} metadata - each local field missing in the data is
+ *     looked up by its {@link EmbeddedParameter#aliases() aliases} and {@link EmbeddedParameter#value() parameter
+ *     name}, and if still missing gets the {@link EmbeddedParameter#defaultValue() default value} if such is
+ *     specified.</li>
+ * </ol>
+ * Fields present in the data, but unknown to the local class are ignored during the deserialization.
+ * The class is thread-safe.
+ */
+public class EventSchemaRegistry {
+
+    private static final EventSchemaRegistry defaultInstance = new EventSchemaRegistry();
+
+    private static final ClassValue<List<FieldInfo>> localSchemas = new ClassValue<List<FieldInfo>>() {
+        @Override
+        protected List<FieldInfo> computeValue(Class<?> type) {
+            return computeLocalSchema(type);
+        }
+    };
+
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Long, FieldMapping>> mappings = new ConcurrentHashMap<>();
+
+    /**
+     * Describes how the JSON representation of event produced by another version of the event class is transformed to
+     * match the local version. The renames are applied first, followed by the removals and the additions. The instances
+     * must not be modified after their registration.
+     */
+    public static final class FieldMapping {
+        private final Map<String, String> renamed = new LinkedHashMap<>();
+        private final Set<String> removed = new LinkedHashSet<>();
+        private final Map<String, JsonElement> added = new LinkedHashMap<>();
+
+        /**
+         * Declares that a field has been renamed.
+         * @param remoteName The name of the field in the version of the producer.
+         * @param localName The name of the field in the local version.
+         * @return The current instance.
+         * @throws NullPointerException If any of the names is null.
+         */
+        public FieldMapping rename(String remoteName, String localName) {
+            renamed.put(Objects.requireNonNull(remoteName), Objects.requireNonNull(localName));
+            return this;
+        }
+
+        /**
+         * Declares that a field no longer exists, so its value must be dropped.
+         * @param remoteName The name of the field in the version of the producer.
+         * @return The current instance.
+         * @throws NullPointerException If the name is null.
+         */
+        public FieldMapping remove(String remoteName) {
+            removed.add(Objects.requireNonNull(remoteName));
+            return this;
+        }
+
+        /**
+         * Declares that a field has been added, so it gets default value if missing.
+         * @param localName The name of the field in the local version.
+         * @param jsonDefaultValue The JSON representation of the default value for e.g. "0" or "\"text\"".
+         * @return The current instance.
+         * @throws NullPointerException If any of the parameters is null.
+         * @throws com.google.gson.JsonSyntaxException If the default value is not a valid JSON.
+         */
+        public FieldMapping add(String localName, String jsonDefaultValue) {
+            added.put(Objects.requireNonNull(localName), JsonParser.parseString(jsonDefaultValue));
+            return this;
+        }
+
+        /**
+         * Applies the mapping over JSON object.
+         * @param into The JSON object to be modified.
+         */
+        void apply(JsonObject into) {
+            for (Map.Entry<String, String> e : renamed.entrySet()) {
+                if (into.has(e.getKey()) && !into.has(e.getValue())) {
+                    into.add(e.getValue(), into.remove(e.getKey()));
+                }
+            }
+            for (String name : removed) {
+                into.remove(name);
+            }
+            for (Map.Entry<String, JsonElement> e : added.entrySet()) {
+                if (!into.has(e.getKey())) {
+                    into.add(e.getKey(), e.getValue().deepCopy());
+                }
+            }
+        }
+    }
+
+    /**
+     * Metadata of a local field relevant for the automatic mapping.
+     */
+    private static final class FieldInfo {
+        final String name;
+        final String[] aliases;
+        final JsonElement defaultValue;
+
+        FieldInfo(String name, String[] aliases, JsonElement defaultValue) {
+            this.name = name;
+            this.aliases = aliases;
+            this.defaultValue = defaultValue;
+        }
+    }
+
+    /**
+     * Returns the process-wide registry instance.
+     * @return Nonnull registry instance.
+     */
+    public static EventSchemaRegistry getDefault() {
+        return defaultInstance;
+    }
+
+    /**
+     * Registers explicit field mapping for event produced by particular version of an event class.
+     * @param type The local event class.
+     * @param remoteSerialVersionUID The serialVersionUID of the event class used by the producer.
+     * @param mapping The field mapping to be applied.
+     * @return The current instance.
+     * @throws NullPointerException If type or mapping is null.
+     */
+    public EventSchemaRegistry register(Class<? extends IEvent> type, long remoteSerialVersionUID,
+                                        FieldMapping mapping) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(mapping);
+        mappings.computeIfAbsent(type, t -> new ConcurrentHashMap<>()).put(remoteSerialVersionUID, mapping);
+        return this;
+    }
+
+    /**
+     * Returns the explicitly registered field mapping.
+     * @param type The local event class.
+     * @param remoteSerialVersionUID The serialVersionUID of the event class used by the producer.
+     * @return The field mapping or null if no such is registered.
+     */
+    public FieldMapping getMapping(Class<?> type, long remoteSerialVersionUID) {
+        Map<Long, FieldMapping> m = mappings.get(type);
+        return (m != null ? m.get(remoteSerialVersionUID) : null);
+    }
+
+    /**
+     * Adapts JSON representation of event produced by another version of its class to the local version.
+     * @param from The JSON object of the event, without any type meta information. Gets modified.
+     * @param type The local event class.
+     * @param remoteSerialVersionUID The serialVersionUID of the event class used by the producer or null if unknown.
+     */
+    public void adapt(JsonObject from, Class<?> type, Long remoteSerialVersionUID) {
+        if (from == null || type == null) return;
+
+        if (remoteSerialVersionUID != null) {
+            FieldMapping mapping = getMapping(type, remoteSerialVersionUID);
+            if (mapping != null) {
+                mapping.apply(from);
+            }
+        }
+
+        List<FieldInfo> schema = localSchemas.get(type);
+        for (FieldInfo fi : schema) {
+            if (from.has(fi.name)) continue;
+            for (String alias : fi.aliases) {
+                if (from.has(alias)) {
+                    from.add(fi.name, from.remove(alias));
+                    break;
+                }
+            }
+            if (!from.has(fi.name) && fi.defaultValue != null) {
+                from.add(fi.name, fi.defaultValue.deepCopy());
+            }
+        }
+    }
+
+    /**
+     * Collects the metadata of the fields annotated with {@link EmbeddedParameter} in a class and its parents.
+     * @param type The class to be inspected.
+     * @return Nonnull list of field metadata.
+     */
+    private static List<FieldInfo> computeLocalSchema(Class<?> type) {
+        Set<String> localNames = new HashSet<>();
+        List<Field> annotated = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                int mod = f.getModifiers();
+                if (Modifier.isStatic(mod) || Modifier.isTransient(mod) || f.isSynthetic()) continue;
+                localNames.add(f.getName());
+                if (f.isAnnotationPresent(EmbeddedParameter.class)) {
+                    annotated.add(f);
+                }
+            }
+        }
+
+        List<FieldInfo> result = new ArrayList<>(annotated.size());
+        for (Field f : annotated) {
+            EmbeddedParameter ep = f.getAnnotation(EmbeddedParameter.class);
+            List<String> aliases = new ArrayList<>();
+            for (String alias : ep.aliases()) {
+                if (!localNames.contains(alias)) aliases.add(alias);
+            }
+            if (!localNames.contains(ep.value()) && !aliases.contains(ep.value())) {
+                aliases.add(ep.value());
+            }
+            JsonElement defaultValue = null;
+            if (!ep.defaultValue().isEmpty()) {
+                try {
+                    defaultValue = JsonParser.parseString(ep.defaultValue());
+                } catch (Exception e) {
+                    System.err.println("Invalid default value of " + f + ": " + ep.defaultValue());
+                }
+            }
+            result.add(new FieldInfo(f.getName(), aliases.toArray(new String[0]), defaultValue));
+        }
+        return Collections.unmodifiableList(result);
+    }
+}
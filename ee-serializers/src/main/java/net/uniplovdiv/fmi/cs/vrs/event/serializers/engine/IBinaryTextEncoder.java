@@ -0,0 +1,98 @@
+package net.uniplovdiv.fmi.cs.vrs.event.serializers.engine;
+
+/**
+ * Interface for binary-to-text encoders producing data that is safe to be transferred through text oriented media.
+ * The implementations work over regions of arrays and can write directly into a destination buffer, thus avoiding
+ * intermediate copies of the data. All of the implementations must be thread-safe.
+ */
+public interface IBinaryTextEncoder {
+
+    /**
+     * Computes the exact length of the encoded representation of data.
+     * @param length The length of the data to be encoded in bytes. Must be a non-negative number.
+     * @return The number of bytes the encoded data will occupy.
+     */
+    int getEncodedLength(int length);
+
+    /**
+     * Computes the maximum length of the decoded representation of encoded data.
+     * @param length The length of the encoded data in bytes. Must be a non-negative number.
+     * @return The maximum number of bytes the decoded data can occupy.
+     */
+    int getMaxDecodedLength(int length);
+
+    /**
+     * Encodes a region of data directly into a destination buffer.
+     * @param src The data to be encoded. Cannot be null.
+     * @param offset The offset of the first byte to be encoded.
+     * @param length The number of bytes to be encoded.
+     * @param dst The destination buffer. Must have at least {@link #getEncodedLength(int)} bytes available after
+     *            dstOffset.
+     * @param dstOffset The position in the destination buffer from which the encoded data will be written.
+     * @return The number of bytes written into the destination buffer.
+     * @throws IndexOutOfBoundsException If any of the regions exceeds the bounds of its array.
+     */
+    int encode(byte[] src, int offset, int length, byte[] dst, int dstOffset);
+
+    /**
+     * Decodes a region of encoded data directly into a destination buffer.
+     * @param src The encoded data. Cannot be null.
+     * @param offset The offset of the first byte to be decoded.
+     * @param length The number of bytes to be decoded.
+     * @param dst The destination buffer. Must have at least {@link #getMaxDecodedLength(int)} bytes available after
+     *            dstOffset.
+     * @param dstOffset The position in the destination buffer from which the decoded data will be written.
+     * @return The number of bytes written into the destination buffer.
+     * @throws IllegalArgumentException If the data is not properly encoded.
+     * @throws IndexOutOfBoundsException If any of the regions exceeds the bounds of its array.
+     */
+    int decode(byte[] src, int offset, int length, byte[] dst, int dstOffset);
+
+    /**
+     * Encodes a region of data.
+     * @param src The data to be encoded. Cannot be null.
+     * @param offset The offset of the first byte to be encoded.
+     * @param length The number of bytes to be encoded.
+     * @return New array with the encoded data.
+     * @throws IndexOutOfBoundsException If the region exceeds the bounds of the array.
+     */
+    default byte[] encode(byte[] src, int offset, int length) {
+        checkRegion(src, offset, length);
+        byte[] dst = new byte[getEncodedLength(length)];
+        encode(src, offset, length, dst, 0);
+        return dst;
+    }
+
+    /**
+     * Decodes a region of encoded data.
+     * @param src The encoded data. Cannot be null.
+     * @param offset The offset of the first byte to be decoded.
+     * @param length The number of bytes to be decoded.
+     * @return New array with the decoded data.
+     * @throws IllegalArgumentException If the data is not properly encoded.
+     * @throws IndexOutOfBoundsException If the region exceeds the bounds of the array.
+     */
+    default byte[] decode(byte[] src, int offset, int length) {
+        checkRegion(src, offset, length);
+        byte[] dst = new byte[getMaxDecodedLength(length)];
+        int written = decode(src, offset, length, dst, 0);
+        if (written == dst.length) return dst;
+        byte[] result = new byte[written];
+        System.arraycopy(dst, 0, result, 0, written);
+        return result;
+    }
+
+    /**
+     * Checks whether a region lies within the bounds of an array.
+     * @param array The array. Cannot be null.
+     * @param offset The offset of the region.
+     * @param length The length of the region.
+     * @throws IndexOutOfBoundsException If the region exceeds the bounds of the array.
+     */
+    static void checkRegion(byte[] array, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > array.length - length) {
+            throw new IndexOutOfBoundsException("Region [" + offset + ", " + offset + " + " + length
+                    + ") is out of bounds for length " + array.length);
+        }
+    }
+}
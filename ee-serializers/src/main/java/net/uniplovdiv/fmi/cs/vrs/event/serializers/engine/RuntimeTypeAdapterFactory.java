@@ -18,9 +18,11 @@ package net.uniplovdiv.fmi.cs.vrs.event.serializers.engine;
  */
 
 import java.io.IOException;
+import java.io.ObjectStreamClass;
 import java.io.StringReader;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
@@ -138,17 +140,85 @@ import com.google.gson.stream.JsonWriter;
 public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
     private final Class<?> baseType;
     private final String typeFieldName;
-    private final Map<String, Class<?>> labelToSubtype = new LinkedHashMap<>();
-    private final Map<Class<?>, String> subtypeToLabel = new LinkedHashMap<>();
+    private final ConcurrentMap<String, Subtype> labelToSubtype = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, Subtype> subtypeToLabel = new ConcurrentHashMap<>();
+    private final ClassValue<Subtype> subtypes = new ClassValue<Subtype>() {
+        @Override
+        protected Subtype computeValue(Class<?> type) {
+            return subtypeToLabel.get(type);
+        }
+    };
     private final RuntimeFieldInjector runtimeFieldInjector;
     private final RuntimeFieldRemover runtimeFieldRemover;
+    private volatile SubtypeResolver subtypeResolver;
+
+    /**
+     * Precomputed information about a registered subtype - its class, label and serialVersionUID. The data is computed
+     * once during the registration, so no reflection is required while reading or writing instances of the subtype.
+     */
+    public static final class Subtype {
+        private final Class<?> type;
+        private final String label;
+        private final long serialVersionUID;
+
+        private Subtype(Class<?> type, String label) {
+            this.type = type;
+            this.label = label;
+            ObjectStreamClass osc = ObjectStreamClass.lookup(type);
+            this.serialVersionUID = (osc != null ? osc.getSerialVersionUID() : 0L);
+        }
+
+        /**
+         * Returns the class object of the registered subtype.
+         * @return A nonnull class object.
+         */
+        public Class<?> getType() {
+            return type;
+        }
+
+        /**
+         * Returns the label identifying the registered subtype.
+         * @return A nonnull string.
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Returns the serialVersionUID of the registered subtype.
+         * @return The serialVersionUID or 0 if the subtype is not serializable.
+         */
+        public long getSerialVersionUID() {
+            return serialVersionUID;
+        }
+    }
+
+    /**
+     * Interface used for on-demand resolution of subtypes that have not been registered in advance. Every successfully
+     * resolved subtype gets registered, thus the resolver is consulted at most once per label or class.
+     */
+    public interface SubtypeResolver {
+        /**
+         * Resolves the subtype identified by a label met during deserialization.
+         * @param label The label read from the type field.
+         * @return The class object of the subtype or null if the label cannot be resolved.
+         */
+        Class<?> resolveType(String label);
+
+        /**
+         * Resolves the label of a subtype met during serialization.
+         * @param type The class object of the serialized value.
+         * @return The label to register the subtype with or null if the subtype must not be registered.
+         */
+        String resolveLabel(Class<?> type);
+    }
 
     /**
      * Interface used for dynamic injection of fields into {@link JsonObject} during runtime.
      */
     @FunctionalInterface
     public interface RuntimeFieldInjector<R> {
-        void inject(JsonObject into, R value);
+        void inject(JsonObject into, R value, Subtype subtype);
     }
 
     /**
@@ -156,7 +226,7 @@ public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
      */
     @FunctionalInterface
     public interface RuntimeFieldRemover {
-        void remove(JsonObject from, String typeClassName, Map<String, Class<?>> labelToSubtype) throws IOException;
+        void remove(JsonObject from, String typeClassName, Subtype subtype) throws IOException;
     }
 
 
@@ -228,8 +298,15 @@ public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
         labelToSubtype.put(label, type);
         subtypeToLabel.put(type, label);*/
         if (!subtypeToLabel.containsKey(type) && !labelToSubtype.containsKey(label)) {
-            labelToSubtype.put(label, type);
-            subtypeToLabel.put(type, label);
+            // the registry is append-only and the readers never lock, so only the writers are serialized
+            synchronized (this) {
+                if (!subtypeToLabel.containsKey(type) && !labelToSubtype.containsKey(label)) {
+                    Subtype subtype = new Subtype(type, label);
+                    labelToSubtype.put(label, subtype);
+                    subtypeToLabel.put(type, subtype);
+                    subtypes.remove(type);
+                }
+            }
         }
         return this;
     }
@@ -246,22 +323,90 @@ public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
         return registerSubtype(type, type.getCanonicalName());
     }
 
+    /**
+     * Returns the precomputed information for a registered subtype.
+     * @param type The class object of the subtype.
+     * @return The subtype information or null if {@code type} has not been registered.
+     */
+    public Subtype getSubtype(Class<?> type) {
+        return (type != null ? subtypes.get(type) : null);
+    }
+
+    /**
+     * Returns the precomputed information for a registered subtype.
+     * @param label The label of the subtype.
+     * @return The subtype information or null if no subtype with {@code label} has been registered.
+     */
+    public Subtype getSubtype(String label) {
+        return (label != null ? labelToSubtype.get(label) : null);
+    }
+
+    /**
+     * Sets the resolver consulted when an unregistered label or subtype is met during de/serialization. The resolved
+     * subtypes are registered on the fly without the need of recreating the {@link Gson} instances using the factory.
+     * @param subtypeResolver The resolver to be used. Can be null to disable the on-demand resolution.
+     * @return Concrete instance of the factory.
+     */
+    public RuntimeTypeAdapterFactory<T> withSubtypeResolver(SubtypeResolver subtypeResolver) {
+        this.subtypeResolver = subtypeResolver;
+        return this;
+    }
+
+    /**
+     * Returns the registered subtype for a label, resolving and registering it on demand if needed.
+     * @param label The label of the subtype.
+     * @return The subtype information or null if the label is unknown and cannot be resolved.
+     */
+    @SuppressWarnings("unchecked")
+    private Subtype lookupOrResolve(String label) {
+        Subtype subtype = labelToSubtype.get(label);
+        SubtypeResolver resolver = this.subtypeResolver;
+        if (subtype == null && resolver != null) {
+            Class<?> type = resolver.resolveType(label);
+            if (type != null && baseType.isAssignableFrom(type)) {
+                registerSubtype((Class<? extends T>) type, label);
+                subtype = labelToSubtype.get(label);
+            }
+        }
+        return subtype;
+    }
+
+    /**
+     * Returns the registered subtype for a class, resolving and registering it on demand if needed.
+     * @param type The class object of the subtype.
+     * @return The subtype information or null if the subtype is unknown and cannot be resolved.
+     */
+    @SuppressWarnings("unchecked")
+    private Subtype lookupOrResolve(Class<?> type) {
+        Subtype subtype = subtypes.get(type);
+        SubtypeResolver resolver = this.subtypeResolver;
+        if (subtype == null && resolver != null && baseType.isAssignableFrom(type)) {
+            String label = resolver.resolveLabel(type);
+            if (label != null) {
+                registerSubtype((Class<? extends T>) type, label);
+                subtype = subtypes.get(type);
+            }
+        }
+        return subtype;
+    }
+
     public <R> TypeAdapter<R> create(Gson gson, TypeToken<R> type) {
         //if (type.getRawType() != baseType) {
         if (null == type || !baseType.isAssignableFrom(type.getRawType())) {
             return null;
         }
 
-        final Map<String, TypeAdapter<?>> labelToDelegate = new LinkedHashMap<>();
-        final Map<Class<?>, TypeAdapter<?>> subtypeToDelegate = new LinkedHashMap<>();
-
-        for (Map.Entry<String, Class<?>> entry : labelToSubtype.entrySet()) {
-            TypeAdapter<?> delegate = gson.getDelegateAdapter(this, TypeToken.get(entry.getValue()));
-            labelToDelegate.put(entry.getKey(), delegate);
-            subtypeToDelegate.put(entry.getValue(), delegate);
-        }
+        // delegates are created lazily, so subtypes registered after the creation of the Gson instance are supported
+        final ConcurrentMap<Class<?>, TypeAdapter<?>> subtypeToDelegate = new ConcurrentHashMap<>();
+        final TypeAdapterFactory self = this;
 
         return new TypeAdapter<R>() {
+            @SuppressWarnings("unchecked") // registration requires that subtype extends T
+            private TypeAdapter<R> delegateFor(Subtype subtype) {
+                return (TypeAdapter<R>) subtypeToDelegate.computeIfAbsent(subtype.getType(),
+                        t -> gson.getDelegateAdapter(self, TypeToken.get(t)));
+            }
+
             @Override public R read(JsonReader in) throws IOException {
                 JsonElement jsonElement = JsonParser.parseReader(in);
                 JsonElement labelJsonElement = jsonElement.getAsJsonObject().remove(typeFieldName);
@@ -271,19 +416,19 @@ public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
                 }
 
                 String label = labelJsonElement.getAsString();
+                Subtype subtype = lookupOrResolve(label);
 
                 if (runtimeFieldRemover != null) {
-                    runtimeFieldRemover.remove(jsonElement.getAsJsonObject(), label, labelToSubtype);
+                    runtimeFieldRemover.remove(jsonElement.getAsJsonObject(), label, subtype);
                 }
 
-                @SuppressWarnings("unchecked") // registration requires that subtype extends T
-                        TypeAdapter<R> delegate = (TypeAdapter<R>) labelToDelegate.get(label);
-                if (delegate == null) {
+                if (subtype == null) {
                     throw new JsonParseException("cannot deserialize " + baseType + " subtype named "
                             + label + "; did you forget to register a subtype?");
                 }
+                TypeAdapter<R> delegate = delegateFor(subtype);
 
-                if (labelToSubtype.get(label).isEnum()) {
+                if (subtype.getType().isEnum()) {
                     //String enumVal = jsonElement.getAsJsonObject().getAsJsonPrimitive("enum_value").getAsString();
                     JsonReader jr = new JsonReader(new StringReader(jsonElement.toString()));
                     jr.beginObject();
@@ -301,16 +446,15 @@ public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
             @SuppressWarnings("unchecked")
             @Override public void write(JsonWriter out, R value) throws IOException {
                 Class<?> srcType = value.getClass();
-                String label = subtypeToLabel.get(srcType);
-
-                @SuppressWarnings("unchecked") // registration requires that subtype extends T
-                        TypeAdapter<R> delegate = (TypeAdapter<R>) subtypeToDelegate.get(srcType);
-                if (delegate == null) {
+                Subtype subtype = lookupOrResolve(srcType);
+                if (subtype == null) {
                     throw new JsonParseException("cannot serialize " + srcType.getName()
                             + "; did you forget to register a subtype?");
                 }
+
+                TypeAdapter<R> delegate = delegateFor(subtype);
                 JsonObject clone = new JsonObject();
-                clone.add(typeFieldName, new JsonPrimitive(label));
+                clone.add(typeFieldName, new JsonPrimitive(subtype.getLabel()));
 
                 if (!srcType.isEnum()) {
                     JsonObject jsonObject = delegate.toJsonTree(value).getAsJsonObject();
@@ -326,7 +470,7 @@ public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
                 }
                 if (runtimeFieldInjector != null) {
                     //noinspection unchecked
-                    runtimeFieldInjector.inject(clone, value);
+                    runtimeFieldInjector.inject(clone, value, subtype);
                 }
 
                 gson.toJson(clone, out);
@@ -334,4 +478,3 @@ public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
         }.nullSafe();
     }
 }
-
@@ -5,11 +5,11 @@ module net.uniplovdiv.fmi.cs.vrs.event.serializers {
     requires java.base;
     requires java.instrument;
     requires org.apache.commons.lang3;
-    requires org.apache.commons.codec;
     requires io.github.classgraph;
     requires com.google.gson;
 
     requires net.uniplovdiv.fmi.cs.vrs.event;
+    requires net.uniplovdiv.fmi.cs.vrs.event.annotations;
 
     exports net.uniplovdiv.fmi.cs.vrs.event.serializers;
     exports net.uniplovdiv.fmi.cs.vrs.event.serializers.engine;
@@ -1,9 +1,14 @@
 package test;
 
 import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.Base32Encoder;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.Base64Encoder;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.Base85Encoder;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.IBinaryTextEncoder;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -39,6 +44,42 @@ public class Base32EncoderTest {
         assertNull(b32enc.decodeString(null));
         assertNotNull(b32enc.decodeString(new byte[0]));
     }
-}
 
+    @Test
+    void encodeDecodeRegionsWithBase32() {
+        byte[] data = "__Hello there!__".getBytes(StandardCharsets.ISO_8859_1);
+        byte[] encoded = "JBSWY3DPEB2GQZLSMUQQ====".getBytes(StandardCharsets.ISO_8859_1);
+
+        Base32Encoder b32enc = new Base32Encoder();
+        byte[] dst = new byte[b32enc.getEncodedLength(12) + 3];
+        assertEquals(encoded.length, b32enc.encode(data, 2, 12, dst, 3));
+        assertArrayEquals(encoded, Arrays.copyOfRange(dst, 3, dst.length));
+        assertArrayEquals(encoded, b32enc.encode(data, 2, 12));
+
+        assertArrayEquals("Hello there!".getBytes(StandardCharsets.ISO_8859_1),
+                b32enc.decode("jbswy3dpeb2gqzlsmuqq".getBytes(StandardCharsets.ISO_8859_1)));
+        assertThrows(IndexOutOfBoundsException.class, () -> b32enc.encode(data, 10, 12));
+    }
+
+    @Test
+    void encodeDecodeWithBase64AndBase85() {
+        assertArrayEquals("SGVsbG8gdGhlcmUh".getBytes(StandardCharsets.ISO_8859_1),
+                new Base64Encoder().encode("Hello there!".getBytes(StandardCharsets.ISO_8859_1), 0, 12));
+        assertArrayEquals("HelloWorld".getBytes(StandardCharsets.ISO_8859_1), new Base85Encoder().encode(
+                new byte[] { (byte) 0x86, 0x4F, (byte) 0xD2, 0x6F, (byte) 0xB5, 0x59, (byte) 0xF7, 0x5B }, 0, 8));
 
+        Random random = new Random(42);
+        for (IBinaryTextEncoder enc : new IBinaryTextEncoder[] {
+                new Base32Encoder(), new Base64Encoder(), new Base85Encoder() }) {
+            for (int length = 0; length < 40; ++length) {
+                byte[] data = new byte[length];
+                random.nextBytes(data);
+                byte[] encoded = enc.encode(data, 0, length);
+                assertEquals(enc.getEncodedLength(length), encoded.length);
+                assertArrayEquals(data, enc.decode(encoded, 0, encoded.length), enc.getClass() + " " + length);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new Base85Encoder().decode(
+                "Hel\"o".getBytes(StandardCharsets.ISO_8859_1), 0, 5));
+    }
+}
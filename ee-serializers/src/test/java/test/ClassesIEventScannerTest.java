@@ -1,6 +1,8 @@
 package test;
 
 import net.uniplovdiv.fmi.cs.vrs.event.*;
+import net.uniplovdiv.fmi.cs.vrs.event.annotations.ExcludeFromEventScan;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.LazyEvent;
 import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.ClassesIEventScanner;
 //import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +13,7 @@ import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ClassesIEventScannerTest {
@@ -88,4 +91,39 @@ public class ClassesIEventScannerTest {
         assertEquals(foundEventClasses, new SortedIEventClassSet(cis.scan()));
         assertEquals(foundEventClasses, new SortedIEventClassSet(cis.getFoundEventClasses()));
     }
+
+    @Test
+    void indexedScan() {
+        ClassesIEventScanner cis = new ClassesIEventScanner("test");
+        Set<Class<? extends IEvent>> found = cis.scan();
+        assertTrue(found.containsAll(foundEventClasses));
+        assertTrue(found.contains(EventSerializerTest.CustomEvent.class));
+        assertTrue(found.contains(EventSerializerTest.LectureEvent.class));
+
+        boolean runtimeScanning = ClassesIEventScanner.isRuntimeScanningEnabled();
+        try {
+            ClassesIEventScanner.setRuntimeScanningEnabled(false);
+            cis = new ClassesIEventScanner("some.package.without.events");
+            assertEquals(foundEventClasses, new SortedIEventClassSet(cis.scan()));
+        } finally {
+            ClassesIEventScanner.setRuntimeScanningEnabled(runtimeScanning);
+        }
+    }
+
+    @Test
+    void excludedClassesScan() {
+        assertTrue(LazyEvent.class.isAnnotationPresent(ExcludeFromEventScan.class));
+        boolean runtimeScanning = ClassesIEventScanner.isRuntimeScanningEnabled();
+        try {
+            for (boolean enabled : new boolean[] { false, true }) {
+                ClassesIEventScanner.setRuntimeScanningEnabled(enabled);
+                ClassesIEventScanner cis = new ClassesIEventScanner(LazyEvent.class.getPackage().getName());
+                Set<Class<? extends IEvent>> found = cis.scan();
+                assertFalse(found.contains(LazyEvent.class));
+                assertEquals(foundEventClasses, new SortedIEventClassSet(found));
+            }
+        } finally {
+            ClassesIEventScanner.setRuntimeScanningEnabled(runtimeScanning);
+        }
+    }
 }
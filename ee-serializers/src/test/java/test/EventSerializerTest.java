@@ -9,6 +9,9 @@ import net.uniplovdiv.fmi.cs.vrs.event.parameters.comparison.ParameterComparison
 import net.uniplovdiv.fmi.cs.vrs.event.parameters.comparison.ParameterComparisonOutcomeTemplate;
 import net.uniplovdiv.fmi.cs.vrs.event.parameters.comparison.ParametersComparisonResult;
 import net.uniplovdiv.fmi.cs.vrs.event.serializers.JsonEventSerializer;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.LazyEvent;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.EventSchemaRegistry;
+import net.uniplovdiv.fmi.cs.vrs.event.serializers.engine.RuntimeTypeAdapterFactory;
 import net.uniplovdiv.fmi.cs.vrs.event.annotations.EmbeddedParameter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,6 +23,7 @@ import net.uniplovdiv.fmi.cs.vrs.event.annotations.*;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -80,6 +84,30 @@ public class EventSerializerTest {
         }
     }
 
+    static class VersionedEvent extends Event {
+        private static final long serialVersionUID = 2L;
+
+        @EmbeddedParameter(value = "room", aliases = { "hall" })
+        private String room;
+
+        @EmbeddedParameter(value = "capacity", defaultValue = "25")
+        private int capacity;
+
+        @EmbeddedParameter("speaker")
+        private String speaker;
+
+        public String getRoom() {
+            return room;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public String getSpeaker() {
+            return speaker;
+        }
+    }
     static class CustomEventWithDeclaredClasses extends Event {
         private static final long serialVersionUID = -285100436140061168L;
 
@@ -280,4 +308,113 @@ public class EventSerializerTest {
         assertEquals(event, deser);
         //System.out.println(deser.toString());
     }
+
+    @Test
+    void runtimeTypeAdapterFactorySubtypeCachingTest() {
+        RuntimeTypeAdapterFactory<IEvent> rtaf = RuntimeTypeAdapterFactory.of(IEvent.class,
+                IEvent.___EVENT_TYPE_CLASS_NAME);
+        assertNull(rtaf.getSubtype(CustomEvent.class));
+
+        rtaf.registerSubtype(CustomEvent.class);
+        RuntimeTypeAdapterFactory.Subtype subtype = rtaf.getSubtype(CustomEvent.class);
+        assertNotNull(subtype);
+        assertSame(subtype, rtaf.getSubtype(CustomEvent.class.getCanonicalName()));
+        assertEquals(CustomEvent.class, subtype.getType());
+        assertEquals(5101153334783381560L, subtype.getSerialVersionUID());
+    }
+
+    @Test
+    void jsonEventSerializerRegistrationAfterCreationTest() throws Exception {
+        JsonEventSerializer jes = new JsonEventSerializer(StandardCharsets.UTF_16, null, null, "nonexistent.pkg");
+        String data = "{\"__event_type_class_name\":\"test.EventSerializerTest.CustomEvent2\",\"someCustomAttribute\":\"blahblah\",\"id\":3,\"timestampMs\":1502083108905,\"priority\":0,\"eventLocation\":{\"address\":\"\",\"occurrenceMediumType\":0,\"extraData\":{}},\"description\":\"\",\"dynamicParameters\":{},\"subEvents\":{},\"serialVersionUID\":-1538376119524454456}";
+        byte[] bdata = jes.bytesFromString(data);
+
+        jes.registerEvent(CustomEvent2.class);
+        assertEquals(CustomEvent2.class, jes.deserialize(bdata).getClass());
+
+        CustomEvent ce = Event.makeInstance(CustomEvent.class);
+        ce.setSomeCustomAttribute("value");
+        assertEquals(ce, jes.deserialize(jes.serialize(ce)));
+    }
+
+    @Test
+    void lazyEventDeserializationTest() throws Exception {
+        this.le.setPriority(3);
+        this.le.setValidFromTimestampMs(1000);
+        this.le.setValidThroughTimestampMs(2000);
+
+        Set<Class<? extends IEvent>> implementors = new HashSet<>();
+        implementors.add(LectureEvent.class);
+        JsonEventSerializer jes = new JsonEventSerializer(StandardCharsets.UTF_16, implementors, null);
+        JavaEventSerializer jees = new JavaEventSerializer();
+
+        // the regions are surrounded by garbage that must not be read
+        byte[] jsonData = jes.serialize(this.le), javaData = jees.serialize(this.le);
+        byte[] jsonRegion = new byte[jsonData.length + 10], javaRegion = new byte[javaData.length + 10];
+        Arrays.fill(jsonRegion, (byte) '{');
+        Arrays.fill(javaRegion, (byte) 0x73);
+        System.arraycopy(jsonData, 0, jsonRegion, 3, jsonData.length);
+        System.arraycopy(javaData, 0, javaRegion, 3, javaData.length);
+
+        LazyEvent[] lazyEvents = new LazyEvent[] {
+                jes.deserializeLazily(jsonData), jees.deserializeLazily(javaData),
+                jes.deserializeLazily(jsonRegion, 3, jsonData.length),
+                jees.deserializeLazily(javaRegion, 3, javaData.length)
+        };
+        for (LazyEvent lazy : lazyEvents) {
+            assertTrue(lazy.isHeaderParsed());
+            assertEquals(LectureEvent.class, lazy.getType());
+            assertEquals(this.le.getId(), lazy.getId());
+            assertEquals(this.le.getTimestampMs(), lazy.getTimestampMs());
+            assertEquals(this.le.getValidFromTimestampMs(), lazy.getValidFromTimestampMs());
+            assertEquals(this.le.getValidThroughTimestampMs(), lazy.getValidThroughTimestampMs());
+            assertEquals(this.le.getPriority(), lazy.getPriority());
+            assertEquals(this.le.getCategory(), lazy.getCategory());
+            assertEquals(0, lazy.compareTo(this.le));
+            assertFalse(lazy.isMaterialized());
+
+            assertEquals(this.le.getDynamicParameters(), lazy.getDynamicParameters());
+            assertTrue(lazy.isMaterialized());
+            assertEquals(this.le, lazy.materialize());
+            assertEquals(this.le, jes.deserialize(jes.serialize(lazy)));
+            assertNotEquals(this.le, lazy);
+            assertNotEquals(lazy, this.le);
+        }
+        assertEquals(lazyEvents[0], lazyEvents[1]);
+        assertEquals(lazyEvents[1], lazyEvents[0]);
+        assertEquals(lazyEvents[0].hashCode(), lazyEvents[1].hashCode());
+        assertEquals(lazyEvents[0], lazyEvents[2]);
+        assertEquals(lazyEvents[1], lazyEvents[3]);
+        assertThrows(IndexOutOfBoundsException.class, () -> jes.deserializeLazily(jsonRegion, 11, jsonData.length));
+    }
+
+    @Test
+    void jsonEventSerializerSchemaEvolutionTest() throws Exception {
+        Set<Class<? extends IEvent>> implementors = new HashSet<>();
+        implementors.add(VersionedEvent.class);
+        JsonEventSerializer jes = new JsonEventSerializer(StandardCharsets.UTF_16, implementors, null);
+        String data = "{\"__event_type_class_name\":\"test.EventSerializerTest.VersionedEvent\",\"hall\":\"A1\",\"lecturer\":\"John\",\"obsolete\":true,\"id\":3,\"timestampMs\":1502083108905,\"priority\":0,\"eventLocation\":{\"address\":\"\",\"occurrenceMediumType\":0,\"extraData\":{}},\"description\":\"\",\"dynamicParameters\":{},\"subEvents\":{},\"serialVersionUID\":1}";
+        byte[] bdata = jes.bytesFromString(data);
+
+        System.err.println("-------THIS IS OK------");
+        assertThrows(IOException.class, () -> jes.deserialize(bdata));
+        System.err.println("-----------------------");
+
+        EventSchemaRegistry registry = new EventSchemaRegistry();
+        registry.register(VersionedEvent.class, 1L, new EventSchemaRegistry.FieldMapping()
+                .rename("lecturer", "speaker").remove("obsolete"));
+        jes.setSchemaRegistry(registry);
+
+        VersionedEvent ve = (VersionedEvent) jes.deserialize(bdata);
+        assertEquals(3, ve.getId());
+        assertEquals("A1", ve.getRoom());
+        assertEquals(25, ve.getCapacity());
+        assertEquals("John", ve.getSpeaker());
+
+        String noUidData = "{\"__event_type_class_name\":\"test.EventSerializerTest.VersionedEvent\",\"room\":\"B2\",\"capacity\":5,\"id\":4,\"timestampMs\":1502083108905,\"priority\":0,\"eventLocation\":{\"address\":\"\",\"occurrenceMediumType\":0,\"extraData\":{}},\"description\":\"\",\"dynamicParameters\":{},\"subEvents\":{}}";
+        ve = (VersionedEvent) jes.deserialize(jes.bytesFromString(noUidData));
+        assertEquals("B2", ve.getRoom());
+        assertEquals(5, ve.getCapacity());
+        assertNull(ve.getSpeaker());
+    }
 }